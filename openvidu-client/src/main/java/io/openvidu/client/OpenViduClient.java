@@ -16,6 +16,17 @@
 
 package io.openvidu.client;
 
+import static io.openvidu.client.internal.ProtocolElements.BATCH_ERRORCODE_PARAM;
+import static io.openvidu.client.internal.ProtocolElements.BATCH_ERRORDATA_PARAM;
+import static io.openvidu.client.internal.ProtocolElements.BATCH_ERRORMESSAGE_PARAM;
+import static io.openvidu.client.internal.ProtocolElements.BATCH_ERROR_PARAM;
+import static io.openvidu.client.internal.ProtocolElements.BATCH_ID_PARAM;
+import static io.openvidu.client.internal.ProtocolElements.BATCH_METHOD;
+import static io.openvidu.client.internal.ProtocolElements.BATCH_METHOD_PARAM;
+import static io.openvidu.client.internal.ProtocolElements.BATCH_PARAMS_PARAM;
+import static io.openvidu.client.internal.ProtocolElements.BATCH_REQUESTS_PARAM;
+import static io.openvidu.client.internal.ProtocolElements.BATCH_RESPONSES_PARAM;
+import static io.openvidu.client.internal.ProtocolElements.BATCH_RESULT_PARAM;
 import static io.openvidu.client.internal.ProtocolElements.CUSTOMREQUEST_METHOD;
 import static io.openvidu.client.internal.ProtocolElements.JOINROOM_METHOD;
 import static io.openvidu.client.internal.ProtocolElements.JOINROOM_PEERID_PARAM;
@@ -24,6 +35,7 @@ import static io.openvidu.client.internal.ProtocolElements.JOINROOM_PEERSTREAMS_
 import static io.openvidu.client.internal.ProtocolElements.JOINROOM_ROOM_PARAM;
 import static io.openvidu.client.internal.ProtocolElements.JOINROOM_USER_PARAM;
 import static io.openvidu.client.internal.ProtocolElements.LEAVEROOM_METHOD;
+import static io.openvidu.client.internal.ProtocolElements.ONICECANDIDATE_CANDIDATES_PARAM;
 import static io.openvidu.client.internal.ProtocolElements.ONICECANDIDATE_CANDIDATE_PARAM;
 import static io.openvidu.client.internal.ProtocolElements.ONICECANDIDATE_EPNAME_PARAM;
 import static io.openvidu.client.internal.ProtocolElements.ONICECANDIDATE_METHOD;
@@ -51,9 +63,11 @@ import java.util.List;
 import java.util.Map;
 
 import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.kurento.jsonrpc.JsonRpcErrorException;
 import org.kurento.jsonrpc.client.JsonRpcClient;
 import org.kurento.jsonrpc.client.JsonRpcClientWebSocket;
 import org.kurento.jsonrpc.client.JsonRpcWSConnectionListener;
+import org.kurento.jsonrpc.message.Request;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -61,6 +75,7 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
+import io.openvidu.client.internal.IceCandidate;
 import io.openvidu.client.internal.JsonRoomUtils;
 import io.openvidu.client.internal.Notification;
 
@@ -186,14 +201,65 @@ public class OpenViduClient {
 
   public void onIceCandidate(String endpointName, String candidate, String sdpMid,
       int sdpMLineIndex) throws IOException {
+    client.sendRequest(ONICECANDIDATE_METHOD,
+        iceCandidateParams(endpointName, candidate, sdpMid, sdpMLineIndex));
+  }
+
+  /**
+   * Sends many ICE candidates of the same endpoint in a single message
+   */
+  public void onIceCandidates(String endpointName, List<IceCandidate> candidates)
+      throws IOException {
+    JsonArray jsonCandidates = new JsonArray();
+    for (IceCandidate candidate : candidates) {
+      JsonObject jsonCandidate = new JsonObject();
+      jsonCandidate.addProperty(ONICECANDIDATE_CANDIDATE_PARAM, candidate.getCandidate());
+      jsonCandidate.addProperty(ONICECANDIDATE_SDPMIDPARAM, candidate.getSdpMid());
+      jsonCandidate.addProperty(ONICECANDIDATE_SDPMLINEINDEX_PARAM, candidate.getSdpMLineIndex());
+      jsonCandidates.add(jsonCandidate);
+    }
     JsonObject params = new JsonObject();
     params.addProperty(ONICECANDIDATE_EPNAME_PARAM, endpointName);
-    params.addProperty(ONICECANDIDATE_CANDIDATE_PARAM, candidate);
-    params.addProperty(ONICECANDIDATE_SDPMIDPARAM, sdpMid);
-    params.addProperty(ONICECANDIDATE_SDPMLINEINDEX_PARAM, sdpMLineIndex);
+    params.add(ONICECANDIDATE_CANDIDATES_PARAM, jsonCandidates);
     client.sendRequest(ONICECANDIDATE_METHOD, params);
   }
 
+  /**
+   * Sends many requests in a single message. The server handles them in order, as if they had
+   * been sent one by one, and answers all of them with a single response. Joining and leaving the
+   * room cannot be batched.
+   *
+   * @return the result of every request, in the same order as the requests
+   * @throws JsonRpcErrorException with the error of the first request that failed
+   */
+  public List<JsonElement> sendBatch(List<Request<JsonObject>> requests) throws IOException {
+    JsonArray jsonRequests = new JsonArray();
+    for (int i = 0; i < requests.size(); i++) {
+      JsonObject jsonRequest = new JsonObject();
+      jsonRequest.addProperty(BATCH_ID_PARAM, i);
+      jsonRequest.addProperty(BATCH_METHOD_PARAM, requests.get(i).getMethod());
+      jsonRequest.add(BATCH_PARAMS_PARAM, requests.get(i).getParams());
+      jsonRequests.add(jsonRequest);
+    }
+    JsonObject params = new JsonObject();
+    params.add(BATCH_REQUESTS_PARAM, jsonRequests);
+
+    JsonElement result = client.sendRequest(BATCH_METHOD, params);
+    JsonArray responses = JsonRoomUtils.getResponseProperty(result, BATCH_RESPONSES_PARAM,
+        JsonArray.class);
+    List<JsonElement> results = new ArrayList<JsonElement>();
+    for (JsonElement response : responses) {
+      JsonObject jsonResponse = response.getAsJsonObject();
+      if (jsonResponse.has(BATCH_ERROR_PARAM)) {
+        JsonObject error = jsonResponse.getAsJsonObject(BATCH_ERROR_PARAM);
+        throw new JsonRpcErrorException(error.get(BATCH_ERRORCODE_PARAM).getAsInt(),
+            error.get(BATCH_ERRORMESSAGE_PARAM).getAsString(), error.get(BATCH_ERRORDATA_PARAM));
+      }
+      results.add(jsonResponse.get(BATCH_RESULT_PARAM));
+    }
+    return results;
+  }
+
   public void sendMessage(String userName, String roomName, String message) throws IOException {
     JsonObject params = new JsonObject();
     params.addProperty(SENDMESSAGE_MESSAGE_PARAM, message);
@@ -204,6 +270,16 @@ public class OpenViduClient {
     return client.sendRequest(CUSTOMREQUEST_METHOD, customReqParams);
   }
 
+  private JsonObject iceCandidateParams(String endpointName, String candidate, String sdpMid,
+      int sdpMLineIndex) {
+    JsonObject params = new JsonObject();
+    params.addProperty(ONICECANDIDATE_EPNAME_PARAM, endpointName);
+    params.addProperty(ONICECANDIDATE_CANDIDATE_PARAM, candidate);
+    params.addProperty(ONICECANDIDATE_SDPMIDPARAM, sdpMid);
+    params.addProperty(ONICECANDIDATE_SDPMLINEINDEX_PARAM, sdpMLineIndex);
+    return params;
+  }
+
   /**
    * Polls the notifications list maintained by this client to obtain new events sent by server.
    * This method blocks until there is a notification to return. This is a one-time operation for
@@ -41,12 +41,12 @@ public class OpenViduException extends JsonRpcErrorException {
 
 		USER_UNAUTHORIZED_ERROR_CODE(401), ROLE_NOT_FOUND_ERROR_CODE(402), SESSIONID_CANNOT_BE_CREATED_ERROR_CODE(403),
 		TOKEN_CANNOT_BE_CREATED_ERROR_CODE(404), EXISTING_FILTER_ALREADY_APPLIED_ERROR_CODE(405),
-		FILTER_NOT_APPLIED_ERROR_CODE(406), FILTER_EVENT_LISTENER_NOT_FOUND(407),
+		FILTER_NOT_APPLIED_ERROR_CODE(406), FILTER_EVENT_LISTENER_NOT_FOUND(407), TOKEN_STORE_FULL_ERROR_CODE(408),
 
 		USER_METADATA_FORMAT_INVALID_ERROR_CODE(500),
 
 		SIGNAL_FORMAT_INVALID_ERROR_CODE(600), SIGNAL_TO_INVALID_ERROR_CODE(601),
-		SIGNAL_MESSAGE_INVALID_ERROR_CODE(602),
+		SIGNAL_MESSAGE_INVALID_ERROR_CODE(602), SIGNAL_RATE_LIMIT_ERROR_CODE(603),
 
 		DOCKER_NOT_FOUND(709), RECORDING_PATH_NOT_VALID(708), RECORDING_FILE_EMPTY_ERROR(707),
 		RECORDING_DELETE_ERROR_CODE(706), RECORDING_LIST_ERROR_CODE(705), RECORDING_STOP_ERROR_CODE(704),
@@ -31,6 +31,11 @@ public class ProtocolElements {
 
 	public static final String LEAVEROOM_METHOD = "leaveRoom";
 
+	public static final String RESUME_METHOD = "resume";
+	public static final String RESUME_SESSION_PARAM = "session";
+	public static final String RESUME_CONNECTIONID_PARAM = "connectionId";
+	public static final String RESUME_TOKEN_PARAM = "resumeToken";
+
 	public static final String JOINROOM_METHOD = "joinRoom";
 	public static final String JOINROOM_USER_PARAM = "user";
 	public static final String JOINROOM_TOKEN_PARAM = "token";
@@ -39,6 +44,9 @@ public class ProtocolElements {
 	public static final String JOINROOM_SECRET_PARAM = "secret";
 	public static final String JOINROOM_PLATFORM_PARAM = "platform";
 	public static final String JOINROOM_RECORDER_PARAM = "recorder";
+	public static final String JOINROOM_ICECANDIDATEARRAYS_PARAM = "iceCandidateArrays";
+	public static final String JOINROOM_RESUMABLE_PARAM = "resumable";
+	public static final String JOINROOM_RESUMETOKEN_PARAM = "resumeToken";
 
 	public static final String JOINROOM_PEERID_PARAM = "id";
 	public static final String JOINROOM_PEERCREATEDAT_PARAM = "createdAt";
@@ -83,6 +91,7 @@ public class ProtocolElements {
 	public static final String ONICECANDIDATE_CANDIDATE_PARAM = "candidate";
 	public static final String ONICECANDIDATE_SDPMIDPARAM = "sdpMid";
 	public static final String ONICECANDIDATE_SDPMLINEINDEX_PARAM = "sdpMLineIndex";
+	public static final String ONICECANDIDATE_CANDIDATES_PARAM = "candidates";
 
 	public static final String CUSTOMREQUEST_METHOD = "customRequest";
 
@@ -118,6 +127,18 @@ public class ProtocolElements {
 	public static final String FILTEREVENTLISTENER_EVENTTYPE_PARAM = "eventType";
 	public static final String FILTEREVENTLISTENER_DATA_PARAM = "data";
 
+	public static final String BATCH_METHOD = "batch";
+	public static final String BATCH_REQUESTS_PARAM = "requests";
+	public static final String BATCH_RESPONSES_PARAM = "responses";
+	public static final String BATCH_ID_PARAM = "id";
+	public static final String BATCH_METHOD_PARAM = "method";
+	public static final String BATCH_PARAMS_PARAM = "params";
+	public static final String BATCH_RESULT_PARAM = "result";
+	public static final String BATCH_ERROR_PARAM = "error";
+	public static final String BATCH_ERRORCODE_PARAM = "code";
+	public static final String BATCH_ERRORMESSAGE_PARAM = "message";
+	public static final String BATCH_ERRORDATA_PARAM = "data";
+
 	// ---------------------------- SERVER RESPONSES & EVENTS -----------------
 
 	public static final String PARTICIPANTJOINED_METHOD = "participantJoined";
@@ -168,6 +189,7 @@ public class ProtocolElements {
 	public static final String ICECANDIDATE_CANDIDATE_PARAM = "candidate";
 	public static final String ICECANDIDATE_SDPMID_PARAM = "sdpMid";
 	public static final String ICECANDIDATE_SDPMLINEINDEX_PARAM = "sdpMLineIndex";
+	public static final String ICECANDIDATE_CANDIDATES_PARAM = "candidates";
 
 	public static final String RECORDINGSTARTED_METHOD = "recordingStarted";
 	public static final String RECORDINGSTARTED_ID_PARAM = "id";
@@ -18,20 +18,30 @@ package io.openvidu.client.test;
 import static io.openvidu.client.internal.ProtocolElements.*;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.kurento.jsonrpc.JsonRpcErrorException;
 import org.kurento.jsonrpc.client.JsonRpcClient;
+import org.kurento.jsonrpc.message.Request;
+import org.mockito.ArgumentCaptor;
 
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
 
 import io.openvidu.client.OpenViduClient;
 import io.openvidu.client.ServerJsonRpcHandler;
@@ -71,4 +81,66 @@ public class OpenViduClientTest {
     assertThat(client.joinRoom("room", "user"), is(joinResult));
 
   }
+
+  @Test
+  public void testBatch() throws IOException {
+    JsonObject unsubscribe = new JsonObject();
+    unsubscribe.addProperty(UNSUBSCRIBEFROMVIDEO_SENDER_PARAM, "sender");
+    JsonObject message = new JsonObject();
+    message.addProperty(SENDMESSAGE_MESSAGE_PARAM, "hello");
+
+    JsonObject result = new JsonObject();
+    JsonArray responses = new JsonArray();
+    responses.add(batchResponse(0, new JsonPrimitive("first")));
+    responses.add(batchResponse(1, new JsonPrimitive("second")));
+    result.add(BATCH_RESPONSES_PARAM, responses);
+    ArgumentCaptor<JsonObject> sent = ArgumentCaptor.forClass(JsonObject.class);
+    when(jsonRpcClient.sendRequest(eq(BATCH_METHOD), sent.capture())).thenReturn(result);
+
+    List<JsonElement> results = client.sendBatch(Arrays.asList(
+        new Request<>(UNSUBSCRIBEFROMVIDEO_METHOD, unsubscribe), new Request<>(SENDMESSAGE_ROOM_METHOD, message)));
+    assertThat(results, is(Arrays.<JsonElement> asList(new JsonPrimitive("first"), new JsonPrimitive("second"))));
+
+    JsonArray requests = sent.getValue().getAsJsonArray(BATCH_REQUESTS_PARAM);
+    assertThat(requests.size(), is(2));
+    JsonObject first = requests.get(0).getAsJsonObject();
+    assertThat(first.get(BATCH_ID_PARAM).getAsInt(), is(0));
+    assertThat(first.get(BATCH_METHOD_PARAM).getAsString(), is(UNSUBSCRIBEFROMVIDEO_METHOD));
+    assertThat(first.get(BATCH_PARAMS_PARAM), is((JsonElement) unsubscribe));
+    JsonObject second = requests.get(1).getAsJsonObject();
+    assertThat(second.get(BATCH_ID_PARAM).getAsInt(), is(1));
+    assertThat(second.get(BATCH_METHOD_PARAM).getAsString(), is(SENDMESSAGE_ROOM_METHOD));
+  }
+
+  @Test
+  public void testBatchError() throws IOException {
+    JsonObject error = new JsonObject();
+    error.addProperty(BATCH_ERRORCODE_PARAM, 801);
+    error.addProperty(BATCH_ERRORMESSAGE_PARAM, "Method 'joinRoom' cannot be sent inside a batch");
+    JsonObject failed = new JsonObject();
+    failed.addProperty(BATCH_ID_PARAM, 1);
+    failed.add(BATCH_ERROR_PARAM, error);
+
+    JsonObject result = new JsonObject();
+    JsonArray responses = new JsonArray();
+    responses.add(batchResponse(0, JsonNull.INSTANCE));
+    responses.add(failed);
+    result.add(BATCH_RESPONSES_PARAM, responses);
+    when(jsonRpcClient.sendRequest(eq(BATCH_METHOD), any(JsonObject.class))).thenReturn(result);
+
+    try {
+      client.sendBatch(Arrays.asList(new Request<>(UNPUBLISHVIDEO_METHOD, new JsonObject()),
+          new Request<>(JOINROOM_METHOD, new JsonObject())));
+      fail("The error of the failed request is thrown");
+    } catch (JsonRpcErrorException e) {
+      assertThat(e.getCode(), is(801));
+    }
+  }
+
+  private static JsonObject batchResponse(int id, JsonElement result) {
+    JsonObject response = new JsonObject();
+    response.addProperty(BATCH_ID_PARAM, id);
+    response.add(BATCH_RESULT_PARAM, result);
+    return response;
+  }
 }
@@ -26,6 +26,8 @@ public class KurentoOptions {
 	private Integer videoMinRecvBandwidth;
 	private Integer videoMaxSendBandwidth;
 	private Integer videoMinSendBandwidth;
+	private Double signalRate;
+	private Integer signalBurst;
 	private String[] allowedFilters;
 
 	/**
@@ -39,6 +41,8 @@ public class KurentoOptions {
 		private Integer videoMinRecvBandwidth;
 		private Integer videoMaxSendBandwidth;
 		private Integer videoMinSendBandwidth;
+		private Double signalRate;
+		private Integer signalBurst;
 		private String[] allowedFilters = {};
 
 		/**
@@ -46,7 +50,8 @@ public class KurentoOptions {
 		 */
 		public KurentoOptions build() {
 			return new KurentoOptions(this.videoMaxRecvBandwidth, this.videoMinRecvBandwidth,
-					this.videoMaxSendBandwidth, this.videoMinSendBandwidth, this.allowedFilters);
+					this.videoMaxSendBandwidth, this.videoMinSendBandwidth, this.signalRate, this.signalBurst,
+					this.allowedFilters);
 		}
 
 		/**
@@ -85,6 +90,24 @@ public class KurentoOptions {
 			return this;
 		}
 
+		/**
+		 * Set value for
+		 * {@link io.openvidu.java.client.KurentoOptions#getSignalRate()}
+		 */
+		public Builder signalRate(double signalRate) {
+			this.signalRate = signalRate;
+			return this;
+		}
+
+		/**
+		 * Set value for
+		 * {@link io.openvidu.java.client.KurentoOptions#getSignalBurst()}
+		 */
+		public Builder signalBurst(int signalBurst) {
+			this.signalBurst = signalBurst;
+			return this;
+		}
+
 		/**
 		 * Set value for
 		 * {@link io.openvidu.java.client.KurentoOptions#getAllowedFilters()}
@@ -104,6 +127,14 @@ public class KurentoOptions {
 		this.allowedFilters = allowedFilters;
 	}
 
+	public KurentoOptions(Integer videoMaxRecvBandwidth, Integer videoMinRecvBandwidth, Integer videoMaxSendBandwidth,
+			Integer videoMinSendBandwidth, Double signalRate, Integer signalBurst, String[] allowedFilters) {
+		this(videoMaxRecvBandwidth, videoMinRecvBandwidth, videoMaxSendBandwidth, videoMinSendBandwidth,
+				allowedFilters);
+		this.signalRate = signalRate;
+		this.signalBurst = signalBurst;
+	}
+
 	/**
 	 * Defines the maximum number of Kbps that the client owning the token will be
 	 * able to receive from Kurento Media Server. 0 means unconstrained. Giving a
@@ -163,6 +194,28 @@ public class KurentoOptions {
 		return videoMinSendBandwidth;
 	}
 
+	/**
+	 * Defines the number of signals per second the client owning the token will be
+	 * able to send. 0 means unconstrained. Giving a value to this property will
+	 * override the global configuration set in OpenVidu Server configuration
+	 * (parameter <code>openvidu.signal.connection-rate</code>)
+	 */
+	public Double getSignalRate() {
+		return signalRate;
+	}
+
+	/**
+	 * Defines the number of signals the client owning the token will be able to
+	 * send at once before being limited by
+	 * {@link io.openvidu.java.client.KurentoOptions#getSignalRate()}. Giving a
+	 * value to this property will override the global configuration set in
+	 * OpenVidu Server configuration (parameter
+	 * <code>openvidu.signal.connection-burst</code>)
+	 */
+	public Integer getSignalBurst() {
+		return signalBurst;
+	}
+
 	/**
 	 * Defines the names of the filters the user owning the token will be able to
 	 * apply. See
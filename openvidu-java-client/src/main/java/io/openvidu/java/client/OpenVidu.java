@@ -70,6 +70,7 @@ public class OpenVidu {
 
 	protected final static String API_SESSIONS = "api/sessions";
 	protected final static String API_TOKENS = "api/tokens";
+	protected final static String API_TOKENS_BATCH = "/batch";
 	protected final static String API_RECORDINGS = "api/recordings";
 	protected final static String API_RECORDINGS_START = "/start";
 	protected final static String API_RECORDINGS_STOP = "/stop";
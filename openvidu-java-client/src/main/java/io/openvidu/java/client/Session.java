@@ -104,7 +104,6 @@ public class Session {
 	 * @throws OpenViduJavaClientException
 	 * @throws OpenViduHttpException
 	 */
-	@SuppressWarnings("unchecked")
 	public String generateToken(TokenOptions tokenOptions) throws OpenViduJavaClientException, OpenViduHttpException {
 
 		if (!this.hasSessionId()) {
@@ -113,37 +112,7 @@ public class Session {
 
 		HttpPost request = new HttpPost(OpenVidu.urlOpenViduServer + OpenVidu.API_TOKENS);
 
-		JSONObject json = new JSONObject();
-		json.put("session", this.sessionId);
-		json.put("role", tokenOptions.getRole().name());
-		json.put("data", tokenOptions.getData());
-		if (tokenOptions.getKurentoOptions() != null) {
-			JSONObject kurentoOptions = new JSONObject();
-			if (tokenOptions.getKurentoOptions().getVideoMaxRecvBandwidth() != null) {
-				kurentoOptions.put("videoMaxRecvBandwidth",
-						tokenOptions.getKurentoOptions().getVideoMaxRecvBandwidth());
-			}
-			if (tokenOptions.getKurentoOptions().getVideoMinRecvBandwidth() != null) {
-				kurentoOptions.put("videoMinRecvBandwidth",
-						tokenOptions.getKurentoOptions().getVideoMinRecvBandwidth());
-			}
-			if (tokenOptions.getKurentoOptions().getVideoMaxSendBandwidth() != null) {
-				kurentoOptions.put("videoMaxSendBandwidth",
-						tokenOptions.getKurentoOptions().getVideoMaxSendBandwidth());
-			}
-			if (tokenOptions.getKurentoOptions().getVideoMinSendBandwidth() != null) {
-				kurentoOptions.put("videoMinSendBandwidth",
-						tokenOptions.getKurentoOptions().getVideoMinSendBandwidth());
-			}
-			if (tokenOptions.getKurentoOptions().getAllowedFilters().length > 0) {
-				JSONArray allowedFilters = new JSONArray();
-				for (String filter : tokenOptions.getKurentoOptions().getAllowedFilters()) {
-					allowedFilters.add(filter);
-				}
-				kurentoOptions.put("allowedFilters", allowedFilters);
-			}
-			json.put("kurentoOptions", kurentoOptions);
-		}
+		JSONObject json = this.tokenOptionsToJson(tokenOptions);
 		StringEntity params;
 		try {
 			params = new StringEntity(json.toString());
@@ -175,6 +144,62 @@ public class Session {
 		}
 	}
 
+	/**
+	 * Gets <code>count</code> new tokens associated to Session object configured
+	 * with <code>tokenOptions</code> in a single request to OpenVidu Server. Either
+	 * all the tokens are generated or none of them
+	 *
+	 * @return The list of generated tokens
+	 * 
+	 * @throws OpenViduJavaClientException
+	 * @throws OpenViduHttpException
+	 */
+	@SuppressWarnings("unchecked")
+	public List<String> generateTokens(int count, TokenOptions tokenOptions)
+			throws OpenViduJavaClientException, OpenViduHttpException {
+
+		if (!this.hasSessionId()) {
+			this.getSessionId();
+		}
+
+		HttpPost request = new HttpPost(
+				OpenVidu.urlOpenViduServer + OpenVidu.API_TOKENS + OpenVidu.API_TOKENS_BATCH);
+
+		JSONObject json = this.tokenOptionsToJson(tokenOptions);
+		json.put("count", count);
+		StringEntity params;
+		try {
+			params = new StringEntity(json.toString());
+		} catch (UnsupportedEncodingException e1) {
+			throw new OpenViduJavaClientException(e1.getMessage(), e1.getCause());
+		}
+
+		request.setHeader(HttpHeaders.CONTENT_TYPE, "application/json");
+		request.setEntity(params);
+
+		HttpResponse response;
+		try {
+			response = OpenVidu.httpClient.execute(request);
+		} catch (IOException e2) {
+			throw new OpenViduJavaClientException(e2.getMessage(), e2.getCause());
+		}
+
+		try {
+			int statusCode = response.getStatusLine().getStatusCode();
+			if ((statusCode == org.apache.http.HttpStatus.SC_OK)) {
+				JSONArray jsonArrayTokens = (JSONArray) httpResponseToJson(response).get("content");
+				List<String> tokens = new ArrayList<>(jsonArrayTokens.size());
+				jsonArrayTokens.forEach(token -> tokens.add((String) ((JSONObject) token).get("id")));
+				log.info("Returning {} TOKENS", tokens.size());
+				return tokens;
+			} else {
+				throw new OpenViduHttpException(statusCode);
+			}
+		} finally {
+			EntityUtils.consumeQuietly(response.getEntity());
+		}
+	}
+
 	/**
 	 * Gracefully closes the Session: unpublishes all streams and evicts every
 	 * participant
@@ -488,6 +513,48 @@ public class Session {
 		}
 	}
 
+	@SuppressWarnings("unchecked")
+	private JSONObject tokenOptionsToJson(TokenOptions tokenOptions) {
+		JSONObject json = new JSONObject();
+		json.put("session", this.sessionId);
+		json.put("role", tokenOptions.getRole().name());
+		json.put("data", tokenOptions.getData());
+		if (tokenOptions.getKurentoOptions() != null) {
+			JSONObject kurentoOptions = new JSONObject();
+			if (tokenOptions.getKurentoOptions().getVideoMaxRecvBandwidth() != null) {
+				kurentoOptions.put("videoMaxRecvBandwidth",
+						tokenOptions.getKurentoOptions().getVideoMaxRecvBandwidth());
+			}
+			if (tokenOptions.getKurentoOptions().getVideoMinRecvBandwidth() != null) {
+				kurentoOptions.put("videoMinRecvBandwidth",
+						tokenOptions.getKurentoOptions().getVideoMinRecvBandwidth());
+			}
+			if (tokenOptions.getKurentoOptions().getVideoMaxSendBandwidth() != null) {
+				kurentoOptions.put("videoMaxSendBandwidth",
+						tokenOptions.getKurentoOptions().getVideoMaxSendBandwidth());
+			}
+			if (tokenOptions.getKurentoOptions().getVideoMinSendBandwidth() != null) {
+				kurentoOptions.put("videoMinSendBandwidth",
+						tokenOptions.getKurentoOptions().getVideoMinSendBandwidth());
+			}
+			if (tokenOptions.getKurentoOptions().getSignalRate() != null) {
+				kurentoOptions.put("signalRate", tokenOptions.getKurentoOptions().getSignalRate());
+			}
+			if (tokenOptions.getKurentoOptions().getSignalBurst() != null) {
+				kurentoOptions.put("signalBurst", tokenOptions.getKurentoOptions().getSignalBurst());
+			}
+			if (tokenOptions.getKurentoOptions().getAllowedFilters().length > 0) {
+				JSONArray allowedFilters = new JSONArray();
+				for (String filter : tokenOptions.getKurentoOptions().getAllowedFilters()) {
+					allowedFilters.add(filter);
+				}
+				kurentoOptions.put("allowedFilters", allowedFilters);
+			}
+			json.put("kurentoOptions", kurentoOptions);
+		}
+		return json;
+	}
+
 	private JSONObject httpResponseToJson(HttpResponse response) throws OpenViduJavaClientException {
 		JSONParser parser = new JSONParser();
 		JSONObject json;
@@ -22,6 +22,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
 
@@ -55,6 +56,7 @@ import io.openvidu.server.core.SessionEventsHandler;
 import io.openvidu.server.core.SessionManager;
 import io.openvidu.server.core.TokenGenerator;
 import io.openvidu.server.core.TokenGeneratorDefault;
+import io.openvidu.server.core.TokenStore;
 import io.openvidu.server.coturn.CoturnCredentialsService;
 import io.openvidu.server.coturn.CoturnCredentialsServiceFactory;
 import io.openvidu.server.kurento.AutodiscoveryKurentoClientProvider;
@@ -63,12 +65,19 @@ import io.openvidu.server.kurento.core.KurentoParticipantEndpointConfig;
 import io.openvidu.server.kurento.core.KurentoSessionEventsHandler;
 import io.openvidu.server.kurento.core.KurentoSessionManager;
 import io.openvidu.server.kurento.kms.FixedOneKmsManager;
+import io.openvidu.server.kurento.kms.LoadManager;
+import io.openvidu.server.kurento.kms.MaxWebRtcLoadManager;
+import io.openvidu.server.kurento.kms.MultiKmsManager;
+import io.openvidu.server.kurento.kms.WeightedLoadManager;
 import io.openvidu.server.recording.service.RecordingManager;
 import io.openvidu.server.rpc.RpcHandler;
+import io.openvidu.server.rpc.RpcDispatcher;
 import io.openvidu.server.rpc.RpcNotificationService;
+import io.openvidu.server.rpc.SignalRateLimiter;
 import io.openvidu.server.utils.CommandExecutor;
 import io.openvidu.server.utils.GeoLocationByIp;
 import io.openvidu.server.utils.GeoLocationByIpDummy;
+import io.openvidu.server.utils.TimingWheel;
 
 /**
  * OpenVidu Server application
@@ -109,16 +118,52 @@ public class OpenViduServer implements JsonRpcConfigurer {
 		if (firstKmsWsUri.equals("autodiscovery")) {
 			log.info("Using autodiscovery rules to locate KMS on every pipeline");
 			return new AutodiscoveryKurentoClientProvider();
+		} else if (kmsWsUris.size() == 1) {
+			log.info("Configuring OpenVidu Server to use kms: " + firstKmsWsUri);
+			FixedOneKmsManager kmsManager = new FixedOneKmsManager(firstKmsWsUri);
+			kmsManager.setLoadManager(loadManager());
+			return kmsManager;
 		} else {
-			log.info("Configuring OpenVidu Server to use first of the following kmss: " + kmsWsUris);
-			return new FixedOneKmsManager(firstKmsWsUri);
+			log.info("Configuring OpenVidu Server to distribute sessions among the following kmss: " + kmsWsUris);
+			return new MultiKmsManager(kmsWsUris, loadManager());
+		}
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	public LoadManager loadManager() {
+		OpenviduConfig config = openviduConfig();
+		switch (config.getKmsLoadManager()) {
+		case "weighted":
+			return new WeightedLoadManager(config.getKmsLoadPipelineWeight(), config.getKmsLoadWebRtcWeight(),
+					config.getKmsLoadCompositeWeight(), config.getKmsLoadRecorderWeight(),
+					config.getKmsLoadFilterWeight(), config.getKmsLoadCapacity(),
+					config.getKmsLoadMemoryLimit() * 1024L, config.getKmsLoadCpuLimit());
+		case "pipelines":
+		default:
+			return new MaxWebRtcLoadManager(config.getKmsMaxPipelines());
 		}
 	}
 
 	@Bean
 	@ConditionalOnMissingBean
 	public RpcNotificationService notificationService() {
-		return new RpcNotificationService();
+		return new RpcNotificationService(openviduConfig().getRpcOutboundQueueSize(),
+				openviduConfig().getRpcOverflowPolicy(), openviduConfig().getRpcWriterThreads());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	public RpcDispatcher rpcDispatcher() {
+		return new RpcDispatcher(openviduConfig().getRpcExecutor(), openviduConfig().getRpcExecutorThreads());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	public SignalRateLimiter signalRateLimiter() {
+		return new SignalRateLimiter(openviduConfig().getSignalConnectionRate(),
+				openviduConfig().getSignalConnectionBurst(), openviduConfig().getSignalSessionRate(),
+				openviduConfig().getSignalSessionBurst());
 	}
 
 	@Bean
@@ -157,6 +202,19 @@ public class OpenViduServer implements JsonRpcConfigurer {
 		return new TokenGeneratorDefault();
 	}
 
+	@Bean
+	@ConditionalOnMissingBean
+	public TokenStore tokenStore() {
+		return new TokenStore(timingWheel(), openviduConfig().getTokensTtl(), openviduConfig().getTokensMax());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	public TimingWheel timingWheel() {
+		return new TimingWheel("openvidu-timing-wheel", 1, TimeUnit.SECONDS, 4096,
+				Runtime.getRuntime().availableProcessors());
+	}
+
 	@Bean
 	@ConditionalOnMissingBean
 	public OpenviduConfig openviduConfig() {
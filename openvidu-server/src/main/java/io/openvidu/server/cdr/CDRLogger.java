@@ -17,6 +17,8 @@
 
 package io.openvidu.server.cdr;
 
+import java.util.Collection;
+
 import io.openvidu.server.kurento.endpoint.KmsEvent;
 import io.openvidu.server.summary.SessionSummary;
 
@@ -24,6 +26,10 @@ public interface CDRLogger {
 
 	public void log(CDREvent event);
 
+	public default void log(Collection<CDREvent> events) {
+		events.forEach(this::log);
+	}
+
 	public void log(KmsEvent event);
 
 	public void log(SessionSummary sessionSummary);
@@ -17,8 +17,10 @@
 
 package io.openvidu.server.cdr;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -28,6 +30,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import io.openvidu.server.config.OpenviduConfig;
 import io.openvidu.server.core.EndReason;
+import io.openvidu.server.core.FinalUser;
 import io.openvidu.server.core.MediaOptions;
 import io.openvidu.server.core.Participant;
 import io.openvidu.server.core.Session;
@@ -35,6 +38,7 @@ import io.openvidu.server.core.SessionManager;
 import io.openvidu.server.kurento.endpoint.KmsEvent;
 import io.openvidu.server.recording.Recording;
 import io.openvidu.server.recording.service.RecordingManager;
+import io.openvidu.server.summary.ParticipantSummary;
 import io.openvidu.server.summary.SessionSummary;
 
 /**
@@ -192,6 +196,54 @@ public class CallDetailRecord {
 		}
 	}
 
+	/**
+	 * Records the end of every WebRTC connection and every participant of a
+	 * session that is being torn down at once, logging all the events in a single
+	 * batch
+	 */
+	public void recordSessionTeardown(String sessionId, Collection<Participant> participants, EndReason reason) {
+		Map<String, FinalUser> finalUsers = sessionManager.getFinalUsers(sessionId);
+		List<CDREvent> events = new ArrayList<>();
+
+		for (Participant participant : participants) {
+			String participantPublicId = participant.getParticipantPublicId();
+			FinalUser finalUser = finalUsers != null ? finalUsers.get(participant.getFinalUserId()) : null;
+			ParticipantSummary connection = finalUser != null ? finalUser.getConnections().get(participantPublicId)
+					: null;
+
+			Set<CDREventWebrtcConnection> participantSubscriptions = this.subscriptions.remove(participantPublicId);
+			if (participantSubscriptions != null) {
+				for (CDREventWebrtcConnection subscription : participantSubscriptions) {
+					CDREventWebrtcConnection eventSubscriberEnd = new CDREventWebrtcConnection(subscription, reason);
+					events.add(eventSubscriberEnd);
+					if (connection != null) {
+						connection.addSubscriberClosed(subscription.streamId, eventSubscriberEnd);
+					}
+				}
+			}
+
+			CDREventWebrtcConnection publication = this.publications.remove(participantPublicId);
+			if (publication != null) {
+				CDREventWebrtcConnection eventPublisherEnd = new CDREventWebrtcConnection(publication, reason);
+				events.add(eventPublisherEnd);
+				if (connection != null) {
+					connection.addPublisherClosed(publication.streamId, eventPublisherEnd);
+				}
+			}
+
+			CDREventParticipant eventParticipant = this.participants.remove(participantPublicId);
+			if (eventParticipant != null) {
+				CDREventParticipant eventParticipantEnd = new CDREventParticipant(eventParticipant, reason);
+				events.add(eventParticipantEnd);
+				if (finalUser != null) {
+					finalUser.setConnection(eventParticipantEnd);
+				}
+			}
+		}
+
+		this.log(events);
+	}
+
 	public void recordRecordingStarted(String sessionId, Recording recording) {
 		CDREventRecording recordingStartedEvent = new CDREventRecording(sessionId, recording);
 		this.recordings.putIfAbsent(recording.getId(), recordingStartedEvent);
@@ -216,6 +268,14 @@ public class CallDetailRecord {
 		});
 	}
 
+	private void log(Collection<CDREvent> events) {
+		this.loggers.forEach(logger -> {
+			if (openviduConfig.isCdrEnabled() || !logger.canBeDisabled()) {
+				logger.log(events);
+			}
+		});
+	}
+
 	public void log(KmsEvent event) {
 		this.loggers.forEach(logger -> {
 			logger.log(event);
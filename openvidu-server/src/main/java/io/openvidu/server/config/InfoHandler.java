@@ -20,7 +20,11 @@ package io.openvidu.server.config;
 import java.io.IOException;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.PreDestroy;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,42 +33,157 @@ import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import io.openvidu.server.utils.BroadcastRingBuffer;
+
+/**
+ * Sends media events to the dashboard websockets. Events are stored in a ring
+ * buffer and written to every dashboard by a single background thread, so the
+ * KMS event listeners calling {@link #sendInfo(String)} never wait for
+ * dashboard I/O. A dashboard that cannot keep up loses the oldest events
+ */
 public class InfoHandler extends TextWebSocketHandler {
-	
+
 	private static final Logger log = LoggerFactory.getLogger(InfoHandler.class);
-	
-	Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
-	Semaphore semaphore = new Semaphore(1);
-	
-	public void sendInfo(String info){
-		for (WebSocketSession session : this.sessions.values()) {
-			try {
-				this.semaphore.acquire();
-				session.sendMessage(new TextMessage(info));
-				this.semaphore.release();
-			} catch (IOException | InterruptedException e) {
-				e.printStackTrace();
-			}
+
+	private static final int BUFFER_SIZE = 1024;
+
+	/**
+	 * Maximum number of events written to a dashboard in a row before serving the
+	 * next one
+	 */
+	private static final int MAX_EVENTS_PER_TURN = 64;
+
+	private static class Subscriber {
+
+		final WebSocketSession session;
+		final BroadcastRingBuffer.Cursor cursor;
+		final AtomicLong errors = new AtomicLong(0);
+
+		Subscriber(WebSocketSession session, BroadcastRingBuffer.Cursor cursor) {
+			this.session = session;
+			this.cursor = cursor;
+		}
+	}
+
+	private final BroadcastRingBuffer<String> events = new BroadcastRingBuffer<>(BUFFER_SIZE);
+
+	Map<String, Subscriber> sessions = new ConcurrentHashMap<>();
+
+	private volatile Thread publisher;
+	private volatile boolean publisherWaiting = false;
+	private volatile boolean closed = false;
+
+	public void sendInfo(String info) {
+		if (this.sessions.isEmpty()) {
+			return;
+		}
+		this.events.publish(info);
+		Thread publisher = this.publisher;
+		if (publisher != null && this.publisherWaiting) {
+			LockSupport.unpark(publisher);
 		}
 	}
-	
+
 	@Override
 	public void afterConnectionEstablished(WebSocketSession session) throws Exception {
 		log.info("Info websocket stablished...");
-		this.sessions.put(session.getId(), session);
+		this.sessions.put(session.getId(), new Subscriber(session, this.events.newCursor()));
+		this.startPublisher();
 	}
-	
+
 	@Override
 	public void afterConnectionClosed(WebSocketSession session, CloseStatus close) throws Exception {
 		log.info("Info websocket closed: " + close.getReason());
-		this.sessions.remove(session.getId());
+		Subscriber subscriber = this.sessions.remove(session.getId());
+		if (subscriber != null && subscriber.cursor.getDropped() > 0) {
+			log.info("Info websocket {} lost {} events because it could not keep up", session.getId(),
+					subscriber.cursor.getDropped());
+		}
 		session.close();
 	}
-	
+
 	@Override
-	protected void handleTextMessage(WebSocketSession session, TextMessage message)
-			throws Exception {
+	protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
 		log.info("Message received: " + message.getPayload());
 	}
-	
+
+	public JsonObject toJson() {
+		JsonObject json = new JsonObject();
+		json.addProperty("bufferSize", this.events.getCapacity());
+		json.addProperty("publishedEvents", this.events.getPublished());
+		JsonArray subscribers = new JsonArray();
+		for (Subscriber subscriber : this.sessions.values()) {
+			JsonObject s = new JsonObject();
+			s.addProperty("id", subscriber.session.getId());
+			s.addProperty("deliveredEvents", subscriber.cursor.getDelivered());
+			s.addProperty("droppedEvents", subscriber.cursor.getDropped());
+			s.addProperty("lag", this.events.getLag(subscriber.cursor));
+			s.addProperty("errors", subscriber.errors.get());
+			subscribers.add(s);
+		}
+		json.add("subscribers", subscribers);
+		return json;
+	}
+
+	@PreDestroy
+	public void close() {
+		this.closed = true;
+		Thread publisher = this.publisher;
+		if (publisher != null) {
+			LockSupport.unpark(publisher);
+		}
+	}
+
+	private synchronized void startPublisher() {
+		if (this.publisher == null && !this.closed) {
+			Thread t = new Thread(this::publish, "info-publisher");
+			t.setDaemon(true);
+			this.publisher = t;
+			t.start();
+		}
+	}
+
+	private void publish() {
+		while (!this.closed) {
+			// Producers only wake up the publisher while it is waiting. Any event
+			// published after this flag is set is either drained below or leaves
+			// a permit that makes the park return at once
+			this.publisherWaiting = true;
+			if (!this.drain()) {
+				LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+			}
+			this.publisherWaiting = false;
+		}
+	}
+
+	/**
+	 * @return true if any event was written
+	 */
+	private boolean drain() {
+		boolean written = false;
+		for (Subscriber subscriber : this.sessions.values()) {
+			for (int i = 0; i < MAX_EVENTS_PER_TURN; i++) {
+				String info = this.events.poll(subscriber.cursor);
+				if (info == null) {
+					break;
+				}
+				written = true;
+				if (!subscriber.session.isOpen()) {
+					continue;
+				}
+				try {
+					subscriber.session.sendMessage(new TextMessage(info));
+				} catch (IOException | RuntimeException e) {
+					subscriber.errors.incrementAndGet();
+					log.warn("Error sending event to info websocket {}: {}", subscriber.session.getId(),
+							e.getMessage());
+				}
+			}
+		}
+		return written;
+	}
+
 }
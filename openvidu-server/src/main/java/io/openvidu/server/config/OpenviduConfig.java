@@ -23,6 +23,8 @@ import org.springframework.boot.info.BuildProperties;
 import org.springframework.stereotype.Component;
 
 import io.openvidu.java.client.OpenViduRole;
+import io.openvidu.server.rpc.RpcDispatcher;
+import io.openvidu.server.rpc.RpcOutboundQueue.OverflowPolicy;
 
 @Component
 public class OpenviduConfig {
@@ -75,6 +77,114 @@ public class OpenviduConfig {
 	@Value("${openvidu.streams.video.min-send-bandwidth}")
 	private int openviduStreamsVideoMinSendBandwidth;
 
+	@Value("${openvidu.streams.subscribers.prewarm-publishers}")
+	private int openviduStreamsSubscribersPrewarmPublishers;
+
+	@Value("${openvidu.kms.pipeline-pool.min-idle}")
+	private int openviduKmsPipelinePoolMinIdle;
+
+	@Value("${openvidu.kms.pipeline-pool.max-idle}")
+	private int openviduKmsPipelinePoolMaxIdle;
+
+	@Value("${openvidu.kms.pipeline-pool.ttl}")
+	private int openviduKmsPipelinePoolTtl;
+
+	@Value("${openvidu.sessions.shutdown-threads}")
+	private int openviduSessionsShutdownThreads;
+
+	@Value("${openvidu.sessions.shutdown-timeout}")
+	private int openviduSessionsShutdownTimeout;
+
+	@Value("${openvidu.sessions.bulk-teardown}")
+	private boolean openviduSessionsBulkTeardown;
+
+	@Value("${openvidu.sessions.inactive-timeout}")
+	private int openviduSessionsInactiveTimeout;
+
+	@Value("${openvidu.sessions.resume-window}")
+	private int openviduSessionsResumeWindow;
+
+	@Value("${openvidu.tokens.ttl}")
+	private long openviduTokensTtl;
+
+	@Value("${openvidu.tokens.max}")
+	private int openviduTokensMax;
+
+	@Value("${openvidu.tokens.generation-threads}")
+	private int openviduTokensGenerationThreads;
+
+	@Value("${openvidu.kms.pipeline-prepare}")
+	private boolean openviduKmsPipelinePrepare;
+
+	@Value("${openvidu.kms.pipeline-prepare-timeout}")
+	private int openviduKmsPipelinePrepareTimeout;
+
+	@Value("${openvidu.kms.max-pipelines}")
+	private int openviduKmsMaxPipelines;
+
+	@Value("${openvidu.kms.load-reconcile-interval}")
+	private int openviduKmsLoadReconcileInterval;
+
+	@Value("${openvidu.kms.telemetry-interval}")
+	private int openviduKmsTelemetryInterval;
+
+	@Value("${openvidu.kms.load-manager}")
+	private String openviduKmsLoadManager;
+
+	@Value("${openvidu.kms.load.pipeline-weight}")
+	private double openviduKmsLoadPipelineWeight;
+
+	@Value("${openvidu.kms.load.webrtc-weight}")
+	private double openviduKmsLoadWebRtcWeight;
+
+	@Value("${openvidu.kms.load.composite-weight}")
+	private double openviduKmsLoadCompositeWeight;
+
+	@Value("${openvidu.kms.load.recorder-weight}")
+	private double openviduKmsLoadRecorderWeight;
+
+	@Value("${openvidu.kms.load.filter-weight}")
+	private double openviduKmsLoadFilterWeight;
+
+	@Value("${openvidu.kms.load.capacity}")
+	private double openviduKmsLoadCapacity;
+
+	@Value("${openvidu.kms.load.memory-limit}")
+	private int openviduKmsLoadMemoryLimit;
+
+	@Value("${openvidu.kms.load.cpu-limit}")
+	private int openviduKmsLoadCpuLimit;
+
+	@Value("${openvidu.rpc.outbound-queue-size}")
+	private int openviduRpcOutboundQueueSize;
+
+	@Value("${openvidu.rpc.overflow-policy}")
+	private String openviduRpcOverflowPolicy;
+
+	@Value("${openvidu.rpc.writer-threads}")
+	private int openviduRpcWriterThreads;
+
+	@Value("${openvidu.rpc.executor}")
+	private String openviduRpcExecutor;
+
+	@Value("${openvidu.rpc.executor-threads}")
+	private int openviduRpcExecutorThreads;
+
+	@Value("${openvidu.ice.coalesce-window}")
+	private int openviduIceCoalesceWindow;
+
+	@Value("${openvidu.signal.connection-rate}")
+	private double openviduSignalConnectionRate;
+
+	@Value("${openvidu.signal.connection-burst}")
+	private int openviduSignalConnectionBurst;
+
+	@Value("${openvidu.signal.session-rate}")
+	private double openviduSignalSessionRate;
+
+	@Value("${openvidu.signal.session-burst}")
+	private int openviduSignalSessionBurst;
+
 	@Value("${coturn.redis.ip}")
 	private String coturnRedisIp;
 
@@ -180,6 +290,117 @@ public class OpenviduConfig {
 		return this.openviduStreamsVideoMinSendBandwidth;
 	}
 
+	public int getSubscribersPrewarmPublishers() {
+		return this.openviduStreamsSubscribersPrewarmPublishers;
+	}
+
+	public int getKmsPipelinePoolMinIdle() {
+		return this.openviduKmsPipelinePoolMinIdle;
+	}
+
+	public int getKmsPipelinePoolMaxIdle() {
+		return this.openviduKmsPipelinePoolMaxIdle;
+	}
+
+	public int getKmsPipelinePoolTtl() {
+		return this.openviduKmsPipelinePoolTtl;
+	}
+
+	public int getSessionsShutdownThreads() {
+		return this.openviduSessionsShutdownThreads;
+	}
+
+	public int getSessionsShutdownTimeout() {
+		return this.openviduSessionsShutdownTimeout;
+	}
+
+	public boolean isSessionsBulkTeardown() {
+		return this.openviduSessionsBulkTeardown;
+	}
+
+	public int getSessionsInactiveTimeout() {
+		return this.openviduSessionsInactiveTimeout;
+	}
+
+	public int getSessionsResumeWindow() {
+		return this.openviduSessionsResumeWindow;
+	}
+
+	public long getTokensTtl() {
+		return this.openviduTokensTtl;
+	}
+
+	public int getTokensMax() {
+		return this.openviduTokensMax;
+	}
+
+	public int getTokensGenerationThreads() {
+		return this.openviduTokensGenerationThreads;
+	}
+
+	public boolean isKmsPipelinePrepare() {
+		return this.openviduKmsPipelinePrepare;
+	}
+
+	public int getKmsPipelinePrepareTimeout() {
+		return this.openviduKmsPipelinePrepareTimeout;
+	}
+
+	public int getKmsMaxPipelines() {
+		return this.openviduKmsMaxPipelines;
+	}
+
+	public int getKmsLoadReconcileInterval() {
+		return this.openviduKmsLoadReconcileInterval;
+	}
+
+	public int getKmsTelemetryInterval() {
+		return this.openviduKmsTelemetryInterval;
+	}
+
+	public String getKmsLoadManager() {
+		return this.openviduKmsLoadManager;
+	}
+
+	public double getKmsLoadPipelineWeight() {
+		return this.openviduKmsLoadPipelineWeight;
+	}
+
+	public double getKmsLoadWebRtcWeight() {
+		return this.openviduKmsLoadWebRtcWeight;
+	}
+
+	public double getKmsLoadCompositeWeight() {
+		return this.openviduKmsLoadCompositeWeight;
+	}
+
+	public double getKmsLoadRecorderWeight() {
+		return this.openviduKmsLoadRecorderWeight;
+	}
+
+	public double getKmsLoadFilterWeight() {
+		return this.openviduKmsLoadFilterWeight;
+	}
+
+	public double getKmsLoadCapacity() {
+		return this.openviduKmsLoadCapacity;
+	}
+
+	/**
+	 * @return memory limit of every KMS in MB. 0 means no limit
+	 */
+	public int getKmsLoadMemoryLimit() {
+		return this.openviduKmsLoadMemoryLimit;
+	}
+
+	/**
+	 * @return CPU usage in percentage at which every KMS is full. 0 means no
+	 *         limit
+	 */
+	public int getKmsLoadCpuLimit() {
+		return this.openviduKmsLoadCpuLimit;
+	}
+
 	public String getCoturnDatabaseString() {
 		return "\"ip=" + this.coturnRedisIp + " dbname=" + this.coturnRedisDbname + " password="
 				+ this.coturnRedisPassword + " connect_timeout=" + this.coturnRedisConnectTimeout + "\"";
@@ -214,6 +435,60 @@ public class OpenviduConfig {
 		return roles;
 	}
 
+	public int getRpcOutboundQueueSize() {
+		return this.openviduRpcOutboundQueueSize;
+	}
+
+	public OverflowPolicy getRpcOverflowPolicy() {
+		switch (this.openviduRpcOverflowPolicy) {
+		case "disconnect":
+			return OverflowPolicy.DISCONNECT;
+		case "drop_oldest":
+		default:
+			return OverflowPolicy.DROP_OLDEST;
+		}
+	}
+
+	public int getRpcWriterThreads() {
+		return this.openviduRpcWriterThreads;
+	}
+
+	public RpcDispatcher.Mode getRpcExecutor() {
+		switch (this.openviduRpcExecutor) {
+		case "inline":
+			return RpcDispatcher.Mode.INLINE;
+		case "virtual":
+			return RpcDispatcher.Mode.VIRTUAL;
+		case "pool":
+		default:
+			return RpcDispatcher.Mode.POOL;
+		}
+	}
+
+	public int getRpcExecutorThreads() {
+		return this.openviduRpcExecutorThreads;
+	}
+
+	public int getIceCoalesceWindow() {
+		return this.openviduIceCoalesceWindow;
+	}
+
+	public double getSignalConnectionRate() {
+		return this.openviduSignalConnectionRate;
+	}
+
+	public int getSignalConnectionBurst() {
+		return this.openviduSignalConnectionBurst;
+	}
+
+	public double getSignalSessionRate() {
+		return this.openviduSignalSessionRate;
+	}
+
+	public int getSignalSessionBurst() {
+		return this.openviduSignalSessionBurst;
+	}
+
 	public String getOpenViduServerVersion() {
 		return this.buildProperties.get("version.openvidu.server");
 	}
@@ -17,9 +17,13 @@
 
 package io.openvidu.server.core;
 
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
 import com.google.gson.JsonObject;
 
 import io.openvidu.server.utils.GeoLocation;
+import io.openvidu.server.utils.TokenBucket;
 
 public class Participant {
 
@@ -33,10 +37,15 @@ public class Participant {
 	protected Token token; // Token associated to this participant
 	protected GeoLocation location; // Location of the participant
 	protected String platform; // Platform used by the participant to connect to the session
+	protected volatile String resumeToken; // Secret to resume this connection from a new websocket. Null if not resumable
 
 	protected boolean streaming = false;
 	protected volatile boolean closed;
 
+	// Belongs to the participant and not to its websocket, so resuming the
+	// connection from a new one does not refill it
+	private final AtomicReference<TokenBucket> signalRateLimit = new AtomicReference<>();
+
 	private final String METADATA_SEPARATOR = "%/%";
 
 	public Participant(String finalUserId, String participantPrivatetId, String participantPublicId, String sessionId,
@@ -122,6 +131,14 @@ public class Participant {
 		return this.platform;
 	}
 
+	public String getResumeToken() {
+		return this.resumeToken;
+	}
+
+	public void setResumeToken(String resumeToken) {
+		this.resumeToken = resumeToken;
+	}
+
 	public void setPlatform(String platform) {
 		this.platform = platform;
 	}
@@ -134,6 +151,14 @@ public class Participant {
 		return closed;
 	}
 
+	/**
+	 * @param supplier creates the bucket the first time it is requested
+	 * @return token bucket limiting the signals sent by this participant
+	 */
+	public TokenBucket getSignalRateLimit(Supplier<TokenBucket> supplier) {
+		return TokenBucket.getOrCreate(signalRateLimit, supplier);
+	}
+
 	public void setStreaming(boolean streaming) {
 		this.streaming = streaming;
 	}
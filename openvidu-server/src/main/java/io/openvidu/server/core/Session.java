@@ -17,13 +17,20 @@
 
 package io.openvidu.server.core;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
@@ -37,6 +44,7 @@ import io.openvidu.java.client.SessionProperties;
 import io.openvidu.server.config.OpenviduConfig;
 import io.openvidu.server.kurento.core.KurentoParticipant;
 import io.openvidu.server.recording.service.RecordingManager;
+import io.openvidu.server.utils.TokenBucket;
 
 public class Session implements SessionInterface {
 
@@ -44,12 +52,16 @@ public class Session implements SessionInterface {
 	protected RecordingManager recordingManager;
 
 	protected final ConcurrentMap<String, Participant> participants = new ConcurrentHashMap<>();
+	protected final ConcurrentMap<String, Participant> participantsByPublicId = new ConcurrentHashMap<>();
+	private final Object rosterLock = new Object();
+	private volatile Roster roster = new Roster(0, Collections.emptySet());
 	protected String sessionId;
 	protected SessionProperties sessionProperties;
 	protected Long startTime;
 
 	protected volatile boolean closed = false;
 	protected AtomicInteger activePublishers = new AtomicInteger(0);
+	private final AtomicReference<TokenBucket> signalRateLimit = new AtomicReference<>();
 
 	public final AtomicBoolean recordingManuallyStopped = new AtomicBoolean(false);
 
@@ -82,9 +94,23 @@ public class Session implements SessionInterface {
 		return this.startTime;
 	}
 
+	/**
+	 * Returns an immutable snapshot of the participants of the session. The
+	 * snapshot is only rebuilt when a participant joins or leaves, so it can be
+	 * iterated by every notification without copying it
+	 */
 	public Set<Participant> getParticipants() {
 		checkClosed();
-		return new HashSet<Participant>(this.participants.values());
+		return this.roster.participants;
+	}
+
+	/**
+	 * @return number of membership changes applied to the session. Increases every
+	 *         time the snapshot returned by {@link Session#getParticipants()} is
+	 *         rebuilt
+	 */
+	public long getParticipantsVersion() {
+		return this.roster.version;
 	}
 
 	public Participant getParticipantByPrivateId(String participantPrivateId) {
@@ -94,12 +120,76 @@ public class Session implements SessionInterface {
 
 	public Participant getParticipantByPublicId(String participantPublicId) {
 		checkClosed();
-		for (Participant p : participants.values()) {
-			if (p.getParticipantPublicId().equals(participantPublicId)) {
-				return p;
+		return participantsByPublicId.get(participantPublicId);
+	}
+
+	/**
+	 * Resolves the targets of a signal through the public id index. Every target
+	 * is validated before returning, so the signal is either sent to all of them
+	 * or to none
+	 *
+	 * @param participantPublicIds public ids of the targets. Repeated ids are
+	 *                             resolved once
+	 * @throws OpenViduException if any target is not an active participant of the
+	 *                           session
+	 */
+	public List<Participant> getSignalTargets(Collection<String> participantPublicIds) throws OpenViduException {
+		checkClosed();
+		Set<String> publicIds = new LinkedHashSet<>(participantPublicIds);
+		List<Participant> targets = new ArrayList<>(publicIds.size());
+		for (String publicId : publicIds) {
+			Participant target = participantsByPublicId.get(publicId);
+			if (target == null || target.isClosed()) {
+				throw new OpenViduException(Code.SIGNAL_TO_INVALID_ERROR_CODE,
+						"Signal \"to\" field invalid format: Connection [" + publicId + "] does not exist");
 			}
+			targets.add(target);
+		}
+		return targets;
+	}
+
+	/**
+	 * Stores the participant in the session, indexing it by both its private and
+	 * public identifiers. Participants must always be added and removed through
+	 * this method and {@link Session#deleteParticipant(Participant)} to keep both
+	 * indexes consistent
+	 */
+	protected void addParticipant(Participant participant) {
+		synchronized (rosterLock) {
+			this.participants.put(participant.getParticipantPrivateId(), participant);
+			this.participantsByPublicId.put(participant.getParticipantPublicId(), participant);
+			this.refreshRoster();
+		}
+	}
+
+	protected Participant deleteParticipant(Participant participant) {
+		synchronized (rosterLock) {
+			this.participantsByPublicId.remove(participant.getParticipantPublicId(), participant);
+			Participant removed = this.participants.remove(participant.getParticipantPrivateId());
+			this.refreshRoster();
+			return removed;
 		}
-		return null;
+	}
+
+	protected void clearParticipants() {
+		synchronized (rosterLock) {
+			this.participants.clear();
+			this.participantsByPublicId.clear();
+			this.refreshRoster();
+		}
+	}
+
+	private void refreshRoster() {
+		this.roster = new Roster(this.roster.version + 1,
+				Collections.unmodifiableSet(new HashSet<>(this.participants.values())));
+	}
+
+	/**
+	 * @param supplier creates the bucket the first time it is requested
+	 * @return token bucket limiting the signals sent to this session
+	 */
+	public TokenBucket getSignalRateLimit(Supplier<TokenBucket> supplier) {
+		return TokenBucket.getOrCreate(signalRateLimit, supplier);
 	}
 
 	public int getActivePublishers() {
@@ -150,7 +240,7 @@ public class Session implements SessionInterface {
 		}
 		JsonObject connections = new JsonObject();
 		JsonArray participants = new JsonArray();
-		this.participants.values().forEach(p -> {
+		this.roster.participants.forEach(p -> {
 			if (!ProtocolElements.RECORDER_PARTICIPANT_PUBLICID.equals(p.getParticipantPublicId())) {
 				participants.add(toJsonFunction.apply((KurentoParticipant) p));
 			}
@@ -175,4 +265,15 @@ public class Session implements SessionInterface {
 		return false;
 	}
 
+	private static class Roster {
+
+		final long version;
+		final Set<Participant> participants;
+
+		Roster(long version, Set<Participant> participants) {
+			this.version = version;
+			this.participants = participants;
+		}
+	}
+
 }
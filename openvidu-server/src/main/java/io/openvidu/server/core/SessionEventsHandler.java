@@ -17,9 +17,10 @@
 
 package io.openvidu.server.core;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantLock;
@@ -82,52 +83,10 @@ public class SessionEventsHandler {
 
 		JsonObject result = new JsonObject();
 		JsonArray resultArray = new JsonArray();
+		List<String> notifiedParticipants = new ArrayList<>();
 
 		for (Participant existingParticipant : existingParticipants) {
-			JsonObject participantJson = new JsonObject();
-			participantJson.addProperty(ProtocolElements.JOINROOM_PEERID_PARAM,
-					existingParticipant.getParticipantPublicId());
-			participantJson.addProperty(ProtocolElements.JOINROOM_PEERCREATEDAT_PARAM,
-					existingParticipant.getCreatedAt());
-
-			// Metadata associated to each existing participant
-			participantJson.addProperty(ProtocolElements.JOINROOM_METADATA_PARAM,
-					existingParticipant.getFullMetadata());
-
-			if (existingParticipant.isStreaming()) {
-
-				KurentoParticipant kParticipant = (KurentoParticipant) existingParticipant;
-
-				JsonObject stream = new JsonObject();
-				stream.addProperty(ProtocolElements.JOINROOM_PEERSTREAMID_PARAM,
-						existingParticipant.getPublisherStreamId());
-				stream.addProperty(ProtocolElements.JOINROOM_PEERCREATEDAT_PARAM,
-						kParticipant.getPublisher().createdAt());
-				stream.addProperty(ProtocolElements.JOINROOM_PEERSTREAMHASAUDIO_PARAM,
-						kParticipant.getPublisherMediaOptions().hasAudio);
-				stream.addProperty(ProtocolElements.JOINROOM_PEERSTREAMHASVIDEO_PARAM,
-						kParticipant.getPublisherMediaOptions().hasVideo);
-				stream.addProperty(ProtocolElements.JOINROOM_PEERSTREAMVIDEOACTIVE_PARAM,
-						kParticipant.getPublisherMediaOptions().videoActive);
-				stream.addProperty(ProtocolElements.JOINROOM_PEERSTREAMAUDIOACTIVE_PARAM,
-						kParticipant.getPublisherMediaOptions().audioActive);
-				stream.addProperty(ProtocolElements.JOINROOM_PEERSTREAMVIDEOACTIVE_PARAM,
-						kParticipant.getPublisherMediaOptions().videoActive);
-				stream.addProperty(ProtocolElements.JOINROOM_PEERSTREAMTYPEOFVIDEO_PARAM,
-						kParticipant.getPublisherMediaOptions().typeOfVideo);
-				stream.addProperty(ProtocolElements.JOINROOM_PEERSTREAMFRAMERATE_PARAM,
-						kParticipant.getPublisherMediaOptions().frameRate);
-				stream.addProperty(ProtocolElements.JOINROOM_PEERSTREAMVIDEODIMENSIONS_PARAM,
-						kParticipant.getPublisherMediaOptions().videoDimensions);
-				JsonElement filter = kParticipant.getPublisherMediaOptions().getFilter() != null
-						? kParticipant.getPublisherMediaOptions().getFilter().toJson()
-						: new JsonObject();
-				stream.add(ProtocolElements.JOINROOM_PEERSTREAMFILTER_PARAM, filter);
-
-				JsonArray streamsArray = new JsonArray();
-				streamsArray.add(stream);
-				participantJson.add(ProtocolElements.JOINROOM_PEERSTREAMS_PARAM, streamsArray);
-			}
+			JsonObject participantJson = this.existingParticipantToJson(existingParticipant);
 
 			// Avoid emitting 'connectionCreated' event of existing RECORDER participant in
 			// openvidu-browser in newly joined participants
@@ -139,24 +98,51 @@ public class SessionEventsHandler {
 			// notification to existing participants. 'recordingStarted' will be sent to all
 			// existing participants when recorder first subscribe to a stream
 			if (!ProtocolElements.RECORDER_PARTICIPANT_PUBLICID.equals(participant.getParticipantPublicId())) {
-				JsonObject notifParams = new JsonObject();
+				notifiedParticipants.add(existingParticipant.getParticipantPrivateId());
+			}
+		}
+
+		JsonObject notifParams = new JsonObject();
+
+		// Metadata associated to new participant
+		notifParams.addProperty(ProtocolElements.PARTICIPANTJOINED_USER_PARAM, participant.getParticipantPublicId());
+		notifParams.addProperty(ProtocolElements.PARTICIPANTJOINED_CREATEDAT_PARAM, participant.getCreatedAt());
+		notifParams.addProperty(ProtocolElements.PARTICIPANTJOINED_METADATA_PARAM, participant.getFullMetadata());
+
+		rpcNotificationService.broadcastNotification(notifiedParticipants, ProtocolElements.PARTICIPANTJOINED_METHOD,
+				notifParams);
+
+		result.addProperty(ProtocolElements.PARTICIPANTJOINED_USER_PARAM, participant.getParticipantPublicId());
+		result.addProperty(ProtocolElements.PARTICIPANTJOINED_CREATEDAT_PARAM, participant.getCreatedAt());
+		result.addProperty(ProtocolElements.PARTICIPANTJOINED_METADATA_PARAM, participant.getFullMetadata());
+		result.add("value", resultArray);
+		if (participant.getResumeToken() != null) {
+			result.addProperty(ProtocolElements.JOINROOM_RESUMETOKEN_PARAM, participant.getResumeToken());
+		}
 
-				// Metadata associated to new participant
-				notifParams.addProperty(ProtocolElements.PARTICIPANTJOINED_USER_PARAM,
-						participant.getParticipantPublicId());
-				notifParams.addProperty(ProtocolElements.PARTICIPANTJOINED_CREATEDAT_PARAM, participant.getCreatedAt());
-				notifParams.addProperty(ProtocolElements.PARTICIPANTJOINED_METADATA_PARAM,
-						participant.getFullMetadata());
+		rpcNotificationService.sendResponse(participant.getParticipantPrivateId(), transactionId, result);
+	}
 
-				rpcNotificationService.sendNotification(existingParticipant.getParticipantPrivateId(),
-						ProtocolElements.PARTICIPANTJOINED_METHOD, notifParams);
+	/**
+	 * Answers a participant that resumed its connection from a new websocket with
+	 * the current state of the session, as if it had just joined it. Other
+	 * participants are not notified, as for them the participant never left
+	 */
+	public void onParticipantResumed(Participant participant, Set<Participant> participants,
+			Integer transactionId) {
+		JsonArray resultArray = new JsonArray();
+		for (Participant p : participants) {
+			if (!p.getParticipantPrivateId().equals(participant.getParticipantPrivateId())
+					&& !ProtocolElements.RECORDER_PARTICIPANT_PUBLICID.equals(p.getParticipantPublicId())) {
+				resultArray.add(this.existingParticipantToJson(p));
 			}
 		}
+		JsonObject result = new JsonObject();
 		result.addProperty(ProtocolElements.PARTICIPANTJOINED_USER_PARAM, participant.getParticipantPublicId());
 		result.addProperty(ProtocolElements.PARTICIPANTJOINED_CREATEDAT_PARAM, participant.getCreatedAt());
 		result.addProperty(ProtocolElements.PARTICIPANTJOINED_METADATA_PARAM, participant.getFullMetadata());
 		result.add("value", resultArray);
-
+		result.addProperty(ProtocolElements.JOINROOM_RESUMETOKEN_PARAM, participant.getResumeToken());
 		rpcNotificationService.sendResponse(participant.getParticipantPrivateId(), transactionId, result);
 	}
 
@@ -176,10 +162,8 @@ public class SessionEventsHandler {
 		params.addProperty(ProtocolElements.PARTICIPANTLEFT_NAME_PARAM, participant.getParticipantPublicId());
 		params.addProperty(ProtocolElements.PARTICIPANTLEFT_REASON_PARAM, reason != null ? reason.name() : "");
 
-		for (Participant p : remainingParticipants) {
-			rpcNotificationService.sendNotification(p.getParticipantPrivateId(),
-					ProtocolElements.PARTICIPANTLEFT_METHOD, params);
-		}
+		rpcNotificationService.broadcastNotification(privateIds(remainingParticipants),
+				ProtocolElements.PARTICIPANTLEFT_METHOD, params);
 
 		if (transactionId != null) {
 			// No response when the participant is forcibly evicted instead of voluntarily
@@ -225,14 +209,11 @@ public class SessionEventsHandler {
 		streamsArray.add(stream);
 		params.add(ProtocolElements.PARTICIPANTPUBLISHED_STREAMS_PARAM, streamsArray);
 
-		for (Participant p : participants) {
-			if (p.getParticipantPrivateId().equals(participant.getParticipantPrivateId())) {
-				continue;
-			} else {
-				rpcNotificationService.sendNotification(p.getParticipantPrivateId(),
-						ProtocolElements.PARTICIPANTPUBLISHED_METHOD, params);
-			}
-		}
+		List<String> notifiedParticipants = participants.stream()
+				.filter(p -> !p.getParticipantPrivateId().equals(participant.getParticipantPrivateId()))
+				.map(Participant::getParticipantPrivateId).collect(Collectors.toList());
+		rpcNotificationService.broadcastNotification(notifiedParticipants,
+				ProtocolElements.PARTICIPANTPUBLISHED_METHOD, params);
 	}
 
 	public void onUnpublishMedia(Participant participant, Set<Participant> participants, Participant moderator,
@@ -253,12 +234,12 @@ public class SessionEventsHandler {
 		params.addProperty(ProtocolElements.PARTICIPANTUNPUBLISHED_NAME_PARAM, participant.getParticipantPublicId());
 		params.addProperty(ProtocolElements.PARTICIPANTUNPUBLISHED_REASON_PARAM, reason != null ? reason.name() : "");
 
+		List<String> notifiedParticipants = new ArrayList<>();
 		for (Participant p : participants) {
 			if (p.getParticipantPrivateId().equals(participant.getParticipantPrivateId())) {
 				// Send response to the affected participant
 				if (!isRpcFromOwner) {
-					rpcNotificationService.sendNotification(p.getParticipantPrivateId(),
-							ProtocolElements.PARTICIPANTUNPUBLISHED_METHOD, params);
+					notifiedParticipants.add(p.getParticipantPrivateId());
 				} else {
 					if (error != null) {
 						rpcNotificationService.sendErrorResponse(p.getParticipantPrivateId(), transactionId, null,
@@ -271,11 +252,12 @@ public class SessionEventsHandler {
 				if (error == null) {
 					// Send response to every other user in the session different than the affected
 					// participant
-					rpcNotificationService.sendNotification(p.getParticipantPrivateId(),
-							ProtocolElements.PARTICIPANTUNPUBLISHED_METHOD, params);
+					notifiedParticipants.add(p.getParticipantPrivateId());
 				}
 			}
 		}
+		rpcNotificationService.broadcastNotification(notifiedParticipants,
+				ProtocolElements.PARTICIPANTUNPUBLISHED_METHOD, params);
 	}
 
 	public void onSubscribe(Participant participant, Session session, String sdpAnswer, Integer transactionId,
@@ -310,7 +292,11 @@ public class SessionEventsHandler {
 		rpcNotificationService.sendResponse(participant.getParticipantPrivateId(), transactionId, new JsonObject());
 	}
 
-	public void onSendMessage(Participant participant, JsonObject message, Set<Participant> participants,
+	/**
+	 * @param recipients participants receiving the signal, already resolved and
+	 *                   validated
+	 */
+	public void onSendMessage(Participant participant, JsonObject message, Collection<Participant> recipients,
 			Integer transactionId, OpenViduException error) {
 		if (error != null) {
 			rpcNotificationService.sendErrorResponse(participant.getParticipantPrivateId(), transactionId, null, error);
@@ -322,40 +308,8 @@ public class SessionEventsHandler {
 		params.addProperty(ProtocolElements.PARTICIPANTSENDMESSAGE_FROM_PARAM, participant.getParticipantPublicId());
 		params.addProperty(ProtocolElements.PARTICIPANTSENDMESSAGE_TYPE_PARAM, message.get("type").getAsString());
 
-		Set<String> toSet = new HashSet<String>();
-
-		if (message.has("to")) {
-			JsonArray toJson = message.get("to").getAsJsonArray();
-			for (int i = 0; i < toJson.size(); i++) {
-				JsonElement el = toJson.get(i);
-				if (el.isJsonNull()) {
-					throw new OpenViduException(Code.SIGNAL_TO_INVALID_ERROR_CODE,
-							"Signal \"to\" field invalid format: null");
-				}
-				toSet.add(el.getAsString());
-			}
-		}
-
-		if (toSet.isEmpty()) {
-			for (Participant p : participants) {
-				rpcNotificationService.sendNotification(p.getParticipantPrivateId(),
-						ProtocolElements.PARTICIPANTSENDMESSAGE_METHOD, params);
-			}
-		} else {
-			Set<String> participantPublicIds = participants.stream().map(Participant::getParticipantPublicId)
-					.collect(Collectors.toSet());
-			for (String to : toSet) {
-				if (participantPublicIds.contains(to)) {
-					Optional<Participant> p = participants.stream().filter(x -> to.equals(x.getParticipantPublicId()))
-							.findFirst();
-					rpcNotificationService.sendNotification(p.get().getParticipantPrivateId(),
-							ProtocolElements.PARTICIPANTSENDMESSAGE_METHOD, params);
-				} else {
-					throw new OpenViduException(Code.SIGNAL_TO_INVALID_ERROR_CODE,
-							"Signal \"to\" field invalid format: Connection [" + to + "] does not exist");
-				}
-			}
-		}
+		rpcNotificationService.broadcastNotification(privateIds(recipients),
+				ProtocolElements.PARTICIPANTSENDMESSAGE_METHOD, params);
 
 		rpcNotificationService.sendResponse(participant.getParticipantPrivateId(), transactionId, new JsonObject());
 	}
@@ -371,15 +325,17 @@ public class SessionEventsHandler {
 		params.addProperty(ProtocolElements.STREAMPROPERTYCHANGED_NEWVALUE_PARAM, newValue.toString());
 		params.addProperty(ProtocolElements.STREAMPROPERTYCHANGED_REASON_PARAM, reason);
 
+		List<String> notifiedParticipants = new ArrayList<>();
 		for (Participant p : participants) {
 			if (p.getParticipantPrivateId().equals(participant.getParticipantPrivateId())) {
 				rpcNotificationService.sendResponse(participant.getParticipantPrivateId(), transactionId,
 						new JsonObject());
 			} else {
-				rpcNotificationService.sendNotification(p.getParticipantPrivateId(),
-						ProtocolElements.STREAMPROPERTYCHANGED_METHOD, params);
+				notifiedParticipants.add(p.getParticipantPrivateId());
 			}
 		}
+		rpcNotificationService.broadcastNotification(notifiedParticipants,
+				ProtocolElements.STREAMPROPERTYCHANGED_METHOD, params);
 	}
 
 	public void onRecvIceCandidate(Participant participant, Integer transactionId, OpenViduException error) {
@@ -410,14 +366,33 @@ public class SessionEventsHandler {
 
 		if (!ProtocolElements.RECORDER_PARTICIPANT_PUBLICID.equals(evictedParticipant.getParticipantPublicId())) {
 			// Do not send a message when evicting RECORDER participant
-			rpcNotificationService.sendNotification(evictedParticipant.getParticipantPrivateId(),
+			List<String> notifiedParticipants = new ArrayList<>();
+			notifiedParticipants.add(evictedParticipant.getParticipantPrivateId());
+			notifiedParticipants.addAll(privateIds(participants));
+			rpcNotificationService.broadcastNotification(notifiedParticipants,
 					ProtocolElements.PARTICIPANTEVICTED_METHOD, params);
 		}
+	}
+
+	/**
+	 * Notifies every participant of a session that is being torn down at once.
+	 * Instead of broadcasting the eviction of every participant to all the others,
+	 * each participant only receives its own eviction, which is the signal clients
+	 * already handle as the end of their connection to the session
+	 */
+	public void onSessionTeardown(Session session, Set<Participant> participants, EndReason reason) {
+		CDR.recordSessionTeardown(session.getSessionId(), participants, reason);
+
 		for (Participant p : participants) {
-			if (!ProtocolElements.RECORDER_PARTICIPANT_PUBLICID.equals(evictedParticipant.getParticipantPublicId())) {
-				rpcNotificationService.sendNotification(p.getParticipantPrivateId(),
-						ProtocolElements.PARTICIPANTEVICTED_METHOD, params);
+			if (ProtocolElements.RECORDER_PARTICIPANT_PUBLICID.equals(p.getParticipantPublicId())) {
+				// Do not send a message to RECORDER participant
+				continue;
 			}
+			JsonObject params = new JsonObject();
+			params.addProperty(ProtocolElements.PARTICIPANTEVICTED_CONNECTIONID_PARAM, p.getParticipantPublicId());
+			params.addProperty(ProtocolElements.PARTICIPANTEVICTED_REASON_PARAM, reason != null ? reason.name() : "");
+			rpcNotificationService.sendNotification(p.getParticipantPrivateId(),
+					ProtocolElements.PARTICIPANTEVICTED_METHOD, params);
 		}
 	}
 
@@ -433,10 +408,8 @@ public class SessionEventsHandler {
 		params.addProperty(ProtocolElements.RECORDINGSTARTED_ID_PARAM, recording.getId());
 		params.addProperty(ProtocolElements.RECORDINGSTARTED_NAME_PARAM, recording.getName());
 
-		for (Participant p : filteredParticipants) {
-			rpcNotificationService.sendNotification(p.getParticipantPrivateId(),
-					ProtocolElements.RECORDINGSTARTED_METHOD, params);
-		}
+		rpcNotificationService.broadcastNotification(privateIds(filteredParticipants),
+				ProtocolElements.RECORDINGSTARTED_METHOD, params);
 	}
 
 	public void sendRecordingStoppedNotification(Session session, Recording recording, EndReason reason) {
@@ -464,10 +437,8 @@ public class SessionEventsHandler {
 		params.addProperty(ProtocolElements.RECORDINGSTARTED_NAME_PARAM, recording.getName());
 		params.addProperty(ProtocolElements.RECORDINGSTOPPED_REASON_PARAM, reason != null ? reason.name() : "");
 
-		for (Participant p : filteredParticipants) {
-			rpcNotificationService.sendNotification(p.getParticipantPrivateId(),
-					ProtocolElements.RECORDINGSTOPPED_METHOD, params);
-		}
+		rpcNotificationService.broadcastNotification(privateIds(filteredParticipants),
+				ProtocolElements.RECORDINGSTOPPED_METHOD, params);
 	}
 
 	public void onFilterChanged(Participant participant, Participant moderator, Integer transactionId,
@@ -502,13 +473,13 @@ public class SessionEventsHandler {
 		params.add(ProtocolElements.STREAMPROPERTYCHANGED_NEWVALUE_PARAM, filterJson);
 		params.addProperty(ProtocolElements.STREAMPROPERTYCHANGED_REASON_PARAM, filterReason);
 
+		List<String> notifiedParticipants = new ArrayList<>();
 		for (Participant p : participants) {
 			if (p.getParticipantPrivateId().equals(participant.getParticipantPrivateId())) {
 				// Affected participant
 				if (isRpcFromModerator) {
 					// Force by moderator. Send notification to affected participant
-					rpcNotificationService.sendNotification(p.getParticipantPrivateId(),
-							ProtocolElements.STREAMPROPERTYCHANGED_METHOD, params);
+					notifiedParticipants.add(p.getParticipantPrivateId());
 				} else {
 					// Send response to participant
 					if (error != null) {
@@ -523,11 +494,12 @@ public class SessionEventsHandler {
 				// participant or the moderator
 				if (error == null && (moderator == null
 						|| !p.getParticipantPrivateId().equals(moderator.getParticipantPrivateId()))) {
-					rpcNotificationService.sendNotification(p.getParticipantPrivateId(),
-							ProtocolElements.STREAMPROPERTYCHANGED_METHOD, params);
+					notifiedParticipants.add(p.getParticipantPrivateId());
 				}
 			}
 		}
+		rpcNotificationService.broadcastNotification(notifiedParticipants,
+				ProtocolElements.STREAMPROPERTYCHANGED_METHOD, params);
 	}
 
 	public void onFilterEventDispatched(String connectionId, String streamId, String filterType, String eventType,
@@ -538,12 +510,11 @@ public class SessionEventsHandler {
 		params.addProperty(ProtocolElements.FILTEREVENTLISTENER_FILTERTYPE_PARAM, filterType);
 		params.addProperty(ProtocolElements.FILTEREVENTLISTENER_EVENTTYPE_PARAM, eventType);
 		params.addProperty(ProtocolElements.FILTEREVENTLISTENER_DATA_PARAM, data.toString());
-		for (Participant p : participants) {
-			if (subscribedParticipants.contains(p.getParticipantPublicId())) {
-				rpcNotificationService.sendNotification(p.getParticipantPrivateId(),
-						ProtocolElements.FILTEREVENTDISPATCHED_METHOD, params);
-			}
-		}
+		List<String> notifiedParticipants = participants.stream()
+				.filter(p -> subscribedParticipants.contains(p.getParticipantPublicId()))
+				.map(Participant::getParticipantPrivateId).collect(Collectors.toList());
+		rpcNotificationService.broadcastNotification(notifiedParticipants,
+				ProtocolElements.FILTEREVENTDISPATCHED_METHOD, params);
 	}
 
 	public void closeRpcSession(String participantPrivateId) {
@@ -554,6 +525,58 @@ public class SessionEventsHandler {
 		this.recordingsStarted.put(sessionId, recording);
 	}
 
+	private JsonObject existingParticipantToJson(Participant existingParticipant) {
+		JsonObject participantJson = new JsonObject();
+		participantJson.addProperty(ProtocolElements.JOINROOM_PEERID_PARAM,
+				existingParticipant.getParticipantPublicId());
+		participantJson.addProperty(ProtocolElements.JOINROOM_PEERCREATEDAT_PARAM,
+				existingParticipant.getCreatedAt());
+
+		// Metadata associated to each existing participant
+		participantJson.addProperty(ProtocolElements.JOINROOM_METADATA_PARAM,
+				existingParticipant.getFullMetadata());
+
+		if (existingParticipant.isStreaming()) {
+
+			KurentoParticipant kParticipant = (KurentoParticipant) existingParticipant;
+
+			JsonObject stream = new JsonObject();
+			stream.addProperty(ProtocolElements.JOINROOM_PEERSTREAMID_PARAM,
+					existingParticipant.getPublisherStreamId());
+			stream.addProperty(ProtocolElements.JOINROOM_PEERCREATEDAT_PARAM,
+					kParticipant.getPublisher().createdAt());
+			stream.addProperty(ProtocolElements.JOINROOM_PEERSTREAMHASAUDIO_PARAM,
+					kParticipant.getPublisherMediaOptions().hasAudio);
+			stream.addProperty(ProtocolElements.JOINROOM_PEERSTREAMHASVIDEO_PARAM,
+					kParticipant.getPublisherMediaOptions().hasVideo);
+			stream.addProperty(ProtocolElements.JOINROOM_PEERSTREAMVIDEOACTIVE_PARAM,
+					kParticipant.getPublisherMediaOptions().videoActive);
+			stream.addProperty(ProtocolElements.JOINROOM_PEERSTREAMAUDIOACTIVE_PARAM,
+					kParticipant.getPublisherMediaOptions().audioActive);
+			stream.addProperty(ProtocolElements.JOINROOM_PEERSTREAMVIDEOACTIVE_PARAM,
+					kParticipant.getPublisherMediaOptions().videoActive);
+			stream.addProperty(ProtocolElements.JOINROOM_PEERSTREAMTYPEOFVIDEO_PARAM,
+					kParticipant.getPublisherMediaOptions().typeOfVideo);
+			stream.addProperty(ProtocolElements.JOINROOM_PEERSTREAMFRAMERATE_PARAM,
+					kParticipant.getPublisherMediaOptions().frameRate);
+			stream.addProperty(ProtocolElements.JOINROOM_PEERSTREAMVIDEODIMENSIONS_PARAM,
+					kParticipant.getPublisherMediaOptions().videoDimensions);
+			JsonElement filter = kParticipant.getPublisherMediaOptions().getFilter() != null
+					? kParticipant.getPublisherMediaOptions().getFilter().toJson()
+					: new JsonObject();
+			stream.add(ProtocolElements.JOINROOM_PEERSTREAMFILTER_PARAM, filter);
+
+			JsonArray streamsArray = new JsonArray();
+			streamsArray.add(stream);
+			participantJson.add(ProtocolElements.JOINROOM_PEERSTREAMS_PARAM, streamsArray);
+		}
+		return participantJson;
+	}
+
+	private List<String> privateIds(Collection<Participant> participants) {
+		return participants.stream().map(Participant::getParticipantPrivateId).collect(Collectors.toList());
+	}
+
 	private Set<Participant> filterParticipantsByRole(OpenViduRole[] roles, Set<Participant> participants) {
 		return participants.stream().filter(part -> {
 			if (ProtocolElements.RECORDER_PARTICIPANT_PUBLICID.equals(part.getParticipantPublicId())) {
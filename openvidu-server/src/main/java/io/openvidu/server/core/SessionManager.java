@@ -17,15 +17,25 @@
 
 package io.openvidu.server.core;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 
 import org.kurento.jsonrpc.message.Request;
@@ -38,6 +48,7 @@ import com.google.gson.JsonObject;
 
 import io.openvidu.client.OpenViduException;
 import io.openvidu.client.OpenViduException.Code;
+import io.openvidu.client.internal.IceCandidate;
 import io.openvidu.client.internal.ProtocolElements;
 import io.openvidu.java.client.OpenViduRole;
 import io.openvidu.java.client.SessionProperties;
@@ -49,11 +60,16 @@ import io.openvidu.server.recording.service.RecordingManager;
 import io.openvidu.server.utils.FormatChecker;
 import io.openvidu.server.utils.GeoLocation;
 import io.openvidu.server.utils.RandomStringGenerator;
+import io.openvidu.server.utils.StripedLocks;
+import io.openvidu.server.utils.TimingWheel;
 
 public abstract class SessionManager {
 
 	private static final Logger log = LoggerFactory.getLogger(SessionManager.class);
 
+	private static final int SESSION_LOCK_STRIPES = 1024;
+	private static final long DRAIN_INTERRUPT_GRACE_MILLIS = 5000;
+
 	@Autowired
 	protected SessionEventsHandler sessionEventsHandler;
 
@@ -69,18 +85,35 @@ public abstract class SessionManager {
 	@Autowired
 	protected TokenGenerator tokenGenerator;
 
+	@Autowired
+	protected TokenStore tokenStore;
+
+	@Autowired
+	protected TimingWheel timingWheel;
+
 	public FormatChecker formatChecker = new FormatChecker();
 
 	protected ConcurrentMap<String, Session> sessions = new ConcurrentHashMap<>();
 	protected ConcurrentMap<String, Session> sessionsNotActive = new ConcurrentHashMap<>();
 	protected ConcurrentMap<String, ConcurrentHashMap<String, Participant>> sessionidParticipantpublicidParticipant = new ConcurrentHashMap<>();
+	protected ConcurrentMap<String, Session> participantprivateidSession = new ConcurrentHashMap<>();
 	protected ConcurrentMap<String, ConcurrentHashMap<String, FinalUser>> sessionidFinalUsers = new ConcurrentHashMap<>();
 	protected ConcurrentMap<String, ConcurrentLinkedQueue<CDREventRecording>> sessionidAccumulatedRecordings = new ConcurrentHashMap<>();
 
 	protected ConcurrentMap<String, Boolean> insecureUsers = new ConcurrentHashMap<>();
-	public ConcurrentMap<String, ConcurrentHashMap<String, Token>> sessionidTokenTokenobj = new ConcurrentHashMap<>();
+	private ConcurrentMap<String, TimingWheel.Timeout> sessionidNotActiveExpiration = new ConcurrentHashMap<>();
+
+	private final AtomicInteger tokenGenerationThreadCount = new AtomicInteger();
 
-	private volatile boolean closed = false;
+	/**
+	 * Runs the generation of tokens requested in batch. Generating a token may
+	 * block while its COTURN user is created
+	 */
+	private ExecutorService tokenGenerationExecutor;
+
+	private final StripedLocks sessionLocks = new StripedLocks(SESSION_LOCK_STRIPES);
+
+	protected volatile boolean closed = false;
 
 	public abstract void joinRoom(Participant participant, String sessionId, Integer transactionId);
 
@@ -104,6 +137,13 @@ public abstract class SessionManager {
 	public abstract void onIceCandidate(Participant participant, String endpointName, String candidate,
 			int sdpMLineIndex, String sdpMid, Integer transactionId);
 
+	/**
+	 * Adds many ICE candidates gathered by the client for the same endpoint,
+	 * answering the request once
+	 */
+	public abstract void onIceCandidates(Participant participant, String endpointName,
+			List<IceCandidate> candidates, Integer transactionId);
+
 	public abstract boolean unpublishStream(Session session, String streamId, Participant moderator,
 			Integer transactionId, EndReason reason);
 
@@ -128,6 +168,19 @@ public abstract class SessionManager {
 	public abstract String getParticipantPrivateIdFromStreamId(String sessionId, String streamId)
 			throws OpenViduException;
 
+	/**
+	 * Returns the lock serializing the operations that modify the membership of a
+	 * session (join, leave, close). Operations on different sessions do not block
+	 * each other. The lock is reentrant, as closing a session evicts its
+	 * participants and the last leave may close the session
+	 *
+	 * @param sessionId identifier of the session
+	 * @return Lock
+	 */
+	protected Lock getSessionLock(String sessionId) {
+		return this.sessionLocks.get(sessionId);
+	}
+
 	/**
 	 * Returns a Session given its id
 	 *
@@ -172,10 +225,31 @@ public abstract class SessionManager {
 			throw new OpenViduException(Code.ROOM_NOT_FOUND_ERROR_CODE, "Session '" + sessionId + "' not found");
 		}
 		Set<Participant> participants = session.getParticipants();
-		participants.removeIf(p -> p.isClosed());
+		for (Participant p : participants) {
+			if (p.isClosed()) {
+				// Only copy the roster snapshot in the rare case it holds closed participants
+				return participants.stream().filter(participant -> !participant.isClosed())
+						.collect(Collectors.toSet());
+			}
+		}
 		return participants;
 	}
 
+	/**
+	 * Answers a participant that resumed its connection from a new websocket
+	 * with the current state of its session. Its resume token is rotated, so
+	 * every token can only be used once
+	 *
+	 * @param participant   participant that resumed its connection
+	 * @param transactionId identifier of the 'resume' request
+	 * @throws OpenViduException in case the session doesn't exist
+	 */
+	public void resumeParticipant(Participant participant, Integer transactionId) throws OpenViduException {
+		participant.setResumeToken(RandomStringGenerator.generateRandomChain());
+		sessionEventsHandler.onParticipantResumed(participant, this.getParticipants(participant.getSessionId()),
+				transactionId);
+	}
+
 	/**
 	 * Returns a participant in a session
 	 *
@@ -206,11 +280,11 @@ public abstract class SessionManager {
 	 * @throws OpenViduException in case the participant doesn't exist
 	 */
 	public Participant getParticipant(String participantPrivateId) throws OpenViduException {
-		for (Session session : sessions.values()) {
-			if (!session.isClosed()) {
-				if (session.getParticipantByPrivateId(participantPrivateId) != null) {
-					return session.getParticipantByPrivateId(participantPrivateId);
-				}
+		Session session = participantprivateidSession.get(participantPrivateId);
+		if (session != null && !session.isClosed()) {
+			Participant participant = session.getParticipantByPrivateId(participantPrivateId);
+			if (participant != null) {
+				return participant;
 			}
 		}
 		throw new OpenViduException(Code.USER_NOT_FOUND_ERROR_CODE,
@@ -245,16 +319,60 @@ public abstract class SessionManager {
 		if (this.openviduConfig.isRecordingModuleEnabled()) {
 			this.sessionidAccumulatedRecordings.putIfAbsent(sessionId, new ConcurrentLinkedQueue<>());
 		}
-		showTokens();
+		if (this.openviduConfig.getSessionsInactiveTimeout() > 0) {
+			TimingWheel.Timeout expiration = this.timingWheel.schedule(
+					() -> this.expireSessionNotActive(sessionNotActive),
+					this.openviduConfig.getSessionsInactiveTimeout(), TimeUnit.SECONDS);
+			TimingWheel.Timeout previous = this.sessionidNotActiveExpiration.put(sessionId, expiration);
+			if (previous != null) {
+				previous.cancel();
+			}
+		}
+		this.prepareSession(sessionId);
 		return sessionNotActive;
 	}
 
+	protected void cancelSessionNotActiveExpiration(String sessionId) {
+		TimingWheel.Timeout expiration = this.sessionidNotActiveExpiration.remove(sessionId);
+		if (expiration != null) {
+			expiration.cancel();
+		}
+	}
+
+	/**
+	 * Closes a session created through the REST API that no user has connected to
+	 * within openvidu.sessions.inactive-timeout, releasing its tokens and any
+	 * other collection entry
+	 */
+	private void expireSessionNotActive(Session sessionNotActive) {
+		String sessionId = sessionNotActive.getSessionId();
+		Lock sessionLock = this.getSessionLock(sessionId);
+		sessionLock.lock();
+		try {
+			if (this.sessionsNotActive.get(sessionId) == sessionNotActive && !this.sessions.containsKey(sessionId)) {
+				log.info("No user has connected to session '{}' in {} seconds. Removing it", sessionId,
+						this.openviduConfig.getSessionsInactiveTimeout());
+				this.closeSessionAndEmptyCollections(sessionNotActive, EndReason.automaticStop);
+			}
+		} finally {
+			sessionLock.unlock();
+		}
+	}
+
+	/**
+	 * Called when a session is created or gets a new token through the REST API,
+	 * before any user has connected to it. Implementations may start allocating
+	 * the media resources of the session in advance
+	 *
+	 * @param sessionId identifier of the session
+	 */
+	protected void prepareSession(String sessionId) {
+	}
+
 	public String newToken(String sessionId, OpenViduRole role, String serverMetadata,
 			KurentoTokenOptions kurentoTokenOptions) throws OpenViduException {
 
-		ConcurrentHashMap<String, Token> map = this.sessionidTokenTokenobj.putIfAbsent(sessionId,
-				new ConcurrentHashMap<>());
-		if (map != null) {
+		if (this.tokenStore.containsSession(sessionId)) {
 
 			if (!formatChecker.isServerMetadataFormatCorrect(serverMetadata)) {
 				log.error("Data invalid format");
@@ -263,32 +381,92 @@ public abstract class SessionManager {
 
 			Token token = tokenGenerator.generateToken(sessionId, role, serverMetadata, kurentoTokenOptions);
 
-			map.putIfAbsent(token.getToken(), token);
-			showTokens();
+			this.tokenStore.addToken(sessionId, token);
+			this.prepareSession(sessionId);
 			return token.getToken();
 
 		} else {
-			this.sessionidTokenTokenobj.remove(sessionId);
 			log.error("sessionId [" + sessionId + "] was not found");
 			throw new OpenViduException(Code.ROOM_NOT_FOUND_ERROR_CODE, "sessionId [" + sessionId + "] not found");
 		}
 	}
 
+	/**
+	 * Generates several tokens for the same session at once. The slow part of
+	 * every token generation (creating its COTURN user) runs in parallel. Either
+	 * all the tokens are stored or none of them
+	 *
+	 * @return list of generated tokens
+	 * @throws OpenViduException in case the session doesn't exist, the metadata
+	 *                           has an invalid format or the tokens cannot be
+	 *                           generated or stored
+	 */
+	public List<String> newTokens(String sessionId, OpenViduRole role, String serverMetadata,
+			KurentoTokenOptions kurentoTokenOptions, int count) throws OpenViduException {
+
+		if (!this.tokenStore.containsSession(sessionId)) {
+			log.error("sessionId [" + sessionId + "] was not found");
+			throw new OpenViduException(Code.ROOM_NOT_FOUND_ERROR_CODE, "sessionId [" + sessionId + "] not found");
+		}
+		if (!formatChecker.isServerMetadataFormatCorrect(serverMetadata)) {
+			log.error("Data invalid format");
+			throw new OpenViduException(Code.GENERIC_ERROR_CODE, "Data invalid format");
+		}
+
+		List<CompletableFuture<Token>> futures = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			futures.add(CompletableFuture.supplyAsync(
+					() -> tokenGenerator.generateToken(sessionId, role, serverMetadata, kurentoTokenOptions),
+					this.tokenGenerationExecutor));
+		}
+		List<Token> tokens = new ArrayList<>(count);
+		Throwable error = null;
+		for (CompletableFuture<Token> future : futures) {
+			try {
+				tokens.add(future.join());
+			} catch (CompletionException e) {
+				error = e.getCause();
+			}
+		}
+		if (error != null) {
+			log.error("Error generating {} tokens for session {}", count, sessionId, error);
+			this.discardTokens(tokens);
+			throw new OpenViduException(Code.TOKEN_CANNOT_BE_CREATED_ERROR_CODE,
+					"Error generating tokens for session " + sessionId + ": " + error.getMessage());
+		}
+
+		List<String> storedTokens = new ArrayList<>(count);
+		try {
+			for (Token token : tokens) {
+				this.tokenStore.addToken(sessionId, token);
+				storedTokens.add(token.getToken());
+			}
+		} catch (OpenViduException e) {
+			storedTokens.forEach(token -> this.tokenStore.removeToken(sessionId, token));
+			this.discardTokens(tokens);
+			throw e;
+		}
+		this.prepareSession(sessionId);
+		return storedTokens;
+	}
+
+	private void discardTokens(Collection<Token> tokens) {
+		if (this.coturnCredentialsService.isCoturnAvailable()) {
+			tokens.stream().filter(token -> token.getTurnCredentials() != null).forEach(
+					token -> this.coturnCredentialsService.deleteUser(token.getTurnCredentials().getUsername()));
+		}
+	}
+
 	public boolean isTokenValidInSession(String token, String sessionId, String participanPrivatetId) {
 		if (!this.isInsecureParticipant(participanPrivatetId)) {
-			if (this.sessionidTokenTokenobj.get(sessionId) != null) {
-				return this.sessionidTokenTokenobj.get(sessionId).containsKey(token);
-			} else {
-				return false;
-			}
+			return this.tokenStore.isTokenValid(sessionId, token);
 		} else {
 			this.sessionidParticipantpublicidParticipant.putIfAbsent(sessionId, new ConcurrentHashMap<>());
 			this.sessionidFinalUsers.putIfAbsent(sessionId, new ConcurrentHashMap<>());
 			if (this.openviduConfig.isRecordingModuleEnabled()) {
 				this.sessionidAccumulatedRecordings.putIfAbsent(sessionId, new ConcurrentLinkedQueue<>());
 			}
-			this.sessionidTokenTokenobj.putIfAbsent(sessionId, new ConcurrentHashMap<>());
-			this.sessionidTokenTokenobj.get(sessionId).putIfAbsent(token,
+			this.tokenStore.addTokenIfAbsent(sessionId,
 					new Token(token, OpenViduRole.PUBLISHER, "",
 							this.coturnCredentialsService.isCoturnAvailable()
 									? this.coturnCredentialsService.createUser()
@@ -380,8 +558,8 @@ public abstract class SessionManager {
 	}
 
 	public Token consumeToken(String sessionId, String participantPrivateId, String token) {
-		if (this.sessionidTokenTokenobj.get(sessionId) != null) {
-			Token t = this.sessionidTokenTokenobj.get(sessionId).remove(token);
+		if (this.tokenStore.containsSession(sessionId)) {
+			Token t = this.tokenStore.consumeToken(sessionId, token);
 			if (t != null) {
 				return t;
 			} else {
@@ -392,8 +570,17 @@ public abstract class SessionManager {
 		}
 	}
 
-	public void showTokens() {
-		log.info("<SESSIONID, TOKENS>: {}", this.sessionidTokenTokenobj.toString());
+	@PostConstruct
+	public void init() {
+		int threads = openviduConfig.getTokensGenerationThreads();
+		if (threads <= 0) {
+			threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+		}
+		this.tokenGenerationExecutor = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "token-generator-" + tokenGenerationThreadCount.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
 	}
 
 	/**
@@ -408,13 +595,89 @@ public abstract class SessionManager {
 	@PreDestroy
 	public void close() {
 		closed = true;
-		log.info("Closing all sessions");
-		for (String sessionId : sessions.keySet()) {
+		if (this.tokenGenerationExecutor != null) {
+			this.tokenGenerationExecutor.shutdown();
+		}
+		this.drainSessions(openviduConfig.getSessionsShutdownThreads(),
+				TimeUnit.SECONDS.toMillis(openviduConfig.getSessionsShutdownTimeout()));
+	}
+
+	/**
+	 * Closes all sessions in parallel with a bounded number of threads. Sessions
+	 * not closed before the deadline, or whose closing failed, are force closed
+	 * with {@link SessionManager#forceCloseSessions(Collection)}
+	 *
+	 * @param threads        maximum number of sessions closed at the same time
+	 * @param deadlineMillis maximum time to wait for sessions to be cleanly closed
+	 * @return number of sessions that were cleanly closed
+	 */
+	public int drainSessions(int threads, long deadlineMillis) {
+		final Set<String> sessionIds = new HashSet<>(sessions.keySet());
+		if (sessionIds.isEmpty()) {
+			return 0;
+		}
+		log.info("Closing all sessions ({}) with {} threads and a deadline of {} ms", sessionIds.size(), threads,
+				deadlineMillis);
+		long start = System.currentTimeMillis();
+		final AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService drainExecutor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, sessionIds.size())),
+				r -> {
+					Thread t = new Thread(r, "session-drain-" + threadCount.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+		final AtomicInteger cleanlyClosed = new AtomicInteger();
+		for (String sessionId : sessionIds) {
+			drainExecutor.execute(() -> {
+				try {
+					closeSession(sessionId, EndReason.openviduServerStopped);
+					cleanlyClosed.incrementAndGet();
+				} catch (Exception e) {
+					log.warn("Error closing session '{}'", sessionId, e);
+				}
+			});
+		}
+		drainExecutor.shutdown();
+		boolean finished = false;
+		try {
+			finished = drainExecutor.awaitTermination(deadlineMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (!finished) {
+			drainExecutor.shutdownNow();
+			// Closing threads still running must not touch a session being force closed
 			try {
-				closeSession(sessionId, EndReason.openviduServerStopped);
-			} catch (Exception e) {
-				log.warn("Error closing session '{}'", sessionId, e);
+				if (!drainExecutor.awaitTermination(DRAIN_INTERRUPT_GRACE_MILLIS, TimeUnit.MILLISECONDS)) {
+					log.warn("Some session closing threads did not stop after {} ms", DRAIN_INTERRUPT_GRACE_MILLIS);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
 			}
+			log.warn("Deadline of {} ms reached closing sessions", deadlineMillis);
+		}
+		// Sessions whose closing failed or did not finish in time
+		Collection<Session> remaining = sessions.values().stream().filter(s -> sessionIds.contains(s.getSessionId()))
+				.collect(Collectors.toList());
+		if (!remaining.isEmpty()) {
+			log.warn("Force closing the {} sessions not cleanly closed", remaining.size());
+			this.forceCloseSessions(remaining);
+		}
+		log.info("{} of {} sessions cleanly closed in {} ms", cleanlyClosed.get(), sessionIds.size(),
+				System.currentTimeMillis() - start);
+		return cleanlyClosed.get();
+	}
+
+	/**
+	 * Releases at once all the resources of sessions that could not be cleanly
+	 * closed in time when shutting down, without evicting their participants one
+	 * by one or sending notifications
+	 *
+	 * @param sessions sessions still not closed
+	 */
+	protected void forceCloseSessions(Collection<Session> sessions) {
+		for (Session session : sessions) {
+			this.sessions.remove(session.getSessionId());
 		}
 	}
 
@@ -434,47 +697,81 @@ public abstract class SessionManager {
 	 *                           already closed
 	 */
 	public Set<Participant> closeSession(String sessionId, EndReason reason) {
-		Session session = sessions.get(sessionId);
-		if (session == null) {
-			throw new OpenViduException(Code.ROOM_NOT_FOUND_ERROR_CODE, "Session '" + sessionId + "' not found");
-		}
-		if (session.isClosed()) {
-			this.closeSessionAndEmptyCollections(session, reason);
-			throw new OpenViduException(Code.ROOM_CLOSED_ERROR_CODE, "Session '" + sessionId + "' already closed");
-		}
-		Set<Participant> participants = getParticipants(sessionId);
-		for (Participant p : participants) {
-			try {
-				this.evictParticipant(p, null, null, reason);
-			} catch (OpenViduException e) {
-				log.warn("Error evicting participant '{}' from session '{}'", p.getParticipantPublicId(), sessionId, e);
+		Lock sessionLock = this.getSessionLock(sessionId);
+		sessionLock.lock();
+		try {
+			Session session = sessions.get(sessionId);
+			if (session == null) {
+				throw new OpenViduException(Code.ROOM_NOT_FOUND_ERROR_CODE, "Session '" + sessionId + "' not found");
+			}
+			if (session.isClosed()) {
+				this.closeSessionAndEmptyCollections(session, reason);
+				throw new OpenViduException(Code.ROOM_CLOSED_ERROR_CODE, "Session '" + sessionId + "' already closed");
+			}
+			Set<Participant> participants = getParticipants(sessionId);
+			if (openviduConfig.isSessionsBulkTeardown()) {
+				this.teardownSession(session, participants, reason);
+			} else {
+				for (Participant p : participants) {
+					try {
+						this.evictParticipant(p, null, null, reason);
+					} catch (OpenViduException e) {
+						log.warn("Error evicting participant '{}' from session '{}'", p.getParticipantPublicId(),
+								sessionId, e);
+					}
+				}
 			}
-		}
 
-		this.closeSessionAndEmptyCollections(session, reason);
+			this.closeSessionAndEmptyCollections(session, reason);
 
-		return participants;
+			return participants;
+		} finally {
+			sessionLock.unlock();
+		}
 	}
 
-	public void closeSessionAndEmptyCollections(Session session, EndReason reason) {
+	/**
+	 * Disconnects all the participants of a session that is about to be closed,
+	 * without evicting them one by one. Each participant is notified once and its
+	 * media elements are not released individually, as they are released along
+	 * with the session in
+	 * {@link SessionManager#closeSessionAndEmptyCollections(Session, EndReason)}
+	 *
+	 * @param session      session about to be closed
+	 * @param participants participants of the session
+	 */
+	protected abstract void teardownSession(Session session, Set<Participant> participants, EndReason reason);
 
-		if (openviduConfig.isRecordingModuleEnabled()
-				&& this.recordingManager.sessionIsBeingRecorded(session.getSessionId())) {
-			recordingManager.stopRecording(session, null, RecordingManager.finalReason(reason));
-		}
+	public void closeSessionAndEmptyCollections(Session session, EndReason reason) {
+		Lock sessionLock = this.getSessionLock(session.getSessionId());
+		sessionLock.lock();
+		try {
+			if (openviduConfig.isRecordingModuleEnabled()
+					&& this.recordingManager.sessionIsBeingRecorded(session.getSessionId())) {
+				recordingManager.stopRecording(session, null, RecordingManager.finalReason(reason));
+			}
 
-		if (session.close(reason)) {
-			sessionEventsHandler.onSessionClosed(session.getSessionId(), reason);
-		}
+			if (session.close(reason)) {
+				sessionEventsHandler.onSessionClosed(session.getSessionId(), reason);
+			}
 
-		sessions.remove(session.getSessionId());
-		sessionsNotActive.remove(session.getSessionId());
-		sessionidParticipantpublicidParticipant.remove(session.getSessionId());
-		sessionidFinalUsers.remove(session.getSessionId());
-		sessionidAccumulatedRecordings.remove(session.getSessionId());
-		sessionidTokenTokenobj.remove(session.getSessionId());
+			sessions.remove(session.getSessionId());
+			sessionsNotActive.remove(session.getSessionId());
+			this.cancelSessionNotActiveExpiration(session.getSessionId());
+			Map<String, Participant> sessionParticipants = sessionidParticipantpublicidParticipant
+					.remove(session.getSessionId());
+			if (sessionParticipants != null) {
+				sessionParticipants.values()
+						.forEach(p -> participantprivateidSession.remove(p.getParticipantPrivateId(), session));
+			}
+			sessionidFinalUsers.remove(session.getSessionId());
+			sessionidAccumulatedRecordings.remove(session.getSessionId());
+			tokenStore.removeSession(session.getSessionId());
 
-		log.info("Session '{}' removed and closed", session.getSessionId());
+			log.info("Session '{}' removed and closed", session.getSessionId());
+		} finally {
+			sessionLock.unlock();
+		}
 	}
 
 }
@@ -30,6 +30,8 @@ public class Token {
 
 	private KurentoTokenOptions kurentoTokenOptions;
 
+	private final long createdAt = System.currentTimeMillis();
+
 	public Token(String token) {
 		this.token = token;
 	}
@@ -67,6 +69,10 @@ public class Token {
 		return kurentoTokenOptions;
 	}
 
+	public long getCreatedAt() {
+		return createdAt;
+	}
+
 	@Override
 	public String toString() {
 		if (this.role != null)
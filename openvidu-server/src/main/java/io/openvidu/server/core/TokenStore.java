@@ -0,0 +1,313 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.google.gson.JsonObject;
+
+import io.openvidu.client.OpenViduException;
+import io.openvidu.client.OpenViduException.Code;
+import io.openvidu.server.coturn.CoturnCredentialsService;
+import io.openvidu.server.utils.TimingWheel;
+
+/**
+ * Stores the tokens issued for every session until they are consumed by a
+ * participant connecting to it. Lookups, insertions and consumptions are O(1)
+ * no matter the number of stored tokens. Tokens not consumed within the
+ * configured TTL expire through a {@link TimingWheel}, and the total number of
+ * stored tokens is bounded. Counters are kept instead of dumping the whole
+ * store to the logs
+ */
+public class TokenStore {
+
+	private static final Logger log = LoggerFactory.getLogger(TokenStore.class);
+
+	@Autowired
+	private CoturnCredentialsService coturnCredentialsService;
+
+	private static class StoredToken {
+
+		final Token token;
+		final long storedAt;
+		volatile TimingWheel.Timeout expiration;
+
+		StoredToken(Token token, long storedAt) {
+			this.token = token;
+			this.storedAt = storedAt;
+		}
+
+		void cancelExpiration() {
+			TimingWheel.Timeout timeout = this.expiration;
+			if (timeout != null) {
+				timeout.cancel();
+			}
+		}
+	}
+
+	private final ConcurrentMap<String, ConcurrentHashMap<String, StoredToken>> sessionidTokenTokenobj = new ConcurrentHashMap<>();
+
+	private final TimingWheel timingWheel;
+	private final long ttlMillis;
+	private final int maxTokens;
+	private final LongSupplier clock;
+
+	private final AtomicInteger storedTokens = new AtomicInteger(0);
+	private final AtomicLong issuedTokens = new AtomicLong(0);
+	private final AtomicLong consumedTokens = new AtomicLong(0);
+	private final AtomicLong expiredTokens = new AtomicLong(0);
+	private final AtomicLong rejectedTokens = new AtomicLong(0);
+
+	/**
+	 * @param timingWheel wheel in which token expirations are scheduled
+	 * @param ttlSeconds  seconds after which a token not consumed yet expires. 0
+	 *                    means tokens never expire
+	 * @param maxTokens   maximum number of tokens stored at the same time. 0 means
+	 *                    no limit
+	 */
+	public TokenStore(TimingWheel timingWheel, long ttlSeconds, int maxTokens) {
+		this(timingWheel, ttlSeconds, maxTokens, System::currentTimeMillis);
+	}
+
+	/**
+	 * @param clock source of the current time in milliseconds, used to check if a
+	 *              token has expired
+	 */
+	public TokenStore(TimingWheel timingWheel, long ttlSeconds, int maxTokens, LongSupplier clock) {
+		this.timingWheel = timingWheel;
+		this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+		this.maxTokens = maxTokens;
+		this.clock = clock;
+	}
+
+	/**
+	 * Registers a session able to hold tokens
+	 *
+	 * @return true if the session was registered, false if it already existed
+	 */
+	public boolean registerSession(String sessionId) {
+		return this.sessionidTokenTokenobj.putIfAbsent(sessionId, new ConcurrentHashMap<>()) == null;
+	}
+
+	public boolean containsSession(String sessionId) {
+		return this.sessionidTokenTokenobj.containsKey(sessionId);
+	}
+
+	/**
+	 * Removes a session and all the tokens not consumed yet
+	 */
+	public void removeSession(String sessionId) {
+		Map<String, StoredToken> tokens = this.sessionidTokenTokenobj.remove(sessionId);
+		if (tokens != null) {
+			// Removed one by one, as a token may be being stored concurrently
+			for (StoredToken stored : tokens.values()) {
+				this.remove(tokens, stored);
+			}
+		}
+	}
+
+	/**
+	 * Stores a new token for a registered session
+	 *
+	 * @throws OpenViduException if the session is not registered or the store is
+	 *                           full
+	 */
+	public void addToken(String sessionId, Token token) throws OpenViduException {
+		Map<String, StoredToken> tokens = this.sessionidTokenTokenobj.get(sessionId);
+		if (tokens == null) {
+			throw new OpenViduException(Code.ROOM_NOT_FOUND_ERROR_CODE, "sessionId [" + sessionId + "] not found");
+		}
+		this.putToken(sessionId, tokens, token, true);
+	}
+
+	/**
+	 * Stores a token for a session, registering the session if necessary. Used
+	 * for insecure participants, whose tokens are not issued through the REST API
+	 */
+	public void addTokenIfAbsent(String sessionId, Token token) {
+		this.registerSession(sessionId);
+		Map<String, StoredToken> tokens = this.sessionidTokenTokenobj.get(sessionId);
+		if (tokens != null) {
+			this.putToken(sessionId, tokens, token, false);
+		}
+	}
+
+	/**
+	 * @return true if the token exists in the session and has not expired
+	 */
+	public boolean isTokenValid(String sessionId, String token) {
+		Map<String, StoredToken> tokens = this.sessionidTokenTokenobj.get(sessionId);
+		if (tokens == null) {
+			return false;
+		}
+		StoredToken stored = tokens.get(token);
+		if (stored == null) {
+			return false;
+		}
+		if (this.isExpired(stored)) {
+			// Expired but its timeout has not been processed yet
+			this.expire(sessionId, tokens, stored);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Removes a token from the session so it cannot be used again
+	 *
+	 * @return the consumed token, or null if it does not exist or has expired
+	 */
+	public Token consumeToken(String sessionId, String token) {
+		Map<String, StoredToken> tokens = this.sessionidTokenTokenobj.get(sessionId);
+		if (tokens == null) {
+			return null;
+		}
+		StoredToken stored = tokens.remove(token);
+		if (stored == null) {
+			return null;
+		}
+		this.storedTokens.decrementAndGet();
+		stored.cancelExpiration();
+		if (this.isExpired(stored)) {
+			this.onExpired(sessionId, stored.token);
+			return null;
+		}
+		this.consumedTokens.incrementAndGet();
+		return stored.token;
+	}
+
+	/**
+	 * Removes a token without counting it as consumed
+	 */
+	public void removeToken(String sessionId, String token) {
+		Map<String, StoredToken> tokens = this.sessionidTokenTokenobj.get(sessionId);
+		if (tokens != null) {
+			StoredToken stored = tokens.get(token);
+			if (stored != null) {
+				this.remove(tokens, stored);
+			}
+		}
+	}
+
+	public int getStoredTokens() {
+		return this.storedTokens.get();
+	}
+
+	public long getIssuedTokens() {
+		return this.issuedTokens.get();
+	}
+
+	public long getConsumedTokens() {
+		return this.consumedTokens.get();
+	}
+
+	public long getExpiredTokens() {
+		return this.expiredTokens.get();
+	}
+
+	public long getRejectedTokens() {
+		return this.rejectedTokens.get();
+	}
+
+	public JsonObject toJson() {
+		JsonObject json = new JsonObject();
+		json.addProperty("sessions", this.sessionidTokenTokenobj.size());
+		json.addProperty("stored", this.getStoredTokens());
+		json.addProperty("issued", this.getIssuedTokens());
+		json.addProperty("consumed", this.getConsumedTokens());
+		json.addProperty("expired", this.getExpiredTokens());
+		json.addProperty("rejected", this.getRejectedTokens());
+		return json;
+	}
+
+	/**
+	 * @param bounded whether the token is rejected if the store is full
+	 */
+	private void putToken(String sessionId, Map<String, StoredToken> tokens, Token token, boolean bounded) {
+		// The slot is reserved before inserting the token, so concurrent insertions
+		// cannot exceed the limit
+		int reserved = this.storedTokens.incrementAndGet();
+		if (bounded && this.maxTokens > 0 && reserved > this.maxTokens) {
+			this.storedTokens.decrementAndGet();
+			this.rejectedTokens.incrementAndGet();
+			log.warn("Token store is full ({} tokens). Token for session {} rejected", this.maxTokens, sessionId);
+			throw new OpenViduException(Code.TOKEN_STORE_FULL_ERROR_CODE,
+					"Maximum number of stored tokens reached (" + this.maxTokens + ")");
+		}
+		final StoredToken stored = new StoredToken(token, this.clock.getAsLong());
+		if (tokens.putIfAbsent(token.getToken(), stored) != null) {
+			this.storedTokens.decrementAndGet();
+			return;
+		}
+		this.issuedTokens.incrementAndGet();
+		if (this.sessionidTokenTokenobj.get(sessionId) != tokens) {
+			// Session removed concurrently. Its tokens are not stored anymore
+			this.remove(tokens, stored);
+			return;
+		}
+		if (this.ttlMillis > 0 && this.timingWheel != null) {
+			stored.expiration = this.timingWheel.schedule(() -> this.expire(sessionId, tokens, stored),
+					this.ttlMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Removes a token from its session. Only the caller that actually removes it
+	 * releases its slot
+	 *
+	 * @return true if the token was removed by this call
+	 */
+	private boolean remove(Map<String, StoredToken> tokens, StoredToken stored) {
+		if (tokens.remove(stored.token.getToken(), stored)) {
+			this.storedTokens.decrementAndGet();
+			stored.cancelExpiration();
+			return true;
+		}
+		return false;
+	}
+
+	private boolean isExpired(StoredToken stored) {
+		return this.ttlMillis > 0 && (this.clock.getAsLong() - stored.storedAt) > this.ttlMillis;
+	}
+
+	private void expire(String sessionId, Map<String, StoredToken> tokens, StoredToken stored) {
+		if (this.remove(tokens, stored)) {
+			this.onExpired(sessionId, stored.token);
+		}
+	}
+
+	private void onExpired(String sessionId, Token token) {
+		this.expiredTokens.incrementAndGet();
+		log.debug("Token {} of session {} expired", token.getToken(), sessionId);
+		if (token.getTurnCredentials() != null && this.coturnCredentialsService != null
+				&& this.coturnCredentialsService.isCoturnAvailable()) {
+			this.coturnCredentialsService.deleteUser(token.getTurnCredentials().getUsername());
+		}
+	}
+
+}
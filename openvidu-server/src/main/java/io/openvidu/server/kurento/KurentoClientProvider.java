@@ -20,6 +20,8 @@ package io.openvidu.server.kurento;
 import org.kurento.client.KurentoClient;
 
 import io.openvidu.client.OpenViduException;
+import io.openvidu.server.kurento.kms.Kms;
+import io.openvidu.server.kurento.kms.MediaPipelinePool;
 
 /**
  * This service interface was designed so that the room manager could obtain a {@link KurentoClient}
@@ -43,4 +45,40 @@ public interface KurentoClientProvider {
   KurentoClient getKurentoClient(KurentoClientSessionInfo sessionInfo) throws OpenViduException;
 
   boolean destroyWhenUnused();
+
+  /**
+   * Returns the pool of idle media pipelines of the media server to which the given
+   * {@link KurentoClient} is connected, if any
+   *
+   * @param kurentoClient
+   *          client previously obtained from
+   *          {@link KurentoClientProvider#getKurentoClient(KurentoClientSessionInfo)}
+   * @return the {@link MediaPipelinePool}, or null if pipelines are not pooled
+   */
+  default MediaPipelinePool getPipelinePool(KurentoClient kurentoClient) {
+    return null;
+  }
+
+  /**
+   * Returns the {@link Kms} to which the given {@link KurentoClient} is
+   * connected, if managed by this provider
+   *
+   * @param kurentoClient
+   *          client previously obtained from
+   *          {@link KurentoClientProvider#getKurentoClient(KurentoClientSessionInfo)}
+   * @return the {@link Kms}, or null if not managed by this provider
+   */
+  default Kms getKms(KurentoClient kurentoClient) {
+    return null;
+  }
+
+  /**
+   * Notifies that a session is closed, so the {@link KurentoClient} returned
+   * for it is no longer in use by the session
+   *
+   * @param sessionId
+   *          id of the closed session
+   */
+  default void sessionClosed(String sessionId) {
+  }
 }
@@ -0,0 +1,174 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.kurento.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.kurento.client.IceCandidate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import io.openvidu.client.internal.ProtocolElements;
+import io.openvidu.server.rpc.RpcNotificationService;
+
+/**
+ * Accumulates the ICE candidates gathered by Kurento for the same endpoint of
+ * the same participant during a short window, and sends all of them in a
+ * single 'iceCandidate' notification. Kurento usually gathers a burst of
+ * candidates for each new endpoint, so this saves most of the signaling
+ * messages of each negotiation
+ */
+public class IceCandidateCoalescer {
+
+	private static final Logger log = LoggerFactory.getLogger(IceCandidateCoalescer.class);
+
+	private class Buffer {
+
+		final String participantPrivateId;
+		final String senderPublicId;
+		final String endpointName;
+
+		// Guarded by this. Null once flushed
+		List<IceCandidate> candidates = new ArrayList<>();
+
+		Buffer(String participantPrivateId, String senderPublicId, String endpointName) {
+			this.participantPrivateId = participantPrivateId;
+			this.senderPublicId = senderPublicId;
+			this.endpointName = endpointName;
+		}
+	}
+
+	private final RpcNotificationService rpcNotificationService;
+	private final long windowMillis;
+	private final ScheduledExecutorService scheduler;
+
+	private final ConcurrentMap<String, Buffer> buffers = new ConcurrentHashMap<>();
+
+	private final AtomicLong coalescedCandidates = new AtomicLong(0);
+	private final AtomicLong sentNotifications = new AtomicLong(0);
+
+	public IceCandidateCoalescer(RpcNotificationService rpcNotificationService, long windowMillis) {
+		this.rpcNotificationService = rpcNotificationService;
+		this.windowMillis = windowMillis;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "ice-coalescer");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Adds a candidate to the buffer of its endpoint. The first candidate of a
+	 * buffer schedules its flush once the window has elapsed
+	 */
+	public void add(String participantPrivateId, String senderPublicId, String endpointName,
+			IceCandidate candidate) {
+		String key = participantPrivateId + "_" + endpointName;
+		while (true) {
+			Buffer buffer = buffers.computeIfAbsent(key, k -> {
+				Buffer b = new Buffer(participantPrivateId, senderPublicId, endpointName);
+				this.schedule(k, b);
+				return b;
+			});
+			synchronized (buffer) {
+				if (buffer.candidates != null) {
+					buffer.candidates.add(candidate);
+					coalescedCandidates.incrementAndGet();
+					return;
+				}
+			}
+			// Buffer flushed in the meantime. A new one is created
+			buffers.remove(key, buffer);
+		}
+	}
+
+	public long getCoalescedCandidates() {
+		return coalescedCandidates.get();
+	}
+
+	public long getSentNotifications() {
+		return sentNotifications.get();
+	}
+
+	public JsonObject toJson() {
+		JsonObject json = new JsonObject();
+		json.addProperty("windowMillis", this.windowMillis);
+		json.addProperty("pendingEndpoints", this.buffers.size());
+		json.addProperty("coalescedCandidates", this.getCoalescedCandidates());
+		json.addProperty("sentNotifications", this.getSentNotifications());
+		return json;
+	}
+
+	public void shutdown() {
+		scheduler.shutdownNow();
+	}
+
+	private void schedule(String key, Buffer buffer) {
+		try {
+			scheduler.schedule(() -> this.flush(key, buffer), windowMillis, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			// Shutting down. Candidates are sent right away
+			this.flush(key, buffer);
+		}
+	}
+
+	private void flush(String key, Buffer buffer) {
+		buffers.remove(key, buffer);
+		List<IceCandidate> candidates;
+		synchronized (buffer) {
+			candidates = buffer.candidates;
+			buffer.candidates = null;
+		}
+		if (candidates == null || candidates.isEmpty()) {
+			return;
+		}
+		if (rpcNotificationService.getRpcConnection(buffer.participantPrivateId) == null) {
+			log.debug("Participant {} is gone. Discarding {} ICE candidates for endpoint {}",
+					buffer.participantPrivateId, candidates.size(), buffer.endpointName);
+			return;
+		}
+
+		JsonArray array = new JsonArray();
+		for (IceCandidate candidate : candidates) {
+			JsonObject json = new JsonObject();
+			json.addProperty(ProtocolElements.ICECANDIDATE_SDPMLINEINDEX_PARAM, candidate.getSdpMLineIndex());
+			json.addProperty(ProtocolElements.ICECANDIDATE_SDPMID_PARAM, candidate.getSdpMid());
+			json.addProperty(ProtocolElements.ICECANDIDATE_CANDIDATE_PARAM, candidate.getCandidate());
+			array.add(json);
+		}
+		JsonObject params = new JsonObject();
+		params.addProperty(ProtocolElements.ICECANDIDATE_SENDERCONNECTIONID_PARAM, buffer.senderPublicId);
+		params.addProperty(ProtocolElements.ICECANDIDATE_EPNAME_PARAM, buffer.endpointName);
+		params.add(ProtocolElements.ICECANDIDATE_CANDIDATES_PARAM, array);
+		rpcNotificationService.sendNotification(buffer.participantPrivateId, ProtocolElements.ICECANDIDATE_METHOD,
+				params);
+		sentNotifications.incrementAndGet();
+	}
+
+}
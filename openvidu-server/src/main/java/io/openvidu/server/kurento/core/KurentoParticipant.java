@@ -17,10 +17,17 @@
 
 package io.openvidu.server.kurento.core;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 
 import org.apache.commons.lang3.RandomStringUtils;
@@ -66,7 +73,12 @@ public class KurentoParticipant extends Participant {
 	private KurentoParticipantEndpointConfig endpointConfig;
 
 	private PublisherEndpoint publisher;
-	private CountDownLatch endPointLatch = new CountDownLatch(1);
+	/**
+	 * Completed with the current publisher endpoint once it has been created and
+	 * configured. Replaced by a new one every time the publisher endpoint is
+	 * released or its creation fails
+	 */
+	private volatile CompletableFuture<PublisherEndpoint> publisherEndpointReady = new CompletableFuture<>();
 
 	private final ConcurrentMap<String, Filter> filters = new ConcurrentHashMap<>();
 	private final ConcurrentMap<String, SubscriberEndpoint> subscribers = new ConcurrentHashMap<String, SubscriberEndpoint>();
@@ -87,34 +99,62 @@ public class KurentoParticipant extends Participant {
 					this.session.getPipeline(), this.openviduConfig);
 		}
 
-		for (Participant other : session.getParticipants()) {
-			if (!other.getParticipantPublicId().equals(this.getParticipantPublicId())) {
-				getNewOrExistingSubscriber(other.getParticipantPublicId());
+		// Subscriber endpoints are only pre-loaded for pre-warmed publishers. Any other
+		// will be created on demand when subscribing to it
+		for (String publisherPublicId : session.getPrewarmedPublishers()) {
+			if (!publisherPublicId.equals(this.getParticipantPublicId())) {
+				getNewOrExistingSubscriber(publisherPublicId);
 			}
 		}
 	}
 
-	public void createPublishingEndpoint(MediaOptions mediaOptions) {
-
-		publisher.createEndpoint(endPointLatch);
-		if (getPublisher().getEndpoint() == null) {
-			throw new OpenViduException(Code.MEDIA_ENDPOINT_ERROR_CODE, "Unable to create publisher endpoint");
-		}
-		publisher.setMediaOptions(mediaOptions);
-
-		String publisherStreamId = this.getParticipantPublicId() + "_"
-				+ (mediaOptions.hasVideo() ? mediaOptions.getTypeOfVideo() : "MICRO") + "_"
-				+ RandomStringUtils.random(5, true, false).toUpperCase();
-
-		this.publisher.setEndpointName(publisherStreamId);
-		this.publisher.getEndpoint().setName(publisherStreamId);
-		this.publisher.setStreamId(publisherStreamId);
-
-		endpointConfig.addEndpointListeners(this.publisher, "publisher");
+	/**
+	 * Asynchronously creates the media endpoint of the publisher. The returned
+	 * future is completed (in the endpoint executor) once the endpoint has been
+	 * configured, or completed exceptionally with an {@link OpenViduException} if
+	 * KMS could not create it. In that case a new publisher endpoint is left
+	 * ready for the next attempt to publish
+	 */
+	public CompletableFuture<PublisherEndpoint> createPublishingEndpoint(MediaOptions mediaOptions) {
+		final PublisherEndpoint publisher = this.publisher;
+		final CompletableFuture<PublisherEndpoint> ready = this.publisherEndpointReady;
+		return publisher.createEndpoint().handleAsync((endpoint, cause) -> {
+			try {
+				if (cause != null || publisher.getEndpoint() == null) {
+					if (cause instanceof CompletionException && cause.getCause() != null) {
+						cause = cause.getCause();
+					}
+					throw new OpenViduException(Code.MEDIA_ENDPOINT_ERROR_CODE,
+							"Unable to create publisher endpoint" + (cause != null ? ": " + cause.getMessage() : ""));
+				}
+				publisher.setMediaOptions(mediaOptions);
+
+				String publisherStreamId = this.getParticipantPublicId() + "_"
+						+ (mediaOptions.hasVideo() ? mediaOptions.getTypeOfVideo() : "MICRO") + "_"
+						+ RandomStringUtils.random(5, true, false).toUpperCase();
+
+				publisher.setEndpointName(publisherStreamId);
+				publisher.getEndpoint().setName(publisherStreamId);
+				publisher.setStreamId(publisherStreamId);
+
+				endpointConfig.addEndpointListeners(publisher, "publisher");
+			} catch (RuntimeException e) {
+				OpenViduException ovException = e instanceof OpenViduException ? (OpenViduException) e
+						: new OpenViduException(Code.MEDIA_ENDPOINT_ERROR_CODE,
+								"Unable to configure publisher endpoint: " + e.getMessage());
+				ready.completeExceptionally(ovException);
+				if (this.publisher == publisher) {
+					this.resetPublisherEndpoint();
+				}
+				throw ovException;
+			}
 
-		// Remove streamId from publisher's map
-		this.session.publishedStreamIds.putIfAbsent(this.getPublisherStreamId(), this.getParticipantPrivateId());
+			// Remove streamId from publisher's map
+			this.session.publishedStreamIds.putIfAbsent(this.getPublisherStreamId(), this.getParticipantPrivateId());
 
+			ready.complete(publisher);
+			return publisher;
+		}, endpointConfig.getEndpointExecutor());
 	}
 
 	public synchronized Filter getFilterElement(String id) {
@@ -137,12 +177,23 @@ public class KurentoParticipant extends Participant {
 		}
 	}
 
+	/**
+	 * Blocks until the publisher endpoint has been created. Never to be called
+	 * when negotiating media, which must compose on
+	 * {@link #getPublisherAsync()} instead
+	 */
 	public PublisherEndpoint getPublisher() {
 		try {
-			if (!endPointLatch.await(KurentoSession.ASYNC_LATCH_TIMEOUT, TimeUnit.SECONDS)) {
-				throw new OpenViduException(Code.MEDIA_ENDPOINT_ERROR_CODE,
-						"Timeout reached while waiting for publisher endpoint to be ready");
+			this.publisherEndpointReady.get(KurentoSession.ASYNC_LATCH_TIMEOUT, TimeUnit.SECONDS);
+		} catch (TimeoutException e) {
+			throw new OpenViduException(Code.MEDIA_ENDPOINT_ERROR_CODE,
+					"Timeout reached while waiting for publisher endpoint to be ready");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof OpenViduException) {
+				throw (OpenViduException) e.getCause();
 			}
+			throw new OpenViduException(Code.MEDIA_ENDPOINT_ERROR_CODE,
+					"Unable to create publisher endpoint: " + e.getCause().getMessage());
 		} catch (InterruptedException e) {
 			throw new OpenViduException(Code.MEDIA_ENDPOINT_ERROR_CODE,
 					"Interrupted while waiting for publisher endpoint to be ready: " + e.getMessage());
@@ -150,6 +201,15 @@ public class KurentoParticipant extends Participant {
 		return this.publisher;
 	}
 
+	/**
+	 * Returns a future completed with the publisher endpoint once it has been
+	 * created, or completed exceptionally if KMS failed to create it. A new one is
+	 * returned after unpublishing
+	 */
+	public CompletableFuture<PublisherEndpoint> getPublisherAsync() {
+		return this.publisherEndpointReady;
+	}
+
 	public MediaOptions getPublisherMediaOptions() {
 		return this.publisher.getMediaOptions();
 	}
@@ -162,42 +222,58 @@ public class KurentoParticipant extends Participant {
 		return session;
 	}
 
-	public String publishToRoom(SdpType sdpType, String sdpString, boolean doLoopback,
+	/**
+	 * Negotiates the SDP of the publisher endpoint without blocking the calling
+	 * thread. The returned future is completed (in the endpoint executor) with the
+	 * SDP response once the participant is publishing
+	 */
+	public CompletableFuture<String> publishToRoom(SdpType sdpType, String sdpString, boolean doLoopback,
 			MediaElement loopbackAlternativeSrc, MediaType loopbackConnectionType) {
 		log.info("PARTICIPANT {}: Request to publish video in room {} (sdp type {})", this.getParticipantPublicId(),
 				this.session.getSessionId(), sdpType);
 		log.trace("PARTICIPANT {}: Publishing Sdp ({}) is {}", this.getParticipantPublicId(), sdpType, sdpString);
 
-		String sdpResponse = this.getPublisher().publish(sdpType, sdpString, doLoopback, loopbackAlternativeSrc,
-				loopbackConnectionType);
-		this.streaming = true;
+		return this.publisherEndpointReady.thenCompose(publisher -> publisher
+				.publish(sdpType, sdpString, doLoopback, loopbackAlternativeSrc, loopbackConnectionType)
+				.thenApplyAsync(sdpResponse -> {
+					this.streaming = true;
 
-		log.trace("PARTICIPANT {}: Publishing Sdp ({}) is {}", this.getParticipantPublicId(), sdpType, sdpResponse);
-		log.info("PARTICIPANT {}: Is now publishing video in room {}", this.getParticipantPublicId(),
-				this.session.getSessionId());
+					log.trace("PARTICIPANT {}: Publishing Sdp ({}) is {}", this.getParticipantPublicId(), sdpType,
+							sdpResponse);
+					log.info("PARTICIPANT {}: Is now publishing video in room {}", this.getParticipantPublicId(),
+							this.session.getSessionId());
 
-		if (this.openviduConfig.isRecordingModuleEnabled()
-				&& this.recordingManager.sessionIsBeingRecorded(session.getSessionId())) {
-			this.recordingManager.startOneIndividualStreamRecording(session, null, null, this);
-		}
+					if (this.openviduConfig.isRecordingModuleEnabled()
+							&& this.recordingManager.sessionIsBeingRecorded(session.getSessionId())) {
+						this.recordingManager.startOneIndividualStreamRecording(session, null, null, this);
+					}
 
-		endpointConfig.getCdr().recordNewPublisher(this, session.getSessionId(), publisher.getStreamId(),
-				publisher.getMediaOptions(), publisher.createdAt());
+					endpointConfig.getCdr().recordNewPublisher(this, session.getSessionId(), publisher.getStreamId(),
+							publisher.getMediaOptions(), publisher.createdAt());
 
-		return sdpResponse;
+					return sdpResponse;
+				}, endpointConfig.getEndpointExecutor()));
 	}
 
 	public void unpublishMedia(EndReason reason) {
 		log.info("PARTICIPANT {}: unpublishing media stream from room {}", this.getParticipantPublicId(),
 				this.session.getSessionId());
-		releasePublisherEndpoint(reason);
+		releasePublisherEndpoint(reason, true);
 		this.publisher = new PublisherEndpoint(webParticipant, this, this.getParticipantPublicId(), this.getPipeline(),
 				this.openviduConfig);
 		log.info("PARTICIPANT {}: released publisher endpoint and left it initialized (ready for future streaming)",
 				this.getParticipantPublicId());
 	}
 
-	public String receiveMediaFrom(Participant sender, String sdpOffer) {
+	/**
+	 * Asynchronously creates (or reuses) the subscriber endpoint for the given
+	 * sender and negotiates the SDP offer once the publisher endpoint of the
+	 * sender is ready. No thread waits for KMS or for the sender in the meantime.
+	 * The returned future is completed with the SDP answer, with null if the
+	 * subscription could not be established, or exceptionally with an
+	 * {@link OpenViduException}
+	 */
+	public CompletableFuture<String> receiveMediaFrom(Participant sender, String sdpOffer) {
 		final String senderName = sender.getParticipantPublicId();
 
 		log.info("PARTICIPANT {}: Request to receive media from {} in room {}", this.getParticipantPublicId(),
@@ -210,79 +286,80 @@ public class KurentoParticipant extends Participant {
 		}
 
 		KurentoParticipant kSender = (KurentoParticipant) sender;
-
-		if (kSender.getPublisher() == null) {
-			log.warn("PARTICIPANT {}: Trying to connect to a user without " + "a publishing endpoint",
-					this.getParticipantPublicId());
-			return null;
-		}
+		final CompletableFuture<PublisherEndpoint> senderPublisher = kSender.getPublisherAsync();
 
 		log.debug("PARTICIPANT {}: Creating a subscriber endpoint to user {}", this.getParticipantPublicId(),
 				senderName);
 
 		SubscriberEndpoint subscriber = getNewOrExistingSubscriber(senderName);
 
-		try {
-			CountDownLatch subscriberLatch = new CountDownLatch(1);
-			SdpEndpoint oldMediaEndpoint = subscriber.createEndpoint(subscriberLatch);
-			try {
-				if (!subscriberLatch.await(KurentoSession.ASYNC_LATCH_TIMEOUT, TimeUnit.SECONDS)) {
-					throw new OpenViduException(Code.MEDIA_ENDPOINT_ERROR_CODE,
-							"Timeout reached when creating subscriber endpoint");
-				}
-			} catch (InterruptedException e) {
-				throw new OpenViduException(Code.MEDIA_ENDPOINT_ERROR_CODE,
-						"Interrupted when creating subscriber endpoint: " + e.getMessage());
-			}
-			if (oldMediaEndpoint != null) {
+		CompletableFuture<SdpEndpoint> endpointFuture;
+		synchronized (subscriber) {
+			if (subscriber.isEndpointCreationStarted()) {
 				log.warn(
 						"PARTICIPANT {}: Two threads are trying to create at "
 								+ "the same time a subscriber endpoint for user {}",
 						this.getParticipantPublicId(), senderName);
-				return null;
-			}
-			if (subscriber.getEndpoint() == null) {
-				throw new OpenViduException(Code.MEDIA_ENDPOINT_ERROR_CODE, "Unable to create subscriber endpoint");
+				return CompletableFuture.completedFuture(null);
 			}
-
-			String subscriberEndpointName = this.getParticipantPublicId() + "_" + kSender.getPublisherStreamId();
-
-			subscriber.setEndpointName(subscriberEndpointName);
-			subscriber.getEndpoint().setName(subscriberEndpointName);
-			subscriber.setStreamId(kSender.getPublisherStreamId());
-
-			endpointConfig.addEndpointListeners(subscriber, "subscriber");
-
-		} catch (OpenViduException e) {
-			this.subscribers.remove(senderName);
-			throw e;
+			endpointFuture = subscriber.createEndpoint();
 		}
 
-		log.debug("PARTICIPANT {}: Created subscriber endpoint for user {}", this.getParticipantPublicId(), senderName);
-		try {
-			String sdpAnswer = subscriber.subscribe(sdpOffer, kSender.getPublisher());
-			log.trace("PARTICIPANT {}: Subscribing SdpAnswer is {}", this.getParticipantPublicId(), sdpAnswer);
-			log.info("PARTICIPANT {}: Is now receiving video from {} in room {}", this.getParticipantPublicId(),
-					senderName, this.session.getSessionId());
-
-			if (!ProtocolElements.RECORDER_PARTICIPANT_PUBLICID.equals(this.getParticipantPublicId())) {
-				endpointConfig.getCdr().recordNewSubscriber(this, this.session.getSessionId(),
-						sender.getPublisherStreamId(), sender.getParticipantPublicId(), subscriber.createdAt());
-			}
-
-			return sdpAnswer;
-		} catch (KurentoServerException e) {
-			// TODO Check object status when KurentoClient sets this info in the object
-			if (e.getCode() == 40101) {
-				log.warn("Publisher endpoint was already released when trying "
-						+ "to connect a subscriber endpoint to it", e);
-			} else {
-				log.error("Exception connecting subscriber endpoint " + "to publisher endpoint", e);
+		return endpointFuture.handleAsync((endpoint, cause) -> {
+			if (cause != null || subscriber.getEndpoint() == null) {
+				throw new OpenViduException(Code.MEDIA_ENDPOINT_ERROR_CODE, "Unable to create subscriber endpoint");
 			}
-			this.subscribers.remove(senderName);
-			releaseSubscriberEndpoint(senderName, subscriber, null);
-		}
-		return null;
+			log.debug("PARTICIPANT {}: Created subscriber endpoint for user {}", this.getParticipantPublicId(),
+					senderName);
+			return subscriber;
+		}, endpointConfig.getEndpointExecutor()).thenCombine(senderPublisher, (unused, publisher) -> publisher)
+				.thenComposeAsync(publisher -> {
+					String subscriberEndpointName = this.getParticipantPublicId() + "_" + publisher.getStreamId();
+
+					subscriber.setEndpointName(subscriberEndpointName);
+					subscriber.getEndpoint().setName(subscriberEndpointName);
+					subscriber.setStreamId(publisher.getStreamId());
+
+					endpointConfig.addEndpointListeners(subscriber, "subscriber");
+
+					return subscriber.subscribe(sdpOffer, publisher);
+				}, endpointConfig.getEndpointExecutor()).handleAsync((sdpAnswer, cause) -> {
+					if (cause == null) {
+						log.trace("PARTICIPANT {}: Subscribing SdpAnswer is {}", this.getParticipantPublicId(),
+								sdpAnswer);
+						log.info("PARTICIPANT {}: Is now receiving video from {} in room {}",
+								this.getParticipantPublicId(), senderName, this.session.getSessionId());
+
+						if (!ProtocolElements.RECORDER_PARTICIPANT_PUBLICID.equals(this.getParticipantPublicId())) {
+							endpointConfig.getCdr().recordNewSubscriber(this, this.session.getSessionId(),
+									subscriber.getStreamId(), sender.getParticipantPublicId(), subscriber.createdAt());
+						}
+						return sdpAnswer;
+					}
+
+					if (cause instanceof CompletionException && cause.getCause() != null) {
+						cause = cause.getCause();
+					}
+					this.subscribers.remove(senderName, subscriber);
+					if (subscriber.getEndpoint() != null) {
+						releaseSubscriberEndpoint(senderName, subscriber, null, true);
+					}
+					if (cause instanceof KurentoServerException) {
+						// TODO Check object status when KurentoClient sets this info in the object
+						if (((KurentoServerException) cause).getCode() == 40101) {
+							log.warn("Publisher endpoint was already released when trying "
+									+ "to connect a subscriber endpoint to it", cause);
+						} else {
+							log.error("Exception connecting subscriber endpoint " + "to publisher endpoint", cause);
+						}
+						return null;
+					}
+					if (cause instanceof OpenViduException) {
+						throw (OpenViduException) cause;
+					}
+					throw new OpenViduException(Code.MEDIA_ENDPOINT_ERROR_CODE,
+							"Unable to subscribe to " + senderName + ": " + cause.getMessage());
+				}, endpointConfig.getEndpointExecutor());
 	}
 
 	public void cancelReceivingMedia(String senderName, EndReason reason) {
@@ -292,13 +369,23 @@ public class KurentoParticipant extends Participant {
 			log.warn("PARTICIPANT {}: Trying to cancel receiving video from user {}. "
 					+ "But there is no such subscriber endpoint.", this.getParticipantPublicId(), senderName);
 		} else {
-			releaseSubscriberEndpoint(senderName, subscriberEndpoint, reason);
+			releaseSubscriberEndpoint(senderName, subscriberEndpoint, reason, true);
 			log.info("PARTICIPANT {}: stopped receiving media from {} in room {}", this.getParticipantPublicId(),
 					senderName, this.session.getSessionId());
 		}
 	}
 
 	public void close(EndReason reason, boolean definitelyClosed) {
+		this.close(reason, definitelyClosed, true);
+	}
+
+	/**
+	 * @param releaseMediaElements false to skip releasing the endpoints of the
+	 *                             participant one by one in KMS because the whole
+	 *                             MediaPipeline is going to be released right
+	 *                             after
+	 */
+	public void close(EndReason reason, boolean definitelyClosed, boolean releaseMediaElements) {
 		log.debug("PARTICIPANT {}: Closing user", this.getParticipantPublicId());
 		if (isClosed()) {
 			log.warn("PARTICIPANT {}: Already closed", this.getParticipantPublicId());
@@ -308,7 +395,7 @@ public class KurentoParticipant extends Participant {
 		for (String remoteParticipantName : subscribers.keySet()) {
 			SubscriberEndpoint subscriber = this.subscribers.get(remoteParticipantName);
 			if (subscriber != null && subscriber.getEndpoint() != null) {
-				releaseSubscriberEndpoint(remoteParticipantName, subscriber, reason);
+				releaseSubscriberEndpoint(remoteParticipantName, subscriber, reason, releaseMediaElements);
 				log.debug("PARTICIPANT {}: Released subscriber endpoint to {}", this.getParticipantPublicId(),
 						remoteParticipantName);
 			} else {
@@ -319,7 +406,12 @@ public class KurentoParticipant extends Participant {
 			}
 		}
 		this.subscribers.clear();
-		releasePublisherEndpoint(reason);
+		releasePublisherEndpoint(reason, releaseMediaElements);
+		if (definitelyClosed) {
+			// Nobody can subscribe to this participant anymore
+			this.publisherEndpointReady.completeExceptionally(new OpenViduException(
+					Code.USER_NOT_STREAMING_ERROR_CODE, "Participant " + getParticipantPublicId() + " has left"));
+		}
 	}
 
 	/**
@@ -346,7 +438,16 @@ public class KurentoParticipant extends Participant {
 		return subscriberEndpoint;
 	}
 
-	public void addIceCandidate(String endpointName, IceCandidate iceCandidate) {
+	/**
+	 * @return the public ids of the publishers this participant has a subscriber
+	 *         endpoint for, either pre-loaded or created when subscribing
+	 */
+	public Set<String> getSubscribedPublishers() {
+		return Collections.unmodifiableSet(this.subscribers.keySet());
+	}
+
+	public void addIceCandidate(String endpointName, String candidate, String sdpMid, int sdpMLineIndex) {
+		IceCandidate iceCandidate = new IceCandidate(candidate, sdpMid, sdpMLineIndex);
 		if (this.getParticipantPublicId().equals(endpointName)) {
 			this.publisher.addIceCandidate(iceCandidate);
 		} else {
@@ -354,6 +455,21 @@ public class KurentoParticipant extends Participant {
 		}
 	}
 
+	/**
+	 * Adds many candidates sent by the client for the same endpoint, converting
+	 * them to Kurento candidates
+	 */
+	public void addIceCandidates(String endpointName, List<io.openvidu.client.internal.IceCandidate> candidates) {
+		List<IceCandidate> iceCandidates = new ArrayList<>(candidates.size());
+		candidates.forEach(
+				c -> iceCandidates.add(new IceCandidate(c.getCandidate(), c.getSdpMid(), c.getSdpMLineIndex())));
+		if (this.getParticipantPublicId().equals(endpointName)) {
+			this.publisher.addIceCandidates(iceCandidates);
+		} else {
+			this.getNewOrExistingSubscriber(endpointName).addIceCandidates(iceCandidates);
+		}
+	}
+
 	public void sendIceCandidate(String senderPublicId, String endpointName, IceCandidate candidate) {
 		session.sendIceCandidate(this.getParticipantPrivateId(), senderPublicId, endpointName, candidate);
 	}
@@ -364,7 +480,7 @@ public class KurentoParticipant extends Participant {
 		session.sendMediaError(this.getParticipantPrivateId(), desc);
 	}
 
-	private void releasePublisherEndpoint(EndReason reason) {
+	private void releasePublisherEndpoint(EndReason reason, boolean releaseMediaElements) {
 		if (publisher != null && publisher.getEndpoint() != null) {
 
 			// Remove streamId from publisher's map
@@ -380,31 +496,57 @@ public class KurentoParticipant extends Participant {
 			if (publisher.kmsWebrtcStatsThread != null) {
 				publisher.kmsWebrtcStatsThread.cancel(true);
 			}
+			if (publisher.getWebEndpoint() != null) {
+				this.session.getKms().webRtcEndpointReleased();
+			}
+			if (publisher.getFilter() != null) {
+				this.session.getKms().filterReleased();
+			}
 
-			for (MediaElement el : publisher.getMediaElements()) {
-				releaseElement(getParticipantPublicId(), el);
+			if (releaseMediaElements) {
+				for (MediaElement el : publisher.getMediaElements()) {
+					releaseElement(getParticipantPublicId(), el);
+				}
+				releaseElement(getParticipantPublicId(), publisher.getEndpoint());
 			}
-			releaseElement(getParticipantPublicId(), publisher.getEndpoint());
 			this.streaming = false;
 			this.session.deregisterPublisher();
 
 			endpointConfig.getCdr().stopPublisher(this.getParticipantPublicId(), publisher.getStreamId(), reason);
 			publisher = null;
+			renewPublisherEndpointReady();
 
 		} else {
 			log.warn("PARTICIPANT {}: Trying to release publisher endpoint but is null", getParticipantPublicId());
 		}
 	}
 
-	private void releaseSubscriberEndpoint(String senderName, SubscriberEndpoint subscriber, EndReason reason) {
+	/**
+	 * Replaces the readiness of the publisher endpoint with a new one, failing any
+	 * subscription still waiting for the previous one
+	 */
+	private void renewPublisherEndpointReady() {
+		CompletableFuture<PublisherEndpoint> previous = this.publisherEndpointReady;
+		this.publisherEndpointReady = new CompletableFuture<>();
+		previous.completeExceptionally(new OpenViduException(Code.USER_NOT_STREAMING_ERROR_CODE,
+				"Publisher endpoint of participant " + getParticipantPublicId() + " has been released"));
+	}
+
+	private void releaseSubscriberEndpoint(String senderName, SubscriberEndpoint subscriber, EndReason reason,
+			boolean releaseMediaElements) {
 		if (subscriber != null) {
 
 			subscriber.unregisterErrorListeners();
 			if (subscriber.kmsWebrtcStatsThread != null) {
 				subscriber.kmsWebrtcStatsThread.cancel(true);
 			}
+			if (subscriber.getWebEndpoint() != null) {
+				this.session.getKms().webRtcEndpointReleased();
+			}
 
-			releaseElement(senderName, subscriber.getEndpoint());
+			if (releaseMediaElements) {
+				releaseElement(senderName, subscriber.getEndpoint());
+			}
 
 			if (!ProtocolElements.RECORDER_PARTICIPANT_PUBLICID.equals(this.getParticipantPublicId())) {
 				endpointConfig.getCdr().stopSubscriber(this.getParticipantPublicId(), senderName,
@@ -450,6 +592,7 @@ public class KurentoParticipant extends Participant {
 
 	public void resetPublisherEndpoint() {
 		log.info("Reseting publisher endpoint for participant {}", this.getParticipantPublicId());
+		this.renewPublisherEndpointReady();
 		this.publisher = new PublisherEndpoint(webParticipant, this, this.getParticipantPublicId(),
 				this.session.getPipeline(), this.openviduConfig);
 	}
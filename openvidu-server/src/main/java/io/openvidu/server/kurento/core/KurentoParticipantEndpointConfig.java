@@ -17,6 +17,12 @@
 
 package io.openvidu.server.kurento.core;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,6 +43,20 @@ public class KurentoParticipantEndpointConfig {
 	@Autowired
 	protected CallDetailRecord CDR;
 
+	private final AtomicInteger endpointThreadCount = new AtomicInteger();
+
+	/**
+	 * Runs the short KMS calls (naming, event listeners) that follow the
+	 * asynchronous creation of media endpoints, so RPC threads never wait for KMS.
+	 * SDP negotiations are asynchronous and do not hold any of its threads
+	 */
+	private final ExecutorService endpointExecutor = Executors
+			.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()), r -> {
+				Thread t = new Thread(r, "kms-endpoint-" + endpointThreadCount.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			});
+
 	public void addEndpointListeners(MediaEndpoint endpoint, String typeOfEndpoint) {
 
 		endpoint.getWebEndpoint().addMediaFlowInStateChangeListener(event -> {
@@ -144,4 +164,13 @@ public class KurentoParticipantEndpointConfig {
 		return this.CDR;
 	}
 
+	public ExecutorService getEndpointExecutor() {
+		return this.endpointExecutor;
+	}
+
+	@PreDestroy
+	public void close() {
+		this.endpointExecutor.shutdown();
+	}
+
 }
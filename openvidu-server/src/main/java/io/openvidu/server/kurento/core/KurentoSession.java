@@ -17,9 +17,12 @@
 
 package io.openvidu.server.kurento.core;
 
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.kurento.client.Continuation;
 import org.kurento.client.ErrorEvent;
@@ -38,6 +41,8 @@ import io.openvidu.java.client.Recording.OutputMode;
 import io.openvidu.server.core.EndReason;
 import io.openvidu.server.core.Participant;
 import io.openvidu.server.core.Session;
+import io.openvidu.server.kurento.kms.Kms;
+import io.openvidu.server.kurento.kms.MediaPipelinePool;
 import io.openvidu.server.recording.Recording;
 
 /**
@@ -49,9 +54,12 @@ public class KurentoSession extends Session {
 	public static final int ASYNC_LATCH_TIMEOUT = 30;
 
 	private MediaPipeline pipeline;
-	private CountDownLatch pipelineLatch = new CountDownLatch(1);
+	private CompletableFuture<MediaPipeline> pipelineFuture = new CompletableFuture<>();
 
 	private KurentoClient kurentoClient;
+	private Kms kms;
+	private MediaPipelinePool pipelinePool;
+	private CompletableFuture<MediaPipeline> preparedPipeline;
 	private KurentoSessionEventsHandler kurentoSessionHandler;
 	private KurentoParticipantEndpointConfig kurentoEndpointConfig;
 
@@ -59,15 +67,22 @@ public class KurentoSession extends Session {
 
 	private Object pipelineCreateLock = new Object();
 	private Object pipelineReleaseLock = new Object();
+	private boolean pipelineCreationStarted = false;
 	private boolean destroyKurentoClient;
 
 	public final ConcurrentHashMap<String, String> publishedStreamIds = new ConcurrentHashMap<>();
 
+	// Public ids of the publishers whose subscriber endpoints are pre-loaded
+	private final Set<String> prewarmedPublishers = ConcurrentHashMap.newKeySet();
+
 	public KurentoSession(Session sessionNotActive, KurentoClient kurentoClient,
 			KurentoSessionEventsHandler kurentoSessionHandler, KurentoParticipantEndpointConfig kurentoEndpointConfig,
-			boolean destroyKurentoClient) {
+			boolean destroyKurentoClient, MediaPipelinePool pipelinePool, Kms kms) {
 		super(sessionNotActive);
 		this.kurentoClient = kurentoClient;
+		// Sessions not managed by a KmsManager keep their own counters
+		this.kms = kms != null ? kms : new Kms(kurentoClient, null);
+		this.pipelinePool = pipelinePool;
 		this.destroyKurentoClient = destroyKurentoClient;
 		this.kurentoSessionHandler = kurentoSessionHandler;
 		this.kurentoEndpointConfig = kurentoEndpointConfig;
@@ -77,11 +92,16 @@ public class KurentoSession extends Session {
 	@Override
 	public void join(Participant participant) {
 		checkClosed();
-		createPipeline();
+		CompletableFuture<MediaPipeline> pipelineFuture = getPipelineAsync();
+		if (!pipelineFuture.isDone() || pipelineFuture.isCompletedExceptionally()) {
+			// Joins wait for the pipeline through createPipeline() instead of blocking here
+			throw new OpenViduException(Code.ROOM_CANNOT_BE_CREATED_ERROR_CODE,
+					"Media pipeline of session '" + sessionId + "' is not created yet");
+		}
 
 		KurentoParticipant kurentoParticipant = new KurentoParticipant(participant, this, this.kurentoEndpointConfig,
 				this.openviduConfig, this.recordingManager);
-		participants.put(participant.getParticipantPrivateId(), kurentoParticipant);
+		this.addParticipant(kurentoParticipant);
 
 		filterStates.forEach((filterId, state) -> {
 			log.info("Adding filter {}", filterId);
@@ -98,6 +118,11 @@ public class KurentoSession extends Session {
 	public void newPublisher(Participant participant) {
 		registerPublisher();
 
+		if (!this.prewarmPublisher(participant.getParticipantPublicId())) {
+			// Subscriber endpoints will be created on demand
+			return;
+		}
+
 		// pre-load endpoints to recv video from the new publisher
 		for (Participant p : participants.values()) {
 			if (participant.equals(p)) {
@@ -110,7 +135,33 @@ public class KurentoSession extends Session {
 				participants.values(), participant.getParticipantPublicId());
 	}
 
+	/**
+	 * Subscriber endpoints are only pre-loaded for the first
+	 * <code>openvidu.streams.subscribers.prewarm-publishers</code> publishers of
+	 * the session
+	 *
+	 * @return true if the publisher is (or already was) pre-warmed
+	 */
+	private boolean prewarmPublisher(String publisherPublicId) {
+		synchronized (prewarmedPublishers) {
+			if (prewarmedPublishers.contains(publisherPublicId)) {
+				return true;
+			}
+			if (prewarmedPublishers.size() < openviduConfig.getSubscribersPrewarmPublishers()) {
+				prewarmedPublishers.add(publisherPublicId);
+				return true;
+			}
+			return false;
+		}
+	}
+
+	Set<String> getPrewarmedPublishers() {
+		return this.prewarmedPublishers;
+	}
+
 	public void cancelPublisher(Participant participant, EndReason reason) {
+		prewarmedPublishers.remove(participant.getParticipantPublicId());
+
 		// Cancel all subscribers for this publisher
 		for (Participant subscriber : participants.values()) {
 			if (participant.equals(subscriber)) {
@@ -148,11 +199,13 @@ public class KurentoSession extends Session {
 
 			for (Participant participant : participants.values()) {
 				((KurentoParticipant) participant).releaseAllFilters();
-				((KurentoParticipant) participant).close(reason, true);
+				// Their media elements are released all at once with the pipeline
+				((KurentoParticipant) participant).close(reason, true, false);
 			}
 
-			participants.clear();
+			this.clearParticipants();
 
+			releasePreparedPipeline();
 			closePipeline(null);
 
 			log.debug("Session {} closed", this.sessionId);
@@ -169,6 +222,23 @@ public class KurentoSession extends Session {
 		}
 	}
 
+	/**
+	 * Releases the MediaPipeline of the session, and with it every media element
+	 * of its participants in KMS, without closing participants one by one or
+	 * sending any notification. Used when the server is shutting down and there
+	 * is no time left to close the session cleanly
+	 */
+	public void forceClose() {
+		this.closed = true;
+		this.clearParticipants();
+		releasePreparedPipeline();
+		closePipeline(null);
+		log.debug("Session {} force closed", this.sessionId);
+		if (destroyKurentoClient) {
+			kurentoClient.destroy();
+		}
+	}
+
 	public void sendIceCandidate(String participantPrivateId, String senderPublicId, String endpointName,
 			IceCandidate candidate) {
 		this.kurentoSessionHandler.onIceCandidate(sessionId, participantPrivateId, senderPublicId, endpointName,
@@ -183,7 +253,8 @@ public class KurentoSession extends Session {
 
 		checkClosed();
 
-		participants.remove(participant.getParticipantPrivateId());
+		this.deleteParticipant(participant);
+		prewarmedPublishers.remove(participant.getParticipantPublicId());
 
 		log.debug("SESSION {}: Cancel receiving media from participant '{}' for other participant", this.sessionId,
 				participant.getParticipantPublicId());
@@ -192,55 +263,166 @@ public class KurentoSession extends Session {
 		}
 	}
 
+	public KurentoClient getKurentoClient() {
+		return this.kurentoClient;
+	}
+
+	public Kms getKms() {
+		return this.kms;
+	}
+
+	/**
+	 * Blocks until the MediaPipeline of the session is available. Prefer
+	 * {@link KurentoSession#getPipelineAsync()} when the caller can continue
+	 * asynchronously
+	 *
+	 * @return the MediaPipeline, or null if it could not be created in
+	 *         {@link KurentoSession#ASYNC_LATCH_TIMEOUT} seconds
+	 */
 	public MediaPipeline getPipeline() {
 		try {
-			pipelineLatch.await(KurentoSession.ASYNC_LATCH_TIMEOUT, TimeUnit.SECONDS);
+			return getPipelineAsync().get(KurentoSession.ASYNC_LATCH_TIMEOUT, TimeUnit.SECONDS);
 		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 			throw new RuntimeException(e);
+		} catch (ExecutionException | TimeoutException e) {
+			log.error("SESSION {}: MediaPipeline not available: {}", sessionId, e.getMessage());
+			return null;
 		}
-		return this.pipeline;
 	}
 
-	private void createPipeline() {
+	/**
+	 * Returns a future completed with the MediaPipeline of the session once it is
+	 * created, or completed exceptionally if KMS fails to create it
+	 */
+	public CompletableFuture<MediaPipeline> getPipelineAsync() {
 		synchronized (pipelineCreateLock) {
-			if (pipeline != null) {
-				return;
-			}
-			log.info("SESSION {}: Creating MediaPipeline", sessionId);
-			try {
-				kurentoClient.createMediaPipeline(new Continuation<MediaPipeline>() {
-					@Override
-					public void onSuccess(MediaPipeline result) throws Exception {
-						pipeline = result;
-						pipelineLatch.countDown();
-						log.debug("SESSION {}: Created MediaPipeline", sessionId);
-					}
+			return this.pipelineFuture;
+		}
+	}
 
-					@Override
-					public void onError(Throwable cause) throws Exception {
-						pipelineLatch.countDown();
-						log.error("SESSION {}: Failed to create MediaPipeline", sessionId, cause);
+	/**
+	 * Starts the creation of the MediaPipeline of the session if it was not
+	 * started yet. Participants can join the session once the returned future is
+	 * completed
+	 */
+	public CompletableFuture<MediaPipeline> createPipeline() {
+		synchronized (pipelineCreateLock) {
+			if (pipeline != null || pipelineCreationStarted) {
+				return this.pipelineFuture;
+			}
+			pipelineCreationStarted = true;
+			final CompletableFuture<MediaPipeline> future = this.pipelineFuture;
+			final CompletableFuture<MediaPipeline> prepared = this.preparedPipeline;
+			this.preparedPipeline = null;
+			if (prepared != null) {
+				log.info("SESSION {}: Using MediaPipeline prepared in advance", sessionId);
+				prepared.whenComplete((result, cause) -> {
+					if (cause == null) {
+						onPipelineCreated(result, future);
+					} else {
+						log.warn("SESSION {}: MediaPipeline prepared in advance failed: {}", sessionId,
+								cause.getMessage());
+						createMediaPipeline(future);
 					}
 				});
-			} catch (Exception e) {
-				log.error("Unable to create media pipeline for session '{}'", sessionId, e);
-				pipelineLatch.countDown();
-			}
-			if (getPipeline() == null) {
-				throw new OpenViduException(Code.ROOM_CANNOT_BE_CREATED_ERROR_CODE,
-						"Unable to create media pipeline for session '" + sessionId + "'");
+				return future;
 			}
+			this.createMediaPipeline(future);
+			return future;
+		}
+	}
+
+	/**
+	 * Hands the session a MediaPipeline whose creation was started before the
+	 * session was activated. It will be used instead of creating a new one when
+	 * the first participant joins
+	 */
+	public void setPreparedPipeline(CompletableFuture<MediaPipeline> preparedPipeline) {
+		synchronized (pipelineCreateLock) {
+			this.preparedPipeline = preparedPipeline;
+		}
+	}
 
-			pipeline.addErrorListener(new EventListener<ErrorEvent>() {
+	private void releasePreparedPipeline() {
+		final CompletableFuture<MediaPipeline> prepared;
+		synchronized (pipelineCreateLock) {
+			prepared = this.preparedPipeline;
+			this.preparedPipeline = null;
+		}
+		if (prepared != null) {
+			prepared.thenAccept(unused -> unused.release(new Continuation<Void>() {
 				@Override
-				public void onEvent(ErrorEvent event) {
-					String desc = event.getType() + ": " + event.getDescription() + "(errCode=" + event.getErrorCode()
-							+ ")";
-					log.warn("SESSION {}: Pipeline error encountered: {}", sessionId, desc);
-					kurentoSessionHandler.onPipelineError(sessionId, getParticipants(), desc);
+				public void onSuccess(Void result) throws Exception {
+					log.debug("SESSION {}: Released unused MediaPipeline prepared in advance", sessionId);
+				}
+
+				@Override
+				public void onError(Throwable cause) throws Exception {
+					log.warn("SESSION {}: Could not release unused MediaPipeline prepared in advance", sessionId,
+							cause);
+				}
+			}));
+		}
+	}
+
+	private void createMediaPipeline(CompletableFuture<MediaPipeline> future) {
+		MediaPipeline pooledPipeline = pipelinePool != null ? pipelinePool.poll() : null;
+		if (pooledPipeline != null) {
+			log.info("SESSION {}: Using idle MediaPipeline {} from pool", sessionId, pooledPipeline.getId());
+			this.onPipelineCreated(pooledPipeline, future);
+			return;
+		}
+		log.info("SESSION {}: Creating MediaPipeline", sessionId);
+		try {
+			kurentoClient.createMediaPipeline(new Continuation<MediaPipeline>() {
+				@Override
+				public void onSuccess(MediaPipeline result) throws Exception {
+					log.debug("SESSION {}: Created MediaPipeline", sessionId);
+					onPipelineCreated(result, future);
+				}
+
+				@Override
+				public void onError(Throwable cause) throws Exception {
+					log.error("SESSION {}: Failed to create MediaPipeline", sessionId, cause);
+					resetPipeline(future, cause);
 				}
 			});
+		} catch (Exception e) {
+			log.error("Unable to create media pipeline for session '{}'", sessionId, e);
+			resetPipeline(future, e);
+		}
+	}
+
+	private void onPipelineCreated(MediaPipeline result, CompletableFuture<MediaPipeline> future) {
+		pipeline = result;
+		kms.pipelineCreated();
+		kms.removePendingSession(sessionId);
+		pipeline.addErrorListener(new EventListener<ErrorEvent>() {
+			@Override
+			public void onEvent(ErrorEvent event) {
+				String desc = event.getType() + ": " + event.getDescription() + "(errCode=" + event.getErrorCode()
+						+ ")";
+				log.warn("SESSION {}: Pipeline error encountered: {}", sessionId, desc);
+				kurentoSessionHandler.onPipelineError(sessionId, getParticipants(), desc);
+			}
+		});
+		future.complete(result);
+	}
+
+	/**
+	 * Fails the current pipeline future and lets the next participant joining the
+	 * session try to create a new MediaPipeline
+	 */
+	private void resetPipeline(CompletableFuture<MediaPipeline> failedFuture, Throwable cause) {
+		synchronized (pipelineCreateLock) {
+			if (this.pipelineFuture == failedFuture) {
+				this.pipelineFuture = new CompletableFuture<>();
+				this.pipelineCreationStarted = false;
+			}
 		}
+		failedFuture.completeExceptionally(new OpenViduException(Code.ROOM_CANNOT_BE_CREATED_ERROR_CODE,
+				"Unable to create media pipeline for session '" + sessionId + "': " + cause.getMessage()));
 	}
 
 	private void closePipeline(Runnable callback) {
@@ -248,12 +430,11 @@ public class KurentoSession extends Session {
 			if (pipeline == null) {
 				return;
 			}
-			getPipeline().release(new Continuation<Void>() {
+			pipeline.release(new Continuation<Void>() {
 				@Override
 				public void onSuccess(Void result) throws Exception {
 					log.debug("SESSION {}: Released Pipeline", sessionId);
-					pipeline = null;
-					pipelineLatch = new CountDownLatch(1);
+					onPipelineReleased();
 					if (callback != null) {
 						callback.run();
 					}
@@ -262,8 +443,7 @@ public class KurentoSession extends Session {
 				@Override
 				public void onError(Throwable cause) throws Exception {
 					log.warn("SESSION {}: Could not successfully release Pipeline", sessionId, cause);
-					pipeline = null;
-					pipelineLatch = new CountDownLatch(1);
+					onPipelineReleased();
 					if (callback != null) {
 						callback.run();
 					}
@@ -272,6 +452,15 @@ public class KurentoSession extends Session {
 		}
 	}
 
+	private void onPipelineReleased() {
+		kms.pipelineReleased();
+		synchronized (pipelineCreateLock) {
+			pipeline = null;
+			pipelineFuture = new CompletableFuture<>();
+			pipelineCreationStarted = false;
+		}
+	}
+
 	public String getParticipantPrivateIdFromStreamId(String streamId) {
 		return this.publishedStreamIds.get(streamId);
 	}
@@ -306,19 +495,17 @@ public class KurentoSession extends Session {
 		// Release pipeline, create a new one and prepare new PublisherEndpoints for
 		// allowed users
 		this.closePipeline(() -> {
-			createPipeline();
-			try {
-				if (!pipelineLatch.await(20, TimeUnit.SECONDS)) {
-					throw new Exception("MediaPipleine was not created in 20 seconds");
+			createPipeline().whenComplete((newPipeline, cause) -> {
+				if (cause != null) {
+					log.error("Error waiting to new MediaPipeline on KurentoSession restart: {}", cause.getMessage());
+					return;
 				}
 				getParticipants().forEach(p -> {
 					if (!OpenViduRole.SUBSCRIBER.equals(p.getToken().getRole())) {
 						((KurentoParticipant) p).resetPublisherEndpoint();
 					}
 				});
-			} catch (Exception e) {
-				log.error("Error waiting to new MediaPipeline on KurentoSession restart: {}", e.getMessage());
-			}
+			});
 		});
 	}
 
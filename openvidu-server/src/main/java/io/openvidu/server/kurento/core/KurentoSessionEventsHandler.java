@@ -19,6 +19,9 @@ package io.openvidu.server.kurento.core;
 
 import java.util.Set;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
 import org.kurento.client.IceCandidate;
 
 import com.google.gson.JsonObject;
@@ -26,14 +29,48 @@ import com.google.gson.JsonObject;
 import io.openvidu.client.internal.ProtocolElements;
 import io.openvidu.server.core.Participant;
 import io.openvidu.server.core.SessionEventsHandler;
+import io.openvidu.server.rpc.RpcConnection;
 
 public class KurentoSessionEventsHandler extends SessionEventsHandler {
 
+	private IceCandidateCoalescer iceCandidateCoalescer;
+
 	public KurentoSessionEventsHandler() {
 	}
 
+	@PostConstruct
+	public void init() {
+		if (openviduConfig.getIceCoalesceWindow() > 0) {
+			iceCandidateCoalescer = new IceCandidateCoalescer(rpcNotificationService,
+					openviduConfig.getIceCoalesceWindow());
+		}
+	}
+
+	@PreDestroy
+	public void close() {
+		if (iceCandidateCoalescer != null) {
+			iceCandidateCoalescer.shutdown();
+		}
+	}
+
+	/**
+	 * @return the coalescer of the ICE candidates sent to the participants, or
+	 *         null if each candidate is sent on its own
+	 *         (<code>openvidu.ice.coalesce-window</code> is 0)
+	 */
+	public IceCandidateCoalescer getIceCandidateCoalescer() {
+		return iceCandidateCoalescer;
+	}
+
 	public void onIceCandidate(String roomName, String participantPrivateId, String senderPublicId, String endpointName,
 			IceCandidate candidate) {
+		if (iceCandidateCoalescer != null) {
+			RpcConnection rpcConnection = rpcNotificationService.getRpcConnection(participantPrivateId);
+			if (rpcConnection != null && rpcConnection.isIceCandidateArrays()) {
+				iceCandidateCoalescer.add(participantPrivateId, senderPublicId, endpointName, candidate);
+				return;
+			}
+		}
 		JsonObject params = new JsonObject();
 
 		params.addProperty(ProtocolElements.ICECANDIDATE_SENDERCONNECTIONID_PARAM, senderPublicId);
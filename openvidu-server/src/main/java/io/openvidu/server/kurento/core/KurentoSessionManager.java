@@ -17,15 +17,25 @@
 
 package io.openvidu.server.kurento.core;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import org.kurento.client.Continuation;
 import org.kurento.client.GenericMediaElement;
-import org.kurento.client.IceCandidate;
 import org.kurento.client.KurentoClient;
 import org.kurento.client.ListenerSubscription;
+import org.kurento.client.MediaPipeline;
 import org.kurento.jsonrpc.Props;
 import org.kurento.jsonrpc.message.Request;
 import org.slf4j.Logger;
@@ -39,6 +49,7 @@ import com.google.gson.JsonSyntaxException;
 
 import io.openvidu.client.OpenViduException;
 import io.openvidu.client.OpenViduException.Code;
+import io.openvidu.client.internal.IceCandidate;
 import io.openvidu.client.internal.ProtocolElements;
 import io.openvidu.java.client.MediaMode;
 import io.openvidu.java.client.RecordingLayout;
@@ -56,6 +67,7 @@ import io.openvidu.server.kurento.KurentoFilter;
 import io.openvidu.server.kurento.OpenViduKurentoClientSessionInfo;
 import io.openvidu.server.kurento.endpoint.PublisherEndpoint;
 import io.openvidu.server.kurento.endpoint.SdpType;
+import io.openvidu.server.kurento.kms.MediaPipelinePool;
 import io.openvidu.server.rpc.RpcHandler;
 import io.openvidu.server.utils.JsonUtils;
 
@@ -72,20 +84,38 @@ public class KurentoSessionManager extends SessionManager {
 	@Autowired
 	private KurentoParticipantEndpointConfig kurentoEndpointConfig;
 
-	private KurentoClient kurentoClient;
+	/**
+	 * MediaPipeline of a session whose creation was started before any user
+	 * connected to it, together with the KurentoClient that is creating it
+	 */
+	private static class PreparedPipeline {
+
+		final KurentoClient kurentoClient;
+		final CompletableFuture<MediaPipeline> pipeline = new CompletableFuture<>();
+
+		PreparedPipeline(KurentoClient kurentoClient) {
+			this.kurentoClient = kurentoClient;
+		}
+	}
+
+	private final ConcurrentMap<String, PreparedPipeline> preparedPipelines = new ConcurrentHashMap<>();
 
 	@Override
-	public synchronized void joinRoom(Participant participant, String sessionId, Integer transactionId) {
-		Set<Participant> existingParticipants = null;
+	public void joinRoom(Participant participant, String sessionId, Integer transactionId) {
+		KurentoSession kSession = null;
+		CompletableFuture<MediaPipeline> pipelineFuture = null;
+		Lock sessionLock = this.getSessionLock(sessionId);
+		sessionLock.lock();
 		try {
 
 			KurentoClientSessionInfo kcSessionInfo = new OpenViduKurentoClientSessionInfo(
 					participant.getParticipantPrivateId(), sessionId);
-			KurentoSession kSession = (KurentoSession) sessions.get(sessionId);
+			kSession = (KurentoSession) sessions.get(sessionId);
 
 			if (kSession == null && kcSessionInfo != null) {
 				// First user connecting to the session
 				Session sessionNotActive = sessionsNotActive.remove(sessionId);
+				this.cancelSessionNotActiveExpiration(sessionId);
 
 				if (sessionNotActive == null && this.isInsecureParticipant(participant.getParticipantPrivateId())) {
 					// Insecure user directly call joinRoom RPC method, without REST API use
@@ -110,20 +140,77 @@ public class KurentoSessionManager extends SessionManager {
 				throw new OpenViduException(Code.ROOM_CLOSED_ERROR_CODE, "'" + participant.getParticipantPublicId()
 						+ "' is trying to join session '" + sessionId + "' but it is closing");
 			}
-			existingParticipants = getParticipants(sessionId);
-			kSession.join(participant);
+			pipelineFuture = kSession.createPipeline();
 		} catch (OpenViduException e) {
 			log.warn("PARTICIPANT {}: Error joining/creating session {}", participant.getParticipantPublicId(),
 					sessionId, e);
 			sessionEventsHandler.onParticipantJoined(participant, sessionId, null, transactionId, e);
+			return;
+		} finally {
+			sessionLock.unlock();
 		}
-		if (existingParticipants != null) {
+
+		final KurentoSession joinedSession = kSession;
+		if (pipelineFuture.isDone()) {
+			pipelineFuture.whenComplete(
+					(pipeline, cause) -> completeJoin(participant, joinedSession, transactionId, cause));
+		} else {
+			// The RPC worker is released while KMS creates the pipeline
+			pipelineFuture.whenCompleteAsync(
+					(pipeline, cause) -> completeJoin(participant, joinedSession, transactionId, cause),
+					kurentoEndpointConfig.getEndpointExecutor());
+		}
+	}
+
+	/**
+	 * Adds the participant to the session once its MediaPipeline is created and
+	 * answers its joinRoom request
+	 */
+	private void completeJoin(Participant participant, KurentoSession kSession, Integer transactionId,
+			Throwable pipelineError) {
+		String sessionId = kSession.getSessionId();
+		Lock sessionLock = this.getSessionLock(sessionId);
+		sessionLock.lock();
+		try {
+			Set<Participant> existingParticipants;
+			try {
+				if (pipelineError != null) {
+					throw pipelineException(sessionId, pipelineError);
+				}
+				if (sessions.get(sessionId) != kSession || kSession.isClosed()) {
+					throw new OpenViduException(Code.ROOM_CLOSED_ERROR_CODE, "Session '" + sessionId
+							+ "' was closed while '" + participant.getParticipantPublicId() + "' was joining it");
+				}
+				existingParticipants = getParticipants(sessionId);
+				kSession.join(participant);
+				participantprivateidSession.put(participant.getParticipantPrivateId(), kSession);
+			} catch (OpenViduException e) {
+				log.warn("PARTICIPANT {}: Error joining/creating session {}", participant.getParticipantPublicId(),
+						sessionId, e);
+				sessionEventsHandler.onParticipantJoined(participant, sessionId, null, transactionId, e);
+				return;
+			}
 			sessionEventsHandler.onParticipantJoined(participant, sessionId, existingParticipants, transactionId, null);
+		} finally {
+			sessionLock.unlock();
+		}
+	}
+
+	private OpenViduException pipelineException(String sessionId, Throwable pipelineError) {
+		Throwable cause = pipelineError instanceof CompletionException && pipelineError.getCause() != null
+				? pipelineError.getCause()
+				: pipelineError;
+		if (cause instanceof OpenViduException) {
+			return (OpenViduException) cause;
 		}
+		OpenViduException e = new OpenViduException(Code.ROOM_CANNOT_BE_CREATED_ERROR_CODE,
+				"Unable to create media pipeline for session '" + sessionId + "'");
+		e.initCause(cause);
+		return e;
 	}
 
 	@Override
-	public synchronized void leaveRoom(Participant participant, Integer transactionId, EndReason reason,
+	public void leaveRoom(Participant participant, Integer transactionId, EndReason reason,
 			boolean closeWebSocket) {
 		log.debug("Request [LEAVE_ROOM] ({})", participant.getParticipantPublicId());
 
@@ -131,87 +218,83 @@ public class KurentoSessionManager extends SessionManager {
 		KurentoSession session = kParticipant.getSession();
 		String sessionId = session.getSessionId();
 
-		if (session.isClosed()) {
-			log.warn("'{}' is trying to leave from session '{}' but it is closing",
-					participant.getParticipantPublicId(), sessionId);
-			throw new OpenViduException(Code.ROOM_CLOSED_ERROR_CODE, "'" + participant.getParticipantPublicId()
-					+ "' is trying to leave from session '" + sessionId + "' but it is closing");
-		}
-		session.leave(participant.getParticipantPrivateId(), reason);
+		Lock sessionLock = this.getSessionLock(sessionId);
+		sessionLock.lock();
+		try {
+			if (session.isClosed()) {
+				log.warn("'{}' is trying to leave from session '{}' but it is closing",
+						participant.getParticipantPublicId(), sessionId);
+				throw new OpenViduException(Code.ROOM_CLOSED_ERROR_CODE, "'" + participant.getParticipantPublicId()
+						+ "' is trying to leave from session '" + sessionId + "' but it is closing");
+			}
+			session.leave(participant.getParticipantPrivateId(), reason);
+			participantprivateidSession.remove(participant.getParticipantPrivateId(), session);
 
-		// Update control data structures
+			// Update control data structures
 
-		if (sessionidParticipantpublicidParticipant.get(sessionId) != null) {
-			Participant p = sessionidParticipantpublicidParticipant.get(sessionId)
-					.remove(participant.getParticipantPublicId());
+			if (sessionidParticipantpublicidParticipant.get(sessionId) != null) {
+				Participant p = sessionidParticipantpublicidParticipant.get(sessionId)
+						.remove(participant.getParticipantPublicId());
 
-			if (this.coturnCredentialsService.isCoturnAvailable()) {
-				this.coturnCredentialsService.deleteUser(p.getToken().getTurnCredentials().getUsername());
-			}
+				if (this.coturnCredentialsService.isCoturnAvailable()) {
+					this.coturnCredentialsService.deleteUser(p.getToken().getTurnCredentials().getUsername());
+				}
 
-			if (sessionidTokenTokenobj.get(sessionId) != null) {
-				sessionidTokenTokenobj.get(sessionId).remove(p.getToken().getToken());
-			}
-			boolean stillParticipant = false;
-			for (Session s : sessions.values()) {
-				if (s.getParticipantByPrivateId(p.getParticipantPrivateId()) != null) {
-					stillParticipant = true;
-					break;
+				tokenStore.removeToken(sessionId, p.getToken().getToken());
+				boolean stillParticipant = participantprivateidSession.containsKey(p.getParticipantPrivateId());
+				if (!stillParticipant) {
+					insecureUsers.remove(p.getParticipantPrivateId());
 				}
 			}
-			if (!stillParticipant) {
-				insecureUsers.remove(p.getParticipantPrivateId());
-			}
-		}
-
-		showTokens();
 
-		// Close Session if no more participants
+			// Close Session if no more participants
 
-		Set<Participant> remainingParticipants = null;
-		try {
-			remainingParticipants = getParticipants(sessionId);
-		} catch (OpenViduException e) {
-			log.info("Possible collision when closing the session '{}' (not found)", sessionId);
-			remainingParticipants = Collections.emptySet();
-		}
-		sessionEventsHandler.onParticipantLeft(participant, sessionId, remainingParticipants, transactionId, null,
-				reason);
-
-		if (!EndReason.sessionClosedByServer.equals(reason)) {
-			// If session is closed by a call to "DELETE /api/sessions" do NOT stop the
-			// recording. Will be stopped after in method
-			// "SessionManager.closeSessionAndEmptyCollections"
-			if (remainingParticipants.isEmpty()) {
-				if (openviduConfig.isRecordingModuleEnabled()
+			Set<Participant> remainingParticipants = null;
+			try {
+				remainingParticipants = getParticipants(sessionId);
+			} catch (OpenViduException e) {
+				log.info("Possible collision when closing the session '{}' (not found)", sessionId);
+				remainingParticipants = Collections.emptySet();
+			}
+			sessionEventsHandler.onParticipantLeft(participant, sessionId, remainingParticipants, transactionId, null,
+					reason);
+
+			if (!EndReason.sessionClosedByServer.equals(reason)) {
+				// If session is closed by a call to "DELETE /api/sessions" do NOT stop the
+				// recording. Will be stopped after in method
+				// "SessionManager.closeSessionAndEmptyCollections"
+				if (remainingParticipants.isEmpty()) {
+					if (openviduConfig.isRecordingModuleEnabled()
+							&& MediaMode.ROUTED.equals(session.getSessionProperties().mediaMode())
+							&& (this.recordingManager.sessionIsBeingRecorded(sessionId))) {
+						// Start countdown to stop recording. Will be aborted if a Publisher starts
+						// before timeout
+						log.info(
+								"Last participant left. Starting {} seconds countdown for stopping recording of session {}",
+								this.openviduConfig.getOpenviduRecordingAutostopTimeout(), sessionId);
+						recordingManager.initAutomaticRecordingStopThread(session);
+					} else {
+						log.info("No more participants in session '{}', removing it and closing it", sessionId);
+						this.closeSessionAndEmptyCollections(session, reason);
+					}
+				} else if (remainingParticipants.size() == 1 && openviduConfig.isRecordingModuleEnabled()
 						&& MediaMode.ROUTED.equals(session.getSessionProperties().mediaMode())
-						&& (this.recordingManager.sessionIsBeingRecorded(sessionId))) {
-					// Start countdown to stop recording. Will be aborted if a Publisher starts
-					// before timeout
-					log.info(
-							"Last participant left. Starting {} seconds countdown for stopping recording of session {}",
+						&& this.recordingManager.sessionIsBeingRecorded(sessionId)
+						&& ProtocolElements.RECORDER_PARTICIPANT_PUBLICID
+								.equals(remainingParticipants.iterator().next().getParticipantPublicId())) {
+					// Start countdown
+					log.info("Last participant left. Starting {} seconds countdown for stopping recording of session {}",
 							this.openviduConfig.getOpenviduRecordingAutostopTimeout(), sessionId);
 					recordingManager.initAutomaticRecordingStopThread(session);
-				} else {
-					log.info("No more participants in session '{}', removing it and closing it", sessionId);
-					this.closeSessionAndEmptyCollections(session, reason);
-					showTokens();
 				}
-			} else if (remainingParticipants.size() == 1 && openviduConfig.isRecordingModuleEnabled()
-					&& MediaMode.ROUTED.equals(session.getSessionProperties().mediaMode())
-					&& this.recordingManager.sessionIsBeingRecorded(sessionId)
-					&& ProtocolElements.RECORDER_PARTICIPANT_PUBLICID
-							.equals(remainingParticipants.iterator().next().getParticipantPublicId())) {
-				// Start countdown
-				log.info("Last participant left. Starting {} seconds countdown for stopping recording of session {}",
-						this.openviduConfig.getOpenviduRecordingAutostopTimeout(), sessionId);
-				recordingManager.initAutomaticRecordingStopThread(session);
 			}
-		}
 
-		// Finally close websocket session if required
-		if (closeWebSocket) {
-			sessionEventsHandler.closeRpcSession(participant.getParticipantPrivateId());
+			// Finally close websocket session if required
+			if (closeWebSocket) {
+				sessionEventsHandler.closeRpcSession(participant.getParticipantPrivateId());
+			}
+		} finally {
+			sessionLock.unlock();
 		}
 	}
 
@@ -239,9 +322,6 @@ public class KurentoSessionManager extends SessionManager {
 	public void publishVideo(Participant participant, MediaOptions mediaOptions, Integer transactionId)
 			throws OpenViduException {
 
-		Set<Participant> participants = null;
-		String sdpAnswer = null;
-
 		KurentoMediaOptions kurentoOptions = (KurentoMediaOptions) mediaOptions;
 		KurentoParticipant kParticipant = (KurentoParticipant) participant;
 
@@ -252,10 +332,49 @@ public class KurentoSessionManager extends SessionManager {
 				kurentoOptions.loopbackConnectionType, kurentoOptions.doLoopback, kurentoOptions.mediaElements,
 				participant.getParticipantPublicId());
 
-		SdpType sdpType = kurentoOptions.isOffer ? SdpType.OFFER : SdpType.ANSWER;
-		KurentoSession kSession = kParticipant.getSession();
+		// The RPC thread is released here. The response is sent when the publisher
+		// endpoint has been created and the SDP negotiated
+		kParticipant.createPublishingEndpoint(mediaOptions).whenComplete((publisher, cause) -> {
+			if (cause != null) {
+				OpenViduException e = toOpenViduException(cause, Code.MEDIA_ENDPOINT_ERROR_CODE,
+						"Unable to create publisher endpoint");
+				log.error("PARTICIPANT {}: Error creating publisher endpoint", participant.getParticipantPublicId(),
+						e);
+				sessionEventsHandler.onPublishMedia(participant, null, null, kParticipant.getSessionId(),
+						mediaOptions, null, null, transactionId, e);
+				return;
+			}
+			CompletableFuture<Void> published;
+			try {
+				published = this.publishVideoInEndpoint(participant, mediaOptions, transactionId);
+			} catch (Exception e) {
+				published = new CompletableFuture<>();
+				published.completeExceptionally(e);
+			}
+			published.whenComplete((unused, publishCause) -> {
+				if (publishCause != null) {
+					OpenViduException ovException = toOpenViduException(publishCause, Code.MEDIA_SDP_ERROR_CODE,
+							"Error publishing media");
+					log.error("PARTICIPANT {}: Error publishing media", participant.getParticipantPublicId(),
+							ovException);
+					sessionEventsHandler.onPublishMedia(participant, null, null, kParticipant.getSessionId(),
+							mediaOptions, null, null, transactionId, ovException);
+				}
+			});
+		});
+	}
 
-		kParticipant.createPublishingEndpoint(mediaOptions);
+	/**
+	 * Applies the filter of the stream and negotiates the SDP. The returned future
+	 * is completed once the response has been sent to the participant
+	 */
+	private CompletableFuture<Void> publishVideoInEndpoint(Participant participant, MediaOptions mediaOptions,
+			Integer transactionId) throws OpenViduException {
+
+		KurentoMediaOptions kurentoOptions = (KurentoMediaOptions) mediaOptions;
+		KurentoParticipant kParticipant = (KurentoParticipant) participant;
+
+		SdpType sdpType = kurentoOptions.isOffer ? SdpType.OFFER : SdpType.ANSWER;
 
 		/*
 		 * for (MediaElement elem : kurentoOptions.mediaElements) {
@@ -273,14 +392,22 @@ public class KurentoSessionManager extends SessionManager {
 								+ kurentoOptions.getFilter().getType());
 				log.error("PARTICIPANT {}: Error applying filter. The token has no permissions to apply filter {}",
 						participant.getParticipantPublicId(), kurentoOptions.getFilter().getType(), e);
-				sessionEventsHandler.onPublishMedia(participant, null, kParticipant.getPublisher().createdAt(),
-						kSession.getSessionId(), mediaOptions, sdpAnswer, participants, transactionId, e);
+				// Answered with the error by the caller
 				throw e;
 			}
 		}
 
-		sdpAnswer = kParticipant.publishToRoom(sdpType, kurentoOptions.sdpOffer, kurentoOptions.doLoopback,
-				kurentoOptions.loopbackAlternativeSrc, kurentoOptions.loopbackConnectionType);
+		return kParticipant.publishToRoom(sdpType, kurentoOptions.sdpOffer, kurentoOptions.doLoopback,
+				kurentoOptions.loopbackAlternativeSrc, kurentoOptions.loopbackConnectionType)
+				.thenAccept(sdpAnswer -> this.onVideoPublished(participant, mediaOptions, sdpAnswer, transactionId));
+	}
+
+	private void onVideoPublished(Participant participant, MediaOptions mediaOptions, String sdpAnswer,
+			Integer transactionId) {
+
+		Set<Participant> participants = null;
+		KurentoParticipant kParticipant = (KurentoParticipant) participant;
+		KurentoSession kSession = kParticipant.getSession();
 
 		if (sdpAnswer == null) {
 			OpenViduException e = new OpenViduException(Code.MEDIA_SDP_ERROR_CODE,
@@ -363,7 +490,6 @@ public class KurentoSessionManager extends SessionManager {
 
 	@Override
 	public void subscribe(Participant participant, String senderName, String sdpOffer, Integer transactionId) {
-		String sdpAnswer = null;
 		Session session = null;
 		try {
 			log.debug("Request [SUBSCRIBE] remoteParticipant={} sdpOffer={} ({})", senderName, sdpOffer,
@@ -390,19 +516,29 @@ public class KurentoSessionManager extends SessionManager {
 						"User '" + senderName + " not streaming media in session '" + session.getSessionId() + "'");
 			}
 
-			sdpAnswer = kParticipant.receiveMediaFrom(senderParticipant, sdpOffer);
-			if (sdpAnswer == null) {
-				throw new OpenViduException(Code.MEDIA_SDP_ERROR_CODE,
-						"Unable to generate SDP answer when subscribing '" + participant.getParticipantPublicId()
-								+ "' to '" + senderName + "'");
-			}
+			final Session subscriberSession = session;
+			kParticipant.receiveMediaFrom(senderParticipant, sdpOffer).whenComplete((answer, cause) -> {
+				OpenViduException e = null;
+				if (cause != null) {
+					e = toOpenViduException(cause, Code.MEDIA_ENDPOINT_ERROR_CODE,
+							"Unable to subscribe '" + participant.getParticipantPublicId() + "' to '" + senderName + "'");
+				} else if (answer == null) {
+					e = new OpenViduException(Code.MEDIA_SDP_ERROR_CODE,
+							"Unable to generate SDP answer when subscribing '" + participant.getParticipantPublicId()
+									+ "' to '" + senderName + "'");
+				}
+				if (e != null) {
+					log.error("PARTICIPANT {}: Error subscribing to {}", participant.getParticipantPublicId(),
+							senderName, e);
+					sessionEventsHandler.onSubscribe(participant, subscriberSession, null, transactionId, e);
+				} else {
+					sessionEventsHandler.onSubscribe(participant, subscriberSession, answer, transactionId, null);
+				}
+			});
 		} catch (OpenViduException e) {
 			log.error("PARTICIPANT {}: Error subscribing to {}", participant.getParticipantPublicId(), senderName, e);
 			sessionEventsHandler.onSubscribe(participant, session, null, transactionId, e);
 		}
-		if (sdpAnswer != null) {
-			sessionEventsHandler.onSubscribe(participant, session, sdpAnswer, transactionId, null);
-		}
 	}
 
 	@Override
@@ -432,8 +568,22 @@ public class KurentoSessionManager extends SessionManager {
 		try {
 			JsonObject messageJson = new JsonParser().parse(message).getAsJsonObject();
 			KurentoParticipant kParticipant = (KurentoParticipant) participant;
-			sessionEventsHandler.onSendMessage(participant, messageJson,
-					getParticipants(kParticipant.getSession().getSessionId()), transactionId, null);
+			Collection<Participant> recipients;
+			if (messageJson.has("to") && messageJson.get("to").getAsJsonArray().size() > 0) {
+				// All targets are validated before delivering the signal to any of them
+				List<String> to = new ArrayList<>();
+				for (JsonElement el : messageJson.get("to").getAsJsonArray()) {
+					if (el.isJsonNull()) {
+						throw new OpenViduException(Code.SIGNAL_TO_INVALID_ERROR_CODE,
+								"Signal \"to\" field invalid format: null");
+					}
+					to.add(el.getAsString());
+				}
+				recipients = kParticipant.getSession().getSignalTargets(to);
+			} else {
+				recipients = getParticipants(kParticipant.getSession().getSessionId());
+			}
+			sessionEventsHandler.onSendMessage(participant, messageJson, recipients, transactionId, null);
 		} catch (JsonSyntaxException | IllegalStateException e) {
 			throw new OpenViduException(Code.SIGNAL_FORMAT_INVALID_ERROR_CODE,
 					"Provided signal object '" + message + "' has not a valid JSON format");
@@ -482,7 +632,7 @@ public class KurentoSessionManager extends SessionManager {
 			KurentoParticipant kParticipant = (KurentoParticipant) participant;
 			log.debug("Request [ICE_CANDIDATE] endpoint={} candidate={} " + "sdpMLineIdx={} sdpMid={} ({})",
 					endpointName, candidate, sdpMLineIndex, sdpMid, participant.getParticipantPublicId());
-			kParticipant.addIceCandidate(endpointName, new IceCandidate(candidate, sdpMid, sdpMLineIndex));
+			kParticipant.addIceCandidate(endpointName, candidate, sdpMid, sdpMLineIndex);
 			sessionEventsHandler.onRecvIceCandidate(participant, transactionId, null);
 		} catch (OpenViduException e) {
 			log.error("PARTICIPANT {}: Error receiving ICE " + "candidate (epName={}, candidate={})",
@@ -491,6 +641,22 @@ public class KurentoSessionManager extends SessionManager {
 		}
 	}
 
+	@Override
+	public void onIceCandidates(Participant participant, String endpointName,
+			List<IceCandidate> candidates, Integer transactionId) {
+		try {
+			KurentoParticipant kParticipant = (KurentoParticipant) participant;
+			log.debug("Request [ICE_CANDIDATES] endpoint={} candidates={} ({})", endpointName, candidates.size(),
+					participant.getParticipantPublicId());
+			kParticipant.addIceCandidates(endpointName, candidates);
+			sessionEventsHandler.onRecvIceCandidate(participant, transactionId, null);
+		} catch (OpenViduException e) {
+			log.error("PARTICIPANT {}: Error receiving {} ICE candidates (epName={})",
+					participant.getParticipantPublicId(), candidates.size(), endpointName, e);
+			sessionEventsHandler.onRecvIceCandidate(participant, transactionId, e);
+		}
+	}
+
 	/**
 	 * Creates a session if it doesn't already exist. The session's id will be
 	 * indicated by the session info bean.
@@ -508,15 +674,26 @@ public class KurentoSessionManager extends SessionManager {
 			throw new OpenViduException(Code.ROOM_CANNOT_BE_CREATED_ERROR_CODE,
 					"Session '" + sessionId + "' already exists");
 		}
-		this.kurentoClient = kcProvider.getKurentoClient(kcSessionInfo);
+		// A session whose pipeline was prepared in advance stays in the KMS that is
+		// creating it, even if another one would be chosen for it now
+		PreparedPipeline prepared = preparedPipelines.remove(sessionId);
+		KurentoClient kurentoClient = prepared != null ? prepared.kurentoClient
+				: kcProvider.getKurentoClient(kcSessionInfo);
 		session = new KurentoSession(sessionNotActive, kurentoClient, kurentoSessionEventsHandler,
-				kurentoEndpointConfig, kcProvider.destroyWhenUnused());
+				kurentoEndpointConfig, kcProvider.destroyWhenUnused(), kcProvider.getPipelinePool(kurentoClient),
+				kcProvider.getKms(kurentoClient));
 
 		KurentoSession oldSession = (KurentoSession) sessions.putIfAbsent(sessionId, session);
 		if (oldSession != null) {
 			log.warn("Session '{}' has just been created by another thread", sessionId);
+			if (prepared != null) {
+				releasePreparedPipeline(sessionId, prepared);
+			}
 			return;
 		}
+		if (prepared != null) {
+			session.setPreparedPipeline(prepared.pipeline);
+		}
 		String kcName = "[NAME NOT AVAILABLE]";
 		if (kurentoClient.getServerManager() != null) {
 			kcName = kurentoClient.getServerManager().getName();
@@ -910,4 +1087,145 @@ public class KurentoSessionManager extends SessionManager {
 		}
 	}
 
+	private OpenViduException toOpenViduException(Throwable cause, Code code, String message) {
+		if (cause instanceof CompletionException && cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+		if (cause instanceof OpenViduException) {
+			return (OpenViduException) cause;
+		}
+		return new OpenViduException(code, message + ": " + cause.getMessage());
+	}
+
+	@Override
+	protected void prepareSession(String sessionId) {
+		if (!openviduConfig.isKmsPipelinePrepare() || closed || sessions.containsKey(sessionId)
+				|| preparedPipelines.containsKey(sessionId)) {
+			return;
+		}
+		KurentoClient kurentoClient;
+		try {
+			kurentoClient = kcProvider.getKurentoClient(new OpenViduKurentoClientSessionInfo(null, sessionId));
+		} catch (OpenViduException e) {
+			log.warn("Cannot prepare MediaPipeline for session '{}': {}", sessionId, e.getMessage());
+			return;
+		}
+		final PreparedPipeline prepared = new PreparedPipeline(kurentoClient);
+		if (preparedPipelines.putIfAbsent(sessionId, prepared) != null) {
+			return;
+		}
+		MediaPipelinePool pipelinePool = kcProvider.getPipelinePool(kurentoClient);
+		MediaPipeline pooledPipeline = pipelinePool != null ? pipelinePool.poll() : null;
+		if (pooledPipeline != null) {
+			log.info("Session '{}' will use idle MediaPipeline {} from pool", sessionId, pooledPipeline.getId());
+			prepared.pipeline.complete(pooledPipeline);
+		} else {
+			log.info("Creating MediaPipeline in advance for session '{}'", sessionId);
+			try {
+				kurentoClient.createMediaPipeline(new Continuation<MediaPipeline>() {
+					@Override
+					public void onSuccess(MediaPipeline result) throws Exception {
+						prepared.pipeline.complete(result);
+					}
+
+					@Override
+					public void onError(Throwable cause) throws Exception {
+						prepared.pipeline.completeExceptionally(cause);
+					}
+				});
+			} catch (Exception e) {
+				prepared.pipeline.completeExceptionally(e);
+			}
+		}
+		prepared.pipeline.whenComplete((result, cause) -> {
+			if (cause != null) {
+				log.warn("Could not create MediaPipeline in advance for session '{}': {}", sessionId,
+						cause.getMessage());
+				preparedPipelines.remove(sessionId, prepared);
+			}
+		});
+		timingWheel.schedule(() -> {
+			if (preparedPipelines.remove(sessionId, prepared)) {
+				log.info("No user connected to session '{}' in {} seconds. Releasing its prepared MediaPipeline",
+						sessionId, openviduConfig.getKmsPipelinePrepareTimeout());
+				releasePreparedPipeline(sessionId, prepared);
+				if (!sessions.containsKey(sessionId)) {
+					kcProvider.sessionClosed(sessionId);
+				}
+			}
+		}, openviduConfig.getKmsPipelinePrepareTimeout(), TimeUnit.SECONDS);
+	}
+
+	@Override
+	protected void teardownSession(Session session, Set<Participant> participants, EndReason reason) {
+		String sessionId = session.getSessionId();
+		Lock sessionLock = this.getSessionLock(sessionId);
+		sessionLock.lock();
+		try {
+			log.info("Tearing down session '{}' with {} participants", sessionId, participants.size());
+			sessionEventsHandler.onSessionTeardown(session, participants, reason);
+
+			for (Participant p : participants) {
+				participantprivateidSession.remove(p.getParticipantPrivateId(), session);
+				insecureUsers.remove(p.getParticipantPrivateId());
+				if (p.getToken() != null) {
+					if (p.getToken().getTurnCredentials() != null && this.coturnCredentialsService.isCoturnAvailable()) {
+						this.coturnCredentialsService.deleteUser(p.getToken().getTurnCredentials().getUsername());
+					}
+					tokenStore.removeToken(sessionId, p.getToken().getToken());
+				}
+				sessionEventsHandler.closeRpcSession(p.getParticipantPrivateId());
+			}
+		} finally {
+			sessionLock.unlock();
+		}
+	}
+
+	@Override
+	protected void forceCloseSessions(Collection<Session> sessions) {
+		for (Session session : sessions) {
+			try {
+				((KurentoSession) session).forceClose();
+			} catch (Exception e) {
+				log.warn("Error force closing session '{}'", session.getSessionId(), e);
+			}
+		}
+		super.forceCloseSessions(sessions);
+	}
+
+	@Override
+	public void closeSessionAndEmptyCollections(Session session, EndReason reason) {
+		super.closeSessionAndEmptyCollections(session, reason);
+		PreparedPipeline prepared = preparedPipelines.remove(session.getSessionId());
+		if (prepared != null) {
+			releasePreparedPipeline(session.getSessionId(), prepared);
+		}
+		kcProvider.sessionClosed(session.getSessionId());
+	}
+
+	@Override
+	public void close() {
+		super.close();
+		for (String sessionId : preparedPipelines.keySet()) {
+			PreparedPipeline prepared = preparedPipelines.remove(sessionId);
+			if (prepared != null) {
+				releasePreparedPipeline(sessionId, prepared);
+			}
+		}
+	}
+
+	private void releasePreparedPipeline(String sessionId, PreparedPipeline prepared) {
+		prepared.pipeline.thenAccept(pipeline -> pipeline.release(new Continuation<Void>() {
+			@Override
+			public void onSuccess(Void result) throws Exception {
+				log.debug("Released MediaPipeline prepared in advance for session '{}'", sessionId);
+			}
+
+			@Override
+			public void onError(Throwable cause) throws Exception {
+				log.warn("Could not release MediaPipeline prepared in advance for session '{}'", sessionId, cause);
+			}
+		}));
+	}
+
 }
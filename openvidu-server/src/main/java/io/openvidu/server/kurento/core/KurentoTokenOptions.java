@@ -31,6 +31,8 @@ public class KurentoTokenOptions {
 	private Integer videoMinRecvBandwidth;
 	private Integer videoMaxSendBandwidth;
 	private Integer videoMinSendBandwidth;
+	private Double signalRate;
+	private Integer signalBurst;
 	private Map<String, Boolean> allowedFilters = new ConcurrentHashMap<>();
 
 	public KurentoTokenOptions(JsonObject options) {
@@ -46,6 +48,12 @@ public class KurentoTokenOptions {
 		if (options.has("videoMinSendBandwidth")) {
 			this.videoMinSendBandwidth = options.get("videoMinSendBandwidth").getAsInt();
 		}
+		if (options.has("signalRate")) {
+			this.signalRate = options.get("signalRate").getAsDouble();
+		}
+		if (options.has("signalBurst")) {
+			this.signalBurst = options.get("signalBurst").getAsInt();
+		}
 		if (options.has("allowedFilters")) {
 			JsonArray filters = options.get("allowedFilters").getAsJsonArray();
 			Iterator<JsonElement> it = filters.iterator();
@@ -71,6 +79,14 @@ public class KurentoTokenOptions {
 		return videoMinSendBandwidth;
 	}
 
+	public Double getSignalRate() {
+		return signalRate;
+	}
+
+	public Integer getSignalBurst() {
+		return signalBurst;
+	}
+
 	public String[] getAllowedFilters() {
 		return allowedFilters.keySet().stream().toArray(String[]::new);
 	}
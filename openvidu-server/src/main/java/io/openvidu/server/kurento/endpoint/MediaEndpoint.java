@@ -17,11 +17,13 @@
 
 package io.openvidu.server.kurento.endpoint;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
 
 import org.kurento.client.Continuation;
@@ -34,6 +36,7 @@ import org.kurento.client.MediaPipeline;
 import org.kurento.client.OnIceCandidateEvent;
 import org.kurento.client.RtpEndpoint;
 import org.kurento.client.SdpEndpoint;
+import org.kurento.client.Transaction;
 import org.kurento.client.WebRtcEndpoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,6 +52,7 @@ import io.openvidu.server.config.OpenviduConfig;
 import io.openvidu.server.core.Participant;
 import io.openvidu.server.kurento.core.KurentoParticipant;
 import io.openvidu.server.kurento.core.KurentoTokenOptions;
+import io.openvidu.server.kurento.kms.Kms;
 
 /**
  * {@link WebRtcEndpoint} wrapper that supports buffering of
@@ -81,9 +85,13 @@ public abstract class MediaEndpoint {
 
 	private MediaPipeline pipeline = null;
 	private ListenerSubscription endpointSubscription = null;
+	private CompletableFuture<SdpEndpoint> endpointFuture = null;
 
 	private final List<IceCandidate> receivedCandidateList = new LinkedList<IceCandidate>();
-	private LinkedList<IceCandidate> candidates = new LinkedList<IceCandidate>();
+	// Candidates waiting for the endpoint to be created or for the previous
+	// flush to KMS to finish. Guarded by this
+	private List<IceCandidate> candidates = new ArrayList<IceCandidate>();
+	private boolean flushingCandidates = false;
 
 	public String selectedLocalIceCandidate;
 	public String selectedRemoteIceCandidate;
@@ -146,6 +154,10 @@ public abstract class MediaEndpoint {
 		return owner;
 	}
 
+	protected Kms getKms() {
+		return owner.getSession().getKms();
+	}
+
 	/**
 	 * @return the internal endpoint ({@link RtpEndpoint} or {@link WebRtcEndpoint})
 	 */
@@ -173,26 +185,31 @@ public abstract class MediaEndpoint {
 	 * If this object doesn't have a {@link WebRtcEndpoint}, it is created in a
 	 * thread-safe way using the internal {@link MediaPipeline}. Otherwise no
 	 * actions are taken. It also registers an error listener for the endpoint and
-	 * for any additional media elements.
-	 *
-	 * @param endpointLatch latch whose countdown is performed when the asynchronous
-	 *                      call to build the {@link WebRtcEndpoint} returns
+	 * for any additional media elements. ICE candidates buffered before the
+	 * endpoint existed are added to it as soon as it is created
 	 *
-	 * @return the existing endpoint, if any
+	 * @return future completed with the internal endpoint once it is ready, or
+	 *         completed exceptionally if it could not be created. Successive calls
+	 *         return the same future
 	 */
-	public synchronized SdpEndpoint createEndpoint(CountDownLatch endpointLatch) {
-		SdpEndpoint old = this.getEndpoint();
-		if (old == null) {
-			internalEndpointInitialization(endpointLatch);
-		} else {
-			endpointLatch.countDown();
-		}
-		if (this.isWeb()) {
-			while (!candidates.isEmpty()) {
-				internalAddIceCandidate(candidates.removeFirst());
+	public synchronized CompletableFuture<SdpEndpoint> createEndpoint() {
+		if (this.endpointFuture == null) {
+			this.endpointFuture = new CompletableFuture<>();
+			if (this.getEndpoint() != null) {
+				this.endpointFuture.complete(this.getEndpoint());
+			} else {
+				internalEndpointInitialization(this.endpointFuture);
 			}
 		}
-		return old;
+		return this.endpointFuture;
+	}
+
+	/**
+	 * @return true if {@link MediaEndpoint#createEndpoint()} has already been
+	 *         called for this instance
+	 */
+	public synchronized boolean isEndpointCreationStarted() {
+		return this.endpointFuture != null;
 	}
 
 	/**
@@ -243,9 +260,10 @@ public abstract class MediaEndpoint {
 	 * Creates the endpoint (RTP or WebRTC) and any other additional elements (if
 	 * needed).
 	 *
-	 * @param endpointLatch
+	 * @param endpointFuture future to be completed when the asynchronous call to
+	 *                       build the endpoint returns
 	 */
-	protected void internalEndpointInitialization(final CountDownLatch endpointLatch) {
+	protected void internalEndpointInitialization(final CompletableFuture<SdpEndpoint> endpointFuture) {
 		if (this.isWeb()) {
 			WebRtcEndpoint.Builder builder = new WebRtcEndpoint.Builder(pipeline);
 			/*
@@ -254,22 +272,25 @@ public abstract class MediaEndpoint {
 			builder.buildAsync(new Continuation<WebRtcEndpoint>() {
 				@Override
 				public void onSuccess(WebRtcEndpoint result) throws Exception {
-					webEndpoint = result;
-
-					webEndpoint.setMaxVideoRecvBandwidth(maxRecvKbps);
-					webEndpoint.setMinVideoRecvBandwidth(minRecvKbps);
-					webEndpoint.setMaxVideoSendBandwidth(maxSendKbps);
-					webEndpoint.setMinVideoSendBandwidth(minSendKbps);
-
-					endpointLatch.countDown();
+					result.setMaxVideoRecvBandwidth(maxRecvKbps);
+					result.setMinVideoRecvBandwidth(minRecvKbps);
+					result.setMaxVideoSendBandwidth(maxSendKbps);
+					result.setMinVideoSendBandwidth(minSendKbps);
+
+					synchronized (MediaEndpoint.this) {
+						webEndpoint = result;
+					}
+					getKms().webRtcEndpointCreated();
+					flushIceCandidates();
 					log.trace("EP {}: Created a new WebRtcEndpoint", endpointName);
 					endpointSubscription = registerElemErrListener(webEndpoint);
+					endpointFuture.complete(webEndpoint);
 				}
 
 				@Override
 				public void onError(Throwable cause) throws Exception {
-					endpointLatch.countDown();
 					log.error("EP {}: Failed to create a new WebRtcEndpoint", endpointName, cause);
+					endpointFuture.completeExceptionally(cause);
 				}
 			});
 		} else {
@@ -277,15 +298,15 @@ public abstract class MediaEndpoint {
 				@Override
 				public void onSuccess(RtpEndpoint result) throws Exception {
 					endpoint = result;
-					endpointLatch.countDown();
 					log.trace("EP {}: Created a new RtpEndpoint", endpointName);
 					endpointSubscription = registerElemErrListener(endpoint);
+					endpointFuture.complete(endpoint);
 				}
 
 				@Override
 				public void onError(Throwable cause) throws Exception {
-					endpointLatch.countDown();
 					log.error("EP {}: Failed to create a new RtpEndpoint", endpointName, cause);
+					endpointFuture.completeExceptionally(cause);
 				}
 			});
 		}
@@ -297,15 +318,30 @@ public abstract class MediaEndpoint {
 	 *
 	 * @param candidate the remote candidate
 	 */
-	public synchronized void addIceCandidate(IceCandidate candidate) throws OpenViduException {
+	public void addIceCandidate(IceCandidate candidate) throws OpenViduException {
+		this.addIceCandidates(Collections.singletonList(candidate));
+	}
+
+	/**
+	 * Add new {@link IceCandidate}s gathered by the remote peer of this
+	 * {@link WebRtcEndpoint}. Candidates are buffered while the endpoint does not
+	 * exist or while a previous flush to KMS is still in progress, and every flush
+	 * sends all the buffered candidates to KMS in a single {@link Transaction}.
+	 * The monitor of this object is never held during the call to KMS
+	 *
+	 * @param candidates the remote candidates
+	 */
+	public void addIceCandidates(List<IceCandidate> candidates) throws OpenViduException {
 		if (!this.isWeb()) {
 			throw new OpenViduException(Code.MEDIA_NOT_A_WEB_ENDPOINT_ERROR_CODE, "Operation not supported");
 		}
-		if (webEndpoint == null) {
-			candidates.addLast(candidate);
-		} else {
-			internalAddIceCandidate(candidate);
+		synchronized (this) {
+			this.candidates.addAll(candidates);
+			if (webEndpoint == null) {
+				return;
+			}
 		}
+		this.flushIceCandidates();
 	}
 
 	/**
@@ -341,73 +377,96 @@ public abstract class MediaEndpoint {
 
 	/**
 	 * Orders the internal endpoint ({@link RtpEndpoint} or {@link WebRtcEndpoint})
-	 * to process the offer String.
+	 * to process the offer String. The call to KMS is asynchronous
 	 *
-	 * @see SdpEndpoint#processOffer(String)
+	 * @see SdpEndpoint#processOffer(String, Continuation)
 	 * @param offer String with the Sdp offer
-	 * @return the Sdp answer
+	 * @return future completed with the Sdp answer
 	 */
-	protected String processOffer(String offer) throws OpenViduException {
+	protected CompletableFuture<String> processOffer(String offer) throws OpenViduException {
+		CompletableFuture<String> answer = new CompletableFuture<>();
 		if (this.isWeb()) {
 			if (webEndpoint == null) {
 				throw new OpenViduException(Code.MEDIA_WEBRTC_ENDPOINT_ERROR_CODE,
 						"Can't process offer when WebRtcEndpoint is null (ep: " + endpointName + ")");
 			}
-			return webEndpoint.processOffer(offer);
+			webEndpoint.processOffer(offer, completing(answer));
 		} else {
 			if (endpoint == null) {
 				throw new OpenViduException(Code.MEDIA_RTP_ENDPOINT_ERROR_CODE,
 						"Can't process offer when RtpEndpoint is null (ep: " + endpointName + ")");
 			}
-			return endpoint.processOffer(offer);
+			endpoint.processOffer(offer, completing(answer));
 		}
+		return answer;
 	}
 
 	/**
 	 * Orders the internal endpoint ({@link RtpEndpoint} or {@link WebRtcEndpoint})
-	 * to generate the offer String that can be used to initiate a connection.
+	 * to generate the offer String that can be used to initiate a connection. The
+	 * call to KMS is asynchronous
 	 *
-	 * @see SdpEndpoint#generateOffer()
-	 * @return the Sdp offer
+	 * @see SdpEndpoint#generateOffer(Continuation)
+	 * @return future completed with the Sdp offer
 	 */
-	protected String generateOffer() throws OpenViduException {
+	protected CompletableFuture<String> generateOffer() throws OpenViduException {
+		CompletableFuture<String> offer = new CompletableFuture<>();
 		if (this.isWeb()) {
 			if (webEndpoint == null) {
 				throw new OpenViduException(Code.MEDIA_WEBRTC_ENDPOINT_ERROR_CODE,
 						"Can't generate offer when WebRtcEndpoint is null (ep: " + endpointName + ")");
 			}
-			return webEndpoint.generateOffer();
+			webEndpoint.generateOffer(completing(offer));
 		} else {
 			if (endpoint == null) {
 				throw new OpenViduException(Code.MEDIA_RTP_ENDPOINT_ERROR_CODE,
 						"Can't generate offer when RtpEndpoint is null (ep: " + endpointName + ")");
 			}
-			return endpoint.generateOffer();
+			endpoint.generateOffer(completing(offer));
 		}
+		return offer;
 	}
 
 	/**
 	 * Orders the internal endpoint ({@link RtpEndpoint} or {@link WebRtcEndpoint})
-	 * to process the answer String.
+	 * to process the answer String. The call to KMS is asynchronous
 	 *
-	 * @see SdpEndpoint#processAnswer(String)
+	 * @see SdpEndpoint#processAnswer(String, Continuation)
 	 * @param answer String with the Sdp answer from remote
-	 * @return the updated Sdp offer, based on the received answer
+	 * @return future completed with the updated Sdp offer, based on the received
+	 *         answer
 	 */
-	protected String processAnswer(String answer) throws OpenViduException {
+	protected CompletableFuture<String> processAnswer(String answer) throws OpenViduException {
+		CompletableFuture<String> offer = new CompletableFuture<>();
 		if (this.isWeb()) {
 			if (webEndpoint == null) {
 				throw new OpenViduException(Code.MEDIA_WEBRTC_ENDPOINT_ERROR_CODE,
 						"Can't process answer when WebRtcEndpoint is null (ep: " + endpointName + ")");
 			}
-			return webEndpoint.processAnswer(answer);
+			webEndpoint.processAnswer(answer, completing(offer));
 		} else {
 			if (endpoint == null) {
 				throw new OpenViduException(Code.MEDIA_RTP_ENDPOINT_ERROR_CODE,
 						"Can't process answer when RtpEndpoint is null (ep: " + endpointName + ")");
 			}
-			return endpoint.processAnswer(answer);
+			endpoint.processAnswer(answer, completing(offer));
 		}
+		return offer;
+	}
+
+	private Continuation<String> completing(final CompletableFuture<String> future) {
+		return new Continuation<String>() {
+			@Override
+			public void onSuccess(String result) throws Exception {
+				future.complete(result);
+			}
+
+			@Override
+			public void onError(Throwable cause) throws Exception {
+				log.warn("EP {}: SDP negotiation failed in the internal endpoint", endpointName, cause);
+				future.completeExceptionally(cause);
+			}
+		};
 	}
 
 	/**
@@ -461,23 +520,63 @@ public abstract class MediaEndpoint {
 		});
 	}
 
-	private void internalAddIceCandidate(IceCandidate candidate) throws OpenViduException {
-		if (webEndpoint == null) {
-			throw new OpenViduException(Code.MEDIA_WEBRTC_ENDPOINT_ERROR_CODE,
-					"Can't add existing ICE candidates to null WebRtcEndpoint (ep: " + endpointName + ")");
+	/**
+	 * Sends the buffered candidates to KMS unless there is already a flush in
+	 * progress, in which case they will be sent as soon as it finishes
+	 */
+	private void flushIceCandidates() {
+		final List<IceCandidate> batch;
+		synchronized (this) {
+			if (flushingCandidates || candidates.isEmpty()) {
+				return;
+			}
+			if (webEndpoint == null) {
+				throw new OpenViduException(Code.MEDIA_WEBRTC_ENDPOINT_ERROR_CODE,
+						"Can't add existing ICE candidates to null WebRtcEndpoint (ep: " + endpointName + ")");
+			}
+			flushingCandidates = true;
+			batch = candidates;
+			candidates = new ArrayList<IceCandidate>();
+			receivedCandidateList.addAll(batch);
 		}
-		this.receivedCandidateList.add(candidate);
-		this.webEndpoint.addIceCandidate(candidate, new Continuation<Void>() {
+
+		Continuation<Void> continuation = new Continuation<Void>() {
 			@Override
 			public void onSuccess(Void result) throws Exception {
-				log.trace("Ice candidate added to the internal endpoint");
+				log.trace("EP {}: {} ice candidates added to the internal endpoint", endpointName, batch.size());
+				onFlushed();
 			}
 
 			@Override
 			public void onError(Throwable cause) throws Exception {
-				log.warn("EP {}: Failed to add ice candidate to the internal endpoint", endpointName, cause);
+				log.warn("EP {}: Failed to add {} ice candidates to the internal endpoint", endpointName,
+						batch.size(), cause);
+				onFlushed();
 			}
-		});
+		};
+
+		try {
+			if (batch.size() == 1) {
+				webEndpoint.addIceCandidate(batch.get(0), continuation);
+			} else {
+				Transaction tx = pipeline.beginTransaction();
+				for (IceCandidate candidate : batch) {
+					webEndpoint.addIceCandidate(tx, candidate);
+				}
+				tx.commit(continuation);
+			}
+		} catch (RuntimeException e) {
+			log.warn("EP {}: Failed to add {} ice candidates to the internal endpoint", endpointName, batch.size(),
+					e);
+			this.onFlushed();
+		}
+	}
+
+	private void onFlushed() {
+		synchronized (this) {
+			flushingCandidates = false;
+		}
+		this.flushIceCandidates();
 	}
 
 	public abstract PublisherEndpoint getPublisher();
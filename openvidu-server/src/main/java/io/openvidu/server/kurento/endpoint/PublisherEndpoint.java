@@ -24,8 +24,8 @@ import java.util.LinkedList;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
 
 import org.kurento.client.Continuation;
 import org.kurento.client.GenericMediaElement;
@@ -34,6 +34,7 @@ import org.kurento.client.MediaElement;
 import org.kurento.client.MediaPipeline;
 import org.kurento.client.MediaType;
 import org.kurento.client.PassThrough;
+import org.kurento.client.SdpEndpoint;
 import org.kurento.client.WebRtcEndpoint;
 import org.kurento.jsonrpc.Props;
 import org.slf4j.Logger;
@@ -80,10 +81,33 @@ public class PublisherEndpoint extends MediaEndpoint {
 	}
 
 	@Override
-	protected void internalEndpointInitialization(final CountDownLatch endpointLatch) {
-		super.internalEndpointInitialization(endpointLatch);
-		passThru = new PassThrough.Builder(getPipeline()).build();
-		passThruSubscription = registerElemErrListener(passThru);
+	protected void internalEndpointInitialization(final CompletableFuture<SdpEndpoint> endpointFuture) {
+		CompletableFuture<SdpEndpoint> internalEndpointFuture = new CompletableFuture<>();
+		CompletableFuture<PassThrough> passThruFuture = new CompletableFuture<>();
+		super.internalEndpointInitialization(internalEndpointFuture);
+		new PassThrough.Builder(getPipeline()).buildAsync(new Continuation<PassThrough>() {
+			@Override
+			public void onSuccess(PassThrough result) throws Exception {
+				passThru = result;
+				passThruSubscription = registerElemErrListener(passThru);
+				passThruFuture.complete(result);
+			}
+
+			@Override
+			public void onError(Throwable cause) throws Exception {
+				log.error("EP {}: Failed to create a new PassThrough", endpointName, cause);
+				passThruFuture.completeExceptionally(cause);
+			}
+		});
+		// The publisher is only ready when both the endpoint and the PassThrough exist
+		internalEndpointFuture.thenCombine(passThruFuture, (endpoint, passThrough) -> endpoint)
+				.whenComplete((endpoint, cause) -> {
+					if (cause == null) {
+						endpointFuture.complete(endpoint);
+					} else {
+						endpointFuture.completeExceptionally(cause);
+					}
+				});
 	}
 
 	@Override
@@ -170,10 +194,11 @@ public class PublisherEndpoint extends MediaEndpoint {
 	 * @param doLoopback             loopback flag
 	 * @param loopbackAlternativeSrc alternative loopback source
 	 * @param loopbackConnectionType how to connect the loopback source
-	 * @return the SDP response (the answer if processing an offer SDP, otherwise is
-	 *         the updated offer generated previously by this endpoint)
+	 * @return future completed with the SDP response (the answer if processing an
+	 *         offer SDP, otherwise is the updated offer generated previously by
+	 *         this endpoint) once KMS has negotiated it
 	 */
-	public synchronized String publish(SdpType sdpType, String sdpString, boolean doLoopback,
+	public synchronized CompletableFuture<String> publish(SdpType sdpType, String sdpString, boolean doLoopback,
 			MediaElement loopbackAlternativeSrc, MediaType loopbackConnectionType) {
 		registerOnIceCandidateEventListener(this.getOwner().getParticipantPublicId());
 		if (doLoopback) {
@@ -185,7 +210,7 @@ public class PublisherEndpoint extends MediaEndpoint {
 		} else {
 			innerConnect();
 		}
-		String sdpResponse = null;
+		CompletableFuture<String> sdpResponse = null;
 		switch (sdpType) {
 		case ANSWER:
 			sdpResponse = processAnswer(sdpString);
@@ -196,12 +221,14 @@ public class PublisherEndpoint extends MediaEndpoint {
 		default:
 			throw new OpenViduException(Code.MEDIA_SDP_ERROR_CODE, "Sdp type not supported: " + sdpType);
 		}
-		gatherCandidates();
-		this.createdAt = System.currentTimeMillis();
-		return sdpResponse;
+		return sdpResponse.thenApply(response -> {
+			gatherCandidates();
+			this.createdAt = System.currentTimeMillis();
+			return response;
+		});
 	}
 
-	public synchronized String preparePublishConnection() {
+	public synchronized CompletableFuture<String> preparePublishConnection() {
 		return generateOffer();
 	}
 
@@ -280,6 +307,7 @@ public class PublisherEndpoint extends MediaEndpoint {
 		elements.put(id, shaper);
 
 		this.filter = shaper;
+		getKms().filterCreated();
 
 		elementsErrorSubscriptions.put(id, registerElemErrListener(shaper));
 		return id;
@@ -327,6 +355,9 @@ public class PublisherEndpoint extends MediaEndpoint {
 			internalSinkConnect(next, prev);
 		}
 		elementIds.remove(elementId);
+		if (element == this.filter) {
+			getKms().filterReleased();
+		}
 		if (releaseElement) {
 			element.release(new Continuation<Void>() {
 				@Override
@@ -18,6 +18,7 @@
 package io.openvidu.server.kurento.endpoint;
 
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
 
 import org.kurento.client.MediaPipeline;
 import org.slf4j.Logger;
@@ -46,15 +47,22 @@ public class SubscriberEndpoint extends MediaEndpoint {
 		super(web, owner, endpointName, pipeline, openviduConfig, log);
 	}
 
-	public synchronized String subscribe(String sdpOffer, PublisherEndpoint publisher) {
+	/**
+	 * Processes the SDP offer of the subscriber and connects this endpoint to the
+	 * publisher once KMS has generated the answer
+	 *
+	 * @return future completed with the SDP answer
+	 */
+	public synchronized CompletableFuture<String> subscribe(String sdpOffer, PublisherEndpoint publisher) {
 		registerOnIceCandidateEventListener(publisher.getOwner().getParticipantPublicId());
-		String sdpAnswer = processOffer(sdpOffer);
-		gatherCandidates();
-		publisher.connect(this.getEndpoint());
-		setConnectedToPublisher(true);
-		setPublisher(publisher);
-		this.createdAt = System.currentTimeMillis();
-		return sdpAnswer;
+		return processOffer(sdpOffer).thenApply(sdpAnswer -> {
+			gatherCandidates();
+			publisher.connect(this.getEndpoint());
+			setConnectedToPublisher(true);
+			setPublisher(publisher);
+			this.createdAt = System.currentTimeMillis();
+			return sdpAnswer;
+		});
 	}
 
 	public boolean isConnectedToPublisher() {
@@ -18,7 +18,7 @@
 package io.openvidu.server.kurento.kms;
 
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.kurento.client.KurentoClient;
 import org.kurento.client.KurentoConnectionListener;
@@ -37,7 +37,6 @@ public class FixedOneKmsManager extends KmsManager {
 	SessionManager sessionManager;
 
 	public static final AtomicBoolean CONNECTED_TO_KMS = new AtomicBoolean(false);
-	public static final AtomicLong TIME_OF_DISCONNECTION = new AtomicLong(0);
 
 	public FixedOneKmsManager(String kmsWsUri) {
 		this(kmsWsUri, 1);
@@ -45,7 +44,9 @@ public class FixedOneKmsManager extends KmsManager {
 
 	public FixedOneKmsManager(String kmsWsUri, int numKmss) {
 		for (int i = 0; i < numKmss; i++) {
-			this.addKms(new Kms(KurentoClient.create(kmsWsUri, new KurentoConnectionListener() {
+			// The listener is created before the Kms it belongs to
+			final AtomicReference<Kms> listenedKms = new AtomicReference<>();
+			Kms kms = new Kms(KurentoClient.create(kmsWsUri, new KurentoConnectionListener() {
 
 				@Override
 				public void reconnected(boolean isReconnected) {
@@ -54,6 +55,7 @@ public class FixedOneKmsManager extends KmsManager {
 						// Different KMS. Reset sessions status (no Publisher or SUbscriber endpoints)
 						log.warn("Kurento Client reconnected to a different KMS instance, with uri {}", kmsWsUri);
 						log.warn("Updating all webrtc endpoints for active sessions");
+						resetPipelinePools();
 						sessionManager.getSessions().forEach(s -> {
 							((KurentoSession) s).restartStatusInKurento();
 						});
@@ -67,7 +69,9 @@ public class FixedOneKmsManager extends KmsManager {
 				@Override
 				public void disconnected() {
 					CONNECTED_TO_KMS.compareAndSet(true, false);
-					TIME_OF_DISCONNECTION.set(System.currentTimeMillis());
+					if (listenedKms.get() != null) {
+						listenedKms.get().setTimeOfDisconnection(System.currentTimeMillis());
+					}
 					log.warn("Kurento Client disconnected from KMS with uri {}", kmsWsUri);
 				}
 
@@ -82,7 +86,9 @@ public class FixedOneKmsManager extends KmsManager {
 					CONNECTED_TO_KMS.compareAndSet(false, true);
 					log.warn("Kurento Client is now connected to KMS with uri {}", kmsWsUri);
 				}
-			}), kmsWsUri));
+			}), kmsWsUri);
+			listenedKms.set(kms);
+			this.addKms(kms);
 		}
 	}
 }
@@ -17,13 +17,40 @@
 
 package io.openvidu.server.kurento.kms;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.kurento.client.KurentoClient;
 
+import com.google.gson.JsonObject;
+
 public class Kms {
 
   private LoadManager loadManager = new MaxWebRtcLoadManager(10000);
   private KurentoClient client;
   private String kmsUri;
+  private MediaPipelinePool pipelinePool;
+  private volatile boolean connected = true;
+  // Last time the connection to this KMS was lost. 0 if never
+  private volatile long timeOfDisconnection = 0;
+
+  // Media objects created in this KMS, tracked locally as OpenVidu Server creates
+  // and releases them and periodically reconciled with the KMS itself
+  private final AtomicInteger pipelines = new AtomicInteger(0);
+  private final AtomicInteger webRtcEndpoints = new AtomicInteger(0);
+  private final AtomicInteger recorders = new AtomicInteger(0);
+  private final AtomicInteger composites = new AtomicInteger(0);
+  private final AtomicInteger filters = new AtomicInteger(0);
+  // Sessions placed in this KMS whose pipeline is not created yet. They count as
+  // pipelines, so a burst of new sessions is not placed in the same KMS
+  private final Set<String> pendingSessions = ConcurrentHashMap.newKeySet();
+
+  // Memory used by the KMS process in KiB, as last sampled. -1 if unknown
+  private volatile long usedMemory = -1;
+  // Average CPU usage of the KMS across all its cores, from 0 to 100, as last
+  // sampled. -1 if unknown
+  private volatile double usedCpu = -1;
 
   public Kms(KurentoClient client, String kmsUri) {
     this.client = client;
@@ -49,4 +76,153 @@ public class Kms {
   public KurentoClient getKurentoClient() {
     return this.client;
   }
+
+  public boolean isConnected() {
+    return connected;
+  }
+
+  public void setConnected(boolean connected) {
+    this.connected = connected;
+  }
+
+  public long getTimeOfDisconnection() {
+    return timeOfDisconnection;
+  }
+
+  public void setTimeOfDisconnection(long timeOfDisconnection) {
+    this.timeOfDisconnection = timeOfDisconnection;
+  }
+
+  public int getPipelineCount() {
+    return pipelines.get();
+  }
+
+  public int getWebRtcEndpointCount() {
+    return webRtcEndpoints.get();
+  }
+
+  public int getRecorderCount() {
+    return recorders.get();
+  }
+
+  public int getCompositeCount() {
+    return composites.get();
+  }
+
+  public int getFilterCount() {
+    return filters.get();
+  }
+
+  public int getPendingSessionCount() {
+    return pendingSessions.size();
+  }
+
+  public long getUsedMemory() {
+    return usedMemory;
+  }
+
+  public void setUsedMemory(long usedMemory) {
+    this.usedMemory = usedMemory;
+  }
+
+  public double getUsedCpu() {
+    return usedCpu;
+  }
+
+  public void setUsedCpu(double usedCpu) {
+    this.usedCpu = usedCpu;
+  }
+
+  public void pipelineCreated() {
+    pipelines.incrementAndGet();
+  }
+
+  public void pipelineReleased() {
+    decrement(pipelines);
+  }
+
+  /**
+   * Counts a session placed in this KMS until its pipeline is created or it is
+   * closed, whatever happens first
+   */
+  public void addPendingSession(String sessionId) {
+    pendingSessions.add(sessionId);
+  }
+
+  public void removePendingSession(String sessionId) {
+    pendingSessions.remove(sessionId);
+  }
+
+  public void webRtcEndpointCreated() {
+    webRtcEndpoints.incrementAndGet();
+  }
+
+  public void webRtcEndpointReleased() {
+    decrement(webRtcEndpoints);
+  }
+
+  public void recorderCreated() {
+    recorders.incrementAndGet();
+  }
+
+  public void recorderReleased() {
+    decrement(recorders);
+  }
+
+  public void compositeCreated() {
+    composites.incrementAndGet();
+  }
+
+  public void compositeReleased() {
+    decrement(composites);
+  }
+
+  public void filterCreated() {
+    filters.incrementAndGet();
+  }
+
+  public void filterReleased() {
+    decrement(filters);
+  }
+
+  /**
+   * Overwrites the local counters with the media objects actually present in the
+   * KMS
+   */
+  public void reconcile(int pipelines, int webRtcEndpoints, int recorders, int composites, int filters) {
+    this.pipelines.set(pipelines);
+    this.webRtcEndpoints.set(webRtcEndpoints);
+    this.recorders.set(recorders);
+    this.composites.set(composites);
+    this.filters.set(filters);
+  }
+
+  public JsonObject toJson() {
+    JsonObject json = new JsonObject();
+    json.addProperty("uri", kmsUri);
+    json.addProperty("connected", connected);
+    json.addProperty("load", getLoad());
+    json.addProperty("allowMoreElements", allowMoreElements());
+    json.addProperty("pipelines", getPipelineCount());
+    json.addProperty("pendingSessions", getPendingSessionCount());
+    json.addProperty("webRtcEndpoints", getWebRtcEndpointCount());
+    json.addProperty("recorders", getRecorderCount());
+    json.addProperty("composites", getCompositeCount());
+    json.addProperty("filters", getFilterCount());
+    json.addProperty("usedMemory", usedMemory);
+    json.addProperty("usedCpu", usedCpu);
+    return json;
+  }
+
+  private static void decrement(AtomicInteger counter) {
+    counter.updateAndGet(v -> Math.max(0, v - 1));
+  }
+
+  public MediaPipelinePool getPipelinePool() {
+    return this.pipelinePool;
+  }
+
+  public void setPipelinePool(MediaPipelinePool pipelinePool) {
+    this.pipelinePool = pipelinePool;
+  }
 }
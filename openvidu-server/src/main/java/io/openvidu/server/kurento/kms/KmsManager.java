@@ -21,13 +21,26 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.kurento.client.Continuation;
 import org.kurento.client.KurentoClient;
+import org.kurento.client.MediaObject;
+import org.kurento.client.MediaPipeline;
+import org.kurento.client.ServerManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 
 import io.openvidu.client.OpenViduException;
 import io.openvidu.client.OpenViduException.Code;
+import io.openvidu.server.config.OpenviduConfig;
 import io.openvidu.server.kurento.KurentoClientProvider;
 import io.openvidu.server.kurento.KurentoClientSessionInfo;
 import io.openvidu.server.kurento.OpenViduKurentoClientSessionInfo;
@@ -60,8 +73,20 @@ public abstract class KmsManager implements KurentoClientProvider {
 
   private final Logger log = LoggerFactory.getLogger(KmsManager.class);
 
-  private List<Kms> kmss = new ArrayList<Kms>();
+  /**
+   * Milliseconds during which KMS averages its CPU usage for each sample
+   */
+  private static final int CPU_SAMPLE_INTERVAL = 1000;
+
+  @Autowired
+  protected OpenviduConfig openviduConfig;
+
+  // Copy on write, so loads can be calculated without locking the manager
+  private List<Kms> kmss = new CopyOnWriteArrayList<Kms>();
   private Iterator<Kms> usageIterator = null;
+  private ScheduledExecutorService pipelinePoolScheduler;
+  private ScheduledExecutorService loadReconciler;
+  private LoadManager loadManager;
 
   @Override
   public KurentoClient getKurentoClient(KurentoClientSessionInfo sessionInfo) throws OpenViduException {
@@ -85,15 +110,19 @@ public abstract class KmsManager implements KurentoClientProvider {
     return usageIterator.next();
   }
 
+  public List<Kms> getKmss() {
+    return new ArrayList<>(kmss);
+  }
+
   public synchronized void addKms(Kms kms) {
     this.kmss.add(kms);
   }
 
-  public synchronized Kms getLessLoadedKms() {
+  public Kms getLessLoadedKms() {
     return Collections.min(getKmsLoads()).kms;
   }
 
-  public synchronized Kms getNextLessLoadedKms() {
+  public Kms getNextLessLoadedKms() {
     List<KmsLoad> sortedLoads = getKmssSortedByLoad();
     if (sortedLoads.size() > 1) {
       return sortedLoads.get(1).kms;
@@ -102,7 +131,7 @@ public abstract class KmsManager implements KurentoClientProvider {
     }
   }
 
-  public synchronized List<KmsLoad> getKmssSortedByLoad() {
+  public List<KmsLoad> getKmssSortedByLoad() {
     List<KmsLoad> kmsLoads = getKmsLoads();
     Collections.sort(kmsLoads);
     return kmsLoads;
@@ -122,4 +151,209 @@ public abstract class KmsManager implements KurentoClientProvider {
   public boolean destroyWhenUnused() {
     return false;
   }
+
+  @Override
+  public MediaPipelinePool getPipelinePool(KurentoClient kurentoClient) {
+    Kms kms = getKms(kurentoClient);
+    return kms != null ? kms.getPipelinePool() : null;
+  }
+
+  @Override
+  public Kms getKms(KurentoClient kurentoClient) {
+    for (Kms kms : kmss) {
+      if (kms.getKurentoClient() == kurentoClient) {
+        return kms;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Uses the given {@link LoadManager} to calculate the load of every KMS
+   */
+  public void setLoadManager(LoadManager loadManager) {
+    this.loadManager = loadManager;
+    for (Kms kms : kmss) {
+      kms.setLoadManager(loadManager);
+    }
+  }
+
+  /**
+   * Periodically overwrites the locally tracked load of every KMS with the media
+   * objects actually present in it, if enabled with property
+   * <code>openvidu.kms.load-reconcile-interval</code>, and samples the memory and
+   * CPU used by every KMS, if enabled with property
+   * <code>openvidu.kms.telemetry-interval</code> and used by the
+   * {@link WeightedLoadManager}
+   */
+  @PostConstruct
+  public synchronized void initLoadReconciliation() {
+    if (openviduConfig == null) {
+      return;
+    }
+    long interval = openviduConfig.getKmsLoadReconcileInterval();
+    // The memory and CPU used are only part of the load calculated by the weighted
+    // manager
+    long telemetryInterval = loadManager instanceof WeightedLoadManager ? openviduConfig.getKmsTelemetryInterval()
+        : 0;
+    if (interval <= 0 && telemetryInterval <= 0) {
+      return;
+    }
+    loadReconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "kms-load-reconciler");
+      t.setDaemon(true);
+      return t;
+    });
+    if (interval > 0) {
+      loadReconciler.scheduleWithFixedDelay(this::reconcileLoads, interval, interval, TimeUnit.SECONDS);
+    }
+    if (telemetryInterval > 0) {
+      loadReconciler.scheduleWithFixedDelay(this::sampleTelemetry, 0, telemetryInterval, TimeUnit.SECONDS);
+    }
+  }
+
+  /**
+   * Samples the memory used by every connected KMS and its average CPU usage
+   * during {@link KmsManager#CPU_SAMPLE_INTERVAL} milliseconds. Every KMS
+   * answers asynchronously, so a slow one does not delay the samples of the
+   * others
+   */
+  public void sampleTelemetry() {
+    for (Kms kms : kmss) {
+      if (!kms.isConnected()) {
+        kms.setUsedMemory(-1);
+        kms.setUsedCpu(-1);
+        continue;
+      }
+      try {
+        ServerManager serverManager = kms.getKurentoClient().getServerManager();
+        serverManager.getUsedMemory(new Continuation<Long>() {
+          @Override
+          public void onSuccess(Long result) throws Exception {
+            kms.setUsedMemory(result);
+          }
+
+          @Override
+          public void onError(Throwable cause) throws Exception {
+            kms.setUsedMemory(-1);
+            log.warn("Error sampling memory of KMS {}: {}", kms.getUri(), cause.getMessage());
+          }
+        });
+        serverManager.getUsedCpu(CPU_SAMPLE_INTERVAL, new Continuation<Float>() {
+          @Override
+          public void onSuccess(Float result) throws Exception {
+            kms.setUsedCpu(result);
+          }
+
+          @Override
+          public void onError(Throwable cause) throws Exception {
+            kms.setUsedCpu(-1);
+            log.warn("Error sampling CPU of KMS {}: {}", kms.getUri(), cause.getMessage());
+          }
+        });
+      } catch (Exception e) {
+        kms.setUsedMemory(-1);
+        kms.setUsedCpu(-1);
+        log.warn("Error sampling memory and CPU of KMS {}: {}", kms.getUri(), e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Counts the media objects of every connected KMS and updates its local
+   * counters. Pipelines idle in the pool or prepared in advance are counted by
+   * the KMS but not by OpenVidu Server, so the local pipeline counter is only
+   * lowered (fixing releases that were never confirmed) and never raised
+   */
+  public void reconcileLoads() {
+    for (Kms kms : kmss) {
+      if (!kms.isConnected()) {
+        continue;
+      }
+      try {
+        int webRtcEndpoints = 0;
+        int recorders = 0;
+        int composites = 0;
+        int filters = 0;
+        List<MediaPipeline> pipelines = kms.getKurentoClient().getServerManager().getPipelines();
+        for (MediaPipeline pipeline : pipelines) {
+          for (MediaObject child : pipeline.getChildren()) {
+            // Ids of media objects end with their type
+            String id = child.getId();
+            if (id.endsWith("kurento.WebRtcEndpoint")) {
+              webRtcEndpoints++;
+            } else if (id.endsWith("kurento.RecorderEndpoint")) {
+              recorders++;
+            } else if (id.endsWith("kurento.Composite")) {
+              composites++;
+            } else if (id.endsWith("Filter")) {
+              filters++;
+            }
+          }
+        }
+        int reconciledPipelines = Math.min(kms.getPipelineCount(), pipelines.size());
+        if (reconciledPipelines != kms.getPipelineCount() || webRtcEndpoints != kms.getWebRtcEndpointCount()
+            || recorders != kms.getRecorderCount() || composites != kms.getCompositeCount()
+            || filters != kms.getFilterCount()) {
+          log.info(
+              "Reconciling load of KMS {}: {} pipelines, {} WebRtcEndpoints, {} RecorderEndpoints, {} Composites, {} filters",
+              kms.getUri(), reconciledPipelines, webRtcEndpoints, recorders, composites, filters);
+        }
+        kms.reconcile(reconciledPipelines, webRtcEndpoints, recorders, composites, filters);
+      } catch (Exception e) {
+        log.warn("Error reconciling load of KMS {}: {}", kms.getUri(), e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Creates a pool of idle media pipelines for every KMS, if enabled with property
+   * <code>openvidu.kms.pipeline-pool.max-idle</code>
+   */
+  @PostConstruct
+  public synchronized void initPipelinePools() {
+    if (openviduConfig == null
+        || (openviduConfig.getKmsPipelinePoolMinIdle() <= 0 && openviduConfig.getKmsPipelinePoolMaxIdle() <= 0)) {
+      return;
+    }
+    pipelinePoolScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "kms-pipeline-pool");
+      t.setDaemon(true);
+      return t;
+    });
+    for (Kms kms : kmss) {
+      MediaPipelinePool pool = new MediaPipelinePool(kms.getKurentoClient(), kms.getUri(),
+          openviduConfig.getKmsPipelinePoolMinIdle(), openviduConfig.getKmsPipelinePoolMaxIdle(),
+          openviduConfig.getKmsPipelinePoolTtl(), pipelinePoolScheduler);
+      kms.setPipelinePool(pool);
+      pool.start();
+    }
+  }
+
+  /**
+   * Discards the idle pipelines of every KMS without releasing them. To be called
+   * when the media server has been replaced and they no longer exist
+   */
+  public synchronized void resetPipelinePools() {
+    for (Kms kms : kmss) {
+      if (kms.getPipelinePool() != null) {
+        kms.getPipelinePool().reset();
+      }
+    }
+  }
+
+  @PreDestroy
+  public synchronized void closePipelinePools() {
+    for (Kms kms : kmss) {
+      if (kms.getPipelinePool() != null) {
+        kms.getPipelinePool().close();
+      }
+    }
+    if (pipelinePoolScheduler != null) {
+      pipelinePoolScheduler.shutdownNow();
+    }
+    if (loadReconciler != null) {
+      loadReconciler.shutdownNow();
+    }
+  }
 }
@@ -17,11 +17,7 @@
 
 package io.openvidu.server.kurento.kms;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 public class MaxWebRtcLoadManager implements LoadManager {
-  private static final Logger log = LoggerFactory.getLogger(MaxWebRtcLoadManager.class);
 
   private int maxWebRtcPerKms;
 
@@ -31,25 +27,21 @@ public class MaxWebRtcLoadManager implements LoadManager {
 
   @Override
   public double calculateLoad(Kms kms) {
-    int numWebRtcs = countWebRtcEndpoints(kms);
-    if (numWebRtcs > maxWebRtcPerKms) {
+    int numPipelines = countPipelines(kms);
+    if (numPipelines > maxWebRtcPerKms) {
       return 1;
     } else {
-      return numWebRtcs / (double) maxWebRtcPerKms;
+      return numPipelines / (double) maxWebRtcPerKms;
     }
   }
 
   @Override
   public boolean allowMoreElements(Kms kms) {
-    return countWebRtcEndpoints(kms) < maxWebRtcPerKms;
+    return countPipelines(kms) < maxWebRtcPerKms;
   }
 
-  private synchronized int countWebRtcEndpoints(Kms kms) {
-    try {
-      return kms.getKurentoClient().getServerManager().getPipelines().size();
-    } catch (Throwable e) {
-      log.warn("Error counting KurentoClient pipelines", e);
-      return 0;
-    }
+  private int countPipelines(Kms kms) {
+    // Tracked locally, no request to the KMS is needed
+    return kms.getPipelineCount() + kms.getPendingSessionCount();
   }
 }
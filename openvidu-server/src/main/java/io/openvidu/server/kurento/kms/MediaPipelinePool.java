@@ -0,0 +1,279 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.kurento.kms;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import org.kurento.client.Continuation;
+import org.kurento.client.KurentoClient;
+import org.kurento.client.MediaPipeline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of idle {@link MediaPipeline} objects created in advance in one KMS, so
+ * the first participant of a session does not have to wait for the pipeline to
+ * be created. The pool is refilled in the background up to its minimum size
+ * every time a pipeline is checked out, and idle pipelines older than the
+ * configured TTL are released and replaced by fresh ones. If only one of the
+ * minimum and maximum sizes is configured, both take the same value
+ */
+public class MediaPipelinePool {
+
+  private static final Logger log = LoggerFactory.getLogger(MediaPipelinePool.class);
+
+  private static class IdlePipeline {
+
+    final MediaPipeline pipeline;
+    final long createdAt;
+
+    IdlePipeline(MediaPipeline pipeline, long createdAt) {
+      this.pipeline = pipeline;
+      this.createdAt = createdAt;
+    }
+  }
+
+  /**
+   * Pipelines requested between two resets of the pool. Creations completed
+   * after a reset belong to a stale generation and are released instead of
+   * pooled
+   */
+  private static class Generation {
+
+    final AtomicInteger pendingCount = new AtomicInteger(0);
+  }
+
+  private final KurentoClient kurentoClient;
+  private final String kmsUri;
+  private final int minIdle;
+  private final int maxIdle;
+  private final long ttlMillis;
+  private final ScheduledExecutorService scheduler;
+  private final LongSupplier clock;
+
+  private final ConcurrentLinkedDeque<IdlePipeline> idlePipelines = new ConcurrentLinkedDeque<>();
+  private final AtomicInteger idleCount = new AtomicInteger(0);
+  private volatile Generation generation = new Generation();
+
+  private volatile boolean closed = false;
+
+  public MediaPipelinePool(KurentoClient kurentoClient, String kmsUri, int minIdle, int maxIdle, long ttlSeconds,
+      ScheduledExecutorService scheduler) {
+    this(kurentoClient, kmsUri, minIdle, maxIdle, ttlSeconds, scheduler, System::currentTimeMillis);
+  }
+
+  /**
+   * @param clock source of the current time in milliseconds, used to expire idle
+   *              pipelines
+   */
+  public MediaPipelinePool(KurentoClient kurentoClient, String kmsUri, int minIdle, int maxIdle, long ttlSeconds,
+      ScheduledExecutorService scheduler, LongSupplier clock) {
+    this.kurentoClient = kurentoClient;
+    this.kmsUri = kmsUri;
+    if (maxIdle <= 0) {
+      maxIdle = minIdle;
+    } else if (minIdle <= 0) {
+      minIdle = maxIdle;
+    } else if (minIdle > maxIdle) {
+      log.warn("MediaPipeline pool of KMS {}: min idle ({}) is greater than max idle ({}). Using {}", kmsUri,
+          minIdle, maxIdle, maxIdle);
+      minIdle = maxIdle;
+    }
+    this.minIdle = minIdle;
+    this.maxIdle = maxIdle;
+    this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+    this.scheduler = scheduler;
+    this.clock = clock;
+  }
+
+  /**
+   * Starts filling the pool and schedules the periodic eviction of expired
+   * pipelines
+   */
+  public void start() {
+    log.info("Starting MediaPipeline pool for KMS {} (min idle: {}, max idle: {}, ttl: {} s)", kmsUri, minIdle,
+        maxIdle, TimeUnit.MILLISECONDS.toSeconds(ttlMillis));
+    this.scheduler.execute(this::refill);
+    if (ttlMillis > 0) {
+      long period = Math.max(1000, ttlMillis / 2);
+      this.scheduler.scheduleWithFixedDelay(() -> {
+        this.evictExpired();
+        this.refill();
+      }, period, period, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Checks out an idle pipeline. The pool is refilled in the background
+   *
+   * @return an idle {@link MediaPipeline} ready to be used by a session, or null
+   *         if the pool is empty
+   */
+  public MediaPipeline poll() {
+    IdlePipeline idle;
+    while ((idle = this.idlePipelines.pollFirst()) != null) {
+      this.idleCount.decrementAndGet();
+      if (!this.isExpired(idle)) {
+        break;
+      }
+      this.release(idle.pipeline);
+    }
+    if (!closed) {
+      this.scheduler.execute(this::refill);
+    }
+    if (idle != null) {
+      log.debug("MediaPipeline {} checked out from pool of KMS {} ({} idle left)", idle.pipeline.getId(),
+          kmsUri, this.idleCount.get());
+      return idle.pipeline;
+    }
+    log.debug("MediaPipeline pool of KMS {} is empty", kmsUri);
+    return null;
+  }
+
+  /**
+   * Asynchronously creates pipelines until the pool holds at least its minimum
+   * number of idle pipelines
+   */
+  public void refill() {
+    final Generation generation = this.generation;
+    while (!closed && this.idleCount.get() + generation.pendingCount.get() < this.minIdle) {
+      generation.pendingCount.incrementAndGet();
+      try {
+        this.createPipeline(new Continuation<MediaPipeline>() {
+          @Override
+          public void onSuccess(MediaPipeline result) throws Exception {
+            generation.pendingCount.decrementAndGet();
+            offer(result, generation);
+          }
+
+          @Override
+          public void onError(Throwable cause) throws Exception {
+            generation.pendingCount.decrementAndGet();
+            log.warn("Error creating idle MediaPipeline in KMS {}: {}", kmsUri, cause.getMessage());
+          }
+        });
+      } catch (Exception e) {
+        generation.pendingCount.decrementAndGet();
+        log.warn("Error creating idle MediaPipeline in KMS {}: {}", kmsUri, e.getMessage());
+        return;
+      }
+    }
+  }
+
+  /**
+   * Releases every idle pipeline whose TTL has expired
+   */
+  public void evictExpired() {
+    Iterator<IdlePipeline> it = this.idlePipelines.iterator();
+    while (it.hasNext()) {
+      IdlePipeline idle = it.next();
+      if (this.isExpired(idle) && this.idlePipelines.removeFirstOccurrence(idle)) {
+        this.idleCount.decrementAndGet();
+        log.debug("Idle MediaPipeline {} of KMS {} expired", idle.pipeline.getId(), kmsUri);
+        this.release(idle.pipeline);
+      }
+    }
+  }
+
+  /**
+   * Forgets every idle pipeline without releasing it (for example because the
+   * KMS has been restarted and they do not exist anymore) and fills the pool
+   * again. Pipelines still being created when the pool is reset are released as
+   * soon as they are received
+   */
+  public void reset() {
+    synchronized (this) {
+      this.generation = new Generation();
+      this.idlePipelines.clear();
+      this.idleCount.set(0);
+    }
+    log.info("MediaPipeline pool of KMS {} has been reset", kmsUri);
+    if (!closed) {
+      this.scheduler.execute(this::refill);
+    }
+  }
+
+  public void close() {
+    synchronized (this) {
+      this.closed = true;
+    }
+    IdlePipeline idle;
+    while ((idle = this.idlePipelines.pollFirst()) != null) {
+      this.idleCount.decrementAndGet();
+      this.release(idle.pipeline);
+    }
+  }
+
+  public int getIdleCount() {
+    return this.idleCount.get();
+  }
+
+  public int getPendingCount() {
+    return this.generation.pendingCount.get();
+  }
+
+  public KurentoClient getKurentoClient() {
+    return this.kurentoClient;
+  }
+
+  /**
+   * Asynchronously creates a new pipeline in the KMS
+   */
+  protected void createPipeline(Continuation<MediaPipeline> continuation) {
+    this.kurentoClient.createMediaPipeline(continuation);
+  }
+
+  private void offer(MediaPipeline pipeline, Generation generation) {
+    synchronized (this) {
+      if (!closed && generation == this.generation && this.idleCount.get() < this.maxIdle) {
+        this.idlePipelines.addLast(new IdlePipeline(pipeline, this.clock.getAsLong()));
+        this.idleCount.incrementAndGet();
+        log.debug("Idle MediaPipeline {} added to pool of KMS {}", pipeline.getId(), kmsUri);
+        return;
+      }
+    }
+    this.release(pipeline);
+  }
+
+  private boolean isExpired(IdlePipeline idle) {
+    return this.ttlMillis > 0 && (this.clock.getAsLong() - idle.createdAt) > this.ttlMillis;
+  }
+
+  private void release(MediaPipeline pipeline) {
+    try {
+      pipeline.release(new Continuation<Void>() {
+        @Override
+        public void onSuccess(Void result) throws Exception {
+        }
+
+        @Override
+        public void onError(Throwable cause) throws Exception {
+          log.warn("Could not release idle MediaPipeline of KMS {}: {}", kmsUri, cause.getMessage());
+        }
+      });
+    } catch (Exception e) {
+      log.warn("Could not release idle MediaPipeline of KMS {}: {}", kmsUri, e.getMessage());
+    }
+  }
+
+}
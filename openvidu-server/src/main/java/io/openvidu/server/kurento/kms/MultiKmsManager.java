@@ -0,0 +1,198 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.kurento.kms;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.kurento.client.KurentoClient;
+import org.kurento.client.KurentoConnectionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import io.openvidu.client.OpenViduException;
+import io.openvidu.client.OpenViduException.Code;
+import io.openvidu.server.core.SessionManager;
+import io.openvidu.server.kurento.OpenViduKurentoClientSessionInfo;
+import io.openvidu.server.kurento.core.KurentoSession;
+
+/**
+ * Drives a pool of media servers. Every new session is placed in the connected
+ * KMS with the lowest load according to the {@link LoadManager}, among those
+ * allowing more elements, and stays in it until it is closed. A session counts
+ * against the load of its KMS from the moment it is placed, before its pipeline
+ * exists
+ */
+public class MultiKmsManager extends KmsManager {
+
+  private static final Logger log = LoggerFactory.getLogger(MultiKmsManager.class);
+
+  @Autowired
+  SessionManager sessionManager;
+
+  /**
+   * Session id -> KMS hosting the session
+   */
+  private final ConcurrentMap<String, Kms> sessionKms = new ConcurrentHashMap<>();
+
+  public MultiKmsManager(List<String> kmsWsUris, LoadManager loadManager) {
+    for (String kmsWsUri : kmsWsUris) {
+      KurentoClient client;
+      try {
+        client = KurentoClient.create(kmsWsUri, this.newConnectionListener(kmsWsUri));
+      } catch (RuntimeException e) {
+        log.error("Cannot connect to KMS with uri {}. It won't host any session: {}", kmsWsUri,
+            e.getMessage());
+        continue;
+      }
+      this.addKms(new Kms(client, kmsWsUri));
+    }
+    if (this.getKmss().isEmpty()) {
+      throw new IllegalArgumentException("Cannot connect to any of the KMSs: " + kmsWsUris);
+    }
+    this.setLoadManager(loadManager);
+    log.info("Sessions will be distributed among {} KMSs", this.getKmss().size());
+  }
+
+  /**
+   * Distributes the sessions among the given KMSs, whose clients are already
+   * created
+   */
+  public MultiKmsManager(LoadManager loadManager, Kms... kmss) {
+    for (Kms kms : kmss) {
+      this.addKms(kms);
+    }
+    this.setLoadManager(loadManager);
+  }
+
+  /**
+   * Returns the {@link Kms} already hosting the session, or the less loaded one
+   * if the session is new
+   *
+   * @throws OpenViduException if no KMS is connected and allows more elements
+   */
+  @Override
+  public Kms getKms(OpenViduKurentoClientSessionInfo sessionInfo) {
+    String sessionId = sessionInfo.getRoomName();
+    Kms kms = sessionKms.get(sessionId);
+    if (kms != null) {
+      return kms;
+    }
+    synchronized (this) {
+      kms = sessionKms.get(sessionId);
+      if (kms == null) {
+        kms = this.selectKms();
+        kms.addPendingSession(sessionId);
+        sessionKms.put(sessionId, kms);
+        log.info("Session '{}' placed in KMS {}", sessionId, kms.getUri());
+      }
+      return kms;
+    }
+  }
+
+  @Override
+  public void sessionClosed(String sessionId) {
+    Kms kms = sessionKms.remove(sessionId);
+    if (kms != null) {
+      kms.removePendingSession(sessionId);
+      log.debug("Session '{}' released from KMS {}", sessionId, kms.getUri());
+    }
+  }
+
+  private Kms selectKms() {
+    for (KmsLoad kmsLoad : this.getKmssSortedByLoad()) {
+      Kms kms = kmsLoad.getKms();
+      if (kms.isConnected() && kms.allowMoreElements()) {
+        return kms;
+      }
+    }
+    throw new OpenViduException(Code.ROOM_CANNOT_BE_CREATED_ERROR_CODE,
+        "No media server available to host the session");
+  }
+
+  private KurentoConnectionListener newConnectionListener(String kmsWsUri) {
+    return new KurentoConnectionListener() {
+
+      @Override
+      public void reconnected(boolean isReconnected) {
+        Kms reconnectedKms = findKms(kmsWsUri);
+        if (reconnectedKms == null) {
+          return;
+        }
+        reconnectedKms.setConnected(true);
+        if (!isReconnected) {
+          // Different KMS. Reset status of the sessions it was hosting
+          log.warn("Kurento Client reconnected to a different KMS instance, with uri {}", kmsWsUri);
+          log.warn("Updating all webrtc endpoints for active sessions in KMS {}", kmsWsUri);
+          if (reconnectedKms.getPipelinePool() != null) {
+            reconnectedKms.getPipelinePool().reset();
+          }
+          sessionManager.getSessions().forEach(s -> {
+            KurentoSession session = (KurentoSession) s;
+            if (session.getKurentoClient() == reconnectedKms.getKurentoClient()) {
+              session.restartStatusInKurento();
+            }
+          });
+        } else {
+          log.warn("Kurento Client reconnected to same KMS with uri {}", kmsWsUri);
+        }
+      }
+
+      @Override
+      public void disconnected() {
+        Kms disconnectedKms = findKms(kmsWsUri);
+        if (disconnectedKms != null) {
+          disconnectedKms.setConnected(false);
+          disconnectedKms.setTimeOfDisconnection(System.currentTimeMillis());
+        }
+        log.warn("Kurento Client disconnected from KMS with uri {}. No new session will be placed in it",
+            kmsWsUri);
+      }
+
+      @Override
+      public void connectionFailed() {
+        Kms failedKms = findKms(kmsWsUri);
+        if (failedKms != null) {
+          failedKms.setConnected(false);
+        }
+        log.warn("Kurento Client failed connecting to KMS with uri {}", kmsWsUri);
+      }
+
+      @Override
+      public void connected() {
+        Kms connectedKms = findKms(kmsWsUri);
+        if (connectedKms != null) {
+          connectedKms.setConnected(true);
+        }
+        log.warn("Kurento Client is now connected to KMS with uri {}", kmsWsUri);
+      }
+    };
+  }
+
+  private Kms findKms(String kmsWsUri) {
+    for (Kms kms : this.getKmss()) {
+      if (kms.getUri().equals(kmsWsUri)) {
+        return kms;
+      }
+    }
+    return null;
+  }
+
+}
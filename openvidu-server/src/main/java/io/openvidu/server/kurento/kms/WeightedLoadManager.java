@@ -0,0 +1,84 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.kurento.kms;
+
+/**
+ * Calculates the load of a KMS from the cost of the media elements it hosts,
+ * each type of element having its own weight, and from the memory and CPU used
+ * by the KMS process. The load is the highest of the three, so a KMS is full as
+ * soon as any of them reaches its limit
+ */
+public class WeightedLoadManager implements LoadManager {
+
+  private final double pipelineWeight;
+  private final double webRtcWeight;
+  private final double compositeWeight;
+  private final double recorderWeight;
+  private final double filterWeight;
+  private final double capacity;
+  private final long memoryLimit;
+  private final double cpuLimit;
+
+  /**
+   * @param capacity
+   *          total weight of the media elements a KMS can host
+   * @param memoryLimit
+   *          memory in KiB the KMS process can use. 0 or less ignores the memory
+   *          usage
+   * @param cpuLimit
+   *          average CPU usage of the KMS across all its cores, from 0 to 100,
+   *          at which it is full. 0 or less ignores the CPU usage
+   */
+  public WeightedLoadManager(double pipelineWeight, double webRtcWeight, double compositeWeight,
+      double recorderWeight, double filterWeight, double capacity, long memoryLimit, double cpuLimit) {
+    this.pipelineWeight = pipelineWeight;
+    this.webRtcWeight = webRtcWeight;
+    this.compositeWeight = compositeWeight;
+    this.recorderWeight = recorderWeight;
+    this.filterWeight = filterWeight;
+    this.capacity = capacity;
+    this.memoryLimit = memoryLimit;
+    this.cpuLimit = cpuLimit;
+  }
+
+  @Override
+  public double calculateLoad(Kms kms) {
+    double elementsLoad = capacity > 0 ? elementsWeight(kms) / capacity : 0;
+    double memoryLoad = 0;
+    if (memoryLimit > 0 && kms.getUsedMemory() >= 0) {
+      memoryLoad = kms.getUsedMemory() / (double) memoryLimit;
+    }
+    double cpuLoad = 0;
+    if (cpuLimit > 0 && kms.getUsedCpu() >= 0) {
+      cpuLoad = kms.getUsedCpu() / cpuLimit;
+    }
+    return Math.min(1, Math.max(elementsLoad, Math.max(memoryLoad, cpuLoad)));
+  }
+
+  @Override
+  public boolean allowMoreElements(Kms kms) {
+    return calculateLoad(kms) < 1;
+  }
+
+  private double elementsWeight(Kms kms) {
+    return (kms.getPipelineCount() + kms.getPendingSessionCount()) * pipelineWeight + kms.getWebRtcEndpointCount() * webRtcWeight
+        + kms.getCompositeCount() * compositeWeight + kms.getRecorderCount() * recorderWeight
+        + kms.getFilterCount() * filterWeight;
+  }
+
+}
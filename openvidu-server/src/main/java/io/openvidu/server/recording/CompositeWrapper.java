@@ -38,7 +38,6 @@ import io.openvidu.client.OpenViduException;
 import io.openvidu.client.OpenViduException.Code;
 import io.openvidu.server.kurento.core.KurentoSession;
 import io.openvidu.server.kurento.endpoint.PublisherEndpoint;
-import io.openvidu.server.kurento.kms.FixedOneKmsManager;
 
 public class CompositeWrapper {
 
@@ -59,8 +58,10 @@ public class CompositeWrapper {
 	public CompositeWrapper(KurentoSession session, String path) {
 		this.session = session;
 		this.composite = new Composite.Builder(session.getPipeline()).build();
+		this.session.getKms().compositeCreated();
 		this.recorderEndpoint = new RecorderEndpoint.Builder(composite.getMediaPipeline(), path)
 				.withMediaProfile(MediaProfileSpecType.WEBM_AUDIO_ONLY).build();
+		this.session.getKms().recorderCreated();
 		this.compositeToRecorderHubPort = new HubPort.Builder(composite).build();
 		this.compositeToRecorderHubPort.connect(recorderEndpoint);
 	}
@@ -97,12 +98,14 @@ public class CompositeWrapper {
 							session.getSessionId());
 					recorderEndpoint.release();
 					compositeToRecorderHubPort.release();
+					session.getKms().recorderReleased();
 					stopLatch.countDown();
 				}
 			});
 			this.recorderEndpoint.stop();
 		} else {
-			endTime = FixedOneKmsManager.TIME_OF_DISCONNECTION.get();
+			endTime = session.getKms().getTimeOfDisconnection();
+			session.getKms().recorderReleased();
 			stopLatch.countDown();
 			log.warn("Forcing composed audio-only recording stop after KMS restart in session {}",
 					this.session.getSessionId());
@@ -161,6 +164,7 @@ public class CompositeWrapper {
 		this.hubPorts.clear();
 		this.publisherEndpoints.clear();
 		this.composite.release();
+		this.session.getKms().compositeReleased();
 	}
 
 	public long getDuration() {
@@ -21,9 +21,12 @@ import org.kurento.client.RecorderEndpoint;
 
 import com.google.gson.JsonObject;
 
+import io.openvidu.server.kurento.kms.Kms;
+
 public class RecorderEndpointWrapper {
 
 	private RecorderEndpoint recorder;
+	private Kms kms;
 	private String connectionId;
 	private String recordingId;
 	private String streamId;
@@ -54,6 +57,14 @@ public class RecorderEndpointWrapper {
 		return recorder;
 	}
 
+	public Kms getKms() {
+		return kms;
+	}
+
+	public void setKms(Kms kms) {
+		this.kms = kms;
+	}
+
 	public String getConnectionId() {
 		return connectionId;
 	}
@@ -31,8 +31,6 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
@@ -40,6 +38,7 @@ import java.util.stream.Collectors;
 import org.apache.commons.io.FileUtils;
 import org.kurento.client.ErrorEvent;
 import org.kurento.client.EventListener;
+import org.kurento.client.KurentoClient;
 import org.kurento.client.MediaPipeline;
 import org.kurento.client.MediaProfileSpecType;
 import org.kurento.client.RecorderEndpoint;
@@ -65,9 +64,12 @@ import io.openvidu.server.core.SessionManager;
 import io.openvidu.server.kurento.KurentoClientProvider;
 import io.openvidu.server.kurento.KurentoClientSessionInfo;
 import io.openvidu.server.kurento.OpenViduKurentoClientSessionInfo;
+import io.openvidu.server.kurento.kms.Kms;
+import io.openvidu.server.kurento.kms.KmsManager;
 import io.openvidu.server.recording.Recording;
 import io.openvidu.server.utils.CustomFileManager;
 import io.openvidu.server.utils.DockerManager;
+import io.openvidu.server.utils.TimingWheel;
 
 @Service
 public class RecordingManager {
@@ -91,13 +93,13 @@ public class RecordingManager {
 	@Autowired
 	private KurentoClientProvider kcProvider;
 
+	@Autowired
+	private TimingWheel timingWheel;
+
 	protected Map<String, Recording> startingRecordings = new ConcurrentHashMap<>();
 	protected Map<String, Recording> startedRecordings = new ConcurrentHashMap<>();
 	protected Map<String, Recording> sessionsRecordings = new ConcurrentHashMap<>();
-	private final Map<String, ScheduledFuture<?>> automaticRecordingStopThreads = new ConcurrentHashMap<>();
-
-	private ScheduledThreadPoolExecutor automaticRecordingStopExecutor = new ScheduledThreadPoolExecutor(
-			Runtime.getRuntime().availableProcessors());
+	private final Map<String, TimingWheel.Timeout> automaticRecordingStopThreads = new ConcurrentHashMap<>();
 
 	static final String RECORDING_ENTITY_FILE = ".recording.";
 	public static final String IMAGE_NAME = "openvidu/openvidu-recording";
@@ -370,7 +372,7 @@ public class RecordingManager {
 
 	public void initAutomaticRecordingStopThread(final Session session) {
 		final String recordingId = this.sessionsRecordings.get(session.getSessionId()).getId();
-		ScheduledFuture<?> future = this.automaticRecordingStopExecutor.schedule(() -> {
+		TimingWheel.Timeout timeout = this.timingWheel.schedule(() -> {
 
 			log.info("Stopping recording {} after {} seconds wait (no publisher published before timeout)", recordingId,
 					this.openviduConfig.getOpenviduRecordingAutostopTimeout());
@@ -384,7 +386,6 @@ public class RecordingManager {
 					log.info("Closing session {} after automatic stop of recording {}", session.getSessionId(),
 							recordingId);
 					sessionManager.closeSessionAndEmptyCollections(session, EndReason.automaticStop);
-					sessionManager.showTokens();
 				} else {
 					this.stopRecording(session, recordingId, EndReason.automaticStop);
 				}
@@ -396,13 +397,13 @@ public class RecordingManager {
 			}
 
 		}, this.openviduConfig.getOpenviduRecordingAutostopTimeout(), TimeUnit.SECONDS);
-		this.automaticRecordingStopThreads.putIfAbsent(session.getSessionId(), future);
+		this.automaticRecordingStopThreads.putIfAbsent(session.getSessionId(), timeout);
 	}
 
 	public boolean abortAutomaticRecordingStopThread(Session session) {
-		ScheduledFuture<?> future = this.automaticRecordingStopThreads.remove(session.getSessionId());
-		if (future != null) {
-			boolean cancelled = future.cancel(false);
+		TimingWheel.Timeout timeout = this.automaticRecordingStopThreads.remove(session.getSessionId());
+		if (timeout != null) {
+			boolean cancelled = timeout.cancel();
 			if (session.getParticipants().size() == 0 || (session.getParticipants().size() == 1
 					&& session.getParticipantByPublicId(ProtocolElements.RECORDER_PARTICIPANT_PUBLICID) != null)) {
 				// Close session if there are no participants connected (except for RECORDER).
@@ -412,7 +413,6 @@ public class RecordingManager {
 						"Ongoing recording of session {} was explicetly stopped within timeout for automatic recording stop. Closing session",
 						session.getSessionId());
 				sessionManager.closeSessionAndEmptyCollections(session, EndReason.automaticStop);
-				sessionManager.showTokens();
 			}
 			return cancelled;
 		} else {
@@ -524,13 +524,71 @@ public class RecordingManager {
 			log.info("OpenVidu Server has write permissions on recording path: {}", openviduRecordingPath);
 		}
 
+		// Check Kurento Media Server write permissions in recording path. Every KMS
+		// is checked directly, without placing a session in any of them
+		if (this.kcProvider instanceof KmsManager) {
+			for (Kms kms : ((KmsManager) this.kcProvider).getKmss()) {
+				this.checkKurentoRecordingPath(kms.getKurentoClient(), kms.getUri(), openviduRecordingPath);
+			}
+		} else {
+			KurentoClientSessionInfo kcSessionInfo = new OpenViduKurentoClientSessionInfo("TEST_RECORDING_PATH",
+					"TEST_RECORDING_PATH");
+			this.checkKurentoRecordingPath(this.kcProvider.getKurentoClient(kcSessionInfo),
+					this.kcProvider.getClass().getSimpleName(), openviduRecordingPath);
+		}
+
+		if (openviduConfig.openviduRecordingCustomLayoutChanged(openviduRecordingCustomLayout)) {
+			// Property openvidu.recording.custom-layout changed
+			File dir = new File(openviduRecordingCustomLayout);
+			if (dir.exists()) {
+				if (!dir.isDirectory()) {
+					String errorMessage = "The custom layouts path \"" + openviduRecordingCustomLayout
+							+ "\" is not valid. Reason: path already exists but it is not a directory";
+					log.error(errorMessage);
+					throw new OpenViduException(Code.RECORDING_FILE_EMPTY_ERROR, errorMessage);
+				} else {
+					if (dir.listFiles() == null) {
+						String errorMessage = "The custom layouts path \"" + openviduRecordingCustomLayout
+								+ "\" is not valid. Reason: OpenVidu Server needs read permissions. Try running command \"sudo chmod 755 "
+								+ openviduRecordingCustomLayout + "\"";
+						log.error(errorMessage);
+						throw new OpenViduException(Code.RECORDING_FILE_EMPTY_ERROR, errorMessage);
+					} else {
+						log.info("OpenVidu Server has read permissions on custom layout path: {}",
+								openviduRecordingCustomLayout);
+						log.info("Custom layouts path successfully initialized at {}", openviduRecordingCustomLayout);
+					}
+				}
+			} else {
+				try {
+					Files.createDirectories(dir.toPath());
+					log.warn(
+							"OpenVidu custom layouts path (system property 'openvidu.recording.custom-layout') has been created, being folder {}. "
+									+ "It is an empty folder, so no custom layout is currently present",
+							dir.getAbsolutePath());
+				} catch (IOException e) {
+					String errorMessage = "The custom layouts path \"" + openviduRecordingCustomLayout
+							+ "\" is not valid. Reason: OpenVidu Server cannot find path \""
+							+ openviduRecordingCustomLayout + "\" and doesn't have permissions to create it";
+					log.error(errorMessage);
+					throw new OpenViduException(Code.RECORDING_FILE_EMPTY_ERROR, errorMessage);
+				}
+			}
+		}
+
+		log.info("Recording path successfully initialized at {}", openviduRecordingPath);
+	}
+
+	/**
+	 * Checks that a KMS can write in the recording path and that OpenVidu Server
+	 * can delete the files it writes
+	 */
+	private void checkKurentoRecordingPath(KurentoClient kurentoClient, String kmsUri, String openviduRecordingPath)
+			throws OpenViduException {
 		final String testFolderPath = openviduRecordingPath + "/TEST_RECORDING_PATH_" + System.currentTimeMillis();
 		final String testFilePath = testFolderPath + "/TEST_RECORDING_PATH.webm";
 
-		// Check Kurento Media Server write permissions in recording path
-		KurentoClientSessionInfo kcSessionInfo = new OpenViduKurentoClientSessionInfo("TEST_RECORDING_PATH",
-				"TEST_RECORDING_PATH");
-		MediaPipeline pipeline = this.kcProvider.getKurentoClient(kcSessionInfo).createMediaPipeline();
+		MediaPipeline pipeline = kurentoClient.createMediaPipeline();
 		RecorderEndpoint recorder = new RecorderEndpoint.Builder(pipeline, "file://" + testFilePath).build();
 
 		final AtomicBoolean kurentoRecorderError = new AtomicBoolean(false);
@@ -556,7 +614,8 @@ public class RecordingManager {
 
 		if (kurentoRecorderError.get()) {
 			String errorMessage = "The recording path \"" + openviduRecordingPath
-					+ "\" is not valid. Reason: Kurento Media Server needs write permissions. Try running command \"sudo chmod 777 "
+					+ "\" is not valid. Reason: Kurento Media Server " + kmsUri
+					+ " needs write permissions. Try running command \"sudo chmod 777 "
 					+ openviduRecordingPath + "\"";
 			log.error(errorMessage);
 			throw new OpenViduException(Code.RECORDING_PATH_NOT_VALID, errorMessage);
@@ -566,7 +625,8 @@ public class RecordingManager {
 		recorder.release();
 		pipeline.release();
 
-		log.info("Kurento Media Server has write permissions on recording path: {}", openviduRecordingPath);
+		log.info("Kurento Media Server {} has write permissions on recording path: {}", kmsUri,
+				openviduRecordingPath);
 
 		try {
 			new CustomFileManager().deleteFolder(testFolderPath);
@@ -581,47 +641,6 @@ public class RecordingManager {
 					testFolderPath, testFolderPath);
 			throw new OpenViduException(Code.RECORDING_PATH_NOT_VALID, errorMessage);
 		}
-
-		if (openviduConfig.openviduRecordingCustomLayoutChanged(openviduRecordingCustomLayout)) {
-			// Property openvidu.recording.custom-layout changed
-			File dir = new File(openviduRecordingCustomLayout);
-			if (dir.exists()) {
-				if (!dir.isDirectory()) {
-					String errorMessage = "The custom layouts path \"" + openviduRecordingCustomLayout
-							+ "\" is not valid. Reason: path already exists but it is not a directory";
-					log.error(errorMessage);
-					throw new OpenViduException(Code.RECORDING_FILE_EMPTY_ERROR, errorMessage);
-				} else {
-					if (dir.listFiles() == null) {
-						String errorMessage = "The custom layouts path \"" + openviduRecordingCustomLayout
-								+ "\" is not valid. Reason: OpenVidu Server needs read permissions. Try running command \"sudo chmod 755 "
-								+ openviduRecordingCustomLayout + "\"";
-						log.error(errorMessage);
-						throw new OpenViduException(Code.RECORDING_FILE_EMPTY_ERROR, errorMessage);
-					} else {
-						log.info("OpenVidu Server has read permissions on custom layout path: {}",
-								openviduRecordingCustomLayout);
-						log.info("Custom layouts path successfully initialized at {}", openviduRecordingCustomLayout);
-					}
-				}
-			} else {
-				try {
-					Files.createDirectories(dir.toPath());
-					log.warn(
-							"OpenVidu custom layouts path (system property 'openvidu.recording.custom-layout') has been created, being folder {}. "
-									+ "It is an empty folder, so no custom layout is currently present",
-							dir.getAbsolutePath());
-				} catch (IOException e) {
-					String errorMessage = "The custom layouts path \"" + openviduRecordingCustomLayout
-							+ "\" is not valid. Reason: OpenVidu Server cannot find path \""
-							+ openviduRecordingCustomLayout + "\" and doesn't have permissions to create it";
-					log.error(errorMessage);
-					throw new OpenViduException(Code.RECORDING_FILE_EMPTY_ERROR, errorMessage);
-				}
-			}
-		}
-
-		log.info("Recording path successfully initialized at {}", openviduRecordingPath);
 	}
 
 	public static EndReason finalReason(EndReason reason) {
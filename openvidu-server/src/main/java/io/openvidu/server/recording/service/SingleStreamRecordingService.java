@@ -57,7 +57,6 @@ import io.openvidu.server.core.Participant;
 import io.openvidu.server.core.Session;
 import io.openvidu.server.kurento.core.KurentoParticipant;
 import io.openvidu.server.kurento.endpoint.PublisherEndpoint;
-import io.openvidu.server.kurento.kms.FixedOneKmsManager;
 import io.openvidu.server.recording.RecorderEndpointWrapper;
 import io.openvidu.server.recording.Recording;
 
@@ -194,6 +193,7 @@ public class SingleStreamRecordingService extends RecordingService {
 		RecorderEndpoint recorder = new RecorderEndpoint.Builder(pipeline,
 				"file://" + this.openviduConfig.getOpenViduRecordingPath() + recordingId + "/"
 						+ participant.getPublisherStreamId() + ".webm").withMediaProfile(profile).build();
+		kurentoParticipant.getSession().getKms().recorderCreated();
 
 		recorder.addRecordingListener(new EventListener<RecordingEvent>() {
 			@Override
@@ -219,6 +219,7 @@ public class SingleStreamRecordingService extends RecordingService {
 				participant.getServerMetadata(), kurentoParticipant.getPublisher().getMediaOptions().hasAudio(),
 				kurentoParticipant.getPublisher().getMediaOptions().hasVideo(),
 				kurentoParticipant.getPublisher().getMediaOptions().getTypeOfVideo());
+		wrapper.setKms(kurentoParticipant.getSession().getKms());
 
 		recorders.get(session.getSessionId()).put(participant.getPublisherStreamId(), wrapper);
 		wrapper.getRecorder().record();
@@ -236,13 +237,15 @@ public class SingleStreamRecordingService extends RecordingService {
 					generateIndividualMetadataFile(finalWrapper);
 					log.info("Recording stopped event for stream {}", streamId);
 					finalWrapper.getRecorder().release();
+					finalWrapper.getKms().recorderReleased();
 					globalStopLatch.countDown();
 				}
 			});
 			finalWrapper.getRecorder().stop();
 		} else {
 			if (forceAfterKmsRestart) {
-				finalWrapper.setEndTime(FixedOneKmsManager.TIME_OF_DISCONNECTION.get());
+				finalWrapper.getKms().recorderReleased();
+				finalWrapper.setEndTime(finalWrapper.getKms().getTimeOfDisconnection());
 				generateIndividualMetadataFile(finalWrapper);
 				log.warn("Forcing individual recording stop after KMS restart for stream {} in session {}", streamId,
 						sessionId);
@@ -18,8 +18,8 @@
 package io.openvidu.server.rest;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,6 +41,7 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
 import io.openvidu.client.OpenViduException;
+import io.openvidu.client.OpenViduException.Code;
 import io.openvidu.client.internal.ProtocolElements;
 import io.openvidu.java.client.MediaMode;
 import io.openvidu.java.client.OpenViduRole;
@@ -49,14 +50,24 @@ import io.openvidu.java.client.RecordingLayout;
 import io.openvidu.java.client.RecordingMode;
 import io.openvidu.java.client.RecordingProperties;
 import io.openvidu.java.client.SessionProperties;
+import io.openvidu.server.config.InfoHandler;
 import io.openvidu.server.config.OpenviduConfig;
 import io.openvidu.server.core.EndReason;
 import io.openvidu.server.core.Participant;
 import io.openvidu.server.core.Session;
+import io.openvidu.server.core.SessionEventsHandler;
 import io.openvidu.server.core.SessionManager;
+import io.openvidu.server.core.TokenStore;
+import io.openvidu.server.kurento.KurentoClientProvider;
+import io.openvidu.server.kurento.core.IceCandidateCoalescer;
+import io.openvidu.server.kurento.core.KurentoSessionEventsHandler;
 import io.openvidu.server.kurento.core.KurentoTokenOptions;
+import io.openvidu.server.kurento.kms.KmsManager;
 import io.openvidu.server.recording.Recording;
 import io.openvidu.server.recording.service.RecordingManager;
+import io.openvidu.server.rpc.RpcDispatcher;
+import io.openvidu.server.rpc.RpcNotificationService;
+import io.openvidu.server.rpc.SignalRateLimiter;
 import io.openvidu.server.utils.RandomStringGenerator;
 
 /**
@@ -70,15 +81,38 @@ public class SessionRestController {
 
 	private static final Logger log = LoggerFactory.getLogger(SessionRestController.class);
 
+	private static final int MAX_TOKENS_PER_BATCH = 1000;
+
 	@Autowired
 	private SessionManager sessionManager;
 
+	@Autowired
+	private TokenStore tokenStore;
+
 	@Autowired
 	private RecordingManager recordingManager;
 
 	@Autowired
 	private OpenviduConfig openviduConfig;
 
+	@Autowired
+	private KurentoClientProvider kcProvider;
+
+	@Autowired
+	private RpcNotificationService rpcNotificationService;
+
+	@Autowired
+	private RpcDispatcher rpcDispatcher;
+
+	@Autowired
+	private SignalRateLimiter signalRateLimiter;
+
+	@Autowired
+	private InfoHandler infoHandler;
+
+	@Autowired
+	private SessionEventsHandler sessionEventsHandler;
+
 	@RequestMapping(value = "/sessions", method = RequestMethod.POST)
 	public ResponseEntity<?> getSessionId(@RequestBody(required = false) Map<?, ?> params) {
 
@@ -150,13 +184,13 @@ public class SessionRestController {
 
 		String sessionId;
 		if (customSessionId != null && !customSessionId.isEmpty()) {
-			if (sessionManager.sessionidTokenTokenobj.putIfAbsent(customSessionId, new ConcurrentHashMap<>()) != null) {
+			if (!tokenStore.registerSession(customSessionId)) {
 				return new ResponseEntity<>(HttpStatus.CONFLICT);
 			}
 			sessionId = customSessionId;
 		} else {
 			sessionId = RandomStringGenerator.generateRandomChain();
-			sessionManager.sessionidTokenTokenobj.putIfAbsent(sessionId, new ConcurrentHashMap<>());
+			tokenStore.registerSession(sessionId);
 		}
 
 		Session sessionNotActive = sessionManager.storeSessionNotActive(sessionId, sessionProperties);
@@ -273,27 +307,45 @@ public class SessionRestController {
 
 	@RequestMapping(value = "/tokens", method = RequestMethod.POST)
 	public ResponseEntity<String> newToken(@RequestBody Map<?, ?> params) {
+		return this.generateTokens(params, "/api/tokens", false);
+	}
+
+	@RequestMapping(value = "/tokens/batch", method = RequestMethod.POST)
+	public ResponseEntity<String> newTokens(@RequestBody Map<?, ?> params) {
+		return this.generateTokens(params, "/api/tokens/batch", true);
+	}
+
+	private ResponseEntity<String> generateTokens(Map<?, ?> params, String path, boolean batch) {
 
 		if (params == null) {
-			return this.generateErrorResponse("Error in body parameters. Cannot be empty", "/api/tokens",
+			return this.generateErrorResponse("Error in body parameters. Cannot be empty", path,
 					HttpStatus.BAD_REQUEST);
 		}
 
-		log.info("REST API: POST /api/tokens {}", params.toString());
+		log.info("REST API: POST {} {}", path, params.toString());
 
 		String sessionId;
 		String roleString;
 		String metadata;
+		Integer count = null;
 		try {
 			sessionId = (String) params.get("session");
 			roleString = (String) params.get("role");
 			metadata = (String) params.get("data");
+			if (batch) {
+				count = (Integer) params.get("count");
+			}
 		} catch (ClassCastException e) {
-			return this.generateErrorResponse("Type error in some parameter", "/api/tokens", HttpStatus.BAD_REQUEST);
+			return this.generateErrorResponse("Type error in some parameter", path, HttpStatus.BAD_REQUEST);
 		}
 
 		if (sessionId == null) {
-			return this.generateErrorResponse("\"session\" parameter is mandatory", "/api/tokens",
+			return this.generateErrorResponse("\"session\" parameter is mandatory", path, HttpStatus.BAD_REQUEST);
+		}
+
+		if (batch && (count == null || count < 1 || count > MAX_TOKENS_PER_BATCH)) {
+			return this.generateErrorResponse(
+					"\"count\" parameter is mandatory and must be between 1 and " + MAX_TOKENS_PER_BATCH, path,
 					HttpStatus.BAD_REQUEST);
 		}
 
@@ -304,7 +356,7 @@ public class SessionRestController {
 				kurentoOptions = new JsonParser().parse(params.get("kurentoOptions").toString()).getAsJsonObject();
 			} catch (Exception e) {
 				return this.generateErrorResponse("Error in parameter 'kurentoOptions'. It is not a valid JSON object",
-						"/api/tokens", HttpStatus.BAD_REQUEST);
+						path, HttpStatus.BAD_REQUEST);
 			}
 		}
 
@@ -316,7 +368,7 @@ public class SessionRestController {
 				role = OpenViduRole.PUBLISHER;
 			}
 		} catch (IllegalArgumentException e) {
-			return this.generateErrorResponse("Parameter role " + params.get("role") + " is not defined", "/api/tokens",
+			return this.generateErrorResponse("Parameter role " + params.get("role") + " is not defined", path,
 					HttpStatus.BAD_REQUEST);
 		}
 
@@ -325,20 +377,50 @@ public class SessionRestController {
 			try {
 				kurentoTokenOptions = new KurentoTokenOptions(kurentoOptions);
 			} catch (Exception e) {
-				return this.generateErrorResponse("Type error in some parameter of 'kurentoOptions'", "/api/tokens",
+				return this.generateErrorResponse("Type error in some parameter of 'kurentoOptions'", path,
 						HttpStatus.BAD_REQUEST);
 			}
 		}
 
 		metadata = (metadata != null) ? metadata : "";
 
-		String token;
+		if (!batch) {
+			String token;
+			try {
+				token = sessionManager.newToken(sessionId, role, metadata, kurentoTokenOptions);
+			} catch (OpenViduException e) {
+				return this.generateErrorResponse(e.getMessage(), path, this.getTokenErrorStatus(e));
+			}
+			JsonObject responseJson = this.getTokenJson(token, sessionId, role, metadata, kurentoTokenOptions);
+			return new ResponseEntity<>(responseJson.toString(), getResponseHeaders(), HttpStatus.OK);
+		}
+
+		List<String> tokens;
 		try {
-			token = sessionManager.newToken(sessionId, role, metadata, kurentoTokenOptions);
+			tokens = sessionManager.newTokens(sessionId, role, metadata, kurentoTokenOptions, count);
 		} catch (OpenViduException e) {
-			// Session was not found
-			return this.generateErrorResponse(e.getMessage(), "/api/tokens", HttpStatus.NOT_FOUND);
+			return this.generateErrorResponse(e.getMessage(), path, this.getTokenErrorStatus(e));
+		}
+		JsonObject json = new JsonObject();
+		JsonArray jsonArray = new JsonArray();
+		for (String token : tokens) {
+			jsonArray.add(this.getTokenJson(token, sessionId, role, metadata, kurentoTokenOptions));
+		}
+		json.addProperty("numberOfElements", tokens.size());
+		json.add("content", jsonArray);
+		return new ResponseEntity<>(json.toString(), getResponseHeaders(), HttpStatus.OK);
+	}
+
+	private HttpStatus getTokenErrorStatus(OpenViduException e) {
+		if (e.getCodeValue() == Code.TOKEN_STORE_FULL_ERROR_CODE.getValue()) {
+			return HttpStatus.SERVICE_UNAVAILABLE;
 		}
+		// Session was not found
+		return HttpStatus.NOT_FOUND;
+	}
+
+	private JsonObject getTokenJson(String token, String sessionId, OpenViduRole role, String metadata,
+			KurentoTokenOptions kurentoTokenOptions) {
 		JsonObject responseJson = new JsonObject();
 		responseJson.addProperty("id", token);
 		responseJson.addProperty("session", sessionId);
@@ -346,7 +428,7 @@ public class SessionRestController {
 		responseJson.addProperty("data", metadata);
 		responseJson.addProperty("token", token);
 
-		if (kurentoOptions != null) {
+		if (kurentoTokenOptions != null) {
 			JsonObject kurentoOptsResponse = new JsonObject();
 			if (kurentoTokenOptions.getVideoMaxRecvBandwidth() != null) {
 				kurentoOptsResponse.addProperty("videoMaxRecvBandwidth",
@@ -364,6 +446,12 @@ public class SessionRestController {
 				kurentoOptsResponse.addProperty("videoMinSendBandwidth",
 						kurentoTokenOptions.getVideoMinSendBandwidth());
 			}
+			if (kurentoTokenOptions.getSignalRate() != null) {
+				kurentoOptsResponse.addProperty("signalRate", kurentoTokenOptions.getSignalRate());
+			}
+			if (kurentoTokenOptions.getSignalBurst() != null) {
+				kurentoOptsResponse.addProperty("signalBurst", kurentoTokenOptions.getSignalBurst());
+			}
 			if (kurentoTokenOptions.getAllowedFilters().length > 0) {
 				JsonArray filters = new JsonArray();
 				for (String filter : kurentoTokenOptions.getAllowedFilters()) {
@@ -373,7 +461,15 @@ public class SessionRestController {
 			}
 			responseJson.add("kurentoOptions", kurentoOptsResponse);
 		}
-		return new ResponseEntity<>(responseJson.toString(), getResponseHeaders(), HttpStatus.OK);
+		return responseJson;
+	}
+
+	@RequestMapping(value = "/tokens/stats", method = RequestMethod.GET)
+	public ResponseEntity<?> getTokenStats() {
+
+		log.info("REST API: GET /api/tokens/stats");
+
+		return new ResponseEntity<>(this.tokenStore.toJson().toString(), getResponseHeaders(), HttpStatus.OK);
 	}
 
 	@RequestMapping(value = "/recordings/start", method = RequestMethod.POST)
@@ -582,6 +678,48 @@ public class SessionRestController {
 		return new ResponseEntity<>(this.recordingManager.deleteRecordingFromHost(recordingId, false));
 	}
 
+	@RequestMapping(value = "/kms", method = RequestMethod.GET)
+	public ResponseEntity<?> getMediaServers() {
+
+		log.info("REST API: GET /api/kms");
+
+		JsonObject json = new JsonObject();
+		JsonArray jsonArray = new JsonArray();
+		if (this.kcProvider instanceof KmsManager) {
+			((KmsManager) this.kcProvider).getKmss().forEach(kms -> jsonArray.add(kms.toJson()));
+		}
+		json.addProperty("numberOfElements", jsonArray.size());
+		json.add("content", jsonArray);
+		return new ResponseEntity<>(json.toString(), getResponseHeaders(), HttpStatus.OK);
+	}
+
+	@RequestMapping(value = "/rpc", method = RequestMethod.GET)
+	public ResponseEntity<?> getRpcStats() {
+
+		log.info("REST API: GET /api/rpc");
+
+		JsonObject json = new JsonObject();
+		json.add("dispatcher", this.rpcDispatcher.toJson());
+		json.add("outboundQueues", this.rpcNotificationService.toJson());
+		json.add("signalRateLimit", this.signalRateLimiter.toJson());
+		if (this.sessionEventsHandler instanceof KurentoSessionEventsHandler) {
+			IceCandidateCoalescer iceCandidateCoalescer = ((KurentoSessionEventsHandler) this.sessionEventsHandler)
+					.getIceCandidateCoalescer();
+			if (iceCandidateCoalescer != null) {
+				json.add("iceCandidateCoalescer", iceCandidateCoalescer.toJson());
+			}
+		}
+		return new ResponseEntity<>(json.toString(), getResponseHeaders(), HttpStatus.OK);
+	}
+
+	@RequestMapping(value = "/info", method = RequestMethod.GET)
+	public ResponseEntity<?> getInfoStats() {
+
+		log.info("REST API: GET /api/info");
+
+		return new ResponseEntity<>(this.infoHandler.toJson().toString(), getResponseHeaders(), HttpStatus.OK);
+	}
+
 	private ResponseEntity<String> generateErrorResponse(String errorMessage, String path, HttpStatus status) {
 		JsonObject responseJson = new JsonObject();
 		responseJson.addProperty("timestamp", System.currentTimeMillis());
@@ -0,0 +1,180 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.rpc;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.kurento.jsonrpc.JsonUtils;
+import org.kurento.jsonrpc.Session;
+import org.kurento.jsonrpc.Transaction;
+import org.kurento.jsonrpc.message.Response;
+import org.kurento.jsonrpc.message.ResponseError;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+
+import io.openvidu.client.internal.ProtocolElements;
+
+/**
+ * Collects the responses of the requests of a batch. Every request of the
+ * batch is dispatched with its own {@link Transaction}, and once all of them
+ * have been answered a single response holding all the results (in the same
+ * order as the requests) is sent for the batch
+ */
+public class RpcBatch {
+
+	private final RpcNotificationService notificationService;
+	private final String participantPrivateId;
+	private final Integer transactionId;
+	private final Session session;
+
+	private final JsonObject[] responses;
+	private final AtomicInteger pending;
+
+	public RpcBatch(RpcNotificationService notificationService, String participantPrivateId, Integer transactionId,
+			Session session, int size) {
+		this.notificationService = notificationService;
+		this.participantPrivateId = participantPrivateId;
+		this.transactionId = transactionId;
+		this.session = session;
+		this.responses = new JsonObject[size];
+		this.pending = new AtomicInteger(size);
+		if (size == 0) {
+			this.send();
+		}
+	}
+
+	/**
+	 * @param index     position of the request in the batch
+	 * @param requestId id of the request set by the client. May be null
+	 * @return transaction collecting the response of the request
+	 */
+	public Transaction newTransaction(int index, JsonElement requestId) {
+		return new BatchTransaction(index, requestId);
+	}
+
+	private void send() {
+		JsonArray array = new JsonArray();
+		for (JsonObject response : responses) {
+			array.add(response);
+		}
+		JsonObject result = new JsonObject();
+		result.add(ProtocolElements.BATCH_RESPONSES_PARAM, array);
+		this.notificationService.sendResponse(participantPrivateId, transactionId, result);
+	}
+
+	private class BatchTransaction implements Transaction {
+
+		private final int index;
+		private final JsonElement requestId;
+		private final AtomicBoolean answered = new AtomicBoolean(false);
+
+		BatchTransaction(int index, JsonElement requestId) {
+			this.index = index;
+			this.requestId = requestId != null ? requestId : JsonNull.INSTANCE;
+		}
+
+		@Override
+		public void sendResponseObject(Response<? extends Object> response) throws IOException {
+			if (response.isError()) {
+				this.sendError(response.getError());
+			} else {
+				this.sendResponse(response.getResult());
+			}
+		}
+
+		@Override
+		public void sendVoidResponse() throws IOException {
+			this.sendResponse(null);
+		}
+
+		@Override
+		public void sendResponse(Object result) throws IOException {
+			JsonObject response = new JsonObject();
+			response.add(ProtocolElements.BATCH_ID_PARAM, requestId);
+			JsonElement resultJson;
+			if (result == null) {
+				resultJson = JsonNull.INSTANCE;
+			} else if (result instanceof JsonElement) {
+				resultJson = (JsonElement) result;
+			} else {
+				resultJson = JsonUtils.toJsonElement(result);
+			}
+			response.add(ProtocolElements.BATCH_RESULT_PARAM, resultJson);
+			this.complete(response);
+		}
+
+		@Override
+		public void sendError(int code, String message, String data) throws IOException {
+			JsonObject error = new JsonObject();
+			error.addProperty(ProtocolElements.BATCH_ERRORCODE_PARAM, code);
+			error.addProperty(ProtocolElements.BATCH_ERRORMESSAGE_PARAM, message);
+			if (data != null) {
+				error.addProperty(ProtocolElements.BATCH_ERRORDATA_PARAM, data);
+			}
+			JsonObject response = new JsonObject();
+			response.add(ProtocolElements.BATCH_ID_PARAM, requestId);
+			response.add(ProtocolElements.BATCH_ERROR_PARAM, error);
+			this.complete(response);
+		}
+
+		@Override
+		public void sendError(int code, String type, String message, String data) throws IOException {
+			this.sendError(code, message, data);
+		}
+
+		@Override
+		public void sendError(Throwable e) throws IOException {
+			this.sendError(ResponseError.newFromException(e));
+		}
+
+		@Override
+		public void sendError(ResponseError error) throws IOException {
+			this.sendError(error.getCode(), error.getMessage(), error.getData());
+		}
+
+		@Override
+		public Session getSession() {
+			return session;
+		}
+
+		@Override
+		public void startAsync() {
+		}
+
+		@Override
+		public boolean isNotification() {
+			return false;
+		}
+
+		private void complete(JsonObject response) {
+			if (!answered.compareAndSet(false, true)) {
+				return;
+			}
+			responses[index] = response;
+			if (pending.decrementAndGet() == 0) {
+				send();
+			}
+		}
+	}
+
+}
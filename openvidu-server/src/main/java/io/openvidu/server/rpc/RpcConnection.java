@@ -20,6 +20,7 @@ package io.openvidu.server.rpc;
 import java.util.Collection;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.kurento.jsonrpc.Session;
 import org.kurento.jsonrpc.Transaction;
@@ -41,6 +42,9 @@ public class RpcConnection {
 	private ConcurrentMap<Integer, Transaction> transactions;
 	private String sessionId;
 	private String participantPrivateId;
+	private RpcOutboundQueue outboundQueue;
+	private final AtomicInteger internalTransactionId = new AtomicInteger(0);
+	private volatile boolean iceCandidateArrays = false;
 
 	public RpcConnection(Session session) {
 		this.session = session;
@@ -52,6 +56,39 @@ public class RpcConnection {
 		return session;
 	}
 
+	/**
+	 * @return queue of the messages waiting to be sent through this connection, or
+	 *         null if messages are sent synchronously
+	 */
+	public RpcOutboundQueue getOutboundQueue() {
+		return outboundQueue;
+	}
+
+	public void setOutboundQueue(RpcOutboundQueue outboundQueue) {
+		this.outboundQueue = outboundQueue;
+	}
+
+	/**
+	 * @return true if the client accepts many ICE candidates in a single
+	 *         'iceCandidate' notification
+	 */
+	public boolean isIceCandidateArrays() {
+		return iceCandidateArrays;
+	}
+
+	public void setIceCandidateArrays(boolean iceCandidateArrays) {
+		this.iceCandidateArrays = iceCandidateArrays;
+	}
+
+	/**
+	 * Carries over the state negotiated by the previous connection of the same
+	 * participant when it resumes from a new websocket. The signal rate limit is
+	 * kept by the participant itself
+	 */
+	public void inheritState(RpcConnection previous) {
+		this.iceCandidateArrays = previous.iceCandidateArrays;
+	}
+
 	public String getParticipantPrivateId() {
 		return participantPrivateId;
 	}
@@ -83,6 +120,15 @@ public class RpcConnection {
 		transactions.remove(transactionId);
 	}
 
+	/**
+	 * @return a transaction id that never collides with the ids set by the client,
+	 *         for transactions created by the server itself (i.e. the requests of
+	 *         a batch)
+	 */
+	public Integer nextInternalTransactionId() {
+		return internalTransactionId.decrementAndGet();
+	}
+
 	public Collection<Transaction> getTransactions() {
 		return transactions.values();
 	}
@@ -0,0 +1,275 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.rpc;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Runs the RPC requests out of the transport threads. Requests of the same
+ * connection are executed one after another in arrival order, while requests
+ * of different connections run in parallel in the configured executor
+ */
+public class RpcDispatcher {
+
+	private static final Logger log = LoggerFactory.getLogger(RpcDispatcher.class);
+
+	/**
+	 * Maximum number of tasks of a connection executed in a row before letting
+	 * other connections use the thread
+	 */
+	private static final int MAX_TASKS_PER_DRAIN = 16;
+
+	public enum Mode {
+
+		/**
+		 * Requests run in the transport thread that received them
+		 */
+		INLINE,
+
+		/**
+		 * Requests run in a fixed-size pool of threads
+		 */
+		POOL,
+
+		/**
+		 * Requests run in virtual threads (one per task). Falls back to
+		 * {@link Mode#POOL} if the JVM does not support them
+		 */
+		VIRTUAL
+	}
+
+	/**
+	 * Work of a request. Any exception is logged
+	 */
+	@FunctionalInterface
+	public interface Task {
+		void run() throws Exception;
+	}
+
+	private static class Entry {
+
+		final String description;
+		final Task task;
+		final long enqueuedAt = System.nanoTime();
+
+		Entry(String description, Task task) {
+			this.description = description;
+			this.task = task;
+		}
+	}
+
+	/**
+	 * Tasks of one connection waiting to be executed
+	 */
+	private class Lane {
+
+		final String connectionId;
+
+		// Guarded by this
+		final ArrayDeque<Entry> queue = new ArrayDeque<>();
+		boolean draining = false;
+
+		Lane(String connectionId) {
+			this.connectionId = connectionId;
+		}
+
+		void add(Entry entry) {
+			boolean startDrain = false;
+			synchronized (this) {
+				queue.addLast(entry);
+				if (!draining) {
+					draining = true;
+					startDrain = true;
+				}
+			}
+			if (startDrain) {
+				submit(this);
+			}
+		}
+
+		void drain() {
+			for (int i = 0; i < MAX_TASKS_PER_DRAIN; i++) {
+				Entry entry;
+				synchronized (this) {
+					entry = queue.pollFirst();
+					if (entry == null) {
+						draining = false;
+						return;
+					}
+				}
+				run(connectionId, entry);
+			}
+			// Give other connections a chance before going on with this one
+			submit(this);
+		}
+	}
+
+	private final Mode mode;
+	private final ExecutorService executor;
+	private final ConcurrentMap<String, Lane> lanes = new ConcurrentHashMap<>();
+
+	private final AtomicLong executedTasks = new AtomicLong(0);
+	private final AtomicLong failedTasks = new AtomicLong(0);
+	private final AtomicLong queuedTasks = new AtomicLong(0);
+	private final AtomicLong totalQueueNanos = new AtomicLong(0);
+	private final AtomicLong maxQueueNanos = new AtomicLong(0);
+	private final AtomicLong totalExecutionNanos = new AtomicLong(0);
+	private final AtomicLong maxExecutionNanos = new AtomicLong(0);
+
+	/**
+	 * @param mode    where requests are executed
+	 * @param threads size of the pool when mode is {@link Mode#POOL}
+	 */
+	public RpcDispatcher(Mode mode, int threads) {
+		ExecutorService executor = null;
+		if (Mode.VIRTUAL.equals(mode)) {
+			executor = newVirtualThreadExecutor();
+			if (executor == null) {
+				log.warn("Virtual threads are not supported by this JVM. Running RPC requests in a pool of {} threads",
+						threads);
+				mode = Mode.POOL;
+			}
+		}
+		if (Mode.POOL.equals(mode)) {
+			final AtomicInteger threadCount = new AtomicInteger();
+			executor = Executors.newFixedThreadPool(Math.max(threads, 1), r -> {
+				Thread t = new Thread(r, "rpc-dispatcher-" + threadCount.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		this.mode = mode;
+		this.executor = executor;
+		log.info("RPC requests run in mode {}", mode);
+	}
+
+	/**
+	 * Executes a task after every task previously submitted for the same
+	 * connection
+	 *
+	 * @param connectionId private id of the connection
+	 * @param description  short description of the task, for logging
+	 */
+	public void execute(String connectionId, String description, Task task) {
+		Entry entry = new Entry(description, task);
+		if (this.executor == null) {
+			this.run(connectionId, entry);
+			return;
+		}
+		queuedTasks.incrementAndGet();
+		lanes.computeIfAbsent(connectionId, Lane::new).add(entry);
+	}
+
+	/**
+	 * Forgets the lane of a connection once it is closed. Tasks already
+	 * submitted for it are still executed
+	 */
+	public void release(String connectionId) {
+		lanes.remove(connectionId);
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	public JsonObject toJson() {
+		JsonObject json = new JsonObject();
+		long executed = executedTasks.get();
+		json.addProperty("mode", this.mode.name());
+		json.addProperty("connections", this.lanes.size());
+		json.addProperty("queuedTasks", this.queuedTasks.get());
+		json.addProperty("executedTasks", executed);
+		json.addProperty("failedTasks", this.failedTasks.get());
+		json.addProperty("avgQueueMillis", executed > 0 ? totalQueueNanos.get() / executed / 1e6 : 0);
+		json.addProperty("maxQueueMillis", maxQueueNanos.get() / 1e6);
+		json.addProperty("avgExecutionMillis", executed > 0 ? totalExecutionNanos.get() / executed / 1e6 : 0);
+		json.addProperty("maxExecutionMillis", maxExecutionNanos.get() / 1e6);
+		return json;
+	}
+
+	@PreDestroy
+	public void close() {
+		if (this.executor != null) {
+			this.executor.shutdown();
+			try {
+				this.executor.awaitTermination(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void submit(Lane lane) {
+		try {
+			executor.execute(lane::drain);
+		} catch (RejectedExecutionException e) {
+			log.warn("RPC dispatcher rejected tasks of connection {}: {}", lane.connectionId, e.getMessage());
+			synchronized (lane) {
+				queuedTasks.addAndGet(-lane.queue.size());
+				lane.queue.clear();
+				lane.draining = false;
+			}
+		}
+	}
+
+	private void run(String connectionId, Entry entry) {
+		long start = System.nanoTime();
+		if (this.executor != null) {
+			queuedTasks.decrementAndGet();
+		}
+		try {
+			entry.task.run();
+		} catch (Throwable e) {
+			failedTasks.incrementAndGet();
+			log.error("Exception running {} of connection {}", entry.description, connectionId, e);
+		}
+		long end = System.nanoTime();
+		executedTasks.incrementAndGet();
+		record(totalQueueNanos, maxQueueNanos, start - entry.enqueuedAt);
+		record(totalExecutionNanos, maxExecutionNanos, end - start);
+	}
+
+	private static void record(AtomicLong total, AtomicLong max, long nanos) {
+		total.addAndGet(nanos);
+		max.accumulateAndGet(nanos, Math::max);
+	}
+
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+}
@@ -19,10 +19,17 @@ package io.openvidu.server.rpc;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.http.HttpSession;
 
@@ -36,6 +43,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
@@ -43,6 +51,7 @@ import com.google.gson.JsonSyntaxException;
 
 import io.openvidu.client.OpenViduException;
 import io.openvidu.client.OpenViduException.Code;
+import io.openvidu.client.internal.IceCandidate;
 import io.openvidu.client.internal.ProtocolElements;
 import io.openvidu.server.config.OpenviduConfig;
 import io.openvidu.server.core.EndReason;
@@ -53,11 +62,27 @@ import io.openvidu.server.core.Token;
 import io.openvidu.server.utils.GeoLocation;
 import io.openvidu.server.utils.GeoLocationByIp;
 import io.openvidu.server.utils.RandomStringGenerator;
+import io.openvidu.server.utils.TimingWheel;
 
 public class RpcHandler extends DefaultJsonRpcHandler<JsonObject> {
 
 	private static final Logger log = LoggerFactory.getLogger(RpcHandler.class);
 
+	private static final int MAX_REQUESTS_PER_BATCH = 100;
+
+	/**
+	 * Methods that can be sent inside a batch. Joining and leaving the session
+	 * change the connection itself, so they must be sent on their own
+	 */
+	private static final Set<String> BATCHABLE_METHODS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			ProtocolElements.PUBLISHVIDEO_METHOD, ProtocolElements.ONICECANDIDATE_METHOD,
+			ProtocolElements.RECEIVEVIDEO_METHOD, ProtocolElements.UNSUBSCRIBEFROMVIDEO_METHOD,
+			ProtocolElements.SENDMESSAGE_ROOM_METHOD, ProtocolElements.UNPUBLISHVIDEO_METHOD,
+			ProtocolElements.STREAMPROPERTYCHANGED_METHOD, ProtocolElements.FORCEDISCONNECT_METHOD,
+			ProtocolElements.FORCEUNPUBLISH_METHOD, ProtocolElements.APPLYFILTER_METHOD,
+			ProtocolElements.EXECFILTERMETHOD_METHOD, ProtocolElements.REMOVEFILTER_METHOD,
+			ProtocolElements.ADDFILTEREVENTLISTENER_METHOD, ProtocolElements.REMOVEFILTEREVENTLISTENER_METHOD)));
+
 	@Autowired
 	OpenviduConfig openviduConfig;
 
@@ -70,52 +95,106 @@ public class RpcHandler extends DefaultJsonRpcHandler<JsonObject> {
 	@Autowired
 	RpcNotificationService notificationService;
 
+	@Autowired
+	SignalRateLimiter signalRateLimiter;
+
+	@Autowired
+	RpcDispatcher rpcDispatcher;
+
+	@Autowired
+	TimingWheel timingWheel;
+
 	private ConcurrentMap<String, Boolean> webSocketEOFTransportError = new ConcurrentHashMap<>();
 
+	/**
+	 * Private id of suspended participant -> eviction scheduled for the end of
+	 * its resume window
+	 */
+	private ConcurrentMap<String, TimingWheel.Timeout> suspendedParticipants = new ConcurrentHashMap<>();
+
 	@Override
 	public void handleRequest(Transaction transaction, Request<JsonObject> request) throws Exception {
 
-		String participantPrivateId = null;
+		String rpcSessionId = null;
 		try {
-			participantPrivateId = transaction.getSession().getSessionId();
+			rpcSessionId = transaction.getSession().getSessionId();
 		} catch (Throwable e) {
 			log.error("Error getting WebSocket session ID from transaction {}", transaction, e);
 			throw e;
 		}
+		log.debug("WebSocket session #{} - Request: {}", rpcSessionId, request);
 
-		log.debug("WebSocket session #{} - Request: {}", participantPrivateId, request);
-
-		RpcConnection rpcConnection;
-		if (ProtocolElements.JOINROOM_METHOD.equals(request.getMethod())) {
-			// Store new RpcConnection information if method 'joinRoom'
-			rpcConnection = notificationService.newRpcConnection(transaction, request);
-		} else if (notificationService.getRpcConnection(participantPrivateId) == null) {
-			// Throw exception if any method is called before 'joinRoom'
-			log.warn(
-					"No connection found for participant with privateId {} when trying to execute method '{}'. Method 'Session.connect()' must be the first operation called in any session",
-					participantPrivateId, request.getMethod());
-			throw new OpenViduException(Code.TRANSPORT_ERROR_CODE,
-					"No connection found for participant with privateId " + participantPrivateId
-							+ ". Method 'Session.connect()' must be the first operation called in any session");
-		}
-		rpcConnection = notificationService.addTransaction(transaction, request);
+		boolean newConnection = ProtocolElements.JOINROOM_METHOD.equals(request.getMethod())
+				|| ProtocolElements.RESUME_METHOD.equals(request.getMethod());
 
-		String sessionId = rpcConnection.getSessionId();
-		if (sessionId == null && !ProtocolElements.JOINROOM_METHOD.equals(request.getMethod())) {
-			log.warn(
-					"No session information found for participant with privateId {} when trying to execute method '{}'. Method 'Session.connect()' must be the first operation called in any session",
-					participantPrivateId, request.getMethod());
-			throw new OpenViduException(Code.TRANSPORT_ERROR_CODE,
-					"No session information found for participant with privateId " + participantPrivateId
-							+ ". Method 'Session.connect()' must be the first operation called in any session");
+		if (newConnection) {
+			// Store new RpcConnection information if method 'joinRoom' or 'resume'
+			notificationService.newRpcConnection(transaction, request);
 		}
 
 		transaction.startAsync();
 
+		// Requests of the same connection are executed in order, out of the
+		// transport thread. The connection is checked once every previous request
+		// of the connection (such as its 'joinRoom' or 'resume') has been executed,
+		// as a 'resume' binds the websocket to another private id
+		final String transportId = rpcSessionId;
+		rpcDispatcher.execute(rpcSessionId, request.getMethod(), () -> {
+			final String privateId = notificationService.getParticipantPrivateId(transportId);
+			if (!newConnection && notificationService.getRpcConnection(privateId) == null) {
+				// Any method called before 'joinRoom'
+				log.warn(
+						"No connection found for participant with privateId {} when trying to execute method '{}'. Method 'Session.connect()' must be the first operation called in any session",
+						privateId, request.getMethod());
+				try {
+					transaction.sendError(Code.TRANSPORT_ERROR_CODE.getValue(),
+							"No connection found for participant with privateId " + privateId
+									+ ". Method 'Session.connect()' must be the first operation called in any session",
+							null);
+				} catch (IOException e) {
+					log.error("Exception sending error response to request '{}'", request.getMethod(), e);
+				}
+				return;
+			}
+			final RpcConnection connection = notificationService.addTransaction(transaction, request);
+			try {
+				if (connection.getSessionId() == null && !newConnection) {
+					log.warn(
+							"No session information found for participant with privateId {} when trying to execute method '{}'. Method 'Session.connect()' must be the first operation called in any session",
+							privateId, request.getMethod());
+					throw new OpenViduException(Code.TRANSPORT_ERROR_CODE,
+							"No session information found for participant with privateId " + privateId
+									+ ". Method 'Session.connect()' must be the first operation called in any session");
+				}
+				if (ProtocolElements.BATCH_METHOD.equals(request.getMethod())) {
+					batch(connection, request);
+				} else {
+					dispatch(connection, request);
+				}
+			} catch (OpenViduException e) {
+				// A 'resume' may have bound the connection to another private id
+				String connectionPrivateId = connection.getParticipantPrivateId();
+				log.warn("Error in request '{}' of participant {}: {}", request.getMethod(), connectionPrivateId,
+						e.getMessage());
+				notificationService.sendErrorResponse(connectionPrivateId, request.getId(), null, e);
+			} catch (RuntimeException e) {
+				String connectionPrivateId = connection.getParticipantPrivateId();
+				log.error("Unexpected error in request '{}' of participant {}", request.getMethod(),
+						connectionPrivateId, e);
+				notificationService.sendErrorResponse(connectionPrivateId, request.getId(), null,
+						new OpenViduException(Code.GENERIC_ERROR_CODE, e.getMessage()));
+			}
+		});
+	}
+
+	private void dispatch(RpcConnection rpcConnection, Request<JsonObject> request) {
 		switch (request.getMethod()) {
 		case ProtocolElements.JOINROOM_METHOD:
 			joinRoom(rpcConnection, request);
 			break;
+		case ProtocolElements.RESUME_METHOD:
+			resume(rpcConnection, request);
+			break;
 		case ProtocolElements.LEAVEROOM_METHOD:
 			leaveRoom(rpcConnection, request);
 			break;
@@ -167,6 +246,74 @@ public class RpcHandler extends DefaultJsonRpcHandler<JsonObject> {
 		}
 	}
 
+	/**
+	 * Handles many requests sent by the client in a single message. Requests are
+	 * dispatched in order as if they had been sent one by one, and a single
+	 * response with the results of all of them is sent once every one has been
+	 * answered
+	 */
+	private void batch(RpcConnection rpcConnection, Request<JsonObject> request) {
+		if (request.getParams() == null || !request.getParams().has(ProtocolElements.BATCH_REQUESTS_PARAM)
+				|| !request.getParams().get(ProtocolElements.BATCH_REQUESTS_PARAM).isJsonArray()) {
+			throw new RuntimeException("Request element '" + ProtocolElements.BATCH_REQUESTS_PARAM
+					+ "' is missing in method '" + request.getMethod()
+					+ "'. CHECK THAT 'openvidu-server' AND 'openvidu-browser' SHARE THE SAME VERSION NUMBER");
+		}
+		JsonArray requests = request.getParams().getAsJsonArray(ProtocolElements.BATCH_REQUESTS_PARAM);
+		if (requests.size() > MAX_REQUESTS_PER_BATCH) {
+			notificationService.sendErrorResponse(rpcConnection.getParticipantPrivateId(), request.getId(), null,
+					new OpenViduException(Code.TRANSPORT_REQUEST_ERROR_CODE,
+							"A batch cannot hold more than " + MAX_REQUESTS_PER_BATCH + " requests"));
+			return;
+		}
+
+		RpcBatch batch = new RpcBatch(notificationService, rpcConnection.getParticipantPrivateId(), request.getId(),
+				rpcConnection.getSession(), requests.size());
+
+		for (int i = 0; i < requests.size(); i++) {
+			JsonObject subRequest = requests.get(i).isJsonObject() ? requests.get(i).getAsJsonObject() : null;
+			JsonElement requestId = subRequest != null ? subRequest.get(ProtocolElements.BATCH_ID_PARAM) : null;
+
+			Integer internalId = rpcConnection.nextInternalTransactionId();
+			Transaction transaction = batch.newTransaction(i, requestId);
+			String method = null;
+			try {
+				// A malformed request only fails its own slot of the batch
+				JsonObject params = null;
+				if (subRequest != null) {
+					if (subRequest.has(ProtocolElements.BATCH_METHOD_PARAM)) {
+						method = subRequest.get(ProtocolElements.BATCH_METHOD_PARAM).getAsString();
+					}
+					if (subRequest.has(ProtocolElements.BATCH_PARAMS_PARAM)
+							&& subRequest.get(ProtocolElements.BATCH_PARAMS_PARAM).isJsonObject()) {
+						params = subRequest.getAsJsonObject(ProtocolElements.BATCH_PARAMS_PARAM);
+					}
+				}
+				if (!BATCHABLE_METHODS.contains(method)) {
+					throw new OpenViduException(Code.TRANSPORT_REQUEST_ERROR_CODE,
+							"Method '" + method + "' cannot be sent inside a batch");
+				}
+				rpcConnection.addTransaction(internalId, transaction);
+				dispatch(rpcConnection, new Request<>(internalId, method, params != null ? params : new JsonObject()));
+			} catch (OpenViduException e) {
+				rpcConnection.removeTransaction(internalId);
+				sendBatchError(transaction, e.getCodeValue(), e.getMessage());
+			} catch (Exception e) {
+				log.error("Error handling request '{}' of batch {}", method, request.getId(), e);
+				rpcConnection.removeTransaction(internalId);
+				sendBatchError(transaction, Code.GENERIC_ERROR_CODE.getValue(), e.getMessage());
+			}
+		}
+	}
+
+	private void sendBatchError(Transaction transaction, int code, String message) {
+		try {
+			transaction.sendError(code, message, null);
+		} catch (IOException e) {
+			// Batch transactions never throw
+		}
+	}
+
 	public void joinRoom(RpcConnection rpcConnection, Request<JsonObject> request) {
 
 		String sessionId = getStringParam(request, ProtocolElements.JOINROOM_ROOM_PARAM);
@@ -227,6 +374,22 @@ public class RpcHandler extends DefaultJsonRpcHandler<JsonObject> {
 			// Nothing happens. 'recorder' param to false
 		}
 
+		try {
+			rpcConnection.setIceCandidateArrays(
+					getBooleanParam(request, ProtocolElements.JOINROOM_ICECANDIDATEARRAYS_PARAM));
+		} catch (RuntimeException e) {
+			// Legacy client. One ICE candidate per 'iceCandidate' notification
+		}
+
+		boolean resumable = false;
+		if (openviduConfig.getSessionsResumeWindow() > 0) {
+			try {
+				resumable = getBooleanParam(request, ProtocolElements.JOINROOM_RESUMABLE_PARAM);
+			} catch (RuntimeException e) {
+				// Legacy client. Evicted as soon as its websocket is closed
+			}
+		}
+
 		boolean generateRecorderParticipant = false;
 
 		if (openviduConfig.isOpenViduSecret(secret)) {
@@ -255,6 +418,10 @@ public class RpcHandler extends DefaultJsonRpcHandler<JsonObject> {
 							httpSession.getId().substring(0, Math.min(16, httpSession.getId().length())));
 				}
 
+				if (resumable && !generateRecorderParticipant) {
+					participant.setResumeToken(RandomStringGenerator.generateRandomChain());
+				}
+
 				rpcConnection.setSessionId(sessionId);
 				sessionManager.joinRoom(participant, sessionId, request.getId());
 
@@ -270,6 +437,49 @@ public class RpcHandler extends DefaultJsonRpcHandler<JsonObject> {
 		}
 	}
 
+	/**
+	 * Binds a new websocket to a participant that joined with the 'resumable'
+	 * flag and lost its previous websocket. The participant keeps its private id,
+	 * its publisher and its subscribers, and receives the current state of the
+	 * session in the response. Only the signaling is resumed: media is not
+	 * renegotiated, so if the WebRTC connections of the client were lost too it
+	 * must unpublish and publish again, and subscribe again to the streams it
+	 * was receiving
+	 */
+	private void resume(RpcConnection rpcConnection, Request<JsonObject> request) {
+		String sessionId = getStringParam(request, ProtocolElements.RESUME_SESSION_PARAM);
+		String connectionId = getStringParam(request, ProtocolElements.RESUME_CONNECTIONID_PARAM);
+		String resumeToken = getStringParam(request, ProtocolElements.RESUME_TOKEN_PARAM);
+
+		io.openvidu.server.core.Session session = sessionManager.getSession(sessionId);
+		Participant participant = session != null ? session.getParticipantByPublicId(connectionId) : null;
+		if (participant == null || participant.getResumeToken() == null
+				|| !MessageDigest.isEqual(participant.getResumeToken().getBytes(StandardCharsets.UTF_8),
+						resumeToken.getBytes(StandardCharsets.UTF_8))) {
+			log.warn("Rejected resume of connection {} in session {}", connectionId, sessionId);
+			throw new OpenViduException(Code.USER_UNAUTHORIZED_ERROR_CODE,
+					"Unable to resume connection. The user is not authorized");
+		}
+
+		String participantPrivateId = participant.getParticipantPrivateId();
+		synchronized (participant) {
+			TimingWheel.Timeout eviction = this.suspendedParticipants.remove(participantPrivateId);
+			if (eviction != null) {
+				eviction.cancel();
+			} else if (!notificationService.isSuspended(participantPrivateId)
+					&& notificationService.getRpcConnection(participantPrivateId) == null) {
+				// Resume window already expired
+				throw new OpenViduException(Code.USER_UNAUTHORIZED_ERROR_CODE,
+						"Unable to resume connection. The user is not authorized");
+			}
+			notificationService.rebindRpcConnection(rpcConnection, participantPrivateId);
+			rpcConnection.setSessionId(sessionId);
+		}
+
+		log.info("Participant {} resumed its connection to session {}", connectionId, sessionId);
+		sessionManager.resumeParticipant(participant, request.getId());
+	}
+
 	private void leaveRoom(RpcConnection rpcConnection, Request<JsonObject> request) {
 		Participant participant;
 		try {
@@ -337,6 +547,15 @@ public class RpcHandler extends DefaultJsonRpcHandler<JsonObject> {
 		}
 
 		String endpointName = getStringParam(request, ProtocolElements.ONICECANDIDATE_EPNAME_PARAM);
+
+		if (request.getParams().has(ProtocolElements.ONICECANDIDATE_CANDIDATES_PARAM)) {
+			// Many candidates gathered by the client sent at once
+			List<IceCandidate> candidates = getIceCandidatesParam(request,
+					ProtocolElements.ONICECANDIDATE_CANDIDATES_PARAM);
+			sessionManager.onIceCandidates(participant, endpointName, candidates, request.getId());
+			return;
+		}
+
 		String candidate = getStringParam(request, ProtocolElements.ONICECANDIDATE_CANDIDATE_PARAM);
 		String sdpMid = getStringParam(request, ProtocolElements.ONICECANDIDATE_SDPMIDPARAM);
 		int sdpMLineIndex = getIntParam(request, ProtocolElements.ONICECANDIDATE_SDPMLINEINDEX_PARAM);
@@ -352,6 +571,10 @@ public class RpcHandler extends DefaultJsonRpcHandler<JsonObject> {
 			return;
 		}
 
+		if (!this.checkSignalRate(rpcConnection, request, participant)) {
+			return;
+		}
+
 		String message = getStringParam(request, ProtocolElements.SENDMESSAGE_MESSAGE_PARAM);
 		sessionManager.sendMessage(participant, message, request.getId());
 	}
@@ -375,6 +598,10 @@ public class RpcHandler extends DefaultJsonRpcHandler<JsonObject> {
 			return;
 		}
 
+		if (!this.checkSignalRate(rpcConnection, request, participant)) {
+			return;
+		}
+
 		String streamId = getStringParam(request, ProtocolElements.STREAMPROPERTYCHANGED_STREAMID_PARAM);
 		String property = getStringParam(request, ProtocolElements.STREAMPROPERTYCHANGED_PROPERTY_PARAM);
 		JsonElement newValue = getParam(request, ProtocolElements.STREAMPROPERTYCHANGED_NEWVALUE_PARAM);
@@ -600,14 +827,36 @@ public class RpcHandler extends DefaultJsonRpcHandler<JsonObject> {
 	public void afterConnectionClosed(Session rpcSession, String status) throws Exception {
 		log.info("After connection closed for WebSocket session: {} - Status: {}", rpcSession.getSessionId(), status);
 
+		// Evict the participant once its pending requests have been executed
+		rpcDispatcher.execute(rpcSession.getSessionId(), "afterConnectionClosed", () -> {
+			try {
+				this.onConnectionClosed(rpcSession, status);
+			} finally {
+				rpcDispatcher.release(rpcSession.getSessionId());
+			}
+		});
+	}
+
+	private void onConnectionClosed(Session rpcSession, String status) {
 		String rpcSessionId = rpcSession.getSessionId();
+		String participantPrivateId = notificationService.getParticipantPrivateId(rpcSessionId);
+		notificationService.releaseTransport(rpcSessionId);
+
+		RpcConnection current = notificationService.getRpcConnection(participantPrivateId);
+		if (current != null && current.getSession() != null
+				&& !rpcSessionId.equals(current.getSession().getSessionId())) {
+			// Participant already resumed its connection through another websocket
+			this.webSocketEOFTransportError.remove(rpcSessionId);
+			return;
+		}
+
 		String message = "";
 
 		if ("Close for not receive ping from client".equals(status)) {
 			message = "Evicting participant with private id {} because of a network disconnection";
 		} else if (status == null) { // && this.webSocketBrokenPipeTransportError.remove(rpcSessionId) != null)) {
 			try {
-				Participant p = sessionManager.getParticipant(rpcSession.getSessionId());
+				Participant p = sessionManager.getParticipant(participantPrivateId);
 				if (p != null) {
 					message = "Evicting participant with private id {} because its websocket unexpectedly closed in the client side";
 				}
@@ -615,8 +864,13 @@ public class RpcHandler extends DefaultJsonRpcHandler<JsonObject> {
 			}
 		}
 
+		boolean transportError = this.webSocketEOFTransportError.remove(rpcSessionId) != null;
+		if ((!message.isEmpty() || transportError) && this.suspendIfResumable(participantPrivateId)) {
+			return;
+		}
+
 		if (!message.isEmpty()) {
-			RpcConnection rpc = this.notificationService.closeRpcSession(rpcSessionId);
+			RpcConnection rpc = this.notificationService.closeRpcSession(participantPrivateId);
 			if (rpc != null && rpc.getSessionId() != null) {
 				io.openvidu.server.core.Session session = this.sessionManager.getSession(rpc.getSessionId());
 				if (session != null && session.getParticipantByPrivateId(rpc.getParticipantPrivateId()) != null) {
@@ -626,12 +880,55 @@ public class RpcHandler extends DefaultJsonRpcHandler<JsonObject> {
 			}
 		}
 
-		if (this.webSocketEOFTransportError.remove(rpcSessionId) != null) {
+		if (transportError) {
 			log.warn(
 					"Evicting participant with private id {} because a transport error took place and its web socket connection is now closed",
-					rpcSession.getSessionId());
-			this.leaveRoomAfterConnClosed(rpcSessionId, EndReason.networkDisconnect);
+					participantPrivateId);
+			this.leaveRoomAfterConnClosed(participantPrivateId, EndReason.networkDisconnect);
+		}
+	}
+
+	/**
+	 * Keeps a participant that joined with the 'resumable' flag in its session
+	 * after a network disconnection, so it can resume its connection from a new
+	 * websocket. It is evicted if it does not within
+	 * openvidu.sessions.resume-window
+	 *
+	 * @return true if the participant has been suspended instead of evicted
+	 */
+	private boolean suspendIfResumable(String participantPrivateId) {
+		Participant participant;
+		try {
+			participant = sessionManager.getParticipant(participantPrivateId);
+		} catch (OpenViduException e) {
+			return false;
+		}
+		if (participant == null || participant.getResumeToken() == null || participant.isClosed()) {
+			return false;
+		}
+		synchronized (participant) {
+			notificationService.suspendRpcConnection(participantPrivateId);
+			TimingWheel.Timeout[] eviction = new TimingWheel.Timeout[1];
+			eviction[0] = this.timingWheel.schedule(() -> {
+				synchronized (participant) {
+					if (!this.suspendedParticipants.remove(participantPrivateId, eviction[0])) {
+						// Resumed in the meantime
+						return;
+					}
+					notificationService.closeRpcSession(participantPrivateId);
+				}
+				log.info("Evicting participant with private id {} because it did not resume its connection",
+						participantPrivateId);
+				this.leaveRoomAfterConnClosed(participantPrivateId, EndReason.networkDisconnect);
+			}, openviduConfig.getSessionsResumeWindow(), TimeUnit.SECONDS);
+			TimingWheel.Timeout previous = this.suspendedParticipants.put(participantPrivateId, eviction[0]);
+			if (previous != null) {
+				previous.cancel();
+			}
 		}
+		log.info("Participant with private id {} lost its websocket. Waiting {} seconds for it to resume",
+				participantPrivateId, openviduConfig.getSessionsResumeWindow());
+		return true;
 	}
 
 	@Override
@@ -691,6 +988,54 @@ public class RpcHandler extends DefaultJsonRpcHandler<JsonObject> {
 		return request.getParams().get(key);
 	}
 
+	/**
+	 * Reads an array of ICE candidates, checking that every element is an object
+	 * with a candidate, an sdpMid and a numeric sdpMLineIndex
+	 */
+	public static List<IceCandidate> getIceCandidatesParam(Request<JsonObject> request, String key) {
+		JsonElement param = getParam(request, key);
+		if (!param.isJsonArray()) {
+			throw new RuntimeException("Request element '" + key + "' in method '" + request.getMethod()
+					+ "' must be an array of ICE candidates");
+		}
+		List<IceCandidate> candidates = new ArrayList<>();
+		int index = 0;
+		for (JsonElement element : param.getAsJsonArray()) {
+			JsonObject json = element != null && element.isJsonObject() ? element.getAsJsonObject() : null;
+			JsonElement candidate = json != null ? json.get(ProtocolElements.ONICECANDIDATE_CANDIDATE_PARAM) : null;
+			JsonElement sdpMid = json != null ? json.get(ProtocolElements.ONICECANDIDATE_SDPMIDPARAM) : null;
+			JsonElement sdpMLineIndex = json != null ? json.get(ProtocolElements.ONICECANDIDATE_SDPMLINEINDEX_PARAM)
+					: null;
+			if (!isString(candidate) || !isString(sdpMid) || sdpMLineIndex == null
+					|| !sdpMLineIndex.isJsonPrimitive() || !sdpMLineIndex.getAsJsonPrimitive().isNumber()) {
+				throw new RuntimeException("Element " + index + " of request element '" + key + "' in method '"
+						+ request.getMethod() + "' is not a valid ICE candidate: " + element);
+			}
+			candidates.add(new IceCandidate(candidate.getAsString(), sdpMid.getAsString(), sdpMLineIndex.getAsInt()));
+			index++;
+		}
+		return candidates;
+	}
+
+	private static boolean isString(JsonElement element) {
+		return element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isString();
+	}
+
+	/**
+	 * @return false if the request has been rejected because the connection or
+	 *         its session exceeded their signal rate limit
+	 */
+	private boolean checkSignalRate(RpcConnection rpcConnection, Request<JsonObject> request,
+			Participant participant) {
+		try {
+			signalRateLimiter.check(sessionManager.getSession(rpcConnection.getSessionId()), participant);
+			return true;
+		} catch (OpenViduException e) {
+			notificationService.sendErrorResponse(participant.getParticipantPrivateId(), request.getId(), null, e);
+			return false;
+		}
+	}
+
 	private Participant sanityCheckOfSession(RpcConnection rpcConnection, String methodName) throws OpenViduException {
 		String participantPrivateId = rpcConnection.getParticipantPrivateId();
 		String sessionId = rpcConnection.getSessionId();
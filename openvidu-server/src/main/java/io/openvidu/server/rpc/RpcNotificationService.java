@@ -18,28 +18,114 @@
 package io.openvidu.server.rpc;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.annotation.PreDestroy;
+
+import org.kurento.jsonrpc.JsonUtils;
 import org.kurento.jsonrpc.Session;
 import org.kurento.jsonrpc.Transaction;
+import org.kurento.jsonrpc.internal.ws.WebSocketServerSession;
 import org.kurento.jsonrpc.message.Request;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
 
 import com.google.gson.JsonObject;
 
 import io.openvidu.client.OpenViduException;
+import io.openvidu.client.internal.ProtocolElements;
+import io.openvidu.server.rpc.RpcOutboundQueue.OverflowPolicy;
 
+/**
+ * Sends responses and notifications to clients. If outbound queues are enabled
+ * every connection gets its own bounded {@link RpcOutboundQueue}, so callers
+ * fanning out a notification to a whole session never wait for a slow client
+ */
 public class RpcNotificationService {
 
 	private static final Logger log = LoggerFactory.getLogger(RpcNotificationService.class);
 
+	/**
+	 * Notifications that may be discarded when the outbound queue of a client is
+	 * full. Any other message changes the state of the session in the client
+	 */
+	private static final Set<String> NON_CRITICAL_NOTIFICATIONS = new HashSet<>(Arrays.asList(
+			ProtocolElements.PARTICIPANTSENDMESSAGE_METHOD, ProtocolElements.FILTEREVENTDISPATCHED_METHOD));
+
 	private ConcurrentMap<String, RpcConnection> rpcConnections = new ConcurrentHashMap<>();
 
+	/**
+	 * Participants whose websocket dropped and that may still resume their
+	 * connection from a new one. Messages for them are discarded
+	 */
+	private final Set<String> suspendedConnections = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Last connection of each suspended participant, whose state is carried over
+	 * to the connection resuming it
+	 */
+	private final ConcurrentMap<String, RpcConnection> suspendedRpcConnections = new ConcurrentHashMap<>();
+
+	/**
+	 * Websocket session id -> private id of the participant whose connection was
+	 * resumed through that websocket
+	 */
+	private final ConcurrentMap<String, String> resumedTransports = new ConcurrentHashMap<>();
+
+	private final int outboundQueueSize;
+	private final OverflowPolicy overflowPolicy;
+	private final ExecutorService writer;
+
+	private final AtomicLong overflowDisconnections = new AtomicLong(0);
+
+	/**
+	 * Messages are sent synchronously in the caller thread
+	 */
+	public RpcNotificationService() {
+		this(0, OverflowPolicy.DROP_OLDEST, 0);
+	}
+
+	/**
+	 * @param outboundQueueSize maximum number of messages waiting to be sent to
+	 *                          each client. 0 to send messages synchronously in
+	 *                          the caller thread
+	 * @param overflowPolicy    what to do when the queue of a client is full
+	 * @param writerThreads     number of threads sending the queued messages
+	 */
+	public RpcNotificationService(int outboundQueueSize, OverflowPolicy overflowPolicy, int writerThreads) {
+		this.outboundQueueSize = outboundQueueSize;
+		this.overflowPolicy = overflowPolicy;
+		if (outboundQueueSize > 0) {
+			final AtomicInteger threadCount = new AtomicInteger();
+			this.writer = Executors.newFixedThreadPool(Math.max(writerThreads, 1), r -> {
+				Thread t = new Thread(r, "rpc-writer-" + threadCount.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			});
+		} else {
+			this.writer = null;
+		}
+	}
+
 	public RpcConnection newRpcConnection(Transaction t, Request<JsonObject> request) {
 		String participantPrivateId = t.getSession().getSessionId();
 		RpcConnection connection = new RpcConnection(t.getSession());
+		if (this.writer != null) {
+			final Session session = t.getSession();
+			connection.setOutboundQueue(new RpcOutboundQueue(participantPrivateId, outboundQueueSize,
+					overflowPolicy, writer, () -> this.disconnectOverflowed(participantPrivateId, session)));
+		}
 		RpcConnection oldConnection = rpcConnections.putIfAbsent(participantPrivateId, connection);
 		if (oldConnection != null) {
 			log.warn("Concurrent initialization of rpcSession #{}", participantPrivateId);
@@ -49,7 +135,7 @@ public class RpcNotificationService {
 	}
 
 	public RpcConnection addTransaction(Transaction t, Request<JsonObject> request) {
-		String participantPrivateId = t.getSession().getSessionId();
+		String participantPrivateId = this.getParticipantPrivateId(t.getSession().getSessionId());
 		RpcConnection connection = rpcConnections.get(participantPrivateId);
 		connection.addTransaction(request.getId(), t);
 		return connection;
@@ -62,6 +148,11 @@ public class RpcNotificationService {
 					transactionId, participantPrivateId, result);
 			return;
 		}
+		RpcOutboundQueue queue = this.getOutboundQueue(participantPrivateId);
+		if (queue != null) {
+			queue.enqueue("response to transaction " + transactionId, true, () -> t.sendResponse(result));
+			return;
+		}
 		try {
 			t.sendResponse(result);
 		} catch (Exception e) {
@@ -77,8 +168,14 @@ public class RpcNotificationService {
 					transactionId, participantPrivateId, data);
 			return;
 		}
+		String dataVal = data != null ? data.toString() : null;
+		RpcOutboundQueue queue = this.getOutboundQueue(participantPrivateId);
+		if (queue != null) {
+			queue.enqueue("error response to transaction " + transactionId, true,
+					() -> t.sendError(error.getCodeValue(), error.getMessage(), dataVal));
+			return;
+		}
 		try {
-			String dataVal = data != null ? data.toString() : null;
 			t.sendError(error.getCodeValue(), error.getMessage(), dataVal);
 		} catch (Exception e) {
 			log.error("Exception sending error response to user ({})", transactionId, e);
@@ -88,12 +185,23 @@ public class RpcNotificationService {
 	public void sendNotification(final String participantPrivateId, final String method, final Object params) {
 		RpcConnection rpcSession = rpcConnections.get(participantPrivateId);
 		if (rpcSession == null || rpcSession.getSession() == null) {
+			if (suspendedConnections.contains(participantPrivateId)) {
+				log.debug("Participant {} is suspended. Discarding notification {}", participantPrivateId, method);
+				return;
+			}
 			log.error("No rpc session found for private id {}, unable to send notification {}: {}",
 					participantPrivateId, method, params);
 			return;
 		}
 		Session s = rpcSession.getSession();
 
+		RpcOutboundQueue queue = rpcSession.getOutboundQueue();
+		if (queue != null) {
+			queue.enqueue("notification '" + method + "'", !NON_CRITICAL_NOTIFICATIONS.contains(method),
+					() -> s.sendNotification(method, params));
+			return;
+		}
+
 		try {
 			s.sendNotification(method, params);
 		} catch (Exception e) {
@@ -102,13 +210,78 @@ public class RpcNotificationService {
 		}
 	}
 
+	/**
+	 * Sends the same notification to many participants. The JSON-RPC frame is
+	 * serialized only once and the same encoded text is written to every
+	 * websocket, instead of serializing the params again for each recipient
+	 */
+	public void broadcastNotification(Collection<String> participantPrivateIds, final String method,
+			final Object params) {
+		if (participantPrivateIds.isEmpty()) {
+			return;
+		}
+		if (JsonUtils.INJECT_SESSION_ID) {
+			// Every frame carries the id of its own session
+			participantPrivateIds.forEach(id -> this.sendNotification(id, method, params));
+			return;
+		}
+		final TextMessage frame = new TextMessage(JsonUtils.toJson(new Request<>(method, params)));
+		final boolean critical = !NON_CRITICAL_NOTIFICATIONS.contains(method);
+
+		for (String participantPrivateId : participantPrivateIds) {
+			RpcConnection rpcSession = rpcConnections.get(participantPrivateId);
+			if (rpcSession == null || rpcSession.getSession() == null) {
+				if (suspendedConnections.contains(participantPrivateId)) {
+					continue;
+				}
+				log.error("No rpc session found for private id {}, unable to send notification {}: {}",
+						participantPrivateId, method, params);
+				continue;
+			}
+			if (!(rpcSession.getSession() instanceof WebSocketServerSession)) {
+				this.sendNotification(participantPrivateId, method, params);
+				continue;
+			}
+			final WebSocketServerSession s = (WebSocketServerSession) rpcSession.getSession();
+
+			RpcOutboundQueue queue = rpcSession.getOutboundQueue();
+			if (queue != null) {
+				queue.enqueue("notification '" + method + "'", critical, () -> sendFrame(s, frame));
+				continue;
+			}
+
+			try {
+				sendFrame(s, frame);
+			} catch (Exception e) {
+				log.error("Exception sending notification '{}': {} to participant with private id {}", method,
+						params, participantPrivateId, e);
+			}
+		}
+	}
+
 	public RpcConnection closeRpcSession(String participantPrivateId) {
 		RpcConnection rpcSession = rpcConnections.remove(participantPrivateId);
 		if (rpcSession == null || rpcSession.getSession() == null) {
+			if (suspendedConnections.remove(participantPrivateId)) {
+				suspendedRpcConnections.remove(participantPrivateId);
+				// Websocket already closed when the participant was suspended
+				return null;
+			}
 			log.error("No session found for private id {}, unable to cleanup", participantPrivateId);
 			return null;
 		}
 		Session s = rpcSession.getSession();
+		RpcOutboundQueue queue = rpcSession.getOutboundQueue();
+		if (queue != null) {
+			// Close the session once the messages already queued have been sent
+			queue.enqueue("close", true, () -> {
+				s.close();
+				log.info("Closed session for participant with private id {}", participantPrivateId);
+				this.showRpcConnections();
+			});
+			queue.close();
+			return rpcSession;
+		}
 		try {
 			s.close();
 			log.info("Closed session for participant with private id {}", participantPrivateId);
@@ -136,8 +309,150 @@ public class RpcNotificationService {
 		log.info("<PRIVATE_ID, RPC_CONNECTION>: {}", this.rpcConnections.toString());
 	}
 
+	/**
+	 * Forgets the connection of a participant whose websocket dropped, keeping the
+	 * participant resumable. Messages sent to it are discarded until it resumes
+	 * its connection or it is evicted
+	 */
+	public void suspendRpcConnection(String participantPrivateId) {
+		suspendedConnections.add(participantPrivateId);
+		RpcConnection rpcSession = rpcConnections.remove(participantPrivateId);
+		if (rpcSession != null) {
+			suspendedRpcConnections.put(participantPrivateId, rpcSession);
+			if (rpcSession.getOutboundQueue() != null) {
+				rpcSession.getOutboundQueue().close();
+			}
+		}
+	}
+
+	/**
+	 * Binds the connection of a new websocket to an existing participant. From
+	 * now on, requests received through the new websocket act on behalf of the
+	 * participant and messages for the participant are sent through it. The new
+	 * connection keeps the state negotiated by the previous one. If the previous
+	 * websocket of the participant is still open it is closed
+	 */
+	public void rebindRpcConnection(RpcConnection connection, String participantPrivateId) {
+		String rpcSessionId = connection.getSession().getSessionId();
+		rpcConnections.remove(rpcSessionId, connection);
+		connection.setParticipantPrivateId(participantPrivateId);
+		resumedTransports.put(rpcSessionId, participantPrivateId);
+		RpcConnection previousConnection = rpcConnections.get(participantPrivateId);
+		if (previousConnection == null) {
+			previousConnection = suspendedRpcConnections.get(participantPrivateId);
+		}
+		if (previousConnection != null && previousConnection != connection) {
+			connection.inheritState(previousConnection);
+		}
+		RpcConnection oldConnection = rpcConnections.put(participantPrivateId, connection);
+		suspendedConnections.remove(participantPrivateId);
+		suspendedRpcConnections.remove(participantPrivateId);
+		if (oldConnection != null && oldConnection != connection) {
+			log.info("Participant {} resumed its connection before its previous websocket was closed",
+					participantPrivateId);
+			if (oldConnection.getOutboundQueue() != null) {
+				oldConnection.getOutboundQueue().close();
+			}
+			try {
+				oldConnection.getSession().close();
+			} catch (IOException e) {
+				log.warn("Error closing previous websocket of participant {}: {}", participantPrivateId,
+						e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * @param rpcSessionId id of a websocket session
+	 * @return private id of the participant using the websocket. Same as the
+	 *         websocket id unless the websocket resumed a previous connection
+	 */
+	public String getParticipantPrivateId(String rpcSessionId) {
+		return resumedTransports.getOrDefault(rpcSessionId, rpcSessionId);
+	}
+
+	/**
+	 * Forgets a closed websocket
+	 */
+	public void releaseTransport(String rpcSessionId) {
+		resumedTransports.remove(rpcSessionId);
+	}
+
+	public boolean isSuspended(String participantPrivateId) {
+		return suspendedConnections.contains(participantPrivateId);
+	}
+
 	public RpcConnection getRpcConnection(String participantPrivateId) {
 		return this.rpcConnections.get(participantPrivateId);
 	}
 
+	/**
+	 * @return total number of messages waiting to be sent to all clients
+	 */
+	public long getOutboundQueueDepth() {
+		long depth = 0;
+		for (RpcConnection connection : this.rpcConnections.values()) {
+			if (connection.getOutboundQueue() != null) {
+				depth += connection.getOutboundQueue().getDepth();
+			}
+		}
+		return depth;
+	}
+
+	public long getOverflowDisconnections() {
+		return this.overflowDisconnections.get();
+	}
+
+	public JsonObject toJson() {
+		JsonObject json = new JsonObject();
+		long depth = 0, maxDepth = 0, sent = 0, dropped = 0;
+		for (RpcConnection connection : this.rpcConnections.values()) {
+			RpcOutboundQueue queue = connection.getOutboundQueue();
+			if (queue != null) {
+				depth += queue.getDepth();
+				maxDepth = Math.max(maxDepth, queue.getMaxDepth());
+				sent += queue.getSentMessages();
+				dropped += queue.getDroppedMessages();
+			}
+		}
+		json.addProperty("connections", this.rpcConnections.size());
+		json.addProperty("queueCapacity", this.outboundQueueSize);
+		json.addProperty("queuedMessages", depth);
+		json.addProperty("maxQueueDepth", maxDepth);
+		json.addProperty("sentMessages", sent);
+		json.addProperty("droppedMessages", dropped);
+		json.addProperty("overflowDisconnections", this.getOverflowDisconnections());
+		return json;
+	}
+
+	@PreDestroy
+	public void close() {
+		if (this.writer != null) {
+			this.writer.shutdown();
+		}
+	}
+
+	private RpcOutboundQueue getOutboundQueue(String participantPrivateId) {
+		RpcConnection rpcSession = rpcConnections.get(participantPrivateId);
+		return rpcSession != null ? rpcSession.getOutboundQueue() : null;
+	}
+
+	private static void sendFrame(WebSocketServerSession s, TextMessage frame) throws IOException {
+		WebSocketSession wsSession = s.getWebSocketSession();
+		// Same lock kurento-jsonrpc holds while writing to the websocket
+		synchronized (wsSession) {
+			wsSession.sendMessage(frame);
+		}
+	}
+
+	private void disconnectOverflowed(String participantPrivateId, Session session) {
+		this.overflowDisconnections.incrementAndGet();
+		try {
+			// Participant is evicted when its websocket is closed
+			session.close();
+		} catch (IOException e) {
+			log.error("Error closing session for participant with private id {}", participantPrivateId, e);
+		}
+	}
+
 }
@@ -0,0 +1,244 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.rpc;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded queue of the messages waiting to be written to one client. Messages
+ * are enqueued without blocking the caller and written in order by a shared
+ * pool of writer threads, so a slow client only delays its own messages. When
+ * the queue is full the {@link OverflowPolicy} decides whether the oldest
+ * non-critical message is discarded or the client is disconnected
+ */
+public class RpcOutboundQueue {
+
+	private static final Logger log = LoggerFactory.getLogger(RpcOutboundQueue.class);
+
+	/**
+	 * Maximum number of messages written in a row before letting other queues use
+	 * the writer thread
+	 */
+	private static final int MAX_MESSAGES_PER_DRAIN = 64;
+
+	public enum OverflowPolicy {
+
+		/**
+		 * Discard the oldest non-critical message of the queue (or the new one if it
+		 * is non-critical and there is no other to discard). If every queued message
+		 * is critical, the client is disconnected
+		 */
+		DROP_OLDEST,
+
+		/**
+		 * Disconnect the client as soon as its queue is full
+		 */
+		DISCONNECT
+	}
+
+	/**
+	 * Write operation of a message
+	 */
+	@FunctionalInterface
+	public interface Message {
+		void send() throws Exception;
+	}
+
+	private static class Entry {
+
+		final String description;
+		final boolean critical;
+		final Message message;
+
+		Entry(String description, boolean critical, Message message) {
+			this.description = description;
+			this.critical = critical;
+			this.message = message;
+		}
+	}
+
+	private final String participantPrivateId;
+	private final int capacity;
+	private final OverflowPolicy overflowPolicy;
+	private final Executor writer;
+	private final Runnable onOverflow;
+
+	// Guarded by this
+	private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+	private boolean draining = false;
+	private boolean closed = false;
+	private int maxDepth = 0;
+
+	private final AtomicLong sentMessages = new AtomicLong(0);
+	private final AtomicLong droppedMessages = new AtomicLong(0);
+
+	/**
+	 * @param participantPrivateId identifier of the connection, for logging
+	 * @param capacity             maximum number of queued messages
+	 * @param overflowPolicy       what to do when the queue is full
+	 * @param writer               executor running the write operations
+	 * @param onOverflow           called once (in the writer executor) when the
+	 *                             client must be disconnected because of an
+	 *                             overflow
+	 */
+	public RpcOutboundQueue(String participantPrivateId, int capacity, OverflowPolicy overflowPolicy, Executor writer,
+			Runnable onOverflow) {
+		this.participantPrivateId = participantPrivateId;
+		this.capacity = Math.max(capacity, 1);
+		this.overflowPolicy = overflowPolicy;
+		this.writer = writer;
+		this.onOverflow = onOverflow;
+	}
+
+	/**
+	 * Enqueues a message to be written to the client. Never blocks
+	 *
+	 * @param description short description of the message, for logging
+	 * @param critical    false if the message can be discarded when the queue is
+	 *                    full
+	 * @return false if the message has been discarded
+	 */
+	public boolean enqueue(String description, boolean critical, Message message) {
+		boolean startDrain = false;
+		boolean disconnect = false;
+		synchronized (this) {
+			if (closed) {
+				return false;
+			}
+			if (queue.size() >= capacity) {
+				if (OverflowPolicy.DROP_OLDEST.equals(overflowPolicy)) {
+					Entry dropped = this.removeOldestNonCritical();
+					if (dropped != null) {
+						this.onDropped(dropped);
+					} else if (!critical) {
+						this.onDropped(new Entry(description, critical, message));
+						return false;
+					} else {
+						disconnect = true;
+					}
+				} else {
+					disconnect = true;
+				}
+				if (disconnect) {
+					this.droppedMessages.addAndGet(queue.size() + 1);
+					queue.clear();
+					closed = true;
+				}
+			}
+			if (!disconnect) {
+				queue.addLast(new Entry(description, critical, message));
+				maxDepth = Math.max(maxDepth, queue.size());
+				if (!draining) {
+					draining = true;
+					startDrain = true;
+				}
+			}
+		}
+		if (disconnect) {
+			log.warn("Outbound queue of participant {} is full ({} messages). Disconnecting it", participantPrivateId,
+					capacity);
+			this.execute(onOverflow);
+			return false;
+		}
+		if (startDrain) {
+			this.execute(this::drain);
+		}
+		return true;
+	}
+
+	/**
+	 * Stops accepting messages. Messages already enqueued are still written
+	 */
+	public synchronized void close() {
+		closed = true;
+	}
+
+	public synchronized int getDepth() {
+		return queue.size();
+	}
+
+	public synchronized int getMaxDepth() {
+		return maxDepth;
+	}
+
+	public long getSentMessages() {
+		return sentMessages.get();
+	}
+
+	public long getDroppedMessages() {
+		return droppedMessages.get();
+	}
+
+	private void drain() {
+		for (int i = 0; i < MAX_MESSAGES_PER_DRAIN; i++) {
+			Entry entry;
+			synchronized (this) {
+				entry = queue.pollFirst();
+				if (entry == null) {
+					draining = false;
+					return;
+				}
+			}
+			try {
+				entry.message.send();
+				sentMessages.incrementAndGet();
+			} catch (Exception e) {
+				log.error("Exception sending {} to participant with private id {}", entry.description,
+						participantPrivateId, e);
+			}
+		}
+		// Give other queues a chance before going on with this one
+		this.execute(this::drain);
+	}
+
+	private Entry removeOldestNonCritical() {
+		Iterator<Entry> it = queue.iterator();
+		while (it.hasNext()) {
+			Entry entry = it.next();
+			if (!entry.critical) {
+				it.remove();
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	private void onDropped(Entry entry) {
+		droppedMessages.incrementAndGet();
+		log.debug("Outbound queue of participant {} is full. Discarding {}", participantPrivateId, entry.description);
+	}
+
+	private void execute(Runnable task) {
+		try {
+			writer.execute(task);
+		} catch (RejectedExecutionException e) {
+			log.warn("Writer rejected task for participant {}: {}", participantPrivateId, e.getMessage());
+			synchronized (this) {
+				draining = false;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,145 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.rpc;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonObject;
+
+import io.openvidu.client.OpenViduException;
+import io.openvidu.client.OpenViduException.Code;
+import io.openvidu.server.core.Participant;
+import io.openvidu.server.core.Session;
+import io.openvidu.server.kurento.core.KurentoTokenOptions;
+import io.openvidu.server.utils.TokenBucket;
+
+/**
+ * Limits the rate of the requests that are fanned out to a whole session
+ * (signals and stream property changes). Every connection and every session
+ * has its own token bucket, so one client bursting cannot flood the rest of
+ * the participants. The limits of a connection can be overridden by the
+ * 'kurentoOptions' of its token
+ */
+public class SignalRateLimiter {
+
+	private static final Logger log = LoggerFactory.getLogger(SignalRateLimiter.class);
+
+	private final double connectionRate;
+	private final int connectionBurst;
+	private final double sessionRate;
+	private final int sessionBurst;
+
+	private final AtomicLong throttledByConnection = new AtomicLong(0);
+	private final AtomicLong throttledBySession = new AtomicLong(0);
+
+	/**
+	 * @param connectionRate  messages per second allowed to each connection. 0
+	 *                        means unlimited
+	 * @param connectionBurst messages each connection can send at once. 0 means
+	 *                        as many as its rate
+	 * @param sessionRate     messages per second allowed to each session. 0 means
+	 *                        unlimited
+	 * @param sessionBurst    messages each session can receive at once. 0 means
+	 *                        as many as its rate
+	 */
+	public SignalRateLimiter(double connectionRate, int connectionBurst, double sessionRate, int sessionBurst) {
+		this.connectionRate = connectionRate;
+		this.connectionBurst = connectionBurst;
+		this.sessionRate = sessionRate;
+		this.sessionBurst = sessionBurst;
+	}
+
+	/**
+	 * Takes one token from the bucket of the connection and one from the bucket
+	 * of its session. If any of them is empty no token is taken from the other
+	 *
+	 * @throws OpenViduException with code
+	 *                           {@link Code#SIGNAL_RATE_LIMIT_ERROR_CODE} if any
+	 *                           of the limits has been reached
+	 */
+	public void check(Session session, Participant participant) throws OpenViduException {
+		TokenBucket connectionBucket = participant.getSignalRateLimit(() -> this.newConnectionBucket(participant));
+		TokenBucket exhausted;
+		if (session != null) {
+			TokenBucket sessionBucket = session.getSignalRateLimit(() -> newBucket(sessionRate, sessionBurst));
+			exhausted = TokenBucket.tryAcquire(connectionBucket, sessionBucket);
+		} else {
+			exhausted = connectionBucket.tryAcquire() ? null : connectionBucket;
+		}
+		if (exhausted == null) {
+			return;
+		}
+		if (exhausted == connectionBucket) {
+			throttledByConnection.incrementAndGet();
+			log.debug("Participant {} exceeded its signal rate limit", participant.getParticipantPublicId());
+			throw new OpenViduException(Code.SIGNAL_RATE_LIMIT_ERROR_CODE,
+					"Too many messages sent by connection " + participant.getParticipantPublicId());
+		}
+		throttledBySession.incrementAndGet();
+		log.debug("Session {} exceeded its signal rate limit", session.getSessionId());
+		throw new OpenViduException(Code.SIGNAL_RATE_LIMIT_ERROR_CODE,
+				"Too many messages sent to session " + session.getSessionId());
+	}
+
+	public long getThrottledByConnection() {
+		return throttledByConnection.get();
+	}
+
+	public long getThrottledBySession() {
+		return throttledBySession.get();
+	}
+
+	public JsonObject toJson() {
+		JsonObject json = new JsonObject();
+		json.addProperty("connectionRate", this.connectionRate);
+		json.addProperty("connectionBurst", this.connectionBurst);
+		json.addProperty("sessionRate", this.sessionRate);
+		json.addProperty("sessionBurst", this.sessionBurst);
+		json.addProperty("throttledByConnection", this.getThrottledByConnection());
+		json.addProperty("throttledBySession", this.getThrottledBySession());
+		return json;
+	}
+
+	private TokenBucket newConnectionBucket(Participant participant) {
+		double rate = this.connectionRate;
+		int burst = this.connectionBurst;
+		KurentoTokenOptions options = participant.getToken() != null
+				? participant.getToken().getKurentoTokenOptions()
+				: null;
+		if (options != null) {
+			if (options.getSignalRate() != null) {
+				rate = options.getSignalRate();
+			}
+			if (options.getSignalBurst() != null) {
+				burst = options.getSignalBurst();
+			}
+		}
+		return newBucket(rate, burst);
+	}
+
+	/**
+	 * A burst of 0 allows one second worth of messages at once
+	 */
+	private static TokenBucket newBucket(double rate, int burst) {
+		return new TokenBucket(rate, burst > 0 ? burst : (int) Math.ceil(rate));
+	}
+
+}
@@ -0,0 +1,159 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free ring buffer with many producers and many independent readers.
+ * Publishing never blocks: once the buffer is full the oldest items are
+ * overwritten, and readers that had not consumed them yet skip them and count
+ * them as dropped. Every reader owns a {@link Cursor} that must be polled from
+ * a single thread
+ */
+public class BroadcastRingBuffer<T> {
+
+	private static class Slot<T> {
+
+		final long sequence;
+		final T item;
+
+		Slot(long sequence, T item) {
+			this.sequence = sequence;
+			this.item = item;
+		}
+	}
+
+	/**
+	 * Position of a reader in the buffer
+	 */
+	public static class Cursor {
+
+		// Only written by the thread polling the cursor
+		private volatile long next;
+		private volatile long delivered = 0;
+		private volatile long dropped = 0;
+
+		private Cursor(long next) {
+			this.next = next;
+		}
+
+		public long getDelivered() {
+			return delivered;
+		}
+
+		public long getDropped() {
+			return dropped;
+		}
+	}
+
+	private final int capacity;
+	private final int mask;
+	private final AtomicReferenceArray<Slot<T>> slots;
+	private final AtomicLong tail = new AtomicLong(0);
+
+	/**
+	 * @param capacity minimum number of items kept in the buffer. Rounded up to
+	 *                 the next power of two
+	 */
+	public BroadcastRingBuffer(int capacity) {
+		int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+		this.capacity = size;
+		this.mask = size - 1;
+		this.slots = new AtomicReferenceArray<>(size);
+	}
+
+	/**
+	 * Stores an item, overwriting the oldest one if the buffer is full. A
+	 * producer that stalls after claiming its sequence never overwrites an item
+	 * published after it a lap later: its own item is dropped instead
+	 *
+	 * @return sequence number of the item
+	 */
+	public long publish(T item) {
+		long sequence = tail.getAndIncrement();
+		int index = (int) (sequence & mask);
+		Slot<T> slot = new Slot<>(sequence, item);
+		Slot<T> current = slots.get(index);
+		while (current == null || current.sequence < sequence) {
+			if (slots.compareAndSet(index, current, slot)) {
+				break;
+			}
+			current = slots.get(index);
+		}
+		return sequence;
+	}
+
+	/**
+	 * @return new cursor that reads the items published from now on
+	 */
+	public Cursor newCursor() {
+		return new Cursor(tail.get());
+	}
+
+	/**
+	 * @return next item for the cursor, or null if it has read every item
+	 *         published so far
+	 */
+	public T poll(Cursor cursor) {
+		while (true) {
+			long next = cursor.next;
+			long published = tail.get();
+			if (next >= published) {
+				return null;
+			}
+			if (published - next > capacity) {
+				// The reader lagged more than a whole lap
+				cursor.dropped += published - capacity - next;
+				next = published - capacity;
+				cursor.next = next;
+			}
+			Slot<T> slot = slots.get((int) (next & mask));
+			if (slot == null || slot.sequence < next) {
+				// Sequence claimed by a producer that has not stored its item yet
+				return null;
+			}
+			cursor.next = next + 1;
+			if (slot.sequence > next) {
+				// Overwritten before being read
+				cursor.dropped++;
+				continue;
+			}
+			cursor.delivered++;
+			return slot.item;
+		}
+	}
+
+	/**
+	 * @return number of items published but not read yet by the cursor,
+	 *         including the ones that will be dropped
+	 */
+	public long getLag(Cursor cursor) {
+		return Math.max(0, tail.get() - cursor.next);
+	}
+
+	public long getPublished() {
+		return tail.get();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+}
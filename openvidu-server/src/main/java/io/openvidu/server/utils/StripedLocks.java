@@ -0,0 +1,57 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.utils;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of reentrant locks indexed by the hash of a key. Operations over
+ * the same key are always serialized, while operations over different keys run
+ * in parallel unless both keys fall in the same stripe. The number of locks is
+ * bounded, so no cleanup is needed when a key is no longer in use
+ */
+public class StripedLocks {
+
+	private final ReentrantLock[] locks;
+	private final int mask;
+
+	public StripedLocks(int stripes) {
+		int size = 1;
+		while (size < stripes) {
+			size <<= 1;
+		}
+		this.locks = new ReentrantLock[size];
+		for (int i = 0; i < size; i++) {
+			this.locks[i] = new ReentrantLock();
+		}
+		this.mask = size - 1;
+	}
+
+	public Lock get(String key) {
+		int h = key.hashCode();
+		// Spread higher bits to lower ones, as keys may only differ in their suffix
+		h ^= (h >>> 16);
+		return this.locks[h & this.mask];
+	}
+
+	public int size() {
+		return this.locks.length;
+	}
+
+}
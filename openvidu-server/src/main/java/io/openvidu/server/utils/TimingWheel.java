@@ -0,0 +1,378 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.utils;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hashed timing wheel able to track the expiration of a very large number of
+ * objects. Scheduling and cancelling a timeout are O(1), and on every tick only
+ * the bucket of the current tick is visited, so expired objects are reclaimed
+ * without scanning all of them. Timeouts longer than a whole rotation of the
+ * wheel stay in their bucket for the remaining number of rotations. Expiration
+ * precision is one tick
+ */
+public class TimingWheel {
+
+	private static final Logger log = LoggerFactory.getLogger(TimingWheel.class);
+
+	private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+	private static final int ST_INIT = 0;
+	private static final int ST_CANCELLED = 1;
+	private static final int ST_EXPIRED = 2;
+
+	/**
+	 * Handle of a task scheduled in a {@link TimingWheel}
+	 */
+	public interface Timeout {
+
+		/**
+		 * Cancels the task if it has not been run yet
+		 *
+		 * @return true if the task was cancelled, false if it had already expired or
+		 *         been cancelled
+		 */
+		boolean cancel();
+
+		boolean isCancelled();
+
+		boolean isExpired();
+	}
+
+	private final String name;
+	private final long tickDuration;
+	private final Bucket[] wheel;
+	private final int mask;
+	private final ExecutorService taskExecutor;
+	private final LongSupplier clock;
+	private final boolean manual;
+	private final long startTime;
+
+	private final Queue<WheelTimeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+	private final Queue<WheelTimeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+	private final AtomicLong scheduledCount = new AtomicLong(0);
+
+	private final AtomicBoolean started = new AtomicBoolean(false);
+	private volatile boolean stopped = false;
+	private Thread worker;
+	private long tick = 0;
+
+	/**
+	 * @param name          name of the worker thread
+	 * @param tickDuration  duration of every tick
+	 * @param unit          time unit of the tick duration
+	 * @param ticksPerWheel number of buckets of the wheel. Rounded up to a power
+	 *                      of two
+	 * @param taskThreads   number of threads running the expired tasks. 0 to run
+	 *                      them in the worker thread, which is only advisable for
+	 *                      tasks that never block
+	 */
+	public TimingWheel(String name, long tickDuration, TimeUnit unit, int ticksPerWheel, int taskThreads) {
+		this(name, tickDuration, unit, ticksPerWheel, taskThreads, null);
+	}
+
+	/**
+	 * @param clock source of the current time in nanoseconds. If not null, no
+	 *              worker thread is started and expired timeouts are only
+	 *              processed when {@link #advance()} is called
+	 */
+	public TimingWheel(String name, long tickDuration, TimeUnit unit, int ticksPerWheel, int taskThreads,
+			LongSupplier clock) {
+		if (tickDuration <= 0 || ticksPerWheel <= 0) {
+			throw new IllegalArgumentException("tickDuration and ticksPerWheel must be greater than 0");
+		}
+		this.name = name;
+		this.tickDuration = unit.toNanos(tickDuration);
+		int size = Integer.highestOneBit(ticksPerWheel - 1) << 1;
+		this.wheel = new Bucket[Math.max(size, 1)];
+		for (int i = 0; i < this.wheel.length; i++) {
+			this.wheel[i] = new Bucket();
+		}
+		this.mask = this.wheel.length - 1;
+		this.manual = clock != null;
+		this.clock = clock != null ? clock : System::nanoTime;
+		this.startTime = this.clock.getAsLong();
+		if (taskThreads > 0) {
+			final AtomicInteger threadCount = new AtomicInteger();
+			this.taskExecutor = Executors.newFixedThreadPool(taskThreads, r -> {
+				Thread t = new Thread(r, name + "-task-" + threadCount.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			});
+		} else {
+			this.taskExecutor = null;
+		}
+	}
+
+	/**
+	 * Schedules a task to be run once after the given delay
+	 *
+	 * @return handle to cancel the task
+	 */
+	public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+		if (stopped) {
+			throw new IllegalStateException("TimingWheel " + name + " has been stopped");
+		}
+		if (!this.manual) {
+			this.start();
+		}
+		long deadline = this.clock.getAsLong() + unit.toNanos(Math.max(delay, 0)) - startTime;
+		WheelTimeout timeout = new WheelTimeout(task, deadline);
+		this.scheduledCount.incrementAndGet();
+		this.pendingTimeouts.add(timeout);
+		return timeout;
+	}
+
+	/**
+	 * @return number of tasks scheduled that have not expired or been cancelled
+	 *         yet
+	 */
+	public long getScheduledCount() {
+		return this.scheduledCount.get();
+	}
+
+	/**
+	 * Processes in the calling thread every tick elapsed up to the current time of
+	 * the clock given to the constructor
+	 *
+	 * @throws IllegalStateException if the wheel has no external clock
+	 */
+	public synchronized void advance() {
+		if (!this.manual) {
+			throw new IllegalStateException("TimingWheel " + name + " is driven by its worker thread");
+		}
+		long currentTime = this.clock.getAsLong() - startTime;
+		while (!stopped && tickDuration * (tick + 1) <= currentTime) {
+			this.processTick(currentTime);
+		}
+	}
+
+	@PreDestroy
+	public void stop() {
+		this.stopped = true;
+		if (this.worker != null) {
+			this.worker.interrupt();
+		}
+		if (this.taskExecutor != null) {
+			this.taskExecutor.shutdownNow();
+		}
+	}
+
+	private void start() {
+		if (this.started.compareAndSet(false, true)) {
+			this.worker = new Thread(this::run, name);
+			this.worker.setDaemon(true);
+			this.worker.start();
+		}
+	}
+
+	private void run() {
+		while (!stopped) {
+			long deadline = this.waitForNextTick();
+			if (deadline < 0) {
+				break;
+			}
+			this.processTick(deadline);
+		}
+	}
+
+	private void processTick(long currentTime) {
+		this.processCancelledTimeouts();
+		this.transferTimeoutsToBuckets();
+		this.wheel[(int) (tick & mask)].expireTimeouts(currentTime);
+		tick++;
+	}
+
+	private long waitForNextTick() {
+		long deadline = tickDuration * (tick + 1);
+		while (true) {
+			long currentTime = this.clock.getAsLong() - startTime;
+			long sleepMillis = (deadline - currentTime + 999_999) / 1_000_000;
+			if (sleepMillis <= 0) {
+				return currentTime;
+			}
+			try {
+				Thread.sleep(sleepMillis);
+			} catch (InterruptedException e) {
+				if (stopped) {
+					return -1;
+				}
+			}
+		}
+	}
+
+	private void transferTimeoutsToBuckets() {
+		for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+			WheelTimeout timeout = this.pendingTimeouts.poll();
+			if (timeout == null) {
+				break;
+			}
+			if (timeout.state.get() == ST_CANCELLED) {
+				continue;
+			}
+			long calculated = timeout.deadline / tickDuration;
+			timeout.remainingRounds = (calculated - tick) / wheel.length;
+			long ticks = Math.max(calculated, tick);
+			this.wheel[(int) (ticks & mask)].add(timeout);
+		}
+	}
+
+	private void processCancelledTimeouts() {
+		WheelTimeout timeout;
+		while ((timeout = this.cancelledTimeouts.poll()) != null) {
+			if (timeout.bucket != null) {
+				timeout.bucket.remove(timeout);
+			}
+		}
+	}
+
+	private void runTask(WheelTimeout timeout) {
+		try {
+			if (this.taskExecutor != null) {
+				this.taskExecutor.execute(timeout.task);
+			} else {
+				timeout.task.run();
+			}
+		} catch (Throwable t) {
+			log.warn("Error running task expired in TimingWheel {}", name, t);
+		}
+	}
+
+	private final class WheelTimeout implements Timeout {
+
+		final Runnable task;
+		final long deadline;
+		final AtomicInteger state = new AtomicInteger(ST_INIT);
+		long remainingRounds;
+
+		// Only accessed by the worker thread
+		Bucket bucket;
+		WheelTimeout next;
+		WheelTimeout prev;
+
+		WheelTimeout(Runnable task, long deadline) {
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		@Override
+		public boolean cancel() {
+			if (!state.compareAndSet(ST_INIT, ST_CANCELLED)) {
+				return false;
+			}
+			scheduledCount.decrementAndGet();
+			cancelledTimeouts.add(this);
+			return true;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return state.get() == ST_CANCELLED;
+		}
+
+		@Override
+		public boolean isExpired() {
+			return state.get() == ST_EXPIRED;
+		}
+
+		void expire() {
+			if (state.compareAndSet(ST_INIT, ST_EXPIRED)) {
+				scheduledCount.decrementAndGet();
+				runTask(this);
+			}
+		}
+	}
+
+	/**
+	 * Doubly linked list of timeouts, only accessed by the worker thread
+	 */
+	private final class Bucket {
+
+		private WheelTimeout head;
+		private WheelTimeout tail;
+
+		void add(WheelTimeout timeout) {
+			timeout.bucket = this;
+			if (head == null) {
+				head = tail = timeout;
+			} else {
+				tail.next = timeout;
+				timeout.prev = tail;
+				tail = timeout;
+			}
+		}
+
+		void expireTimeouts(long deadline) {
+			WheelTimeout timeout = head;
+			while (timeout != null) {
+				WheelTimeout next = timeout.next;
+				if (timeout.remainingRounds <= 0) {
+					this.remove(timeout);
+					if (timeout.deadline <= deadline) {
+						timeout.expire();
+					} else {
+						// Placed in a wrong bucket. Should never happen
+						log.error("Timeout deadline {} is later than current tick deadline {}", timeout.deadline,
+								deadline);
+					}
+				} else if (timeout.isCancelled()) {
+					this.remove(timeout);
+				} else {
+					timeout.remainingRounds--;
+				}
+				timeout = next;
+			}
+		}
+
+		void remove(WheelTimeout timeout) {
+			if (timeout.bucket != this) {
+				return;
+			}
+			if (timeout.prev != null) {
+				timeout.prev.next = timeout.next;
+			}
+			if (timeout.next != null) {
+				timeout.next.prev = timeout.prev;
+			}
+			if (timeout == head) {
+				head = timeout.next;
+			}
+			if (timeout == tail) {
+				tail = timeout.prev;
+			}
+			timeout.prev = null;
+			timeout.next = null;
+			timeout.bucket = null;
+		}
+	}
+
+}
@@ -0,0 +1,127 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.utils;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Token bucket rate limiter. The bucket holds up to <code>burst</code> tokens
+ * and is refilled with <code>ratePerSecond</code> tokens per second. Every
+ * allowed operation takes one token. A bucket with a rate of 0 or less never
+ * limits
+ */
+public class TokenBucket {
+
+	private final double ratePerNano;
+	private final double burst;
+	private final LongSupplier clock;
+
+	// Guarded by this
+	private double tokens;
+	private long lastRefill;
+
+	public TokenBucket(double ratePerSecond, int burst) {
+		this(ratePerSecond, burst, System::nanoTime);
+	}
+
+	/**
+	 * @param clock source of the current time in nanoseconds
+	 */
+	public TokenBucket(double ratePerSecond, int burst, LongSupplier clock) {
+		this.ratePerNano = ratePerSecond / 1_000_000_000d;
+		this.burst = Math.max(burst, 1);
+		this.clock = clock;
+		this.tokens = this.burst;
+		this.lastRefill = clock.getAsLong();
+	}
+
+	public boolean isUnlimited() {
+		return ratePerNano <= 0;
+	}
+
+	/**
+	 * Takes one token from the bucket if available. Never blocks
+	 *
+	 * @return false if the operation must be throttled
+	 */
+	public boolean tryAcquire() {
+		if (this.isUnlimited()) {
+			return true;
+		}
+		synchronized (this) {
+			if (!this.hasToken()) {
+				return false;
+			}
+			tokens--;
+			return true;
+		}
+	}
+
+	/**
+	 * Takes one token from each bucket only if both of them have one available,
+	 * so a throttled operation never consumes a token of the other bucket. Both
+	 * buckets are locked in the order they are given: callers must always pass
+	 * them in the same order
+	 *
+	 * @return null if the operation is allowed, or the first bucket without tokens
+	 */
+	public static TokenBucket tryAcquire(TokenBucket first, TokenBucket second) {
+		synchronized (first) {
+			synchronized (second) {
+				if (!first.isUnlimited() && !first.hasToken()) {
+					return first;
+				}
+				if (!second.isUnlimited() && !second.hasToken()) {
+					return second;
+				}
+				if (!first.isUnlimited()) {
+					first.tokens--;
+				}
+				if (!second.isUnlimited()) {
+					second.tokens--;
+				}
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Returns the bucket held by <code>reference</code>, setting it with a new one
+	 * created by <code>supplier</code> if it is still empty. If many threads race
+	 * to set it, all of them get the bucket of the first one
+	 */
+	public static TokenBucket getOrCreate(AtomicReference<TokenBucket> reference, Supplier<TokenBucket> supplier) {
+		TokenBucket bucket = reference.get();
+		if (bucket == null) {
+			reference.compareAndSet(null, supplier.get());
+			bucket = reference.get();
+		}
+		return bucket;
+	}
+
+	// Must be called holding the monitor of this bucket
+	private boolean hasToken() {
+		long now = clock.getAsLong();
+		tokens = Math.min(burst, tokens + (now - lastRefill) * ratePerNano);
+		lastRefill = now;
+		return tokens >= 1;
+	}
+
+}
@@ -0,0 +1,209 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.kurento.jsonrpc.JsonUtils;
+import org.kurento.jsonrpc.internal.ws.WebSocketServerSession;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import io.openvidu.server.rpc.RpcNotificationService;
+import io.openvidu.server.rpc.RpcOutboundQueue.OverflowPolicy;
+
+/**
+ * Checks that a notification sent to many participants is serialized once and
+ * the same frame is written to every websocket, and the cases that fall back
+ * to sending it to each participant on its own
+ */
+public class BroadcastNotificationTest {
+
+  private static final int RECIPIENTS = 4;
+  private static final String METHOD = "participantJoined";
+
+  private final List<TextMessage> frames = new CopyOnWriteArrayList<>();
+  private final JsonObject params = new JsonObject();
+
+  private boolean injectSessionId;
+  private RpcNotificationService rpcNotificationService;
+
+  @Before
+  public void setup() throws Exception {
+    injectSessionId = injectSessionIdField().getBoolean(null);
+    params.addProperty("id", "con_1");
+  }
+
+  @After
+  public void shutdown() throws Exception {
+    Field field = injectSessionIdField();
+    if (!Modifier.isFinal(field.getModifiers())) {
+      field.setBoolean(null, injectSessionId);
+    }
+    if (rpcNotificationService != null) {
+      rpcNotificationService.close();
+    }
+  }
+
+  @Test
+  public void everyRecipientGetsTheSameFrame() throws Exception {
+    setInjectSessionId(false);
+    rpcNotificationService = new RpcNotificationService();
+    List<WebSocketServerSession> websockets = websockets(new CountDownLatch(RECIPIENTS));
+
+    rpcNotificationService.broadcastNotification(ids(), METHOD, params);
+
+    assertEquals(RECIPIENTS, frames.size());
+    for (TextMessage frame : frames) {
+      assertSame("The notification is serialized once", frames.get(0), frame);
+    }
+    JsonObject json = new JsonParser().parse(frames.get(0).getPayload()).getAsJsonObject();
+    assertEquals(METHOD, json.get("method").getAsString());
+    assertEquals(params, json.get("params"));
+    for (WebSocketServerSession websocket : websockets) {
+      verify(websocket, never()).sendNotification(any(String.class), any());
+    }
+  }
+
+  @Test
+  public void queuedRecipientsGetTheSameFrame() throws Exception {
+    setInjectSessionId(false);
+    rpcNotificationService = new RpcNotificationService(100, OverflowPolicy.DROP_OLDEST, 2);
+    CountDownLatch sent = new CountDownLatch(RECIPIENTS);
+    websockets(sent);
+
+    rpcNotificationService.broadcastNotification(ids(), METHOD, params);
+
+    assertTrue("Every queued frame is written", sent.await(5, TimeUnit.SECONDS));
+    for (TextMessage frame : frames) {
+      assertSame(frames.get(0), frame);
+    }
+  }
+
+  @Test
+  public void framesAreSerializedPerRecipientIfTheyCarryTheirSessionId() throws Exception {
+    setInjectSessionId(true);
+    rpcNotificationService = new RpcNotificationService();
+    List<WebSocketServerSession> websockets = websockets(new CountDownLatch(RECIPIENTS));
+
+    rpcNotificationService.broadcastNotification(ids(), METHOD, params);
+
+    assertTrue(frames.isEmpty());
+    for (WebSocketServerSession websocket : websockets) {
+      verify(websocket).sendNotification(METHOD, params);
+    }
+  }
+
+  @Test
+  public void nonWebsocketRecipientsGetTheirOwnNotification() throws Exception {
+    setInjectSessionId(false);
+    rpcNotificationService = new RpcNotificationService();
+    List<WebSocketServerSession> websockets = websockets(new CountDownLatch(RECIPIENTS));
+    List<Object[]> notifications = new CopyOnWriteArrayList<>();
+    SessionFixture.connect(rpcNotificationService, "other", (proxy, method, args) -> {
+      if ("sendNotification".equals(method.getName())) {
+        notifications.add(args);
+      }
+      return null;
+    });
+    List<String> ids = new ArrayList<>(ids());
+    ids.add("other");
+
+    rpcNotificationService.broadcastNotification(ids, METHOD, params);
+
+    assertEquals(RECIPIENTS, frames.size());
+    assertEquals(1, notifications.size());
+    assertEquals(Arrays.asList(METHOD, params), Arrays.asList(notifications.get(0)));
+    for (WebSocketServerSession websocket : websockets) {
+      verify(websocket, never()).sendNotification(any(String.class), any());
+    }
+  }
+
+  /**
+   * Connects {@link #RECIPIENTS} websockets whose written frames are added to
+   * {@link #frames}, counting down <code>sent</code> for each one
+   */
+  private List<WebSocketServerSession> websockets(CountDownLatch sent) throws Exception {
+    List<WebSocketServerSession> websockets = new ArrayList<>();
+    for (String id : ids()) {
+      WebSocketSession webSocketSession = mock(WebSocketSession.class);
+      doAnswer(invocation -> {
+        frames.add((TextMessage) invocation.getArguments()[0]);
+        sent.countDown();
+        return null;
+      }).when(webSocketSession).sendMessage(any(TextMessage.class));
+      WebSocketServerSession websocket = mock(WebSocketServerSession.class);
+      when(websocket.getSessionId()).thenReturn(id);
+      when(websocket.getWebSocketSession()).thenReturn(webSocketSession);
+      rpcNotificationService.newRpcConnection(SessionFixture.transaction(websocket, (proxy, method, args) -> null),
+          null);
+      websockets.add(websocket);
+    }
+    return websockets;
+  }
+
+  private static List<String> ids() {
+    List<String> ids = new ArrayList<>();
+    for (int i = 0; i < RECIPIENTS; i++) {
+      ids.add("privateId" + i);
+    }
+    return ids;
+  }
+
+  private static Field injectSessionIdField() throws Exception {
+    return JsonUtils.class.getField("INJECT_SESSION_ID");
+  }
+
+  /**
+   * Skips the test if INJECT_SESSION_ID is a constant with another value in
+   * the kurento-jsonrpc version in use
+   */
+  private static void setInjectSessionId(boolean value) throws Exception {
+    Field field = injectSessionIdField();
+    if (Modifier.isFinal(field.getModifiers())) {
+      Assume.assumeTrue("INJECT_SESSION_ID is fixed to " + !value, field.getBoolean(null) == value);
+      return;
+    }
+    field.setBoolean(null, value);
+  }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import io.openvidu.server.utils.BroadcastRingBuffer;
+import io.openvidu.server.utils.BroadcastRingBuffer.Cursor;
+
+public class BroadcastRingBufferTest {
+
+  private static final int PRODUCERS = 8;
+  private static final int ITEMS_PER_PRODUCER = 50_000;
+
+  @Test
+  public void everyCursorReadsEveryItem() {
+    BroadcastRingBuffer<Integer> buffer = new BroadcastRingBuffer<>(8);
+    Cursor first = buffer.newCursor();
+    Cursor second = buffer.newCursor();
+    for (int i = 0; i < 5; i++) {
+      buffer.publish(i);
+    }
+    for (int i = 0; i < 5; i++) {
+      assertEquals(i, (int) buffer.poll(first));
+    }
+    assertNull(buffer.poll(first));
+    assertEquals(0, (int) buffer.poll(second));
+    assertEquals(4, buffer.getLag(second));
+  }
+
+  @Test
+  public void slowCursorDropsOldestItems() {
+    BroadcastRingBuffer<Integer> buffer = new BroadcastRingBuffer<>(4);
+    Cursor cursor = buffer.newCursor();
+    for (int i = 0; i < 10; i++) {
+      buffer.publish(i);
+    }
+    for (int i = 6; i < 10; i++) {
+      assertEquals(i, (int) buffer.poll(cursor));
+    }
+    assertNull(buffer.poll(cursor));
+    assertEquals(6, cursor.getDropped());
+    assertEquals(4, cursor.getDelivered());
+  }
+
+  @Test
+  public void everyItemOfConcurrentProducersIsReadOnce() throws Exception {
+    BroadcastRingBuffer<Integer> buffer = new BroadcastRingBuffer<>(PRODUCERS * ITEMS_PER_PRODUCER);
+    Cursor cursor = buffer.newCursor();
+    publishConcurrently(buffer);
+
+    Set<Integer> read = new HashSet<>();
+    Integer item;
+    while ((item = buffer.poll(cursor)) != null) {
+      assertTrue("Item " + item + " read twice", read.add(item));
+    }
+    assertEquals(PRODUCERS * ITEMS_PER_PRODUCER, read.size());
+    assertEquals(0, cursor.getDropped());
+  }
+
+  @Test
+  public void concurrentProducersNeverOverwriteNewerItems() throws Exception {
+    BroadcastRingBuffer<Integer> buffer = new BroadcastRingBuffer<>(4);
+    Cursor cursor = buffer.newCursor();
+    publishConcurrently(buffer);
+
+    // A slot holding an older item than the last lap would stop the cursor
+    // before the end of the buffer
+    while (buffer.poll(cursor) != null) {
+    }
+    assertEquals(0, buffer.getLag(cursor));
+    assertEquals(PRODUCERS * ITEMS_PER_PRODUCER, cursor.getDelivered() + cursor.getDropped());
+  }
+
+  private static void publishConcurrently(BroadcastRingBuffer<Integer> buffer) throws InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(PRODUCERS);
+    CountDownLatch start = new CountDownLatch(1);
+    for (int p = 0; p < PRODUCERS; p++) {
+      final int producer = p;
+      executor.submit(() -> {
+        start.await();
+        for (int i = 0; i < ITEMS_PER_PRODUCER; i++) {
+          buffer.publish(producer * ITEMS_PER_PRODUCER + i);
+        }
+        return null;
+      });
+    }
+    start.countDown();
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+  }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.kurento.client.KurentoClient;
+import org.kurento.jsonrpc.DefaultJsonRpcHandler;
+import org.kurento.jsonrpc.Transaction;
+import org.kurento.jsonrpc.client.Continuation;
+import org.kurento.jsonrpc.client.JsonRpcClientLocal;
+import org.kurento.jsonrpc.message.Request;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * In-process KMS answering the JSON-RPC requests of a real
+ * {@link KurentoClient}. Responses are sent in the calling thread, unless the
+ * request has been held with {@link #hold(String)}. Requests are recorded as
+ * "method target", e.g. "create WebRtcEndpoint" or "invoke processOffer", and
+ * any of them can be made to fail once with {@link #failNext(String)}
+ */
+class FakeKurento extends DefaultJsonRpcHandler<JsonObject> {
+
+  static final String SDP_ANSWER = "sdp-answer";
+  static final String SDP_OFFER = "sdp-offer";
+  static final long USED_MEMORY = 2048;
+  static final float USED_CPU = 42.5f;
+
+  private final AtomicInteger ids = new AtomicInteger();
+  private final List<String> requests = new ArrayList<>();
+  private final Set<String> failures = new HashSet<>();
+  private final Set<String> held = new HashSet<>();
+  private final List<Runnable> heldRequests = new ArrayList<>();
+
+  private final KurentoClient client = KurentoClient.createFromJsonRpcClient(new JsonRpcClientLocal(this) {
+    @Override
+    public void sendRequest(String method, JsonObject params, Continuation<JsonElement> continuation) {
+      if (!held(method + " " + target(method, params), () -> super.sendRequest(method, params, continuation))) {
+        super.sendRequest(method, params, continuation);
+      }
+    }
+  });
+
+  KurentoClient getClient() {
+    return client;
+  }
+
+  synchronized void failNext(String request) {
+    failures.add(request);
+  }
+
+  /**
+   * Holds the given asynchronous request, which does not reach this KMS until
+   * {@link #releaseHeld()}
+   */
+  synchronized void hold(String request) {
+    held.add(request);
+  }
+
+  void releaseHeld() {
+    List<Runnable> pending;
+    synchronized (this) {
+      held.clear();
+      pending = new ArrayList<>(heldRequests);
+      heldRequests.clear();
+    }
+    pending.forEach(Runnable::run);
+  }
+
+  synchronized List<String> getRequests() {
+    return new ArrayList<>(requests);
+  }
+
+  synchronized int count(String request) {
+    int count = 0;
+    for (String r : requests) {
+      if (r.equals(request)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private synchronized boolean held(String request, Runnable send) {
+    if (!held.contains(request)) {
+      return false;
+    }
+    heldRequests.add(send);
+    return true;
+  }
+
+  @Override
+  public void handleRequest(Transaction transaction, Request<JsonObject> request) throws Exception {
+    JsonObject params = request.getParams();
+    String key = request.getMethod() + " " + target(request.getMethod(), params);
+    boolean fail;
+    synchronized (this) {
+      requests.add(key);
+      fail = failures.remove(key);
+    }
+    if (fail) {
+      transaction.sendError(40000, "FAKE_ERROR", "Failure of " + key, null);
+      return;
+    }
+    JsonObject result = new JsonObject();
+    JsonElement value = value(request.getMethod(), params);
+    if (value != null) {
+      result.add("value", value);
+    }
+    result.addProperty("sessionId", "fake-session");
+    transaction.sendResponse(result);
+  }
+
+  private String target(String method, JsonObject params) {
+    switch (method) {
+    case "create":
+      return params.get("type").getAsString();
+    case "invoke":
+      return params.get("operation").getAsString();
+    case "transaction":
+      return String.valueOf(params.get("operations").getAsJsonArray().size());
+    default:
+      return params != null && params.has("object") ? params.get("object").getAsString() : "";
+    }
+  }
+
+  private JsonElement value(String method, JsonObject params) {
+    switch (method) {
+    case "create":
+      return json(params.get("type").getAsString() + "-" + ids.incrementAndGet());
+    case "subscribe":
+      return json("subscription-" + ids.incrementAndGet());
+    case "invoke":
+      switch (params.get("operation").getAsString()) {
+      case "processOffer":
+        return json(SDP_ANSWER);
+      case "processAnswer":
+      case "generateOffer":
+        return json(SDP_OFFER);
+      case "getUsedMemory":
+        return new JsonPrimitive(USED_MEMORY);
+      case "getUsedCpu":
+        return new JsonPrimitive(USED_CPU);
+      default:
+        return null;
+      }
+    case "transaction":
+      JsonArray responses = new JsonArray();
+      for (JsonElement operation : params.get("operations").getAsJsonArray()) {
+        JsonObject response = new JsonObject();
+        response.addProperty("jsonrpc", "2.0");
+        response.add("id", operation.getAsJsonObject().get("id"));
+        response.add("result", new JsonObject());
+        responses.add(response);
+      }
+      return responses;
+    default:
+      return null;
+    }
+  }
+
+  private static JsonElement json(String value) {
+    JsonObject wrapper = new JsonObject();
+    wrapper.addProperty("value", value);
+    return wrapper.get("value");
+  }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kurento.client.IceCandidate;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import io.openvidu.client.internal.ProtocolElements;
+import io.openvidu.server.kurento.core.IceCandidateCoalescer;
+import io.openvidu.server.rpc.RpcConnection;
+import io.openvidu.server.rpc.RpcNotificationService;
+
+/**
+ * Checks that the ICE candidates of an endpoint gathered during the window are
+ * sent in one notification, that no candidate is lost when they are added
+ * while their buffer is flushed and that they are discarded if the
+ * participant is gone
+ */
+public class IceCandidateCoalescerTest {
+
+  private static final long TIMEOUT_MILLIS = 5000;
+  private static final String PRIVATE_ID = "privateId";
+
+  private final RpcNotificationService rpcNotificationService = mock(RpcNotificationService.class);
+
+  /**
+   * Params of the notifications sent through {@link #rpcNotificationService}
+   */
+  private final List<JsonObject> notifications = new CopyOnWriteArrayList<>();
+
+  private IceCandidateCoalescer coalescer;
+
+  @Before
+  public void setup() {
+    when(rpcNotificationService.getRpcConnection(PRIVATE_ID)).thenReturn(mock(RpcConnection.class));
+    doAnswer(invocation -> {
+      notifications.add((JsonObject) invocation.getArguments()[2]);
+      return null;
+    }).when(rpcNotificationService).sendNotification(eq(PRIVATE_ID), eq(ProtocolElements.ICECANDIDATE_METHOD),
+        any());
+  }
+
+  @After
+  public void shutdown() {
+    if (coalescer != null) {
+      coalescer.shutdown();
+    }
+  }
+
+  @Test
+  public void candidatesOfAWindowAreSentInOneNotification() throws Exception {
+    coalescer = new IceCandidateCoalescer(rpcNotificationService, 100);
+    coalescer.add(PRIVATE_ID, "sender", "endpointA", candidate(0));
+    coalescer.add(PRIVATE_ID, "sender", "endpointA", candidate(1));
+    coalescer.add(PRIVATE_ID, "sender", "endpointB", candidate(2));
+    coalescer.add(PRIVATE_ID, "sender", "endpointA", candidate(3));
+
+    verify(rpcNotificationService, timeout(TIMEOUT_MILLIS).times(2)).sendNotification(eq(PRIVATE_ID),
+        eq(ProtocolElements.ICECANDIDATE_METHOD), any());
+    assertEquals(4, coalescer.getCoalescedCandidates());
+    assertEquals(2, coalescer.getSentNotifications());
+    for (JsonObject params : notifications) {
+      assertEquals("sender", params.get(ProtocolElements.ICECANDIDATE_SENDERCONNECTIONID_PARAM).getAsString());
+      String endpointName = params.get(ProtocolElements.ICECANDIDATE_EPNAME_PARAM).getAsString();
+      List<String> candidates = candidates(params);
+      if ("endpointA".equals(endpointName)) {
+        assertEquals(ids(0, 1, 3), candidates);
+      } else {
+        assertEquals("endpointB", endpointName);
+        assertEquals(ids(2), candidates);
+      }
+    }
+  }
+
+  @Test
+  public void noCandidateIsLostWhenAddedWhileFlushing() throws Exception {
+    final int threads = 4;
+    final int candidatesPerThread = 500;
+    coalescer = new IceCandidateCoalescer(rpcNotificationService, 1);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> adders = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      final int first = t * candidatesPerThread;
+      Thread adder = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        for (int i = first; i < first + candidatesPerThread; i++) {
+          coalescer.add(PRIVATE_ID, "sender", "endpoint", candidate(i));
+        }
+      });
+      adder.start();
+      adders.add(adder);
+    }
+    start.countDown();
+    for (Thread adder : adders) {
+      adder.join(TIMEOUT_MILLIS);
+    }
+
+    int total = threads * candidatesPerThread;
+    long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    while (sentCandidates().size() < total && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    List<String> sent = sentCandidates();
+    assertEquals(total, sent.size());
+    assertEquals("Every candidate is sent once", total, sent.stream().distinct().count());
+    assertEquals(total, coalescer.getCoalescedCandidates());
+    assertEquals(notifications.size(), coalescer.getSentNotifications());
+  }
+
+  @Test
+  public void candidatesOfAGoneParticipantAreDiscarded() throws Exception {
+    when(rpcNotificationService.getRpcConnection(PRIVATE_ID)).thenReturn(null);
+    coalescer = new IceCandidateCoalescer(rpcNotificationService, 10);
+    coalescer.add(PRIVATE_ID, "sender", "endpoint", candidate(0));
+    coalescer.add(PRIVATE_ID, "sender", "endpoint", candidate(1));
+
+    verify(rpcNotificationService, timeout(TIMEOUT_MILLIS)).getRpcConnection(PRIVATE_ID);
+    verify(rpcNotificationService, never()).sendNotification(anyString(), anyString(), any());
+    assertEquals(2, coalescer.getCoalescedCandidates());
+    assertEquals(0, coalescer.getSentNotifications());
+    assertTrue(notifications.isEmpty());
+  }
+
+  private List<String> sentCandidates() {
+    List<String> candidates = new ArrayList<>();
+    for (JsonObject params : notifications) {
+      candidates.addAll(candidates(params));
+    }
+    return candidates;
+  }
+
+  private static List<String> candidates(JsonObject params) {
+    List<String> candidates = new ArrayList<>();
+    JsonArray array = params.getAsJsonArray(ProtocolElements.ICECANDIDATE_CANDIDATES_PARAM);
+    array.forEach(candidate -> candidates
+        .add(candidate.getAsJsonObject().get(ProtocolElements.ICECANDIDATE_CANDIDATE_PARAM).getAsString()));
+    return candidates;
+  }
+
+  private static List<String> ids(int... indexes) {
+    List<String> ids = new ArrayList<>();
+    for (int index : indexes) {
+      ids.add(candidate(index).getCandidate());
+    }
+    return ids;
+  }
+
+  private static IceCandidate candidate(int index) {
+    return new IceCandidate("candidate:" + index + " 1 UDP 2122260223 10.0.0.1 " + (50000 + index) + " typ host",
+        "0", 0);
+  }
+
+}
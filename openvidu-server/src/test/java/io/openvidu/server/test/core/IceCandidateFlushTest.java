@@ -0,0 +1,162 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kurento.client.IceCandidate;
+
+import io.openvidu.java.client.OpenViduRole;
+import io.openvidu.java.client.SessionProperties;
+import io.openvidu.server.cdr.CallDetailRecord;
+import io.openvidu.server.config.OpenviduConfig;
+import io.openvidu.server.core.Participant;
+import io.openvidu.server.core.Session;
+import io.openvidu.server.core.Token;
+import io.openvidu.server.kurento.core.KurentoMediaOptions;
+import io.openvidu.server.kurento.core.KurentoParticipant;
+import io.openvidu.server.kurento.core.KurentoParticipantEndpointConfig;
+import io.openvidu.server.kurento.core.KurentoSession;
+import io.openvidu.server.kurento.endpoint.MediaEndpoint;
+import io.openvidu.server.kurento.endpoint.PublisherEndpoint;
+
+/**
+ * Checks that the remote ICE candidates of an endpoint are sent to an
+ * in-process KMS in a single transaction per flush, a lone candidate without
+ * any transaction, and that the candidates received before the endpoint exists
+ * are all sent once it is created
+ */
+public class IceCandidateFlushTest {
+
+  private static final long TIMEOUT_SECONDS = 5;
+  private static final String ADD_ICE_CANDIDATE = "invoke addIceCandidate";
+
+  private final FakeKurento kms = new FakeKurento();
+  private final CallDetailRecord cdr = new CallDetailRecord(Collections.emptyList()) {
+    @Override
+    public void recordParticipantJoined(Participant participant, String sessionId) {
+    }
+  };
+  private final KurentoParticipantEndpointConfig endpointConfig = new KurentoParticipantEndpointConfig() {
+    @Override
+    public void addEndpointListeners(MediaEndpoint endpoint, String typeOfEndpoint) {
+    }
+
+    @Override
+    public CallDetailRecord getCdr() {
+      return cdr;
+    }
+  };
+
+  private KurentoParticipant publisher;
+
+  @Before
+  public void setup() throws Exception {
+    KurentoSession session = new KurentoSession(
+        new Session("session", new SessionProperties.Builder().build(), new OpenviduConfig(), null),
+        kms.getClient(), null, endpointConfig, false, null, null);
+    session.createPipeline().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    session.join(new Participant(null, "publisher", "publisher", null,
+        new Token("publisher", OpenViduRole.PUBLISHER, "", null, null), null, null, null, null));
+    publisher = (KurentoParticipant) session.getParticipantByPrivateId("publisher");
+  }
+
+  @After
+  public void shutdown() {
+    endpointConfig.close();
+  }
+
+  @Test
+  public void candidatesOfAFlushAreCommittedInOneTransaction() throws Exception {
+    PublisherEndpoint endpoint = createEndpoint();
+    endpoint.addIceCandidates(Arrays.asList(candidate(0), candidate(1), candidate(2)));
+
+    assertEquals(1, kms.count("transaction 3"));
+    assertEquals(0, kms.count(ADD_ICE_CANDIDATE));
+  }
+
+  @Test
+  public void singleCandidateIsAddedWithoutTransaction() throws Exception {
+    PublisherEndpoint endpoint = createEndpoint();
+    endpoint.addIceCandidate(candidate(0));
+
+    assertEquals(1, kms.count(ADD_ICE_CANDIDATE));
+    assertEquals(0, transactions());
+  }
+
+  @Test
+  public void candidatesReceivedDuringAFlushAreCommittedTogether() throws Exception {
+    PublisherEndpoint endpoint = createEndpoint();
+    kms.hold(ADD_ICE_CANDIDATE);
+    endpoint.addIceCandidate(candidate(0));
+    endpoint.addIceCandidate(candidate(1));
+    endpoint.addIceCandidates(Arrays.asList(candidate(2), candidate(3)));
+    assertEquals("The first flush is still in progress", 0, kms.count(ADD_ICE_CANDIDATE));
+    assertEquals(0, transactions());
+
+    kms.releaseHeld();
+    assertEquals(1, kms.count(ADD_ICE_CANDIDATE));
+    assertEquals(1, kms.count("transaction 3"));
+    assertEquals(1, transactions());
+  }
+
+  @Test
+  public void candidatesReceivedBeforeTheEndpointAreReplayed() throws Exception {
+    publisher.addIceCandidate("publisher", candidate(0).getCandidate(), "0", 0);
+    kms.hold("create WebRtcEndpoint");
+    CompletableFuture<PublisherEndpoint> created = publisher.createPublishingEndpoint(mediaOptions());
+    publisher.addIceCandidate("publisher", candidate(1).getCandidate(), "0", 0);
+    publisher.addIceCandidate("publisher", candidate(2).getCandidate(), "0", 0);
+    assertFalse(created.isDone());
+    assertEquals("Buffered until the endpoint exists", 0, transactions());
+
+    kms.releaseHeld();
+    created.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    assertEquals("Every buffered candidate is sent in one transaction", 1, kms.count("transaction 3"));
+    assertEquals(1, transactions());
+    assertEquals(0, kms.count(ADD_ICE_CANDIDATE));
+  }
+
+  private PublisherEndpoint createEndpoint() throws Exception {
+    return publisher.createPublishingEndpoint(mediaOptions()).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+  }
+
+  private long transactions() {
+    return kms.getRequests().stream().filter(r -> r.startsWith("transaction ")).count();
+  }
+
+  private static IceCandidate candidate(int index) {
+    return new IceCandidate("candidate:" + index + " 1 UDP 2122260223 10.0.0.1 " + (50000 + index) + " typ host",
+        "0", 0);
+  }
+
+  private static KurentoMediaOptions mediaOptions() {
+    return new KurentoMediaOptions(true, "publisher-offer", null, null, true, true, true, true, "CAMERA", 30, "{}",
+        null, false);
+  }
+
+}
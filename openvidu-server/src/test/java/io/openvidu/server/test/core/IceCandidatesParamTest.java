@@ -0,0 +1,74 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.kurento.jsonrpc.message.Request;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import io.openvidu.client.internal.IceCandidate;
+import io.openvidu.client.internal.ProtocolElements;
+import io.openvidu.server.rpc.RpcHandler;
+
+public class IceCandidatesParamTest {
+
+  private static final String VALID = "{\"candidate\":\"candidate:1 1 UDP 1 10.0.0.1 5000 typ host\",\"sdpMid\":\"0\",\"sdpMLineIndex\":0}";
+
+  @Test
+  public void validCandidatesAreParsed() {
+    List<IceCandidate> candidates = RpcHandler.getIceCandidatesParam(request("[" + VALID + "," + VALID + "]"),
+        ProtocolElements.ONICECANDIDATE_CANDIDATES_PARAM);
+    assertEquals(2, candidates.size());
+    assertEquals("0", candidates.get(1).getSdpMid());
+    assertEquals(0, candidates.get(1).getSdpMLineIndex());
+  }
+
+  @Test
+  public void invalidCandidatesAreRejected() {
+    assertRejected("{}", "must be an array");
+    assertRejected("[" + VALID + ",null]", "Element 1");
+    assertRejected("[" + VALID + ",\"candidate\"]", "Element 1");
+    assertRejected("[{\"candidate\":\"c\",\"sdpMLineIndex\":0}]", "Element 0");
+    assertRejected("[{\"candidate\":\"c\",\"sdpMid\":\"0\",\"sdpMLineIndex\":\"zero\"}]", "Element 0");
+  }
+
+  private static void assertRejected(String candidates, String expectedMessage) {
+    try {
+      RpcHandler.getIceCandidatesParam(request(candidates), ProtocolElements.ONICECANDIDATE_CANDIDATES_PARAM);
+      fail("Candidates " + candidates + " should be rejected");
+    } catch (RuntimeException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains(expectedMessage));
+    }
+  }
+
+  private static Request<JsonObject> request(String candidates) {
+    JsonObject params = new JsonObject();
+    params.addProperty(ProtocolElements.ONICECANDIDATE_EPNAME_PARAM, "endpoint");
+    params.add(ProtocolElements.ONICECANDIDATE_CANDIDATES_PARAM, new JsonParser().parse(candidates));
+    return new Request<>(ProtocolElements.ONICECANDIDATE_METHOD, params);
+  }
+
+}
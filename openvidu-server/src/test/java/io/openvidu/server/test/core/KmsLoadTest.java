@@ -0,0 +1,120 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.function.DoubleSupplier;
+
+import org.junit.Test;
+
+import io.openvidu.server.kurento.kms.Kms;
+import io.openvidu.server.kurento.kms.KmsManager;
+import io.openvidu.server.kurento.kms.MaxWebRtcLoadManager;
+import io.openvidu.server.kurento.kms.WeightedLoadManager;
+
+public class KmsLoadTest {
+
+  @Test
+  public void loadIsCalculatedFromLocalCounters() {
+    Kms kms = new Kms(null, "ws://localhost:8888/kurento");
+    kms.setLoadManager(new MaxWebRtcLoadManager(2));
+    assertEquals(0, kms.getLoad(), 0);
+    kms.pipelineCreated();
+    assertEquals(0.5, kms.getLoad(), 0);
+    assertTrue(kms.allowMoreElements());
+    kms.pipelineCreated();
+    assertFalse(kms.allowMoreElements());
+    kms.pipelineReleased();
+    assertTrue(kms.allowMoreElements());
+  }
+
+  @Test
+  public void countersNeverGoBelowZero() {
+    Kms kms = new Kms(null, "ws://localhost:8888/kurento");
+    kms.webRtcEndpointReleased();
+    kms.recorderReleased();
+    assertEquals(0, kms.getWebRtcEndpointCount());
+    assertEquals(0, kms.getRecorderCount());
+    kms.reconcile(3, 5, 1, 0, 0);
+    kms.webRtcEndpointReleased();
+    assertEquals(4, kms.getWebRtcEndpointCount());
+  }
+
+  @Test
+  public void weightedLoadIsTheHighestOfElementsMemoryAndCpu() {
+    Kms kms = new Kms(null, "ws://localhost:8888/kurento");
+    kms.setLoadManager(new WeightedLoadManager(1, 1, 20, 5, 3, 100, 1000, 80));
+    kms.pipelineCreated();
+    kms.webRtcEndpointCreated();
+    assertEquals(0.02, kms.getLoad(), 1e-9);
+    kms.compositeCreated();
+    assertEquals(0.22, kms.getLoad(), 1e-9);
+    kms.setUsedMemory(500);
+    assertEquals(0.5, kms.getLoad(), 1e-9);
+    assertTrue(kms.allowMoreElements());
+    kms.setUsedCpu(60);
+    assertEquals(0.75, kms.getLoad(), 1e-9);
+    kms.setUsedCpu(-1);
+    assertEquals("Unknown CPU usage is ignored", 0.5, kms.getLoad(), 1e-9);
+    kms.setUsedMemory(1200);
+    assertEquals(1, kms.getLoad(), 0);
+    assertFalse(kms.allowMoreElements());
+  }
+
+  @Test
+  public void cpuIsIgnoredWithoutLimit() {
+    Kms kms = new Kms(null, "ws://localhost:8888/kurento");
+    kms.setLoadManager(new WeightedLoadManager(1, 1, 20, 5, 3, 100, 0, 0));
+    kms.setUsedCpu(100);
+    kms.setUsedMemory(1_000_000);
+    assertEquals(0, kms.getLoad(), 0);
+  }
+
+  @Test
+  public void memoryAndCpuAreSampledFromEveryConnectedKms() throws Exception {
+    FakeKurento kurento = new FakeKurento();
+    Kms connected = new Kms(kurento.getClient(), "ws://kms1:8888/kurento");
+    Kms disconnected = new Kms(null, "ws://kms2:8888/kurento");
+    disconnected.setConnected(false);
+    disconnected.setUsedMemory(100);
+    disconnected.setUsedCpu(10);
+    KmsManager kmsManager = new KmsManager() {
+    };
+    kmsManager.addKms(connected);
+    kmsManager.addKms(disconnected);
+
+    kmsManager.sampleTelemetry();
+    awaitSample(connected::getUsedMemory);
+    awaitSample(connected::getUsedCpu);
+    assertEquals(FakeKurento.USED_MEMORY, connected.getUsedMemory());
+    assertEquals(FakeKurento.USED_CPU, connected.getUsedCpu(), 1e-6);
+    assertEquals(1, kurento.count("invoke getUsedCpu"));
+    assertEquals(-1, disconnected.getUsedMemory());
+    assertEquals(-1, disconnected.getUsedCpu(), 0);
+  }
+
+  private static void awaitSample(DoubleSupplier sample) throws InterruptedException {
+    for (int i = 0; i < 500 && sample.getAsDouble() < 0; i++) {
+      Thread.sleep(10);
+    }
+  }
+
+}
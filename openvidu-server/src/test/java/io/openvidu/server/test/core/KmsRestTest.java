@@ -0,0 +1,116 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kurento.client.KurentoClient;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import io.openvidu.server.kurento.KurentoClientProvider;
+import io.openvidu.server.kurento.KurentoClientSessionInfo;
+import io.openvidu.server.kurento.kms.Kms;
+import io.openvidu.server.kurento.kms.KmsManager;
+import io.openvidu.server.kurento.kms.MaxWebRtcLoadManager;
+import io.openvidu.server.rest.SessionRestController;
+
+public class KmsRestTest {
+
+  private SessionRestController controller;
+
+  @Before
+  public void setup() {
+    controller = new SessionRestController();
+  }
+
+  @Test
+  public void everyKmsIsListedWithItsLoad() throws Exception {
+    Kms first = new Kms(null, "ws://kms1:8888/kurento");
+    first.pipelineCreated();
+    first.webRtcEndpointCreated();
+    first.webRtcEndpointCreated();
+    Kms second = new Kms(null, "ws://kms2:8888/kurento");
+    second.setConnected(false);
+    KmsManager kmsManager = new KmsManager() {
+    };
+    kmsManager.addKms(first);
+    kmsManager.addKms(second);
+    kmsManager.setLoadManager(new MaxWebRtcLoadManager(4));
+    setKurentoClientProvider(kmsManager);
+
+    JsonObject json = get();
+    assertEquals(2, json.get("numberOfElements").getAsInt());
+    JsonArray content = json.get("content").getAsJsonArray();
+    assertEquals(2, content.size());
+
+    JsonObject kms1 = content.get(0).getAsJsonObject();
+    assertEquals("ws://kms1:8888/kurento", kms1.get("uri").getAsString());
+    assertTrue(kms1.get("connected").getAsBoolean());
+    assertEquals(0.25, kms1.get("load").getAsDouble(), 0);
+    assertEquals(1, kms1.get("pipelines").getAsInt());
+    assertEquals(2, kms1.get("webRtcEndpoints").getAsInt());
+
+    JsonObject kms2 = content.get(1).getAsJsonObject();
+    assertEquals("ws://kms2:8888/kurento", kms2.get("uri").getAsString());
+    assertFalse(kms2.get("connected").getAsBoolean());
+    assertEquals(0, kms2.get("pipelines").getAsInt());
+  }
+
+  @Test
+  public void noKmsIsListedWithoutKmsManager() throws Exception {
+    setKurentoClientProvider(new KurentoClientProvider() {
+      @Override
+      public KurentoClient getKurentoClient(KurentoClientSessionInfo sessionInfo) {
+        return null;
+      }
+
+      @Override
+      public boolean destroyWhenUnused() {
+        return true;
+      }
+    });
+
+    JsonObject json = get();
+    assertEquals(0, json.get("numberOfElements").getAsInt());
+    assertEquals(0, json.get("content").getAsJsonArray().size());
+  }
+
+  private JsonObject get() {
+    ResponseEntity<?> response = controller.getMediaServers();
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    return new JsonParser().parse((String) response.getBody()).getAsJsonObject();
+  }
+
+  private void setKurentoClientProvider(KurentoClientProvider kcProvider) throws Exception {
+    Field field = SessionRestController.class.getDeclaredField("kcProvider");
+    field.setAccessible(true);
+    field.set(controller, kcProvider);
+  }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static io.openvidu.server.test.core.SessionFixture.pipeline;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Test;
+import org.kurento.client.Continuation;
+import org.kurento.client.MediaPipeline;
+
+import io.openvidu.server.kurento.kms.MediaPipelinePool;
+
+public class MediaPipelinePoolTest {
+
+  /**
+   * Runs every task in the calling thread
+   */
+  private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1) {
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+  };
+
+  private final AtomicLong now = new AtomicLong(0);
+  private final List<Continuation<MediaPipeline>> creations = new ArrayList<>();
+  private final List<MediaPipeline> released = new ArrayList<>();
+
+  private class TestPool extends MediaPipelinePool {
+
+    TestPool(int minIdle, int maxIdle, long ttlSeconds) {
+      super(null, "ws://localhost:8888/kurento", minIdle, maxIdle, ttlSeconds, scheduler, now::get);
+    }
+
+    @Override
+    protected void createPipeline(Continuation<MediaPipeline> continuation) {
+      creations.add(continuation);
+    }
+  }
+
+  @After
+  public void shutdown() {
+    scheduler.shutdownNow();
+  }
+
+  @Test
+  public void refillsUpToMinIdleWhenOnlyMaxIdleIsSet() throws Exception {
+    TestPool pool = new TestPool(0, 2, 0);
+    pool.refill();
+    assertEquals(2, creations.size());
+    pool.refill();
+    assertEquals("Pending creations count towards the pool size", 2, creations.size());
+    completeCreations();
+    assertEquals(2, pool.getIdleCount());
+
+    assertNotNull(pool.poll());
+    assertEquals("Checking out a pipeline refills the pool", 1, creations.size());
+  }
+
+  @Test
+  public void expiredPipelinesAreReleased() throws Exception {
+    TestPool pool = new TestPool(1, 1, 10);
+    pool.refill();
+    completeCreations();
+    MediaPipeline pooled = pool.poll();
+    assertNotNull(pooled);
+    completeCreations();
+
+    now.addAndGet(10_001);
+    pool.evictExpired();
+    assertEquals(0, pool.getIdleCount());
+    assertEquals(1, released.size());
+    assertTrue("Checked out pipelines never expire", !released.contains(pooled));
+    assertNull(pool.poll());
+    assertEquals("The expired pipeline is replaced", 1, creations.size());
+  }
+
+  @Test
+  public void pipelinesRequestedBeforeResetAreNotPooled() throws Exception {
+    TestPool pool = new TestPool(1, 0, 0);
+    pool.refill();
+    Continuation<MediaPipeline> stale = creations.remove(0);
+
+    pool.reset();
+    assertEquals(1, creations.size());
+    MediaPipeline stalePipeline = pipeline("stale", released);
+    stale.onSuccess(stalePipeline);
+    assertEquals(0, pool.getIdleCount());
+    assertSame(stalePipeline, released.get(0));
+
+    completeCreations();
+    assertEquals(1, pool.getIdleCount());
+    assertEquals(0, pool.getPendingCount());
+    MediaPipeline pooled = pool.poll();
+    assertNotNull(pooled);
+    assertTrue(pooled != stalePipeline);
+    completeCreations();
+    pool.close();
+    assertNull(pool.poll());
+  }
+
+  private void completeCreations() throws Exception {
+    List<Continuation<MediaPipeline>> pending = new ArrayList<>(creations);
+    creations.clear();
+    for (Continuation<MediaPipeline> creation : pending) {
+      String id = "pipeline" + released.size() + "_" + System.identityHashCode(creation);
+      creation.onSuccess(pipeline(id, released));
+    }
+  }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.openvidu.client.OpenViduException;
+import io.openvidu.client.OpenViduException.Code;
+import io.openvidu.server.kurento.OpenViduKurentoClientSessionInfo;
+import io.openvidu.server.kurento.kms.Kms;
+import io.openvidu.server.kurento.kms.MaxWebRtcLoadManager;
+import io.openvidu.server.kurento.kms.MultiKmsManager;
+
+/**
+ * Checks that new sessions are spread among the KMSs even before their
+ * pipelines exist, that a session always gets the KMS it was placed in and
+ * that closing it frees its place
+ */
+public class MultiKmsManagerTest {
+
+  private final Kms kms1 = new Kms(null, "ws://kms1:8888/kurento");
+  private final Kms kms2 = new Kms(null, "ws://kms2:8888/kurento");
+
+  private MultiKmsManager kmsManager;
+
+  @Before
+  public void setup() {
+    kmsManager = new MultiKmsManager(new MaxWebRtcLoadManager(2), kms1, kms2);
+  }
+
+  @Test
+  public void burstOfSessionsIsSpreadBeforeTheirPipelinesExist() {
+    Kms first = place("session1");
+    Kms second = place("session2");
+    assertNotSame(first, second);
+    assertEquals(1, kms1.getPendingSessionCount());
+    assertEquals(1, kms2.getPendingSessionCount());
+
+    // Both KMSs are full until some session is closed
+    place("session3");
+    place("session4");
+    try {
+      place("session5");
+      fail("No KMS allows more sessions");
+    } catch (OpenViduException e) {
+      assertEquals(Code.ROOM_CANNOT_BE_CREATED_ERROR_CODE.getValue(), e.getCodeValue());
+    }
+  }
+
+  @Test
+  public void sessionStaysInItsKms() {
+    Kms kms = place("session");
+    kms.pipelineCreated();
+    kms.removePendingSession("session");
+    assertEquals(0, kms.getPendingSessionCount());
+    assertEquals(0.5, kms.getLoad(), 0);
+
+    assertSame(kms, place("session"));
+    assertEquals("Placed only once", 0, kms.getPendingSessionCount());
+    assertNotSame(kms, place("other"));
+  }
+
+  @Test
+  public void closingASessionFreesItsPlace() {
+    Kms kms = place("session1");
+    place("session2");
+    assertEquals(0.5, kms.getLoad(), 0);
+
+    kmsManager.sessionClosed("session1");
+    assertEquals(0, kms.getPendingSessionCount());
+    assertEquals(0, kms.getLoad(), 0);
+    assertSame("The emptiest KMS is chosen again", kms, place("session3"));
+  }
+
+  private Kms place(String sessionId) {
+    return kmsManager.getKms(new OpenViduKurentoClientSessionInfo(null, sessionId));
+  }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static io.openvidu.server.test.core.SessionFixture.participant;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import io.openvidu.server.core.Participant;
+import io.openvidu.server.test.core.SessionFixture.TestSession;
+
+/**
+ * Checks that the participant indexes of a session agree with its participants
+ */
+public class ParticipantLookupTest {
+
+  private static final int PARTICIPANTS = 1000;
+
+  private static class IndexedSession extends TestSession {
+
+    Participant scanByPublicId(String participantPublicId) {
+      for (Participant p : participants.values()) {
+        if (p.getParticipantPublicId().equals(participantPublicId)) {
+          return p;
+        }
+      }
+      return null;
+    }
+  }
+
+  @Test
+  public void indexIsKeptConsistentOnLeave() {
+    IndexedSession session = new IndexedSession();
+    Participant p = participant(0);
+    session.add(p);
+    assertSame(p, session.getParticipantByPublicId("con_0"));
+    assertSame(p, session.getParticipantByPrivateId("privateId0"));
+    session.remove(p);
+    assertNull(session.getParticipantByPublicId("con_0"));
+    assertNull(session.getParticipantByPrivateId("privateId0"));
+  }
+
+  @Test
+  public void indexMatchesScanAfterJoinsAndLeaves() {
+    IndexedSession session = new IndexedSession();
+    List<Participant> participants = new ArrayList<>();
+    for (int i = 0; i < PARTICIPANTS; i++) {
+      Participant p = participant(i);
+      session.add(p);
+      participants.add(p);
+    }
+    for (int i = 0; i < PARTICIPANTS; i += 2) {
+      session.remove(participants.get(i));
+    }
+    for (int i = 0; i < PARTICIPANTS; i++) {
+      String publicId = participants.get(i).getParticipantPublicId();
+      Participant expected = i % 2 == 0 ? null : participants.get(i);
+      assertSame(expected, session.scanByPublicId(publicId));
+      assertSame(expected, session.getParticipantByPublicId(publicId));
+      assertSame(expected, session.getParticipantByPrivateId(participants.get(i).getParticipantPrivateId()));
+    }
+    assertEquals(PARTICIPANTS / 2, session.getParticipants().size());
+  }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static io.openvidu.server.test.core.SessionFixture.kurentoClientProvider;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.openvidu.client.OpenViduException;
+import io.openvidu.client.OpenViduException.Code;
+import io.openvidu.java.client.OpenViduRole;
+import io.openvidu.java.client.SessionProperties;
+import io.openvidu.server.config.OpenviduConfig;
+import io.openvidu.server.core.Participant;
+import io.openvidu.server.core.Session;
+import io.openvidu.server.core.SessionEventsHandler;
+import io.openvidu.server.core.Token;
+import io.openvidu.server.kurento.OpenViduKurentoClientSessionInfo;
+import io.openvidu.server.kurento.core.KurentoParticipantEndpointConfig;
+import io.openvidu.server.test.core.SessionFixture.TestSessionManager;
+
+/**
+ * Checks that joinRoom returns without waiting for KMS to create the pipeline
+ * of the session, and answers the join once it is created or has failed
+ */
+public class PipelineJoinTest {
+
+  private static final long TIMEOUT_SECONDS = 5;
+
+  private final FakeKurento kms = new FakeKurento();
+  private final BlockingQueue<Answer> answers = new LinkedBlockingQueue<>();
+  private final KurentoParticipantEndpointConfig endpointConfig = SessionFixture.endpointConfig();
+
+  private TestSessionManager sessionManager;
+
+  private static class Answer {
+
+    final Set<Participant> existingParticipants;
+    final OpenViduException error;
+
+    Answer(Set<Participant> existingParticipants, OpenViduException error) {
+      this.existingParticipants = existingParticipants;
+      this.error = error;
+    }
+  }
+
+  @Before
+  public void setup() {
+    OpenviduConfig openviduConfig = new OpenviduConfig();
+    sessionManager = new TestSessionManager(openviduConfig, kurentoClientProvider(kms::getClient));
+    sessionManager.setEndpointConfig(endpointConfig);
+    sessionManager.setSessionEventsHandler(new SessionEventsHandler() {
+      @Override
+      public void onSessionCreated(Session session) {
+      }
+
+      @Override
+      public void onParticipantJoined(Participant participant, String sessionId,
+          Set<Participant> existingParticipants, Integer transactionId, OpenViduException error) {
+        answers.add(new Answer(existingParticipants, error));
+      }
+    });
+    Session sessionNotActive = new Session("session", new SessionProperties.Builder().build(), openviduConfig, null);
+    sessionManager.createSession(sessionNotActive, new OpenViduKurentoClientSessionInfo(null, "session"));
+  }
+
+  @After
+  public void shutdown() {
+    endpointConfig.close();
+  }
+
+  @Test
+  public void joinIsAnsweredOnceThePipelineIsCreated() throws Exception {
+    kms.hold("create MediaPipeline");
+    sessionManager.joinRoom(participant("first"), "session", 1);
+    sessionManager.joinRoom(participant("second"), "session", 2);
+    assertTrue("No join is answered before the pipeline exists", answers.isEmpty());
+    assertEquals("The creation of the pipeline is still held", 0, kms.count("create MediaPipeline"));
+
+    kms.releaseHeld();
+    Answer first = answer();
+    Answer second = answer();
+    assertNull(first.error);
+    assertNull(second.error);
+    assertEquals(0, first.existingParticipants.size());
+    assertEquals(1, second.existingParticipants.size());
+    assertNotNull(sessionManager.getParticipant("session", "first"));
+    assertNotNull(sessionManager.getParticipant("session", "second"));
+    assertEquals(1, kms.count("create MediaPipeline"));
+  }
+
+  @Test
+  public void failedPipelineIsAnsweredWithAnError() throws Exception {
+    kms.failNext("create MediaPipeline");
+    sessionManager.joinRoom(participant("first"), "session", 1);
+    Answer failed = answer();
+    assertEquals(Code.ROOM_CANNOT_BE_CREATED_ERROR_CODE.getValue(), failed.error.getCodeValue());
+    assertEquals(0, sessionManager.getParticipants("session").size());
+
+    // The next participant joining tries to create the pipeline again
+    sessionManager.joinRoom(participant("second"), "session", 2);
+    assertNull(answer().error);
+    assertEquals(2, kms.count("create MediaPipeline"));
+  }
+
+  private Answer answer() throws InterruptedException {
+    Answer answer = answers.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    assertNotNull("The join is answered", answer);
+    return answer;
+  }
+
+  private static Participant participant(String id) {
+    return new Participant(null, id, id, null, new Token(id, OpenViduRole.SUBSCRIBER, "", null, null), null, null,
+        null, null);
+  }
+
+}
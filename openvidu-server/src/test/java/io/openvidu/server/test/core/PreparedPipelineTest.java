@@ -0,0 +1,135 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static io.openvidu.server.test.core.SessionFixture.kurentoClientProvider;
+import static io.openvidu.server.test.core.SessionFixture.pipeline;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kurento.client.Continuation;
+import org.kurento.client.KurentoClient;
+import org.kurento.client.MediaPipeline;
+import org.kurento.client.ServerManager;
+import org.kurento.jsonrpc.client.JsonRpcClient;
+
+import io.openvidu.java.client.SessionProperties;
+import io.openvidu.server.config.OpenviduConfig;
+import io.openvidu.server.core.Session;
+import io.openvidu.server.kurento.OpenViduKurentoClientSessionInfo;
+import io.openvidu.server.kurento.core.KurentoSession;
+import io.openvidu.server.test.core.SessionFixture.TestSessionManager;
+import io.openvidu.server.utils.TimingWheel;
+
+/**
+ * Checks that a session is created in the KMS where its pipeline was prepared
+ * in advance, even if the provider would place it in another one now
+ */
+public class PreparedPipelineTest {
+
+  private final List<MediaPipeline> released = new ArrayList<>();
+
+  private TimingWheel timingWheel;
+  private TestSessionManager sessionManager;
+  private FakeKurentoClient firstKms;
+  private FakeKurentoClient secondKms;
+
+  private class FakeKurentoClient extends KurentoClient {
+
+    final AtomicInteger createdPipelines = new AtomicInteger();
+
+    FakeKurentoClient() {
+      super(new JsonRpcClient() {
+        @Override
+        public void connect() {
+        }
+
+        @Override
+        public void setRequestTimeout(long requestTimeout) {
+        }
+      });
+    }
+
+    @Override
+    public void createMediaPipeline(Continuation<MediaPipeline> continuation) {
+      createdPipelines.incrementAndGet();
+      try {
+        continuation.onSuccess(pipeline("pipeline", released));
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public ServerManager getServerManager() {
+      return null;
+    }
+  }
+
+  @Before
+  public void setup() throws Exception {
+    timingWheel = new TimingWheel("test-wheel", 100, TimeUnit.MILLISECONDS, 64, 1);
+    OpenviduConfig config = new OpenviduConfig() {
+      @Override
+      public boolean isKmsPipelinePrepare() {
+        return true;
+      }
+
+      @Override
+      public int getKmsPipelinePrepareTimeout() {
+        return 60;
+      }
+    };
+    firstKms = new FakeKurentoClient();
+    secondKms = new FakeKurentoClient();
+    // Places the session in a different KMS every time it is asked
+    AtomicInteger placements = new AtomicInteger();
+    sessionManager = new TestSessionManager(config,
+        kurentoClientProvider(() -> placements.getAndIncrement() == 0 ? firstKms : secondKms));
+    sessionManager.setTimingWheel(timingWheel);
+  }
+
+  @After
+  public void shutdown() {
+    timingWheel.stop();
+  }
+
+  @Test
+  public void sessionIsCreatedInTheKmsOfItsPreparedPipeline() {
+    sessionManager.prepare("session");
+    assertEquals(1, firstKms.createdPipelines.get());
+
+    Session sessionNotActive = new Session("session", new SessionProperties.Builder().build(), null, null);
+    sessionManager.createSession(sessionNotActive, new OpenViduKurentoClientSessionInfo(null, "session"));
+
+    KurentoSession session = (KurentoSession) sessionManager.getSession("session");
+    assertSame(firstKms, session.getKurentoClient());
+    assertEquals(0, secondKms.createdPipelines.get());
+    assertTrue("The prepared pipeline is used by the session", released.isEmpty());
+  }
+
+}
@@ -0,0 +1,224 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.openvidu.client.OpenViduException;
+import io.openvidu.client.OpenViduException.Code;
+import io.openvidu.java.client.OpenViduRole;
+import io.openvidu.java.client.SessionProperties;
+import io.openvidu.server.cdr.CallDetailRecord;
+import io.openvidu.server.config.OpenviduConfig;
+import io.openvidu.server.core.EndReason;
+import io.openvidu.server.core.MediaOptions;
+import io.openvidu.server.core.Participant;
+import io.openvidu.server.core.Session;
+import io.openvidu.server.core.Token;
+import io.openvidu.server.kurento.core.KurentoMediaOptions;
+import io.openvidu.server.kurento.core.KurentoParticipant;
+import io.openvidu.server.kurento.core.KurentoParticipantEndpointConfig;
+import io.openvidu.server.kurento.core.KurentoSession;
+import io.openvidu.server.kurento.endpoint.MediaEndpoint;
+import io.openvidu.server.kurento.endpoint.PublisherEndpoint;
+import io.openvidu.server.kurento.endpoint.SdpType;
+
+/**
+ * Checks the lifecycle of the readiness of publisher endpoints, on which
+ * subscriptions are composed instead of blocking, against an in-process KMS
+ */
+public class PublisherReadinessTest {
+
+  private static final long TIMEOUT_SECONDS = 5;
+
+  private final OpenviduConfig openviduConfig = new OpenviduConfig();
+  private final FakeKurento kms = new FakeKurento();
+  private final KurentoParticipantEndpointConfig endpointConfig = new KurentoParticipantEndpointConfig() {
+    @Override
+    public void addEndpointListeners(MediaEndpoint endpoint, String typeOfEndpoint) {
+    }
+
+    @Override
+    public CallDetailRecord getCdr() {
+      return cdr;
+    }
+  };
+  private final CallDetailRecord cdr = new CallDetailRecord(Collections.emptyList()) {
+    @Override
+    public void recordParticipantJoined(Participant participant, String sessionId) {
+    }
+
+    @Override
+    public void recordNewPublisher(Participant participant, String sessionId, String streamId,
+        MediaOptions mediaOptions, Long timestamp) {
+    }
+
+    @Override
+    public void stopPublisher(String participantPublicId, String streamId, EndReason reason) {
+    }
+
+    @Override
+    public void recordNewSubscriber(Participant participant, String sessionId, String streamId,
+        String senderPublicId, Long timestamp) {
+    }
+
+    @Override
+    public void stopSubscriber(String participantPublicId, String senderPublicId, String streamId,
+        EndReason reason) {
+    }
+  };
+
+  private KurentoParticipant publisher;
+  private KurentoParticipant subscriber;
+
+  @Before
+  public void setup() throws Exception {
+    KurentoSession session = new KurentoSession(
+        new Session("session", new SessionProperties.Builder().build(), openviduConfig, null), kms.getClient(), null,
+        endpointConfig, false, null, null);
+    session.createPipeline().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    session.join(participant("publisher", OpenViduRole.PUBLISHER));
+    session.join(participant("subscriber", OpenViduRole.SUBSCRIBER));
+    publisher = (KurentoParticipant) session.getParticipantByPrivateId("publisher");
+    subscriber = (KurentoParticipant) session.getParticipantByPrivateId("subscriber");
+  }
+
+  @After
+  public void shutdown() {
+    endpointConfig.close();
+  }
+
+  @Test
+  public void failedCreationFailsWaitingSubscriptions() throws Exception {
+    CompletableFuture<String> subscription = subscriber.receiveMediaFrom(publisher, "subscriber-offer");
+    assertFalse("Waits for the publisher endpoint", subscription.isDone());
+
+    kms.failNext("create WebRtcEndpoint");
+    assertFailsWith(Code.MEDIA_ENDPOINT_ERROR_CODE, publisher.createPublishingEndpoint(mediaOptions()));
+    assertFailsWith(Code.MEDIA_ENDPOINT_ERROR_CODE, subscription);
+    assertEquals("The endpoint of the failed subscription is released", 1, releasedWebRtcEndpoints());
+
+    // A new publisher endpoint is left ready for the next attempt
+    assertFalse(publisher.getPublisherAsync().isDone());
+    assertEquals(FakeKurento.SDP_ANSWER, publish());
+    assertEquals(FakeKurento.SDP_ANSWER, get(subscriber.receiveMediaFrom(publisher, "subscriber-offer")));
+  }
+
+  @Test
+  public void readinessIsResetOnUnpublish() throws Exception {
+    assertEquals(FakeKurento.SDP_ANSWER, publish());
+    CompletableFuture<PublisherEndpoint> published = publisher.getPublisherAsync();
+    assertTrue(published.isDone());
+
+    publisher.unpublishMedia(EndReason.unpublish);
+    CompletableFuture<PublisherEndpoint> unpublished = publisher.getPublisherAsync();
+    assertNotSame(published, unpublished);
+    assertFalse(unpublished.isDone());
+    assertFalse(publisher.isStreaming());
+  }
+
+  @Test
+  public void subscriptionWaitsForPublishingAgain() throws Exception {
+    publish();
+    String firstStreamId = publisher.getPublisherStreamId();
+    publisher.unpublishMedia(EndReason.unpublish);
+
+    CompletableFuture<String> subscription = subscriber.receiveMediaFrom(publisher, "subscriber-offer");
+    Thread.sleep(100);
+    assertFalse(subscription.isDone());
+
+    assertEquals(FakeKurento.SDP_ANSWER, publish());
+    assertEquals(FakeKurento.SDP_ANSWER, get(subscription));
+    String streamId = subscriber.getNewOrExistingSubscriber(publisher.getParticipantPublicId()).getStreamId();
+    assertEquals(publisher.getPublisherStreamId(), streamId);
+    assertFalse(firstStreamId.equals(streamId));
+  }
+
+  @Test
+  public void leavingFailsWaitingSubscriptions() throws Exception {
+    publish();
+    publisher.unpublishMedia(EndReason.unpublish);
+    CompletableFuture<String> subscription = subscriber.receiveMediaFrom(publisher, "subscriber-offer");
+
+    publisher.close(EndReason.disconnect, true);
+    assertFailsWith(Code.USER_NOT_STREAMING_ERROR_CODE, subscription);
+  }
+
+  @Test
+  public void negotiationDoesNotHoldAnyThread() throws Exception {
+    get(publisher.createPublishingEndpoint(mediaOptions()));
+    kms.hold("invoke processOffer");
+    CompletableFuture<String> answer = publisher.publishToRoom(SdpType.OFFER, "publisher-offer", false, null, null);
+    CompletableFuture<String> subscription = subscriber.receiveMediaFrom(publisher, "subscriber-offer");
+    Thread.sleep(100);
+    assertFalse(answer.isDone());
+    assertFalse(subscription.isDone());
+
+    kms.releaseHeld();
+    assertEquals(FakeKurento.SDP_ANSWER, get(answer));
+    assertTrue(publisher.isStreaming());
+    // The subscriber's offer is only processed once the publisher is ready
+    assertEquals(FakeKurento.SDP_ANSWER, get(subscription));
+  }
+
+  private String publish() throws Exception {
+    get(publisher.createPublishingEndpoint(mediaOptions()));
+    return get(publisher.publishToRoom(SdpType.OFFER, "publisher-offer", false, null, null));
+  }
+
+  private long releasedWebRtcEndpoints() {
+    return kms.getRequests().stream().filter(r -> r.startsWith("release WebRtcEndpoint")).count();
+  }
+
+  private static <T> T get(CompletableFuture<T> future) throws Exception {
+    return future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+  }
+
+  private static void assertFailsWith(Code code, CompletableFuture<?> future) throws Exception {
+    try {
+      get(future);
+      fail("Expected " + code);
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof OpenViduException);
+      assertEquals(code.getValue(), ((OpenViduException) e.getCause()).getCodeValue());
+    }
+  }
+
+  private static KurentoMediaOptions mediaOptions() {
+    return new KurentoMediaOptions(true, "publisher-offer", null, null, true, true, true, true, "CAMERA", 30, "{}",
+        null, false);
+  }
+
+  private static Participant participant(String id, OpenViduRole role) {
+    return new Participant(null, id, id, null, new Token(id, role, "", null, null), null, null, null, null);
+  }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static io.openvidu.server.test.core.SessionFixture.connect;
+import static io.openvidu.server.test.core.SessionFixture.kurentoClientProvider;
+import static io.openvidu.server.test.core.SessionFixture.participant;
+import static io.openvidu.server.test.core.SessionFixture.websocket;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.kurento.jsonrpc.Session;
+import org.kurento.jsonrpc.Transaction;
+import org.kurento.jsonrpc.message.Request;
+
+import com.google.gson.JsonObject;
+
+import io.openvidu.client.internal.ProtocolElements;
+import io.openvidu.server.config.OpenviduConfig;
+import io.openvidu.server.core.Participant;
+import io.openvidu.server.core.SessionEventsHandler;
+import io.openvidu.server.rpc.RpcConnection;
+import io.openvidu.server.rpc.RpcDispatcher;
+import io.openvidu.server.rpc.RpcDispatcher.Mode;
+import io.openvidu.server.rpc.RpcHandler;
+import io.openvidu.server.rpc.RpcNotificationService;
+import io.openvidu.server.test.core.SessionFixture.TestSession;
+import io.openvidu.server.test.core.SessionFixture.TestSessionManager;
+
+public class ResumeConnectionTest {
+
+  private final RpcNotificationService notificationService = new RpcNotificationService();
+
+  @Test
+  public void resumedConnectionKeepsTheStateOfTheSuspendedOne() {
+    RpcConnection first = connect(notificationService, "ws1");
+    first.setIceCandidateArrays(true);
+    notificationService.suspendRpcConnection("ws1");
+    assertTrue(notificationService.isSuspended("ws1"));
+
+    RpcConnection second = connect(notificationService, "ws2");
+    assertFalse(second.isIceCandidateArrays());
+    notificationService.rebindRpcConnection(second, "ws1");
+
+    assertFalse(notificationService.isSuspended("ws1"));
+    assertSame(second, notificationService.getRpcConnection("ws1"));
+    assertEquals("ws1", notificationService.getParticipantPrivateId("ws2"));
+    assertTrue(second.isIceCandidateArrays());
+  }
+
+  @Test
+  public void resumedConnectionKeepsTheStateOfTheOpenOne() {
+    RpcConnection first = connect(notificationService, "ws1");
+    first.setIceCandidateArrays(true);
+
+    // The previous websocket was not closed yet
+    RpcConnection second = connect(notificationService, "ws2");
+    notificationService.rebindRpcConnection(second, "ws1");
+
+    assertSame(second, notificationService.getRpcConnection("ws1"));
+    assertTrue(second.isIceCandidateArrays());
+  }
+
+  @Test
+  public void requestQueuedBehindResumeRunsOnTheResumedConnection() throws Exception {
+    List<String> unsubscribed = new CopyOnWriteArrayList<>();
+    TestSessionManager sessionManager = new TestSessionManager(new OpenviduConfig(),
+        kurentoClientProvider(() -> null)) {
+      @Override
+      public void unsubscribe(Participant participant, String senderName, Integer transactionId) {
+        unsubscribed.add(participant.getParticipantPublicId() + ":" + senderName);
+      }
+    };
+    sessionManager.setSessionEventsHandler(new SessionEventsHandler() {
+      {
+        this.rpcNotificationService = ResumeConnectionTest.this.notificationService;
+      }
+    });
+    TestSession session = new TestSession();
+    Participant participant = participant(0);
+    participant.setResumeToken("resume-token");
+    session.add(participant);
+    sessionManager.addSession(session);
+    connect(notificationService, "privateId0").setSessionId("session");
+
+    RpcDispatcher dispatcher = new RpcDispatcher(Mode.POOL, 1);
+    try {
+      RpcHandler handler = new RpcHandler();
+      inject(handler, "sessionManager", sessionManager);
+      inject(handler, "notificationService", notificationService);
+      inject(handler, "rpcDispatcher", dispatcher);
+
+      // Both requests are received through the new websocket before the lane
+      // of the websocket runs any of them
+      CountDownLatch received = new CountDownLatch(1);
+      dispatcher.execute("ws2", "hold", received::await);
+      List<String> replies = new CopyOnWriteArrayList<>();
+      Session websocket = websocket("ws2", (proxy, method, args) -> null);
+
+      JsonObject resume = new JsonObject();
+      resume.addProperty(ProtocolElements.RESUME_SESSION_PARAM, "session");
+      resume.addProperty(ProtocolElements.RESUME_CONNECTIONID_PARAM, "con_0");
+      resume.addProperty(ProtocolElements.RESUME_TOKEN_PARAM, "resume-token");
+      handler.handleRequest(transaction(websocket, replies, "resume"),
+          new Request<>(1, ProtocolElements.RESUME_METHOD, resume));
+      JsonObject unsubscribe = new JsonObject();
+      unsubscribe.addProperty(ProtocolElements.UNSUBSCRIBEFROMVIDEO_SENDER_PARAM, "con_1");
+      handler.handleRequest(transaction(websocket, replies, "unsubscribe"),
+          new Request<>(2, ProtocolElements.UNSUBSCRIBEFROMVIDEO_METHOD, unsubscribe));
+
+      CountDownLatch done = new CountDownLatch(1);
+      dispatcher.execute("ws2", "done", done::countDown);
+      received.countDown();
+      assertTrue(done.await(5, TimeUnit.SECONDS));
+
+      assertEquals(1, replies.size());
+      assertEquals("resume:sendResponse", replies.get(0));
+      assertEquals("The queued request runs as the resumed participant", 1, unsubscribed.size());
+      assertEquals("con_0:con_1", unsubscribed.get(0));
+      assertEquals("privateId0", notificationService.getParticipantPrivateId("ws2"));
+    } finally {
+      dispatcher.close();
+    }
+  }
+
+  private static Transaction transaction(Session websocket, List<String> replies, String request) {
+    return SessionFixture.transaction(websocket, (proxy, method, args) -> {
+      if (method.getName().startsWith("send")) {
+        replies.add(request + ":" + method.getName());
+      }
+      return null;
+    });
+  }
+
+  private static void inject(RpcHandler handler, String fieldName, Object value) throws Exception {
+    Field field = RpcHandler.class.getDeclaredField(fieldName);
+    field.setAccessible(true);
+    field.set(handler, value);
+  }
+
+}
@@ -0,0 +1,229 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static io.openvidu.server.test.core.SessionFixture.kurentoClientProvider;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kurento.jsonrpc.Transaction;
+import org.kurento.jsonrpc.message.Request;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import io.openvidu.client.OpenViduException.Code;
+import io.openvidu.client.internal.ProtocolElements;
+import io.openvidu.server.config.OpenviduConfig;
+import io.openvidu.server.core.Participant;
+import io.openvidu.server.rpc.RpcBatch;
+import io.openvidu.server.rpc.RpcConnection;
+import io.openvidu.server.rpc.RpcDispatcher;
+import io.openvidu.server.rpc.RpcHandler;
+import io.openvidu.server.rpc.RpcNotificationService;
+import io.openvidu.server.test.core.SessionFixture.TestSessionManager;
+
+/**
+ * Checks that the requests of a batch are answered with a single response
+ * holding their results in order, and that every request that cannot be
+ * handled fails only its own slot of the batch
+ */
+public class RpcBatchTest {
+
+  private static final String WEBSOCKET = "websocket";
+
+  private final RpcNotificationService notificationService = new RpcNotificationService();
+  private final RpcDispatcher rpcDispatcher = new RpcDispatcher(RpcDispatcher.Mode.INLINE, 0);
+  private final org.kurento.jsonrpc.Session websocket = SessionFixture.websocket(WEBSOCKET,
+      (proxy, method, args) -> null);
+
+  /**
+   * Responses (the result, or the error code) sent through the transactions of
+   * the tests
+   */
+  private final List<Object> responses = new CopyOnWriteArrayList<>();
+
+  /**
+   * Transaction ids of the unsubscriptions dispatched, not answered yet
+   */
+  private final List<Integer> unsubscriptions = new CopyOnWriteArrayList<>();
+
+  private RpcHandler rpcHandler;
+  private RpcConnection connection;
+
+  @Before
+  public void setup() throws Exception {
+    final Participant participant = SessionFixture.participant(0);
+    TestSessionManager sessionManager = new TestSessionManager(new OpenviduConfig(),
+        kurentoClientProvider(() -> null)) {
+      @Override
+      public Participant getParticipant(String sessionId, String participantPrivateId) {
+        return participant;
+      }
+
+      @Override
+      public void unsubscribe(Participant participant, String senderName, Integer transactionId) {
+        unsubscriptions.add(transactionId);
+      }
+    };
+    rpcHandler = new RpcHandler();
+    inject("notificationService", notificationService);
+    inject("rpcDispatcher", rpcDispatcher);
+    inject("sessionManager", sessionManager);
+    connection = notificationService.newRpcConnection(transaction(), null);
+    connection.setSessionId("session");
+  }
+
+  @After
+  public void shutdown() {
+    rpcDispatcher.close();
+  }
+
+  @Test
+  public void responsesAreSentOnceInTheOrderOfTheRequests() throws Exception {
+    JsonArray requests = new JsonArray();
+    requests.add(unsubscribe("a", "first"));
+    JsonObject invalidMethod = new JsonObject();
+    invalidMethod.addProperty(ProtocolElements.BATCH_ID_PARAM, "b");
+    invalidMethod.add(ProtocolElements.BATCH_METHOD_PARAM, new JsonObject());
+    requests.add(invalidMethod);
+    JsonObject notBatchable = new JsonObject();
+    notBatchable.addProperty(ProtocolElements.BATCH_ID_PARAM, "c");
+    notBatchable.addProperty(ProtocolElements.BATCH_METHOD_PARAM, ProtocolElements.JOINROOM_METHOD);
+    requests.add(notBatchable);
+    requests.add("not a request");
+    requests.add(unsubscribe("e", "second"));
+
+    rpcHandler.handleRequest(transaction(), batch(requests));
+    assertEquals(2, unsubscriptions.size());
+    assertTrue("The batch waits for every request", responses.isEmpty());
+
+    // Answered in the reverse order
+    notificationService.sendResponse(WEBSOCKET, unsubscriptions.get(1), "second");
+    assertTrue(responses.isEmpty());
+    notificationService.sendResponse(WEBSOCKET, unsubscriptions.get(0), "first");
+    assertEquals(1, responses.size());
+
+    JsonArray results = ((JsonObject) responses.get(0)).getAsJsonArray(ProtocolElements.BATCH_RESPONSES_PARAM);
+    assertEquals(5, results.size());
+    assertResult(results.get(0).getAsJsonObject(), "a", "first");
+    assertError(results.get(1).getAsJsonObject(), "b", Code.GENERIC_ERROR_CODE);
+    assertError(results.get(2).getAsJsonObject(), "c", Code.TRANSPORT_REQUEST_ERROR_CODE);
+    assertTrue(results.get(3).getAsJsonObject().get(ProtocolElements.BATCH_ID_PARAM).isJsonNull());
+    assertEquals(Code.TRANSPORT_REQUEST_ERROR_CODE.getValue(), errorCode(results.get(3).getAsJsonObject()));
+    assertResult(results.get(4).getAsJsonObject(), "e", "second");
+  }
+
+  @Test
+  public void batchesAboveTheLimitAreRejected() throws Exception {
+    JsonArray requests = new JsonArray();
+    for (int i = 0; i < 101; i++) {
+      requests.add(unsubscribe(String.valueOf(i), "sender" + i));
+    }
+
+    rpcHandler.handleRequest(transaction(), batch(requests));
+    assertTrue("No request of the batch is dispatched", unsubscriptions.isEmpty());
+    assertEquals(1, responses.size());
+    assertEquals(Code.TRANSPORT_REQUEST_ERROR_CODE.getValue(), responses.get(0));
+  }
+
+  @Test
+  public void emptyBatchIsAnsweredAtOnce() {
+    connection.addTransaction(7, transaction());
+    new RpcBatch(notificationService, WEBSOCKET, 7, websocket, 0);
+    assertEquals(1, responses.size());
+    assertEquals(0,
+        ((JsonObject) responses.get(0)).getAsJsonArray(ProtocolElements.BATCH_RESPONSES_PARAM).size());
+  }
+
+  @Test
+  public void repeatedAnswersAreIgnored() throws Exception {
+    connection.addTransaction(7, transaction());
+    RpcBatch batch = new RpcBatch(notificationService, WEBSOCKET, 7, websocket, 2);
+    Transaction first = batch.newTransaction(0, null);
+    first.sendResponse("first");
+    first.sendError(Code.GENERIC_ERROR_CODE.getValue(), "too late", null);
+    assertTrue(responses.isEmpty());
+
+    batch.newTransaction(1, null).sendVoidResponse();
+    assertEquals(1, responses.size());
+    JsonArray results = ((JsonObject) responses.get(0)).getAsJsonArray(ProtocolElements.BATCH_RESPONSES_PARAM);
+    assertEquals("first", results.get(0).getAsJsonObject().get(ProtocolElements.BATCH_RESULT_PARAM).getAsString());
+    assertTrue(results.get(1).getAsJsonObject().get(ProtocolElements.BATCH_RESULT_PARAM).isJsonNull());
+  }
+
+  private Transaction transaction() {
+    return SessionFixture.transaction(websocket, (proxy, method, args) -> {
+      switch (method.getName()) {
+      case "sendResponse":
+        responses.add(args[0]);
+        return null;
+      case "sendError":
+        responses.add(args[0]);
+        return null;
+      default:
+        return null;
+      }
+    });
+  }
+
+  private void inject(String fieldName, Object value) throws Exception {
+    Field field = RpcHandler.class.getDeclaredField(fieldName);
+    field.setAccessible(true);
+    field.set(rpcHandler, value);
+  }
+
+  private static Request<JsonObject> batch(JsonArray requests) {
+    JsonObject params = new JsonObject();
+    params.add(ProtocolElements.BATCH_REQUESTS_PARAM, requests);
+    return new Request<>(1, ProtocolElements.BATCH_METHOD, params);
+  }
+
+  private static JsonObject unsubscribe(String id, String sender) {
+    JsonObject params = new JsonObject();
+    params.addProperty(ProtocolElements.UNSUBSCRIBEFROMVIDEO_SENDER_PARAM, sender);
+    JsonObject request = new JsonObject();
+    request.addProperty(ProtocolElements.BATCH_ID_PARAM, id);
+    request.addProperty(ProtocolElements.BATCH_METHOD_PARAM, ProtocolElements.UNSUBSCRIBEFROMVIDEO_METHOD);
+    request.add(ProtocolElements.BATCH_PARAMS_PARAM, params);
+    return request;
+  }
+
+  private static void assertResult(JsonObject response, String id, String result) {
+    assertEquals(id, response.get(ProtocolElements.BATCH_ID_PARAM).getAsString());
+    assertEquals(result, response.get(ProtocolElements.BATCH_RESULT_PARAM).getAsString());
+  }
+
+  private static void assertError(JsonObject response, String id, Code code) {
+    assertEquals(id, response.get(ProtocolElements.BATCH_ID_PARAM).getAsString());
+    assertEquals(code.getValue(), errorCode(response));
+  }
+
+  private static int errorCode(JsonObject response) {
+    return response.getAsJsonObject(ProtocolElements.BATCH_ERROR_PARAM).get(ProtocolElements.BATCH_ERRORCODE_PARAM)
+        .getAsInt();
+  }
+
+}
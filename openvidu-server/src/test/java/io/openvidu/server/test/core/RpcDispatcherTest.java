@@ -0,0 +1,69 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import io.openvidu.server.rpc.RpcDispatcher;
+import io.openvidu.server.rpc.RpcDispatcher.Mode;
+
+public class RpcDispatcherTest {
+
+  private final RpcDispatcher dispatcher = new RpcDispatcher(Mode.POOL, 4);
+
+  @After
+  public void shutdown() {
+    dispatcher.close();
+  }
+
+  @Test
+  public void requestsOfSameConnectionRunInOrder() throws InterruptedException {
+    List<Integer> executed = new CopyOnWriteArrayList<>();
+    CountDownLatch done = new CountDownLatch(1);
+    for (int i = 0; i < 1000; i++) {
+      final int n = i;
+      dispatcher.execute("connection", "request" + n, () -> executed.add(n));
+    }
+    dispatcher.execute("connection", "last", done::countDown);
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertEquals(1000, executed.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(i, (int) executed.get(i));
+    }
+  }
+
+  @Test
+  public void blockedConnectionDoesNotDelayOthers() throws InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch otherDone = new CountDownLatch(1);
+    dispatcher.execute("slow", "blocking", release::await);
+    dispatcher.execute("other", "request", otherDone::countDown);
+    assertTrue(otherDone.await(5, TimeUnit.SECONDS));
+    release.countDown();
+  }
+
+}
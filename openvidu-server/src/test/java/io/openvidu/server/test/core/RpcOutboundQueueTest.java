@@ -0,0 +1,109 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import io.openvidu.server.rpc.RpcOutboundQueue;
+import io.openvidu.server.rpc.RpcOutboundQueue.OverflowPolicy;
+
+public class RpcOutboundQueueTest {
+
+  private final ExecutorService writer = Executors.newFixedThreadPool(2);
+
+  @After
+  public void shutdown() {
+    writer.shutdownNow();
+  }
+
+  @Test
+  public void messagesAreSentInOrder() throws InterruptedException {
+    List<Integer> sent = new CopyOnWriteArrayList<>();
+    CountDownLatch done = new CountDownLatch(1);
+    RpcOutboundQueue queue = new RpcOutboundQueue("p", 1000, OverflowPolicy.DROP_OLDEST, writer, () -> {
+    });
+    for (int i = 0; i < 500; i++) {
+      final int n = i;
+      assertTrue(queue.enqueue("m" + n, true, () -> sent.add(n)));
+    }
+    queue.enqueue("last", true, done::countDown);
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertEquals(500, sent.size());
+    for (int i = 0; i < 500; i++) {
+      assertEquals(i, (int) sent.get(i));
+    }
+    assertTrue(queue.getSentMessages() >= 500);
+  }
+
+  @Test
+  public void slowClientDropsOldestNonCriticalMessages() throws InterruptedException {
+    CountDownLatch blocked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger disconnections = new AtomicInteger();
+    RpcOutboundQueue queue = new RpcOutboundQueue("p", 3, OverflowPolicy.DROP_OLDEST, writer,
+        disconnections::incrementAndGet);
+
+    // Writer stays blocked in the first message, as with a congested websocket
+    queue.enqueue("blocking", true, () -> {
+      blocked.countDown();
+      release.await();
+    });
+    assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+    assertTrue(queue.enqueue("signal1", false, () -> {
+    }));
+    assertTrue(queue.enqueue("critical1", true, () -> {
+    }));
+    assertTrue(queue.enqueue("critical2", true, () -> {
+    }));
+    // Full: signal1 is discarded
+    assertTrue(queue.enqueue("critical3", true, () -> {
+    }));
+    // Full and only critical messages queued: new signal is discarded
+    assertFalse(queue.enqueue("signal2", false, () -> {
+    }));
+    assertEquals(2, queue.getDroppedMessages());
+    assertEquals(3, queue.getDepth());
+    assertEquals(0, disconnections.get());
+
+    // Full and nothing can be discarded: client is disconnected
+    assertFalse(queue.enqueue("critical4", true, () -> {
+    }));
+    release.countDown();
+    writer.shutdown();
+    assertTrue(writer.awaitTermination(5, TimeUnit.SECONDS));
+    assertEquals(1, disconnections.get());
+    assertEquals(0, queue.getDepth());
+    assertFalse(queue.enqueue("afterDisconnection", true, () -> {
+    }));
+  }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static io.openvidu.server.test.core.SessionFixture.kurentoClientProvider;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.openvidu.client.OpenViduException;
+import io.openvidu.client.OpenViduException.Code;
+import io.openvidu.server.config.OpenviduConfig;
+import io.openvidu.server.core.EndReason;
+import io.openvidu.server.core.Participant;
+import io.openvidu.server.core.Session;
+import io.openvidu.server.test.core.SessionFixture.TestSessionManager;
+
+/**
+ * Checks that draining the sessions on shutdown force closes every session not
+ * cleanly closed, either because its closing failed or did not finish before
+ * the deadline
+ */
+public class SessionDrainTest {
+
+  private final Set<String> forceClosed = ConcurrentHashMap.newKeySet();
+  private final CountDownLatch unblock = new CountDownLatch(1);
+
+  private TestSessionManager sessionManager;
+
+  @Before
+  public void setup() {
+    sessionManager = new TestSessionManager(new OpenviduConfig(), kurentoClientProvider(() -> null)) {
+      @Override
+      public Set<Participant> closeSession(String sessionId, EndReason reason) {
+        if (sessionId.startsWith("failing")) {
+          throw new OpenViduException(Code.ROOM_CLOSED_ERROR_CODE, "Session '" + sessionId + "' already closed");
+        }
+        if (sessionId.startsWith("stuck")) {
+          try {
+            unblock.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Closing of session '" + sessionId + "' interrupted");
+          }
+        }
+        sessions.remove(sessionId);
+        return Collections.emptySet();
+      }
+
+      @Override
+      protected void forceCloseSessions(Collection<Session> sessions) {
+        sessions.forEach(session -> forceClosed.add(session.getSessionId()));
+        super.forceCloseSessions(sessions);
+      }
+    };
+  }
+
+  @After
+  public void shutdown() {
+    unblock.countDown();
+  }
+
+  @Test
+  public void failedClosingsAreForceClosedBeforeTheDeadline() {
+    addSessions("clean1", "clean2", "failing");
+    assertEquals(2, sessionManager.drainSessions(2, 5000));
+    assertEquals(Collections.singleton("failing"), forceClosed);
+    assertAllClosed("clean1", "clean2", "failing");
+  }
+
+  @Test
+  public void sessionsNotClosedBeforeTheDeadlineAreForceClosed() {
+    addSessions("clean", "stuck", "failing");
+    long start = System.currentTimeMillis();
+    assertEquals(1, sessionManager.drainSessions(3, 100));
+    assertTrue("The stuck closing is interrupted", System.currentTimeMillis() - start < 5000);
+    assertEquals(new HashSet<>(Arrays.asList("stuck", "failing")), forceClosed);
+    assertAllClosed("clean", "stuck", "failing");
+  }
+
+  @Test
+  public void cleanDrainDoesNotForceClose() {
+    addSessions("clean1", "clean2", "clean3");
+    assertEquals(3, sessionManager.drainSessions(1, 5000));
+    assertTrue(forceClosed.isEmpty());
+  }
+
+  private void addSessions(String... sessionIds) {
+    for (String sessionId : sessionIds) {
+      sessionManager.addSession(new Session(sessionId, null, null, null));
+    }
+  }
+
+  private void assertAllClosed(String... sessionIds) {
+    for (String sessionId : sessionIds) {
+      assertNull(sessionManager.getSession(sessionId));
+    }
+  }
+
+}
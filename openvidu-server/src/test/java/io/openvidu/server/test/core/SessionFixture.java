@@ -0,0 +1,271 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.kurento.client.KurentoClient;
+import org.kurento.client.MediaPipeline;
+import org.kurento.jsonrpc.Transaction;
+
+import io.openvidu.client.OpenViduException;
+import io.openvidu.java.client.SessionProperties;
+import io.openvidu.server.cdr.CallDetailRecord;
+import io.openvidu.server.config.OpenviduConfig;
+import io.openvidu.server.core.EndReason;
+import io.openvidu.server.core.Participant;
+import io.openvidu.server.core.Session;
+import io.openvidu.server.core.SessionEventsHandler;
+import io.openvidu.server.core.Token;
+import io.openvidu.server.core.TokenStore;
+import io.openvidu.server.kurento.KurentoClientProvider;
+import io.openvidu.server.kurento.KurentoClientSessionInfo;
+import io.openvidu.server.kurento.core.KurentoParticipantEndpointConfig;
+import io.openvidu.server.kurento.core.KurentoSessionManager;
+import io.openvidu.server.rpc.RpcConnection;
+import io.openvidu.server.rpc.RpcNotificationService;
+import io.openvidu.server.utils.TimingWheel;
+
+/**
+ * Sessions, participants and media elements without a KMS shared by the tests
+ * of the core. Participant i has private id "privateId{i}" and public id
+ * "con_{i}"
+ */
+final class SessionFixture {
+
+  private SessionFixture() {
+  }
+
+  static class TestSession extends Session {
+
+    TestSession() {
+      super("session", new SessionProperties.Builder().build(), null, null);
+    }
+
+    void add(Participant participant) {
+      this.addParticipant(participant);
+    }
+
+    void remove(Participant participant) {
+      this.deleteParticipant(participant);
+    }
+  }
+
+  /**
+   * Session manager with an unbounded token store whose session events are
+   * ignored, unless another handler is set. Sessions are created in the KMS
+   * returned by <code>kcProvider</code>
+   */
+  static class TestSessionManager extends KurentoSessionManager {
+
+    TestSessionManager(OpenviduConfig openviduConfig, KurentoClientProvider kcProvider) {
+      this.openviduConfig = openviduConfig;
+      this.tokenStore = new TokenStore(null, 0, 0);
+      this.sessionEventsHandler = new SessionEventsHandler() {
+        @Override
+        public void onSessionCreated(Session session) {
+        }
+
+        @Override
+        public void onSessionClosed(String sessionId, EndReason reason) {
+        }
+
+        @Override
+        public void onParticipantJoined(Participant participant, String sessionId,
+            Set<Participant> existingParticipants, Integer transactionId, OpenViduException error) {
+        }
+
+        @Override
+        public void onParticipantLeft(Participant participant, String sessionId,
+            Set<Participant> remainingParticipants, Integer transactionId, OpenViduException error,
+            EndReason reason) {
+        }
+
+        @Override
+        public void onForceDisconnect(Participant moderator, Participant evictedParticipant,
+            Set<Participant> participants, Integer transactionId, OpenViduException error, EndReason reason) {
+        }
+
+        @Override
+        public void closeRpcSession(String participantPrivateId) {
+        }
+      };
+      inject("kcProvider", kcProvider);
+    }
+
+    void setEndpointConfig(KurentoParticipantEndpointConfig endpointConfig) {
+      inject("kurentoEndpointConfig", endpointConfig);
+    }
+
+    void setSessionEventsHandler(SessionEventsHandler sessionEventsHandler) {
+      this.sessionEventsHandler = sessionEventsHandler;
+    }
+
+    void setTimingWheel(TimingWheel timingWheel) {
+      this.timingWheel = timingWheel;
+    }
+
+    void addSession(Session session) {
+      this.sessions.put(session.getSessionId(), session);
+    }
+
+    void prepare(String sessionId) {
+      this.prepareSession(sessionId);
+    }
+
+    private void inject(String fieldName, Object value) {
+      try {
+        Field field = KurentoSessionManager.class.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(this, value);
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  /**
+   * Provider placing every session in the KMS returned by
+   * <code>kurentoClient</code> at that moment
+   */
+  static KurentoClientProvider kurentoClientProvider(Supplier<KurentoClient> kurentoClient) {
+    return new KurentoClientProvider() {
+      @Override
+      public KurentoClient getKurentoClient(KurentoClientSessionInfo sessionInfo) {
+        return kurentoClient.get();
+      }
+
+      @Override
+      public boolean destroyWhenUnused() {
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Endpoint configuration whose call detail record ignores the participants
+   * joining. Its endpoint executor must be shut down with
+   * {@link KurentoParticipantEndpointConfig#close()}
+   */
+  static KurentoParticipantEndpointConfig endpointConfig() {
+    final CallDetailRecord cdr = new CallDetailRecord(Collections.emptyList()) {
+      @Override
+      public void recordParticipantJoined(Participant participant, String sessionId) {
+      }
+    };
+    return new KurentoParticipantEndpointConfig() {
+      @Override
+      public CallDetailRecord getCdr() {
+        return cdr;
+      }
+    };
+  }
+
+  static TestSession session(int participants) {
+    TestSession session = new TestSession();
+    for (int i = 0; i < participants; i++) {
+      session.add(participant(i));
+    }
+    return session;
+  }
+
+  static Participant participant(int i) {
+    return new Participant("finalUser" + i, "privateId" + i, "con_" + i, "session", new Token("token" + i), "",
+        null, null, null);
+  }
+
+  /**
+   * MediaPipeline with the given id, added to <code>released</code> when it is
+   * released. Any other call does nothing
+   */
+  static MediaPipeline pipeline(String id, List<MediaPipeline> released) {
+    return (MediaPipeline) Proxy.newProxyInstance(MediaPipeline.class.getClassLoader(),
+        new Class<?>[] { MediaPipeline.class }, (proxy, method, args) -> {
+          switch (method.getName()) {
+          case "getId":
+          case "toString":
+            return id;
+          case "hashCode":
+            return System.identityHashCode(proxy);
+          case "equals":
+            return proxy == args[0];
+          case "release":
+            released.add((MediaPipeline) proxy);
+            return null;
+          default:
+            return null;
+          }
+        });
+  }
+
+  static RpcConnection connect(RpcNotificationService notificationService, String websocketId) {
+    return connect(notificationService, websocketId, (proxy, method, args) -> null);
+  }
+
+  /**
+   * Opens an RPC connection through a websocket with the given id. Calls to the
+   * websocket other than getSessionId, hashCode and equals are answered by
+   * <code>websocketCalls</code>
+   */
+  static RpcConnection connect(RpcNotificationService notificationService, String websocketId,
+      InvocationHandler websocketCalls) {
+    return notificationService.newRpcConnection(
+        transaction(websocket(websocketId, websocketCalls), (proxy, method, args) -> null), null);
+  }
+
+  /**
+   * Websocket with the given id. Calls other than getSessionId, hashCode and
+   * equals are answered by <code>websocketCalls</code>
+   */
+  static org.kurento.jsonrpc.Session websocket(String websocketId, InvocationHandler websocketCalls) {
+    return (org.kurento.jsonrpc.Session) Proxy.newProxyInstance(SessionFixture.class.getClassLoader(),
+        new Class<?>[] { org.kurento.jsonrpc.Session.class }, (proxy, method, args) -> {
+          switch (method.getName()) {
+          case "getSessionId":
+            return websocketId;
+          case "hashCode":
+            return System.identityHashCode(proxy);
+          case "equals":
+            return proxy == args[0];
+          default:
+            return websocketCalls.invoke(proxy, method, args);
+          }
+        });
+  }
+
+  /**
+   * Transaction of a request received through the given websocket. Calls other
+   * than getSession are answered by <code>transactionCalls</code>
+   */
+  static Transaction transaction(org.kurento.jsonrpc.Session websocket, InvocationHandler transactionCalls) {
+    return (Transaction) Proxy.newProxyInstance(SessionFixture.class.getClassLoader(),
+        new Class<?>[] { Transaction.class }, (proxy, method, args) -> {
+          if ("getSession".equals(method.getName())) {
+            return websocket;
+          }
+          return transactionCalls.invoke(proxy, method, args);
+        });
+  }
+
+}
@@ -0,0 +1,259 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static io.openvidu.server.test.core.SessionFixture.kurentoClientProvider;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kurento.client.MediaPipeline;
+
+import io.openvidu.java.client.OpenViduRole;
+import io.openvidu.java.client.SessionProperties;
+import io.openvidu.server.config.OpenviduConfig;
+import io.openvidu.server.core.EndReason;
+import io.openvidu.server.core.Participant;
+import io.openvidu.server.core.Session;
+import io.openvidu.server.core.Token;
+import io.openvidu.server.kurento.core.KurentoParticipant;
+import io.openvidu.server.kurento.core.KurentoSession;
+import io.openvidu.server.test.core.SessionFixture.TestSessionManager;
+import io.openvidu.server.utils.StripedLocks;
+
+/**
+ * Checks that joins, leaves and closes of the same session are serialized while
+ * those of different sessions run in parallel
+ */
+public class SessionLocksTest {
+
+  private final OpenviduConfig openviduConfig = new OpenviduConfig() {
+    @Override
+    public boolean isRecordingModuleEnabled() {
+      return false;
+    }
+
+    @Override
+    public boolean isSessionsBulkTeardown() {
+      return false;
+    }
+  };
+
+  private TestSessionManager sessionManager;
+
+  /**
+   * Session whose joins and leaves run the given task in place of the round
+   * trips to KMS
+   */
+  private class SimulatedKmsSession extends KurentoSession {
+
+    private final Runnable kmsCall;
+
+    SimulatedKmsSession(String sessionId, Runnable kmsCall) {
+      super(new Session(sessionId, new SessionProperties.Builder().build(), SessionLocksTest.this.openviduConfig,
+          null), null, null, null, false, null, null);
+      this.kmsCall = kmsCall;
+      // Keeps the session open when the other participants leave
+      this.addParticipant(participant(sessionId + "-resident"));
+    }
+
+    @Override
+    public CompletableFuture<MediaPipeline> createPipeline() {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void join(Participant participant) {
+      checkClosed();
+      kmsCall.run();
+      this.addParticipant(new KurentoParticipant(participant, this, null, openviduConfig, null));
+    }
+
+    @Override
+    public void leave(String participantPrivateId, EndReason reason) {
+      checkClosed();
+      kmsCall.run();
+      this.deleteParticipant(participants.get(participantPrivateId));
+    }
+
+    @Override
+    public boolean close(EndReason reason) {
+      this.closed = true;
+      this.clearParticipants();
+      return true;
+    }
+
+    private KurentoParticipant participant(String id) {
+      return new KurentoParticipant(SessionLocksTest.participant(id), this, null, openviduConfig, null);
+    }
+  }
+
+  @Before
+  public void setup() throws Exception {
+    sessionManager = new TestSessionManager(openviduConfig, kurentoClientProvider(() -> null));
+  }
+
+  @Test
+  public void sameSessionIsSerialized() throws Exception {
+    final AtomicInteger inside = new AtomicInteger();
+    final AtomicInteger maxInside = new AtomicInteger();
+    sessionManager.addSession(new SimulatedKmsSession("session", () -> {
+      maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+      sleep(1);
+      inside.decrementAndGet();
+    }));
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    final CountDownLatch done = new CountDownLatch(32);
+    for (int i = 0; i < 32; i++) {
+      final String id = "user" + i;
+      executor.submit(() -> {
+        try {
+          joinAndLeave("session", id);
+        } finally {
+          done.countDown();
+        }
+      });
+    }
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    executor.shutdown();
+    assertEquals(1, maxInside.get());
+    assertEquals(1, sessionManager.getParticipants("session").size());
+  }
+
+  @Test
+  public void differentSessionsDoNotBlockEachOther() throws Exception {
+    final CountDownLatch secondJoining = new CountDownLatch(1);
+    final AtomicInteger secondSeenByFirst = new AtomicInteger();
+    sessionManager.addSession(new SimulatedKmsSession("session-a", () -> {
+      // Only returns early if the join of the other session is not blocked by this one
+      if (await(secondJoining)) {
+        secondSeenByFirst.incrementAndGet();
+      }
+    }));
+    sessionManager.addSession(new SimulatedKmsSession("session-b", secondJoining::countDown));
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<?> first = executor.submit(() -> sessionManager.joinRoom(participant("a"), "session-a", null));
+      Future<?> second = executor.submit(() -> sessionManager.joinRoom(participant("b"), "session-b", null));
+      first.get(10, TimeUnit.SECONDS);
+      second.get(10, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(1, secondSeenByFirst.get());
+    assertEquals(2, sessionManager.getParticipants("session-a").size());
+    assertEquals(2, sessionManager.getParticipants("session-b").size());
+  }
+
+  @Test
+  public void closeWaitsForAJoinInProgress() throws Exception {
+    final CountDownLatch joining = new CountDownLatch(1);
+    final CountDownLatch kmsAnswered = new CountDownLatch(1);
+    sessionManager.addSession(new SimulatedKmsSession("session", () -> {
+      joining.countDown();
+      await(kmsAnswered);
+    }));
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<?> join = executor.submit(() -> sessionManager.joinRoom(participant("user"), "session", null));
+      assertTrue(joining.await(5, TimeUnit.SECONDS));
+      Future<Set<Participant>> close = executor
+          .submit(() -> sessionManager.closeSession("session", EndReason.sessionClosedByServer));
+      sleep(50);
+      assertFalse(close.isDone());
+      kmsAnswered.countDown();
+      join.get(10, TimeUnit.SECONDS);
+      // The participant that was joining is evicted along with the resident one
+      assertEquals(2, close.get(10, TimeUnit.SECONDS).size());
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(null, sessionManager.getSession("session"));
+  }
+
+  @Test
+  public void stripedLocksOfDifferentSessionsAreIndependent() throws Exception {
+    StripedLocks locks = new StripedLocks(1024);
+    Lock first = locks.get("session-a");
+    String other = "session-b";
+    for (int i = 0; locks.get(other) == first; i++) {
+      other = "session-b" + i;
+    }
+    final Lock second = locks.get(other);
+    first.lock();
+    try {
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+        // Acquired from another thread, as the locks are reentrant
+        assertTrue(executor.submit(() -> {
+          boolean acquired = second.tryLock(5, TimeUnit.SECONDS);
+          if (acquired) {
+            second.unlock();
+          }
+          return acquired;
+        }).get());
+        assertFalse(executor.submit(() -> first.tryLock()).get());
+      } finally {
+        executor.shutdown();
+      }
+    } finally {
+      first.unlock();
+    }
+  }
+
+  private void joinAndLeave(String sessionId, String id) {
+    Participant participant = participant(id);
+    sessionManager.joinRoom(participant, sessionId, null);
+    sessionManager.leaveRoom(sessionManager.getParticipant(sessionId, id), null, EndReason.disconnect, false);
+  }
+
+  private static Participant participant(String id) {
+    return new Participant(null, id, id, null, new Token(id, OpenViduRole.SUBSCRIBER, "", null, null), null, null,
+        null, null);
+  }
+
+  private static boolean await(CountDownLatch latch) {
+    try {
+      return latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
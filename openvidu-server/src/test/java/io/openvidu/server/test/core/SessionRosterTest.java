@@ -0,0 +1,71 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static io.openvidu.server.test.core.SessionFixture.participant;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+
+import org.junit.Test;
+
+import io.openvidu.server.core.Participant;
+import io.openvidu.server.test.core.SessionFixture.TestSession;
+
+/**
+ * Checks that the participant roster of a session is an immutable snapshot only
+ * rebuilt on membership changes
+ */
+public class SessionRosterTest {
+
+  @Test
+  public void snapshotIsSharedUntilMembershipChanges() {
+    TestSession session = new TestSession();
+    Participant p1 = participant(1);
+    session.add(p1);
+    long version = session.getParticipantsVersion();
+
+    Set<Participant> first = session.getParticipants();
+    assertSame(first, session.getParticipants());
+    assertEquals(version, session.getParticipantsVersion());
+
+    Participant p2 = participant(2);
+    session.add(p2);
+    Set<Participant> second = session.getParticipants();
+    assertNotSame(first, second);
+    assertEquals(1, first.size());
+    assertEquals(2, second.size());
+    assertEquals(version + 1, session.getParticipantsVersion());
+
+    session.remove(p1);
+    assertEquals(1, session.getParticipants().size());
+    assertTrue(session.getParticipants().contains(p2));
+    assertEquals(version + 2, session.getParticipantsVersion());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void snapshotIsImmutable() {
+    TestSession session = new TestSession();
+    session.add(participant(1));
+    session.getParticipants().clear();
+  }
+
+}
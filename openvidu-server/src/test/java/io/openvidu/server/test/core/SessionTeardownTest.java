@@ -0,0 +1,143 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static io.openvidu.server.test.core.SessionFixture.kurentoClientProvider;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+
+import io.openvidu.client.internal.ProtocolElements;
+import io.openvidu.server.cdr.CallDetailRecord;
+import io.openvidu.server.config.OpenviduConfig;
+import io.openvidu.server.core.EndReason;
+import io.openvidu.server.core.Participant;
+import io.openvidu.server.core.Session;
+import io.openvidu.server.core.SessionEventsHandler;
+import io.openvidu.server.core.Token;
+import io.openvidu.server.rpc.RpcNotificationService;
+import io.openvidu.server.rpc.RpcOutboundQueue.OverflowPolicy;
+import io.openvidu.server.test.core.SessionFixture.TestSessionManager;
+
+/**
+ * Checks that closing a session with bulk teardown enabled sends every
+ * participant only its own eviction, delivered before its websocket is closed
+ */
+public class SessionTeardownTest {
+
+  private static final int PARTICIPANTS = 5;
+
+  private final Map<String, List<String>> received = new ConcurrentHashMap<>();
+  private final CountDownLatch closedWebsockets = new CountDownLatch(PARTICIPANTS);
+
+  private TestSessionManager sessionManager;
+  private RpcNotificationService rpcNotificationService;
+
+  @Before
+  public void setup() throws Exception {
+    rpcNotificationService = new RpcNotificationService(100, OverflowPolicy.DROP_OLDEST, 2);
+    OpenviduConfig config = new OpenviduConfig() {
+      @Override
+      public boolean isSessionsBulkTeardown() {
+        return true;
+      }
+
+      @Override
+      public boolean isRecordingModuleEnabled() {
+        return false;
+      }
+    };
+    sessionManager = new TestSessionManager(config, kurentoClientProvider(() -> null));
+    final CallDetailRecord cdr = new CallDetailRecord(Collections.emptyList()) {
+      {
+        this.sessionManager = SessionTeardownTest.this.sessionManager;
+      }
+    };
+    sessionManager.setSessionEventsHandler(new SessionEventsHandler() {
+      {
+        this.CDR = cdr;
+        this.rpcNotificationService = SessionTeardownTest.this.rpcNotificationService;
+      }
+    });
+  }
+
+  @Test
+  public void everyParticipantIsEvictedBeforeItsWebsocketIsClosed() throws Exception {
+    sessionManager.addSession(new Session("session", null, null, null) {
+      {
+        for (int i = 0; i < PARTICIPANTS; i++) {
+          addParticipant(new Participant(null, "private" + i, "public" + i, "session", new Token("token" + i),
+              null, null, null, null));
+          connect("private" + i);
+        }
+      }
+
+      @Override
+      public boolean close(EndReason reason) {
+        this.closed = true;
+        return true;
+      }
+    });
+
+    Set<Participant> participants = sessionManager.closeSession("session", EndReason.sessionClosedByServer);
+    assertEquals(PARTICIPANTS, participants.size());
+    assertTrue(closedWebsockets.await(5, TimeUnit.SECONDS));
+
+    for (int i = 0; i < PARTICIPANTS; i++) {
+      List<String> messages = received.get("private" + i);
+      assertEquals("Each participant only receives its own eviction before being closed",
+          Arrays.asList(ProtocolElements.PARTICIPANTEVICTED_METHOD + ":public" + i, "close"), messages);
+    }
+    assertNull(sessionManager.getSession("session"));
+  }
+
+  private void connect(String participantPrivateId) {
+    List<String> messages = new CopyOnWriteArrayList<>();
+    received.put(participantPrivateId, messages);
+    SessionFixture.connect(rpcNotificationService, participantPrivateId, (proxy, method, args) -> {
+      switch (method.getName()) {
+      case "sendNotification":
+        messages.add(args[0] + ":"
+            + ((JsonObject) args[1]).get(ProtocolElements.PARTICIPANTEVICTED_CONNECTIONID_PARAM).getAsString());
+        return null;
+      case "close":
+        messages.add("close");
+        closedWebsockets.countDown();
+        return null;
+      default:
+        return null;
+      }
+    });
+  }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static io.openvidu.server.test.core.SessionFixture.session;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import io.openvidu.client.OpenViduException;
+import io.openvidu.client.OpenViduException.Code;
+import io.openvidu.server.core.Participant;
+import io.openvidu.server.core.Session;
+import io.openvidu.server.core.Token;
+import io.openvidu.server.test.core.SessionFixture.TestSession;
+
+/**
+ * Checks that the targets of a signal are validated before it is delivered to
+ * any of them
+ */
+public class SignalTargetsTest {
+
+  @Test
+  public void targetsAreValidatedBeforeDelivery() {
+    Session session = session(3);
+
+    List<Participant> targets = session.getSignalTargets(Arrays.asList("con_2", "con_0", "con_2"));
+    assertEquals(2, targets.size());
+    assertEquals("privateId2", targets.get(0).getParticipantPrivateId());
+    assertEquals("privateId0", targets.get(1).getParticipantPrivateId());
+
+    try {
+      session.getSignalTargets(Arrays.asList("con_0", "missing", "con_1"));
+      fail("Signal to a missing connection must be rejected");
+    } catch (OpenViduException e) {
+      assertEquals(Code.SIGNAL_TO_INVALID_ERROR_CODE.getValue(), e.getCodeValue());
+    }
+  }
+
+  @Test
+  public void signalToAClosedConnectionIsRejected() {
+    TestSession session = session(1);
+    session.add(new Participant(null, "privateId1", "con_1", "session", new Token("token1"), null, null, null,
+        null) {
+      {
+        this.closed = true;
+      }
+    });
+
+    assertEquals(1, session.getSignalTargets(Arrays.asList("con_0", "con_0")).size());
+    try {
+      session.getSignalTargets(Arrays.asList("con_0", "con_1"));
+      fail("Signal to a closed connection must be rejected");
+    } catch (OpenViduException e) {
+      assertEquals(Code.SIGNAL_TO_INVALID_ERROR_CODE.getValue(), e.getCodeValue());
+      assertTrue(e.getMessage().contains("con_1"));
+    }
+  }
+
+}
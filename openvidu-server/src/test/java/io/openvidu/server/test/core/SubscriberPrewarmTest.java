@@ -0,0 +1,123 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import io.openvidu.java.client.OpenViduRole;
+import io.openvidu.java.client.SessionProperties;
+import io.openvidu.server.config.OpenviduConfig;
+import io.openvidu.server.core.EndReason;
+import io.openvidu.server.core.Participant;
+import io.openvidu.server.core.Session;
+import io.openvidu.server.core.Token;
+import io.openvidu.server.kurento.core.KurentoParticipant;
+import io.openvidu.server.kurento.core.KurentoParticipantEndpointConfig;
+import io.openvidu.server.kurento.core.KurentoSession;
+
+/**
+ * Checks that subscriber endpoints are only pre-loaded for the first
+ * <code>openvidu.streams.subscribers.prewarm-publishers</code> publishers of a
+ * session, and created on demand for any other
+ */
+public class SubscriberPrewarmTest {
+
+  private static final long TIMEOUT_SECONDS = 5;
+
+  private final FakeKurento kms = new FakeKurento();
+  private final KurentoParticipantEndpointConfig endpointConfig = SessionFixture.endpointConfig();
+
+  private KurentoSession session;
+
+  @After
+  public void shutdown() {
+    endpointConfig.close();
+  }
+
+  @Test
+  public void subscribersAreCreatedOnDemandWithoutPrewarm() throws Exception {
+    createSession(0);
+    KurentoParticipant publisher = join("publisher", OpenViduRole.PUBLISHER);
+    KurentoParticipant subscriber = join("subscriber", OpenViduRole.SUBSCRIBER);
+
+    session.newPublisher(publisher);
+    assertTrue("No subscriber endpoint before receiveVideoFrom", subscriber.getSubscribedPublishers().isEmpty());
+    assertTrue(join("late", OpenViduRole.SUBSCRIBER).getSubscribedPublishers().isEmpty());
+
+    subscriber.receiveMediaFrom(publisher, "subscriber-offer");
+    assertEquals(Collections.singleton("publisher"), subscriber.getSubscribedPublishers());
+  }
+
+  @Test
+  public void onlyTheFirstPublishersArePrewarmed() throws Exception {
+    createSession(1);
+    KurentoParticipant first = join("first", OpenViduRole.PUBLISHER);
+    KurentoParticipant second = join("second", OpenViduRole.PUBLISHER);
+    KurentoParticipant subscriber = join("subscriber", OpenViduRole.SUBSCRIBER);
+
+    session.newPublisher(first);
+    session.newPublisher(second);
+    assertEquals(Collections.singleton("first"), subscriber.getSubscribedPublishers());
+    assertEquals(Collections.singleton("first"), second.getSubscribedPublishers());
+    assertTrue("No subscriber endpoint to itself", first.getSubscribedPublishers().isEmpty());
+    // Participants joining later are pre-loaded for the same publishers
+    assertEquals(Collections.singleton("first"), join("late", OpenViduRole.SUBSCRIBER).getSubscribedPublishers());
+  }
+
+  @Test
+  public void unpublishingFreesItsPrewarmSlot() throws Exception {
+    createSession(1);
+    KurentoParticipant first = join("first", OpenViduRole.PUBLISHER);
+    KurentoParticipant subscriber = join("subscriber", OpenViduRole.SUBSCRIBER);
+    session.newPublisher(first);
+    assertEquals(Collections.singleton("first"), subscriber.getSubscribedPublishers());
+
+    session.cancelPublisher(first, EndReason.unpublish);
+    assertTrue(subscriber.getSubscribedPublishers().isEmpty());
+
+    KurentoParticipant next = join("next", OpenViduRole.PUBLISHER);
+    session.newPublisher(next);
+    assertEquals(Collections.singleton("next"), subscriber.getSubscribedPublishers());
+  }
+
+  private void createSession(int prewarmPublishers) throws Exception {
+    OpenviduConfig openviduConfig = new OpenviduConfig() {
+      @Override
+      public int getSubscribersPrewarmPublishers() {
+        return prewarmPublishers;
+      }
+    };
+    session = new KurentoSession(
+        new Session("session", new SessionProperties.Builder().build(), openviduConfig, null), kms.getClient(), null,
+        endpointConfig, false, null, null);
+    session.createPipeline().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+  }
+
+  private KurentoParticipant join(String id, OpenViduRole role) {
+    session.join(new Participant(null, id, id, null, new Token(id, role, "", null, null), null, null, null, null));
+    return (KurentoParticipant) session.getParticipantByPrivateId(id);
+  }
+
+}
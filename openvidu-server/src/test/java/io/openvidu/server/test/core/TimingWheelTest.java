@@ -0,0 +1,88 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.openvidu.server.utils.TimingWheel;
+
+public class TimingWheelTest {
+
+  private final AtomicLong now = new AtomicLong(0);
+  private TimingWheel timingWheel;
+
+  @Before
+  public void setUp() {
+    // 8 buckets of 20 ms: a whole rotation lasts 160 ms. Expired tasks run in
+    // the thread calling advance()
+    timingWheel = new TimingWheel("test-wheel", 20, TimeUnit.MILLISECONDS, 8, 0, now::get);
+  }
+
+  @After
+  public void tearDown() {
+    timingWheel.stop();
+  }
+
+  @Test
+  public void expiresTimeoutsLongerThanOneRotation() {
+    final AtomicInteger runs = new AtomicInteger();
+    TimingWheel.Timeout timeout = timingWheel.schedule(runs::incrementAndGet, 400, TimeUnit.MILLISECONDS);
+
+    advanceTo(399);
+    assertEquals(0, runs.get());
+    assertFalse(timeout.isExpired());
+
+    // Expiration precision is one tick
+    advanceTo(420);
+    assertEquals(1, runs.get());
+    assertTrue(timeout.isExpired());
+    assertFalse(timeout.cancel());
+  }
+
+  @Test
+  public void cancelledTimeoutsNeverRun() {
+    final AtomicInteger runs = new AtomicInteger();
+    for (int i = 0; i < 1000; i++) {
+      TimingWheel.Timeout timeout = timingWheel.schedule(runs::incrementAndGet, 50 + i % 300,
+          TimeUnit.MILLISECONDS);
+      if (i % 2 == 0) {
+        assertTrue(timeout.cancel());
+      }
+    }
+    assertEquals(500, timingWheel.getScheduledCount());
+    advanceTo(1000);
+    assertEquals(500, runs.get());
+    assertEquals(0, timingWheel.getScheduledCount());
+  }
+
+  private void advanceTo(long millis) {
+    now.set(TimeUnit.MILLISECONDS.toNanos(millis));
+    timingWheel.advance();
+  }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import io.openvidu.client.OpenViduException;
+import io.openvidu.client.OpenViduException.Code;
+import io.openvidu.java.client.OpenViduRole;
+import io.openvidu.server.core.Token;
+import io.openvidu.server.core.TokenStore;
+import io.openvidu.server.kurento.core.KurentoSessionManager;
+import io.openvidu.server.kurento.core.KurentoTokenOptions;
+import io.openvidu.server.rest.SessionRestController;
+
+public class TokenBatchRestTest {
+
+  private SessionRestController controller;
+
+  private static class TestSessionManager extends KurentoSessionManager {
+
+    @Override
+    public String newToken(String sessionId, OpenViduRole role, String serverMetadata,
+        KurentoTokenOptions kurentoTokenOptions) {
+      return newTokens(sessionId, role, serverMetadata, kurentoTokenOptions, 1).get(0);
+    }
+
+    @Override
+    public List<String> newTokens(String sessionId, OpenViduRole role, String serverMetadata,
+        KurentoTokenOptions kurentoTokenOptions, int count) {
+      if ("invalid".equals(sessionId)) {
+        throw new OpenViduException(Code.GENERIC_ERROR_CODE, "Invalid token options");
+      }
+      if ("full".equals(sessionId)) {
+        throw new OpenViduException(Code.TOKEN_STORE_FULL_ERROR_CODE, "Maximum number of stored tokens reached");
+      }
+      if (!"session".equals(sessionId)) {
+        throw new OpenViduException(Code.ROOM_NOT_FOUND_ERROR_CODE, "sessionId [" + sessionId + "] not found");
+      }
+      List<String> tokens = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        tokens.add("token" + i);
+      }
+      return tokens;
+    }
+  }
+
+  @Before
+  public void setup() throws Exception {
+    controller = new SessionRestController();
+    inject("sessionManager", new TestSessionManager());
+  }
+
+  @Test
+  public void batchReturnsEveryToken() {
+    ResponseEntity<String> response = controller.newTokens(params("session", 3));
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    JsonObject json = new JsonParser().parse(response.getBody()).getAsJsonObject();
+    assertEquals(3, json.get("numberOfElements").getAsInt());
+    assertEquals(3, json.get("content").getAsJsonArray().size());
+    assertEquals("token2",
+        json.get("content").getAsJsonArray().get(2).getAsJsonObject().get("token").getAsString());
+  }
+
+  @Test
+  public void batchRequiresAValidCount() {
+    assertEquals(HttpStatus.BAD_REQUEST, controller.newTokens(params("session", null)).getStatusCode());
+    assertEquals(HttpStatus.BAD_REQUEST, controller.newTokens(params("session", 0)).getStatusCode());
+    assertEquals(HttpStatus.BAD_REQUEST, controller.newTokens(params("session", 1001)).getStatusCode());
+    assertEquals(HttpStatus.BAD_REQUEST, controller.newTokens(params("session", "3")).getStatusCode());
+  }
+
+  @Test
+  public void batchErrorsAreMappedToStatuses() {
+    assertEquals(HttpStatus.NOT_FOUND, controller.newTokens(params("unknown", 3)).getStatusCode());
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, controller.newTokens(params("full", 3)).getStatusCode());
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, controller.newToken(params("full", null)).getStatusCode());
+    // Any other error keeps the status returned before the token store had a limit
+    assertEquals(HttpStatus.NOT_FOUND, controller.newTokens(params("invalid", 3)).getStatusCode());
+    assertEquals(HttpStatus.NOT_FOUND, controller.newToken(params("invalid", null)).getStatusCode());
+  }
+
+  @Test
+  public void tokenStatsAreExposed() throws Exception {
+    TokenStore tokenStore = new TokenStore(null, 0, 1);
+    inject("tokenStore", tokenStore);
+    tokenStore.registerSession("session");
+    tokenStore.addToken("session", new Token("token1"));
+    try {
+      tokenStore.addToken("session", new Token("token2"));
+      fail("The store is full");
+    } catch (OpenViduException e) {
+      assertEquals(Code.TOKEN_STORE_FULL_ERROR_CODE.getValue(), e.getCodeValue());
+    }
+    tokenStore.consumeToken("session", "token1");
+
+    ResponseEntity<?> response = controller.getTokenStats();
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    JsonObject json = new JsonParser().parse((String) response.getBody()).getAsJsonObject();
+    assertEquals(1, json.get("sessions").getAsInt());
+    assertEquals(0, json.get("stored").getAsInt());
+    assertEquals(1, json.get("issued").getAsLong());
+    assertEquals(1, json.get("consumed").getAsLong());
+    assertEquals(0, json.get("expired").getAsLong());
+    assertEquals(1, json.get("rejected").getAsLong());
+  }
+
+  @Test
+  public void singleTokenIgnoresCount() {
+    assertEquals(HttpStatus.OK, controller.newToken(params("session", "not a number")).getStatusCode());
+  }
+
+  private void inject(String fieldName, Object value) throws Exception {
+    Field field = SessionRestController.class.getDeclaredField(fieldName);
+    field.setAccessible(true);
+    field.set(controller, value);
+  }
+
+  private Map<String, Object> params(String sessionId, Object count) {
+    Map<String, Object> params = new HashMap<>();
+    params.put("session", sessionId);
+    if (count != null) {
+      params.put("count", count);
+    }
+    return params;
+  }
+
+}
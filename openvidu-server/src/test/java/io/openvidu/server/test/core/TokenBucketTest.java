@@ -0,0 +1,92 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import io.openvidu.server.utils.TokenBucket;
+
+public class TokenBucketTest {
+
+  private final AtomicLong now = new AtomicLong(0);
+
+  @Test
+  public void burstIsAllowedAndThenRefilledAtRate() {
+    TokenBucket bucket = new TokenBucket(10, 5, now::get);
+    for (int i = 0; i < 5; i++) {
+      assertTrue(bucket.tryAcquire());
+    }
+    assertFalse(bucket.tryAcquire());
+
+    now.addAndGet(TimeUnit.MILLISECONDS.toNanos(99));
+    assertFalse(bucket.tryAcquire());
+    now.addAndGet(TimeUnit.MILLISECONDS.toNanos(151));
+    assertTrue(bucket.tryAcquire());
+    assertTrue(bucket.tryAcquire());
+    assertFalse(bucket.tryAcquire());
+
+    now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+    for (int i = 0; i < 5; i++) {
+      assertTrue("The bucket never holds more than its burst", bucket.tryAcquire());
+    }
+    assertFalse(bucket.tryAcquire());
+  }
+
+  @Test
+  public void zeroRateNeverLimits() {
+    TokenBucket bucket = new TokenBucket(0, 1, now::get);
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(bucket.tryAcquire());
+    }
+  }
+
+  @Test
+  public void throttledOperationDoesNotConsumeTheOtherBucket() {
+    TokenBucket connection = new TokenBucket(1, 2, now::get);
+    TokenBucket session = new TokenBucket(1, 1, now::get);
+
+    assertNull(TokenBucket.tryAcquire(connection, session));
+    assertSame(session, TokenBucket.tryAcquire(connection, session));
+    assertTrue("The connection keeps the token of the rejected operation", connection.tryAcquire());
+    assertSame(connection, TokenBucket.tryAcquire(connection, session));
+
+    now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    assertNull(TokenBucket.tryAcquire(connection, new TokenBucket(0, 0, now::get)));
+    assertTrue(session.tryAcquire());
+  }
+
+  @Test
+  public void lazyBucketIsCreatedOnce() {
+    AtomicReference<TokenBucket> reference = new AtomicReference<>();
+    TokenBucket first = TokenBucket.getOrCreate(reference, () -> new TokenBucket(1, 1, now::get));
+    assertSame(first, reference.get());
+    assertSame(first, TokenBucket.getOrCreate(reference, () -> {
+      throw new AssertionError("The bucket already exists");
+    }));
+  }
+
+}
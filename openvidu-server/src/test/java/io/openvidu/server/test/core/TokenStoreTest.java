@@ -0,0 +1,134 @@
+/*
+ * (C) Copyright 2017-2019 OpenVidu (https://openvidu.io/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package io.openvidu.server.test.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import io.openvidu.client.OpenViduException;
+import io.openvidu.client.OpenViduException.Code;
+import io.openvidu.server.core.Token;
+import io.openvidu.server.core.TokenStore;
+
+public class TokenStoreTest {
+
+  @Test
+  public void consumedTokensCannotBeReused() {
+    TokenStore store = new TokenStore(null, 0, 0);
+    assertTrue(store.registerSession("session"));
+    assertFalse(store.registerSession("session"));
+    store.addToken("session", new Token("token"));
+
+    assertTrue(store.isTokenValid("session", "token"));
+    assertNotNull(store.consumeToken("session", "token"));
+    assertFalse(store.isTokenValid("session", "token"));
+    assertNull(store.consumeToken("session", "token"));
+    assertEquals(0, store.getStoredTokens());
+    assertEquals(1, store.getConsumedTokens());
+  }
+
+  @Test
+  public void tokensExpireAfterTtl() {
+    AtomicLong now = new AtomicLong(0);
+    TokenStore store = new TokenStore(null, 1, 0, now::get);
+    store.registerSession("session");
+    store.addToken("session", new Token("token1"));
+    store.addToken("session", new Token("token2"));
+    store.addToken("session", new Token("token3"));
+    assertNotNull(store.consumeToken("session", "token3"));
+
+    now.set(1000);
+    assertTrue(store.isTokenValid("session", "token1"));
+    now.set(1001);
+    assertFalse(store.isTokenValid("session", "token1"));
+    assertNull(store.consumeToken("session", "token2"));
+    assertEquals(0, store.getStoredTokens());
+    assertEquals(2, store.getExpiredTokens());
+    assertEquals(1, store.getConsumedTokens());
+  }
+
+  @Test
+  public void storeIsBounded() {
+    TokenStore store = new TokenStore(null, 0, 2);
+    store.registerSession("session");
+    store.addToken("session", new Token("token1"));
+    store.addToken("session", new Token("token2"));
+    try {
+      store.addToken("session", new Token("token3"));
+      fail("Token store should be full");
+    } catch (OpenViduException e) {
+      assertEquals(Code.TOKEN_STORE_FULL_ERROR_CODE.getValue(), e.getCodeValue());
+    }
+    assertEquals(1, store.getRejectedTokens());
+
+    store.removeSession("session");
+    assertEquals(0, store.getStoredTokens());
+  }
+
+  @Test
+  public void concurrentInsertionsDoNotExceedTheLimit() throws Exception {
+    int maxTokens = 100;
+    int threads = 8;
+    TokenStore store = new TokenStore(null, 0, maxTokens);
+    store.registerSession("session");
+    AtomicInteger accepted = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      final int thread = t;
+      futures.add(executor.submit(() -> {
+        start.await();
+        for (int i = 0; i < maxTokens; i++) {
+          try {
+            store.addToken("session", new Token("token" + thread + "_" + i));
+            accepted.incrementAndGet();
+          } catch (OpenViduException e) {
+            // Store full
+          }
+        }
+        return null;
+      }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get(10, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+    assertEquals(maxTokens, accepted.get());
+    assertEquals(maxTokens, store.getStoredTokens());
+    assertEquals(threads * maxTokens - maxTokens, store.getRejectedTokens());
+  }
+
+}